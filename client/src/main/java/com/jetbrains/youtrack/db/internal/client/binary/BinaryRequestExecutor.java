@@ -42,6 +42,7 @@ import com.jetbrains.youtrack.db.internal.client.remote.message.OpenRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.QueryNextPageRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.QueryRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordRequest;
+import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordsRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.RecordExistsRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReleaseDatabaseRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReloadRequest;
@@ -106,6 +107,8 @@ public interface BinaryRequestExecutor {
 
   BinaryResponse executeReadRecord(ReadRecordRequest request);
 
+  BinaryResponse executeReadRecords(ReadRecordsRequest request);
+
   BinaryResponse executeRecordExists(RecordExistsRequest request);
 
   BinaryResponse executeCreateRecord(CreateRecordRequest request);
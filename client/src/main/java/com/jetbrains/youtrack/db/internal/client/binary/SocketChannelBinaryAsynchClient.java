@@ -31,6 +31,7 @@ import com.jetbrains.youtrack.db.api.config.ContextConfiguration;
 import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
 import com.jetbrains.youtrack.db.internal.enterprise.channel.SocketFactory;
 import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.SocketChannelBinary;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelBinaryCompression;
 import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelBinaryProtocol;
 import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.NetworkProtocolException;
 import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ResponseProcessingException;
@@ -60,6 +61,8 @@ public class SocketChannelBinaryAsynchClient extends SocketChannelBinary {
   private byte currentMessage;
   private volatile long lastUse;
   private volatile boolean inUse;
+  private final ChannelBinaryCompression compression;
+  private DataInputStream socketIn;
 
   public SocketChannelBinaryAsynchClient(
       final String remoteHost,
@@ -68,6 +71,13 @@ public class SocketChannelBinaryAsynchClient extends SocketChannelBinary {
       final int iProtocolVersion)
       throws IOException {
     super(SocketFactory.instance(iConfig).createSocket(), iConfig);
+    if (iConfig.getValueAsBoolean(GlobalConfiguration.NETWORK_BINARY_COMPRESSION)) {
+      // SIZE OF COMPRESSED RESPONSES IS LIMITED BY THE SERVER, WHICH DOES NOT KNOW THE LIMIT OF
+      // THE CLIENT, SO ANY RESPONSE THE SERVER DECIDED TO COMPRESS IS ACCEPTED
+      compression = new ChannelBinaryCompression(0, Integer.MAX_VALUE);
+    } else {
+      compression = null;
+    }
     try {
 
       serverURL = remoteHost + ":" + remotePort;
@@ -98,7 +108,10 @@ public class SocketChannelBinaryAsynchClient extends SocketChannelBinary {
         writeShort((short) iProtocolVersion);
         writeString("Java Client");
         writeString(YouTrackDBConstants.getVersion());
-        writeByte(ChannelBinaryProtocol.ENCODING_DEFAULT);
+        writeByte(
+            compression != null
+                ? ChannelBinaryProtocol.ENCODING_LZ4
+                : ChannelBinaryProtocol.ENCODING_DEFAULT);
         writeByte(ChannelBinaryProtocol.ERROR_MESSAGE_JAVA);
         flush();
       } catch (IOException e) {
@@ -225,6 +238,13 @@ public class SocketChannelBinaryAsynchClient extends SocketChannelBinary {
       }
 
       currentMessage = readByte();
+      if (currentStatus == ChannelBinaryProtocol.RESPONSE_STATUS_OK_COMPRESSED
+          && compression != null) {
+        // CONTENT OF THE RESPONSE IS READ FROM THE DECOMPRESSED BUFFER TILL THE END OF RESPONSE
+        socketIn = in;
+        in = compression.readMessage(in);
+        currentStatus = ChannelBinaryProtocol.RESPONSE_STATUS_OK;
+      }
       handleStatus(db, currentStatus, currentSessionId);
       return tokenBytes;
     } catch (LockException e) {
@@ -236,6 +256,11 @@ public class SocketChannelBinaryAsynchClient extends SocketChannelBinary {
   }
 
   public void endResponse() throws IOException {
+    if (socketIn != null) {
+      in = socketIn;
+      socketIn = null;
+    }
+
     // WAKE UP ALL THE WAITING THREADS
     try {
       releaseReadLock();
@@ -0,0 +1,71 @@
+package com.jetbrains.youtrack.db.internal.client.remote;
+
+import com.jetbrains.youtrack.db.internal.client.binary.SocketChannelBinaryAsynchClient;
+import com.jetbrains.youtrack.db.internal.client.remote.message.QueryNextPageRequest;
+import com.jetbrains.youtrack.db.internal.client.remote.message.QueryResponse;
+
+/**
+ * Request of the next page of a remote result set which was sent to the server while the current
+ * page is consumed. The response stays on the connection till the page is needed and then is read
+ * by the thread which owns the database session, so the network round trip and the execution of
+ * the query on the server overlap with the processing of the current page.
+ *
+ * <p>If a page of another result set of the same session is prefetched meanwhile, the response is
+ * read earlier and kept here, so the connection is returned to the pool.
+ */
+public final class QueryPagePrefetch {
+
+  private final SocketChannelBinaryAsynchClient network;
+  private final StorageRemoteSession session;
+  private final QueryNextPageRequest request;
+
+  private QueryResponse response;
+  private RuntimeException error;
+
+  QueryPagePrefetch(
+      SocketChannelBinaryAsynchClient network,
+      StorageRemoteSession session,
+      QueryNextPageRequest request) {
+    this.network = network;
+    this.session = session;
+    this.request = request;
+  }
+
+  SocketChannelBinaryAsynchClient getNetwork() {
+    return network;
+  }
+
+  StorageRemoteSession getSession() {
+    return session;
+  }
+
+  QueryNextPageRequest getRequest() {
+    return request;
+  }
+
+  /**
+   * @return <code>true</code> if the response was already read from the connection.
+   */
+  boolean isRead() {
+    return response != null || error != null;
+  }
+
+  /**
+   * @return Response read from the connection, or throws the error which happened during the
+   * read.
+   */
+  QueryResponse getResponse() {
+    if (error != null) {
+      throw error;
+    }
+    return response;
+  }
+
+  void read(QueryResponse response) {
+    this.response = response;
+  }
+
+  void failed(RuntimeException error) {
+    this.error = error;
+  }
+}
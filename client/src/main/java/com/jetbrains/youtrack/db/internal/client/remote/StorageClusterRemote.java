@@ -218,6 +218,11 @@ public class StorageClusterRemote implements StorageCluster {
     throw new UnsupportedOperationException("remote cluster doesn't support atomic locking");
   }
 
+  @Override
+  public boolean isAtomicExclusiveLocked() {
+    throw new UnsupportedOperationException("remote cluster doesn't support atomic locking");
+  }
+
   @Override
   public ClusterBrowsePage nextPage(long lastPosition) {
     throw new UnsupportedOperationException();
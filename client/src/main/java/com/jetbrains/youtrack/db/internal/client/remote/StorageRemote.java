@@ -83,6 +83,8 @@ import com.jetbrains.youtrack.db.internal.client.remote.message.QueryNextPageReq
 import com.jetbrains.youtrack.db.internal.client.remote.message.QueryRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.QueryResponse;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordRequest;
+import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordsRequest;
+import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordsResponse;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordResponse;
 import com.jetbrains.youtrack.db.internal.client.remote.message.RecordExistsRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReloadRequest37;
@@ -127,6 +129,7 @@ import com.jetbrains.youtrack.db.internal.core.db.record.RecordOperation;
 import com.jetbrains.youtrack.db.internal.core.exception.StorageException;
 import com.jetbrains.youtrack.db.internal.core.id.RecordId;
 import com.jetbrains.youtrack.db.internal.core.metadata.security.TokenException;
+import com.jetbrains.youtrack.db.internal.core.record.RecordAbstract;
 import com.jetbrains.youtrack.db.internal.core.record.RecordInternal;
 import com.jetbrains.youtrack.db.internal.core.record.RecordVersionHelper;
 import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
@@ -155,6 +158,7 @@ import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.TokenSecurit
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -205,6 +209,14 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
   private final ContextConfiguration clientConfiguration;
   private final int connectionRetry;
   private final int connectionRetryDelay;
+  private final int pipelineDepth;
+
+  /**
+   * Whether the server which the database was opened on supports load of several records by a
+   * single request.
+   */
+  private volatile boolean readRecordsSupported;
+
   private StorageCluster[] clusters = CommonConst.EMPTY_CLUSTER_ARRAY;
   private int defaultClusterId;
   public RemoteConnectionManager connectionManager;
@@ -276,6 +288,10 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
         clientConfiguration.getValueAsInteger(GlobalConfiguration.NETWORK_SOCKET_RETRY);
     connectionRetryDelay =
         clientConfiguration.getValueAsInteger(GlobalConfiguration.NETWORK_SOCKET_RETRY_DELAY);
+    pipelineDepth =
+        Math.max(
+            1,
+            clientConfiguration.getValueAsInteger(GlobalConfiguration.NETWORK_BINARY_PIPELINE_DEPTH));
     serverURLs = hosts;
 
     asynchExecutor = ThreadPoolExecutors.newSingleThreadScheduledPool("StorageRemote Async");
@@ -459,6 +475,136 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
     return networkOperationRetryTimeout(database, request, errorMessage, connectionRetry, 0);
   }
 
+  /**
+   * Executes requests on the same connection, sending up to
+   * {@link GlobalConfiguration#NETWORK_BINARY_PIPELINE_DEPTH} of them before the response of the
+   * first one is read. The server executes requests of a connection in the order they were sent,
+   * so it does not wait for a network round trip between them, and responses are read in the order
+   * of the requests. The connection is locked for writes only till the last request is sent, as it
+   * is done for a single request.
+   *
+   * <p>Only requests of a single caller are pipelined. The connection is taken from the pool for
+   * the whole operation, as for a single request, so it is not shared with other callers, and
+   * concurrent callers use other connections of the pool. Requests carry no correlation id, a
+   * response is matched to its request only by the order of the requests.
+   *
+   * <p>If one of the requests fails, the rest of the requests are not sent, responses of the
+   * requests which were already sent are read, and the error of the first failed request is
+   * thrown. Requests which were sent could be already executed by the server, so once the first of
+   * them is sent the operation is not retried, errors which cause retry of a single request are
+   * thrown as {@link StorageException}.
+   *
+   * @return Responses in the order of the requests.
+   */
+  public <T extends BinaryResponse> List<T> pipelinedNetworkOperation(
+      DatabaseSessionRemote database, final List<? extends BinaryRequest<T>> requests,
+      final String errorMessage) {
+    if (requests.isEmpty()) {
+      return Collections.emptyList();
+    }
+    if (requests.size() == 1) {
+      return Collections.singletonList(networkOperation(database, requests.get(0), errorMessage));
+    }
+
+    return baseNetworkOperation(database,
+        (network, session) -> {
+          final List<T> responses = new ArrayList<>(requests.size());
+          RuntimeException error = null;
+          int sent = 0;
+          boolean writeLocked = true;
+
+          try {
+            while (responses.size() < sent || (error == null && sent < requests.size())) {
+              if (error == null
+                  && sent < requests.size()
+                  && sent - responses.size() < pipelineDepth) {
+                final BinaryRequest<T> request = requests.get(sent);
+                try {
+                  network.beginRequest(request.getCommand(), session);
+                  request.write(database, network, session);
+                } catch (IOException e) {
+                  if (sent == 0) {
+                    if (network.isConnected()) {
+                      LogManager.instance().warn(this, "Error Writing request on the network", e);
+                    }
+                    throw new NotSendRequestException("Cannot send request on this channel");
+                  }
+                  throw e;
+                }
+
+                sent++;
+                continue;
+              }
+
+              if (writeLocked) {
+                network.flush();
+                if (error != null || sent == requests.size()) {
+                  // the rest of the responses are only read
+                  network.releaseWriteLock();
+                  writeLocked = false;
+                }
+              }
+
+              final T response = requests.get(responses.size()).createResponse();
+              try {
+                beginResponse(database, network, session);
+                response.read(database, network, session);
+              } catch (RuntimeException e) {
+                // response of the failed request is read completely, so the responses of the
+                // rest of the sent requests can still be read
+                if (error == null) {
+                  error = e;
+                }
+              } finally {
+                endResponse(network);
+              }
+              responses.add(response);
+            }
+          } catch (IOException e) {
+            // the state of the connection is unknown, so it is closed and is not returned to the
+            // pool
+            network.close();
+            throw BaseException.wrapException(
+                new StorageException(
+                    errorMessage
+                        + ", connection was broken after "
+                        + sent
+                        + " of "
+                        + requests.size()
+                        + " requests were sent"),
+                e);
+          } finally {
+            if (writeLocked) {
+              network.releaseWriteLock();
+            }
+          }
+
+          if (error != null) {
+            if (isRetried(error)) {
+              throw BaseException.wrapException(new StorageException(errorMessage), error);
+            }
+            throw error;
+          }
+
+          connectionManager.release(network);
+          return responses;
+        },
+        errorMessage, connectionRetry);
+  }
+
+  /**
+   * @return <code>true</code> if the operation which failed with given error is retried by
+   * {@link #baseNetworkOperation(DatabaseSessionRemote, StorageRemoteOperation, String, int)}.
+   */
+  private static boolean isRetried(final RuntimeException error) {
+    return error instanceof NotSendRequestException
+        || error instanceof DistributedRedirectException
+        || error instanceof ModificationOperationProhibitedException
+        || error instanceof TokenSecurityException
+        || error instanceof OfflineNodeException
+        || error instanceof YTIOException;
+  }
+
   public <T> T baseNetworkOperation(
       DatabaseSessionRemote remoteSession, final StorageRemoteOperation<T> operation,
       final String errorMessage, int retry) {
@@ -879,6 +1025,45 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
     return response.getResult();
   }
 
+  /**
+   * Loads several records by requests of at most <code>batchSize</code> records, which are
+   * pipelined on a single connection.
+   *
+   * @return Loaded records, records which are not found are omitted.
+   */
+  public List<RecordAbstract> readRecords(
+      DatabaseSessionRemote session, final List<RecordId> rids, final int batchSize) {
+    final List<ReadRecordsRequest> requests = new ArrayList<>();
+    for (int i = 0; i < rids.size(); i += batchSize) {
+      requests.add(
+          new ReadRecordsRequest(
+              new ArrayList<>(rids.subList(i, Math.min(rids.size(), i + batchSize)))));
+    }
+
+    final List<ReadRecordsResponse> responses =
+        pipelinedNetworkOperation(session, requests,
+            "Error on read of " + rids.size() + " records");
+
+    final List<RecordAbstract> records = new ArrayList<>(rids.size());
+    for (final ReadRecordsResponse response : responses) {
+      records.addAll(response.getRecords());
+    }
+    return records;
+  }
+
+  public int getPipelineDepth() {
+    return pipelineDepth;
+  }
+
+  /**
+   * @return <code>true</code> if the server supports
+   * {@link ChannelBinaryProtocol#REQUEST_RECORDS_LOAD}, which was added in
+   * {@link ChannelBinaryProtocol#PROTOCOL_VERSION_39}.
+   */
+  public boolean isReadRecordsSupported() {
+    return readRecordsSupported;
+  }
+
   public String incrementalBackup(DatabaseSessionInternal session, final String backupDirectory,
       CallableFunction<Void, Void> started) {
     IncrementalBackupRequest request = new IncrementalBackupRequest(backupDirectory);
@@ -1109,6 +1294,7 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
 
       if (response.isHasNextPage()) {
         stickToSession(db);
+        prefetchNextPage(db, rs);
       } else {
         db.queryClosed(response.getQueryId());
       }
@@ -1145,6 +1331,7 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
 
       if (response.isHasNextPage()) {
         stickToSession(db);
+        prefetchNextPage(db, rs);
       } else {
         db.queryClosed(response.getQueryId());
       }
@@ -1181,6 +1368,7 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
               response.isHasNextPage());
       if (response.isHasNextPage()) {
         stickToSession(db);
+        prefetchNextPage(db, rs);
       } else {
         db.queryClosed(response.getQueryId());
       }
@@ -1216,6 +1404,7 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
               response.isHasNextPage());
       if (response.isHasNextPage()) {
         stickToSession(db);
+        prefetchNextPage(db, rs);
       } else {
         db.queryClosed(response.getQueryId());
       }
@@ -1254,6 +1443,7 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
 
       if (response.isHasNextPage()) {
         stickToSession(db);
+        prefetchNextPage(db, rs);
       } else {
         db.queryClosed(response.getQueryId());
       }
@@ -1292,6 +1482,7 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
               response.isHasNextPage());
       if (response.isHasNextPage()) {
         stickToSession(db);
+        prefetchNextPage(db, rs);
       } else {
         db.queryClosed(response.getQueryId());
       }
@@ -1309,14 +1500,18 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
   }
 
   public void fetchNextPage(DatabaseSessionRemote database, RemoteResultSet rs) {
-    int recordsPerPage = GlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
-    if (recordsPerPage <= 0) {
-      recordsPerPage = 100;
+    final QueryPagePrefetch prefetch = rs.takePrefetch();
+    final QueryResponse response;
+    if (prefetch != null) {
+      final long start = System.nanoTime();
+      response = readPrefetchedPage(database, prefetch);
+      rs.prefetchAwaited(System.nanoTime() - start);
+    } else {
+      QueryNextPageRequest request = new QueryNextPageRequest(rs.getQueryId(), rs.getPageSize());
+      response =
+          networkOperation(database, request,
+              "Error on fetching next page for statment: " + rs.getQueryId());
     }
-    QueryNextPageRequest request = new QueryNextPageRequest(rs.getQueryId(), recordsPerPage);
-    QueryResponse response =
-        networkOperation(database, request,
-            "Error on fetching next page for statment: " + rs.getQueryId());
 
     rs.fetched(
         response.getResult(),
@@ -1326,7 +1521,117 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
     if (!response.isHasNextPage()) {
       unstickToSession(database);
       database.queryClosed(response.getQueryId());
+    } else {
+      prefetchNextPage(database, rs);
+    }
+  }
+
+  /**
+   * Sends the request of the next page of the result set without waiting for the response, if
+   * {@link GlobalConfiguration#QUERY_REMOTE_RESULTSET_PREFETCH} is enabled. Pages are not
+   * prefetched inside of transactions, because changes of the transaction are sent to the server
+   * only before the page is fetched.
+   */
+  public void prefetchNextPage(DatabaseSessionRemote database, RemoteResultSet rs) {
+    if (!clientConfiguration.getValueAsBoolean(GlobalConfiguration.QUERY_REMOTE_RESULTSET_PREFETCH)
+        || database.getTransaction().isActive()) {
+      return;
+    }
+
+    final StorageRemoteSession remoteSession = getCurrentSession(database);
+    final QueryPagePrefetch pendingPrefetch = remoteSession.pendingPrefetch;
+    if (pendingPrefetch != null) {
+      // the result set of the pending page may be abandoned without close, its connection is
+      // released and the page is kept till the result set asks for it
+      try {
+        readPrefetchedPage(database, pendingPrefetch);
+      } catch (RuntimeException e) {
+        pendingPrefetch.failed(e);
+      }
+    }
+
+    final QueryNextPageRequest request =
+        new QueryNextPageRequest(rs.getQueryId(), rs.getPageSize());
+    final QueryPagePrefetch prefetch =
+        baseNetworkOperation(database,
+            (network, session) -> {
+              try {
+                try {
+                  network.beginRequest(request.getCommand(), session);
+                  request.write(database, network, session);
+                } finally {
+                  network.endRequest();
+                }
+              } catch (IOException e) {
+                throw new NotSendRequestException("Cannot send request on this channel");
+              }
+              // the connection is released once the response is read
+              return new QueryPagePrefetch(network, session, request);
+            },
+            "Error on prefetching next page for statement: " + rs.getQueryId(),
+            connectionRetry);
+    rs.setPrefetch(prefetch);
+    remoteSession.pendingPrefetch = prefetch;
+  }
+
+  /**
+   * Reads the response of the prefetched page of the result set, which is not needed anymore
+   * because the result set is closed, so the connection used to prefetch it can be reused.
+   */
+  public void dropPrefetchedPage(DatabaseSessionRemote database, RemoteResultSet rs) {
+    final QueryPagePrefetch prefetch = rs.takePrefetch();
+    if (prefetch == null) {
+      return;
+    }
+
+    final QueryResponse response = readPrefetchedPage(database, prefetch);
+    rs.fetched(
+        Collections.emptyList(),
+        response.isHasNextPage(),
+        response.getExecutionPlan(),
+        response.getQueryStats());
+    if (!response.isHasNextPage()) {
+      unstickToSession(database);
+      database.queryClosed(response.getQueryId());
+    }
+  }
+
+  private QueryResponse readPrefetchedPage(
+      DatabaseSessionRemote database, QueryPagePrefetch prefetch) {
+    if (prefetch.isRead()) {
+      return prefetch.getResponse();
     }
+    final StorageRemoteSession remoteSession = prefetch.getSession();
+    if (remoteSession.pendingPrefetch == prefetch) {
+      remoteSession.pendingPrefetch = null;
+    }
+
+    final SocketChannelBinaryAsynchClient network = prefetch.getNetwork();
+    final String errorMessage =
+        "Error on fetching next page for statment: " + prefetch.getRequest().getQueryId();
+    final QueryResponse response = prefetch.getRequest().createResponse();
+    try {
+      try {
+        beginResponse(database, network, prefetch.getSession());
+        response.read(database, network, prefetch.getSession());
+      } finally {
+        endResponse(network);
+      }
+    } catch (IOException e) {
+      // the query can not be continued, the server may already have sent the page
+      connectionManager.remove(network);
+      throw BaseException.wrapException(new YTIOException(errorMessage), e);
+    } catch (BaseException e) {
+      connectionManager.release(network);
+      throw e;
+    } catch (Exception e) {
+      connectionManager.release(network);
+      throw BaseException.wrapException(new StorageException(errorMessage), e);
+    }
+
+    connectionManager.release(network);
+    prefetch.read(response);
+    return response;
   }
 
   public List<RecordOperation> commit(final TransactionOptimistic iTx) {
@@ -1766,6 +2071,8 @@ public class StorageRemote implements StorageProxy, RemotePushHandler, Storage {
     }
 
     nodeSession.setSession(sessionId, token);
+    readRecordsSupported =
+        network.getSrvProtocolVersion() >= ChannelBinaryProtocol.PROTOCOL_VERSION_39;
 
     LogManager.instance()
         .debug(
@@ -62,6 +62,13 @@ public class StorageRemoteSession {
 
   protected String currentUrl;
 
+  /**
+   * Prefetched page of a result set of the session whose response is not read from the connection
+   * yet. Only one page is left on a connection at once, so a result set which is neither consumed
+   * nor closed holds at most one connection of the pool till the session is closed.
+   */
+  QueryPagePrefetch pendingPrefetch;
+
   public StorageRemoteSession(final int sessionId) {
     this.uniqueClientSessionId = sessionId;
   }
@@ -54,6 +54,7 @@ import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
 import com.jetbrains.youtrack.db.internal.core.db.HookReplacedRecordThreadLocal;
 import com.jetbrains.youtrack.db.internal.core.db.SharedContext;
 import com.jetbrains.youtrack.db.internal.core.db.YouTrackDBConfigImpl;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
 import com.jetbrains.youtrack.db.internal.core.index.ClassIndexManager;
 import com.jetbrains.youtrack.db.internal.core.index.IndexManagerRemote;
 import com.jetbrains.youtrack.db.internal.core.iterator.RecordIteratorCluster;
@@ -83,8 +84,11 @@ import com.jetbrains.youtrack.db.internal.core.tx.FrontendTransactionNoTx;
 import com.jetbrains.youtrack.db.internal.core.tx.FrontendTransactionNoTx.NonTxReadMode;
 import com.jetbrains.youtrack.db.internal.core.tx.TransactionOptimistic;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -461,6 +465,67 @@ public class DatabaseSessionRemote extends DatabaseSessionAbstract {
     storage.fetchNextPage(this, rs);
   }
 
+  public void dropPrefetchedPage(RemoteResultSet rs) {
+    storage.dropPrefetchedPage(this, rs);
+  }
+
+  @Override
+  public List<RecordAbstract> preloadRecords(Iterable<?> links, int batches) {
+    checkOpenness();
+    checkIfActive();
+
+    final int batchSize =
+        storage
+            .getClientConfiguration()
+            .getValueAsInteger(GlobalConfiguration.NETWORK_BINARY_READ_RECORDS_BATCH_SIZE);
+    // servers of older versions do not support load of several records by a single request
+    if (batchSize <= 0 || batches <= 0 || !storage.isReadRecordsSupported()) {
+      return Collections.emptyList();
+    }
+
+    // several batches are pipelined on the same connection
+    final long maxRecords =
+        (long) batchSize * Math.min(batches, storage.getPipelineDepth());
+    final var tx = getTransaction();
+    final Set<RecordId> rids = new LinkedHashSet<>();
+    for (final Object link : links) {
+      if (rids.size() >= maxRecords) {
+        break;
+      }
+      if (!(link instanceof RecordId rid) || !rid.isPersistent()) {
+        continue;
+      }
+      if (tx.isActive() && tx.getRecordEntry(rid) != null) {
+        continue;
+      }
+
+      final RecordAbstract cached = localCache.findRecord(rid);
+      if (cached == null || cached.isUnloaded()) {
+        rids.add(rid);
+      }
+    }
+
+    // a single record is loaded once it is accessed, as usual
+    if (rids.size() < 2) {
+      return Collections.emptyList();
+    }
+
+    final List<RecordAbstract> records =
+        storage.readRecords(this, new ArrayList<>(rids), batchSize);
+    for (int i = 0; i < records.size(); i++) {
+      final RecordAbstract record = records.get(i);
+      final RecordAbstract cached = localCache.findRecord(record.getIdentity());
+      if (cached != null && cached != record) {
+        // the instance which is already referenced by the cache is kept
+        record.copyTo(cached);
+        records.set(i, cached);
+      } else if (cached == null) {
+        localCache.updateRecord(record);
+      }
+    }
+    return records;
+  }
+
   @Override
   public LiveQueryMonitor live(String query, LiveQueryResultListener listener, Object... args) {
     return storage.liveQuery(
@@ -0,0 +1,75 @@
+package com.jetbrains.youtrack.db.internal.client.remote.message;
+
+import com.jetbrains.youtrack.db.internal.client.binary.BinaryRequestExecutor;
+import com.jetbrains.youtrack.db.internal.client.remote.BinaryRequest;
+import com.jetbrains.youtrack.db.internal.client.remote.BinaryResponse;
+import com.jetbrains.youtrack.db.internal.client.remote.StorageRemoteSession;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.RecordSerializer;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelBinaryProtocol;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelDataInput;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelDataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads several records by a single request. Records which are not found are omitted from the
+ * response.
+ */
+public final class ReadRecordsRequest implements BinaryRequest<ReadRecordsResponse> {
+
+  private List<RecordId> rids;
+
+  public ReadRecordsRequest(List<RecordId> rids) {
+    this.rids = rids;
+  }
+
+  public ReadRecordsRequest() {
+  }
+
+  @Override
+  public void write(DatabaseSessionInternal database, ChannelDataOutput network,
+      StorageRemoteSession session) throws IOException {
+    network.writeInt(rids.size());
+    for (RecordId rid : rids) {
+      network.writeRID(rid);
+    }
+  }
+
+  @Override
+  public void read(DatabaseSessionInternal db, ChannelDataInput channel, int protocolVersion,
+      RecordSerializer serializer)
+      throws IOException {
+    final int size = channel.readInt();
+    rids = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      rids.add(channel.readRID());
+    }
+  }
+
+  @Override
+  public byte getCommand() {
+    return ChannelBinaryProtocol.REQUEST_RECORDS_LOAD;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Load records";
+  }
+
+  public List<RecordId> getRids() {
+    return rids;
+  }
+
+  @Override
+  public ReadRecordsResponse createResponse() {
+    return new ReadRecordsResponse();
+  }
+
+  @Override
+  public BinaryResponse execute(BinaryRequestExecutor executor) {
+    return executor.executeReadRecords(this);
+  }
+}
@@ -0,0 +1,50 @@
+package com.jetbrains.youtrack.db.internal.client.remote.message;
+
+import com.jetbrains.youtrack.db.internal.client.remote.BinaryResponse;
+import com.jetbrains.youtrack.db.internal.client.remote.StorageRemoteSession;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.record.RecordAbstract;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.RecordSerializer;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.RecordSerializerNetworkV37Client;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelDataInput;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelDataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ReadRecordsResponse implements BinaryResponse {
+
+  private List<RecordAbstract> records;
+
+  public ReadRecordsResponse() {
+  }
+
+  public ReadRecordsResponse(List<RecordAbstract> records) {
+    this.records = records;
+  }
+
+  @Override
+  public void write(DatabaseSessionInternal session, ChannelDataOutput network,
+      int protocolVersion, RecordSerializer serializer)
+      throws IOException {
+    network.writeInt(records.size());
+    for (RecordAbstract record : records) {
+      MessageHelper.writeRecord(session, network, record, serializer);
+    }
+  }
+
+  @Override
+  public void read(DatabaseSessionInternal db, ChannelDataInput network,
+      StorageRemoteSession session) throws IOException {
+    RecordSerializerNetworkV37Client serializer = RecordSerializerNetworkV37Client.INSTANCE;
+    final int size = network.readInt();
+    records = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      records.add((RecordAbstract) MessageHelper.readIdentifiable(db, network, serializer));
+    }
+  }
+
+  public List<RecordAbstract> getRecords() {
+    return records;
+  }
+}
@@ -1,13 +1,18 @@
 package com.jetbrains.youtrack.db.internal.client.remote.message;
 
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.api.query.ExecutionPlan;
 import com.jetbrains.youtrack.db.api.query.Result;
 import com.jetbrains.youtrack.db.api.query.ResultSet;
 import com.jetbrains.youtrack.db.api.record.DBRecord;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.client.remote.QueryPagePrefetch;
 import com.jetbrains.youtrack.db.internal.client.remote.db.DatabaseSessionRemote;
 import com.jetbrains.youtrack.db.internal.core.db.QueryDatabaseState;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.ResultInternal;
 import com.jetbrains.youtrack.db.internal.core.tx.FrontendTransactionAbstract;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,6 +22,12 @@ import java.util.Optional;
  */
 public class RemoteResultSet implements ResultSet {
 
+  /**
+   * Maximum page size relative to the configured one, it is reached if the consumer keeps waiting
+   * for the prefetched pages.
+   */
+  private static final int MAX_PAGE_SIZE_FACTOR = 16;
+
   private final DatabaseSessionRemote db;
   private final String queryId;
   private List<Result> currentPage;
@@ -24,6 +35,17 @@ public class RemoteResultSet implements ResultSet {
   private Map<String, Long> queryStats;
   private boolean hasNextPage;
 
+  private final int minPageSize;
+  private int pageSize;
+  private long pageFetchedTs;
+  private QueryPagePrefetch prefetch;
+
+  /**
+   * Records linked by the results of the current page, they are referenced by the result set
+   * because local cache references records weakly.
+   */
+  private List<? extends DBRecord> preloadedRecords = Collections.emptyList();
+
   public RemoteResultSet(
       DatabaseSessionRemote db,
       String queryId,
@@ -37,6 +59,15 @@ public class RemoteResultSet implements ResultSet {
     this.executionPlan = executionPlan;
     this.queryStats = queryStats;
     this.hasNextPage = hasNextPage;
+
+    int recordsPerPage = GlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
+    if (recordsPerPage <= 0) {
+      recordsPerPage = 100;
+    }
+    this.minPageSize = recordsPerPage;
+    this.pageSize = recordsPerPage;
+    this.pageFetchedTs = System.nanoTime();
+
     if (db != null) {
       db.queryStarted(queryId, new QueryDatabaseState(this));
       for (Result result : currentPage) {
@@ -44,9 +75,34 @@ public class RemoteResultSet implements ResultSet {
           ((ResultInternal) result).bindToCache(db);
         }
       }
+      preloadLinks();
     }
   }
 
+  /**
+   * Loads records linked by the properties of projections of the current page by a single request,
+   * instead of loading them one by one once the links are resolved.
+   */
+  private void preloadLinks() {
+    final List<Object> links = new ArrayList<>();
+    for (Result result : currentPage) {
+      if (!result.isProjection()) {
+        continue;
+      }
+      for (String name : result.getPropertyNames()) {
+        // metadata, like @rid of the record, is not resolved usually
+        if (!name.startsWith("@")) {
+          final Object value = result.getProperty(name);
+          if (value instanceof RID) {
+            links.add(value);
+          }
+        }
+      }
+    }
+
+    preloadedRecords = links.isEmpty() ? Collections.emptyList() : db.preloadRecords(links);
+  }
+
   @Override
   public boolean hasNext() {
     if (!currentPage.isEmpty()) {
@@ -89,6 +145,9 @@ public class RemoteResultSet implements ResultSet {
 
   @Override
   public void close() {
+    if (prefetch != null && db != null) {
+      db.dropPrefetchedPage(this);
+    }
     if (hasNextPage && db != null) {
       // CLOSES THE QUERY SERVER SIDE ONLY IF THERE IS ANOTHER PAGE. THE SERVER ALREADY
       // AUTOMATICALLY CLOSES THE QUERY AFTER SENDING THE LAST PAGE
@@ -125,10 +184,53 @@ public class RemoteResultSet implements ResultSet {
       Map<String, Long> queryStats) {
     this.currentPage = result;
     this.hasNextPage = hasNextPage;
+    this.pageFetchedTs = System.nanoTime();
+    if (db != null) {
+      preloadLinks();
+    }
 
     if (queryStats != null) {
       this.queryStats = queryStats;
     }
     executionPlan.ifPresent(x -> this.executionPlan = executionPlan);
   }
+
+  /**
+   * @return Amount of records requested in the next page.
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public void setPrefetch(QueryPagePrefetch prefetch) {
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * @return Request of the next page which was sent in advance, or <code>null</code> if the next
+   * page was not prefetched. Once returned, the prefetch is removed from the result set.
+   */
+  public QueryPagePrefetch takePrefetch() {
+    final QueryPagePrefetch prefetch = this.prefetch;
+    this.prefetch = null;
+    return prefetch;
+  }
+
+  /**
+   * Adapts size of the next page to the speed of the consumer. If the consumer waited for the
+   * prefetched page a noticeable share of the time it spent on the current page, it processes
+   * records faster than they are transferred, so the page size is doubled to amortize the round
+   * trip. If the prefetched page was always ready in time, the page size is halved back to limit
+   * the amount of records kept in memory.
+   *
+   * @param waitTime Time in nanoseconds spent on waiting for the prefetched page.
+   */
+  public void prefetchAwaited(long waitTime) {
+    final long consumeTime = System.nanoTime() - pageFetchedTs - waitTime;
+    if (waitTime > consumeTime / 4) {
+      pageSize = Math.min(pageSize * 2, minPageSize * MAX_PAGE_SIZE_FACTOR);
+    } else if (waitTime < consumeTime / 64) {
+      pageSize = Math.max(pageSize / 2, minPageSize);
+    }
+  }
 }
@@ -0,0 +1,128 @@
+package com.jetbrains.youtrack.db.internal.client.binary;
+
+import com.jetbrains.youtrack.db.api.config.ContextConfiguration;
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelBinaryCompression;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelBinaryProtocol;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SocketChannelBinaryAsynchClientCompressionTest {
+
+  private static final int SESSION_ID = 7;
+  private static final int STRINGS = 1024;
+
+  private ServerSocket serverSocket;
+  private ExecutorService executor;
+
+  @Before
+  public void before() throws IOException {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void after() throws Exception {
+    executor.shutdownNow();
+    serverSocket.close();
+  }
+
+  @Test
+  public void testCompressedResponseBiggerThanClientLimitIsRead() throws Exception {
+    final Future<Byte> server = executor.submit(this::serve);
+
+    // responses are compressed by the limit of the server, which is bigger than the one of client
+    final ContextConfiguration config = new ContextConfiguration();
+    config.setValue(GlobalConfiguration.NETWORK_BINARY_COMPRESSION, true);
+    config.setValue(GlobalConfiguration.NETWORK_BINARY_MAX_CONTENT_LENGTH, 1);
+
+    final SocketChannelBinaryAsynchClient client =
+        new SocketChannelBinaryAsynchClient(
+            serverSocket.getInetAddress().getHostAddress(),
+            serverSocket.getLocalPort(),
+            config,
+            ChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
+    try {
+      client.beginResponse(null, SESSION_ID, false);
+      try {
+        for (int i = 0; i < STRINGS; i++) {
+          Assert.assertEquals("value", client.readString());
+        }
+      } finally {
+        client.endResponse();
+      }
+
+      // the next response is read from the socket again
+      client.beginResponse(null, SESSION_ID, false);
+      try {
+        Assert.assertEquals(42, client.readInt());
+      } finally {
+        client.endResponse();
+      }
+    } finally {
+      client.close();
+    }
+
+    Assert.assertEquals(
+        ChannelBinaryProtocol.ENCODING_LZ4, (byte) server.get(10, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Accepts the connection of the client, reads its handshake and sends compressed and plain
+   * responses in the same way as the binary protocol of the server.
+   *
+   * @return Encoding requested by the client.
+   */
+  private byte serve() throws IOException {
+    try (final Socket socket = serverSocket.accept()) {
+      final DataInputStream in = new DataInputStream(socket.getInputStream());
+      final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+      out.writeShort(ChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
+      out.flush();
+
+      Assert.assertEquals(ChannelBinaryProtocol.REQUEST_HANDSHAKE, in.readByte());
+      in.readShort();
+      in.skipNBytes(in.readInt());
+      in.skipNBytes(in.readInt());
+      final byte encoding = in.readByte();
+      in.readByte();
+
+      final ChannelBinaryCompression compression =
+          new ChannelBinaryCompression(0, 1024 * 1024);
+      final DataOutputStream message = compression.beginMessage();
+      for (int i = 0; i < STRINGS; i++) {
+        message.writeInt(5);
+        message.write("value".getBytes());
+      }
+      Assert.assertTrue(compression.endMessage());
+
+      out.writeByte(ChannelBinaryProtocol.RESPONSE_STATUS_OK_COMPRESSED);
+      out.writeInt(SESSION_ID);
+      out.writeByte(ChannelBinaryProtocol.REQUEST_COMMAND);
+      compression.writeMessage(out);
+
+      out.writeByte(ChannelBinaryProtocol.RESPONSE_STATUS_OK);
+      out.writeInt(SESSION_ID);
+      out.writeByte(ChannelBinaryProtocol.REQUEST_COMMAND);
+      out.writeInt(42);
+      out.flush();
+
+      // wait till the client closes the connection
+      Assert.assertEquals(-1, in.read());
+      return encoding;
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package com.jetbrains.youtrack.db.internal.client.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.jetbrains.youtrack.db.api.config.ContextConfiguration;
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.config.YouTrackDBConfig;
+import com.jetbrains.youtrack.db.internal.client.binary.BinaryRequestExecutor;
+import com.jetbrains.youtrack.db.internal.client.binary.SocketChannelBinaryAsynchClient;
+import com.jetbrains.youtrack.db.internal.client.remote.db.DatabaseSessionRemote;
+import com.jetbrains.youtrack.db.internal.common.concur.OfflineNodeException;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.db.YouTrackDBConfigImpl;
+import com.jetbrains.youtrack.db.internal.core.exception.StorageException;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.RecordSerializer;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelDataInput;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelDataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ *
+ */
+public class StorageRemotePipelinedOperationTest {
+
+  private StorageRemote storage;
+
+  @Mock
+  private SocketChannelBinaryAsynchClient channel;
+
+  @Mock
+  private RemoteConnectionManager connectionManager;
+  @Mock
+  private StorageRemoteSession session;
+  @Mock
+  private StorageRemoteNodeSession nodeSession;
+
+  private final List<String> events = new ArrayList<>();
+
+  @Before
+  public void before() throws IOException {
+    MockitoAnnotations.initMocks(this);
+    Mockito.when(session.getServerSession(Mockito.any())).thenReturn(nodeSession);
+    Mockito.doAnswer(
+            invocation -> {
+              events.add("unlock");
+              return null;
+            })
+        .when(channel)
+        .releaseWriteLock();
+
+    storage =
+        new StorageRemote(
+            new RemoteURLs(new String[]{}, new ContextConfiguration()),
+            "mock",
+            null,
+            "mock",
+            null,
+            (YouTrackDBConfigImpl)
+                YouTrackDBConfig.builder()
+                    .addGlobalConfigurationParameter(
+                        GlobalConfiguration.NETWORK_BINARY_PIPELINE_DEPTH, 2)
+                    .build()) {
+          @Override
+          public <T> T baseNetworkOperation(
+              DatabaseSessionRemote remoteSession, StorageRemoteOperation<T> operation,
+              String errorMessage, int retry) {
+            try {
+              return operation.execute(channel, session);
+            } catch (IOException e) {
+              throw new RuntimeException(e);
+            }
+          }
+        };
+    storage.connectionManager = connectionManager;
+  }
+
+  @Test
+  public void testRequestsAreSentBeforeResponsesAreRead() {
+    final List<PipelinedResponse> responses =
+        storage.pipelinedNetworkOperation(
+            null,
+            Arrays.asList(
+                new PipelinedRequest(0, false),
+                new PipelinedRequest(1, false),
+                new PipelinedRequest(2, false)),
+            "");
+
+    assertEquals(3, responses.size());
+    for (int i = 0; i < responses.size(); i++) {
+      assertEquals(i, responses.get(i).id);
+    }
+    assertEquals(
+        Arrays.asList("write 0", "write 1", "read 0", "write 2", "unlock", "read 1", "read 2"),
+        events);
+    Mockito.verify(connectionManager).release(channel);
+  }
+
+  @Test
+  public void testResponsesOfSentRequestsAreReadOnError() {
+    try {
+      storage.pipelinedNetworkOperation(
+          null,
+          Arrays.asList(
+              new PipelinedRequest(0, true),
+              new PipelinedRequest(1, false),
+              new PipelinedRequest(2, false)),
+          "");
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("0", e.getMessage());
+    }
+
+    assertEquals(Arrays.asList("write 0", "write 1", "read 0", "unlock", "read 1"), events);
+    Mockito.verify(connectionManager, Mockito.never()).release(channel);
+  }
+
+  @Test
+  public void testErrorWhichCausesRetryIsNotRetried() {
+    try {
+      storage.pipelinedNetworkOperation(
+          null,
+          Arrays.asList(
+              new PipelinedRequest(0, false),
+              new PipelinedRequest(1, new OfflineNodeException("offline"))),
+          "");
+      fail();
+    } catch (StorageException e) {
+      assertTrue(e.getCause() instanceof OfflineNodeException);
+    }
+
+    assertEquals(Arrays.asList("write 0", "write 1", "unlock", "read 0", "read 1"), events);
+  }
+
+  @Test
+  public void testBrokenConnectionIsNotRetriedOnceRequestsAreSent() throws IOException {
+    Mockito.doAnswer(
+            invocation -> {
+              events.add("flush");
+              throw new IOException("Connection reset");
+            })
+        .when(channel)
+        .flush();
+
+    try {
+      storage.pipelinedNetworkOperation(
+          null,
+          Arrays.asList(
+              new PipelinedRequest(0, false),
+              new PipelinedRequest(1, false),
+              new PipelinedRequest(2, false)),
+          "");
+      fail();
+    } catch (StorageException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+
+    // connection is closed, so it is not reused by the next operation
+    assertEquals(Arrays.asList("write 0", "write 1", "flush", "unlock"), events);
+    Mockito.verify(channel).close();
+    Mockito.verify(connectionManager, Mockito.never()).release(channel);
+  }
+
+  @Test
+  public void testEmptyRequestsAreNotSent() throws IOException {
+    assertTrue(
+        storage.pipelinedNetworkOperation(null, new ArrayList<PipelinedRequest>(), "").isEmpty());
+    Mockito.verify(channel, Mockito.never()).flush();
+  }
+
+  private final class PipelinedResponse implements BinaryResponse {
+
+    private final int id;
+    private final RuntimeException error;
+
+    private PipelinedResponse(int id, RuntimeException error) {
+      this.id = id;
+      this.error = error;
+    }
+
+    @Override
+    public void write(
+        DatabaseSessionInternal session, ChannelDataOutput channel, int protocolVersion,
+        RecordSerializer serializer) {
+    }
+
+    @Override
+    public void read(DatabaseSessionInternal db, ChannelDataInput network,
+        StorageRemoteSession session) {
+      events.add("read " + id);
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+
+  private final class PipelinedRequest implements BinaryRequest<PipelinedResponse> {
+
+    private final int id;
+    private final RuntimeException error;
+
+    private PipelinedRequest(int id, boolean fail) {
+      this(id, fail ? new IllegalStateException(String.valueOf(id)) : null);
+    }
+
+    private PipelinedRequest(int id, RuntimeException error) {
+      this.id = id;
+      this.error = error;
+    }
+
+    @Override
+    public void write(DatabaseSessionInternal database, ChannelDataOutput network,
+        StorageRemoteSession session) {
+      events.add("write " + id);
+    }
+
+    @Override
+    public void read(DatabaseSessionInternal db, ChannelDataInput channel, int protocolVersion,
+        RecordSerializer serializer) {
+    }
+
+    @Override
+    public byte getCommand() {
+      return 0;
+    }
+
+    @Override
+    public PipelinedResponse createResponse() {
+      return new PipelinedResponse(id, error);
+    }
+
+    @Override
+    public BinaryResponse execute(BinaryRequestExecutor executor) {
+      return null;
+    }
+
+    @Override
+    public String getDescription() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.jetbrains.youtrack.db.internal.client.remote.message;
+
+import static org.junit.Assert.assertEquals;
+
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class ReadRecordsMessageTest {
+
+  @Test
+  public void testWriteReadRequest() throws IOException {
+    final List<RecordId> rids =
+        Arrays.asList(new RecordId(10, 3), new RecordId(10, 1), new RecordId(12, 7));
+    final ReadRecordsRequest request = new ReadRecordsRequest(rids);
+    final MockChannel channel = new MockChannel();
+    request.write(null, channel, null);
+    channel.close();
+
+    final ReadRecordsRequest readRequest = new ReadRecordsRequest();
+    readRequest.read(null, channel, 0, null);
+    assertEquals(rids, readRequest.getRids());
+  }
+}
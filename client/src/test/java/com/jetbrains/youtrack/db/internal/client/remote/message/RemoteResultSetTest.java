@@ -0,0 +1,55 @@
+package com.jetbrains.youtrack.db.internal.client.remote.message;
+
+import static org.junit.Assert.assertEquals;
+
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class RemoteResultSetTest {
+
+  @Test
+  public void testPageSizeGrowsIfConsumerWaitsForPrefetchedPage() {
+    final int pageSize = GlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
+    final RemoteResultSet rs =
+        new RemoteResultSet(
+            null, "query", new ArrayList<>(), Optional.empty(), Collections.emptyMap(), true);
+    assertEquals(pageSize, rs.getPageSize());
+
+    rs.prefetchAwaited(TimeUnit.MINUTES.toNanos(1));
+    assertEquals(2 * pageSize, rs.getPageSize());
+
+    for (int i = 0; i < 10; i++) {
+      rs.prefetchAwaited(TimeUnit.MINUTES.toNanos(1));
+    }
+    assertEquals(16 * pageSize, rs.getPageSize());
+  }
+
+  @Test
+  public void testPageSizeShrinksIfPrefetchedPageIsReady() throws InterruptedException {
+    final int pageSize = GlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
+    final RemoteResultSet rs =
+        new RemoteResultSet(
+            null, "query", new ArrayList<>(), Optional.empty(), Collections.emptyMap(), true);
+
+    rs.prefetchAwaited(TimeUnit.MINUTES.toNanos(1));
+    rs.prefetchAwaited(TimeUnit.MINUTES.toNanos(1));
+    assertEquals(4 * pageSize, rs.getPageSize());
+
+    Thread.sleep(1);
+    rs.prefetchAwaited(0);
+    assertEquals(2 * pageSize, rs.getPageSize());
+
+    for (int i = 0; i < 10; i++) {
+      Thread.sleep(1);
+      rs.prefetchAwaited(0);
+    }
+    assertEquals(pageSize, rs.getPageSize());
+  }
+}
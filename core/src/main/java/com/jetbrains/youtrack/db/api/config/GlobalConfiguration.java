@@ -456,6 +456,13 @@ public enum GlobalConfiguration {
       Integer.class,
       1000),
 
+  WAL_GROUP_COMMIT(
+      "storage.wal.groupCommit",
+      "Commit of a transaction waits till its changes are written to the WAL and synced to the"
+          + " disk. Transactions which are committed concurrently share the same sync of the WAL",
+      Boolean.class,
+      false),
+
   WAL_SHUTDOWN_TIMEOUT(
       "storage.wal.shutdownTimeout",
       "Maximum wait interval between events, when the background flush thread"
@@ -482,6 +489,14 @@ public enum GlobalConfiguration {
       Integer.class,
       1000),
 
+  WAL_RESTORE_THREADS(
+      "storage.wal.restore.threads",
+      "Amount of threads which apply changes of pages during a restore procedure. Changes of the"
+          + " same page are always applied by the same thread in the order they were logged, 1"
+          + " restores data in a single thread",
+      Integer.class,
+      Runtime.getRuntime().availableProcessors()),
+
   WAL_FUZZY_CHECKPOINT_SHUTDOWN_TIMEOUT(
       "storage.wal.fuzzyCheckpointShutdownWait",
       "The amount of time the DB should wait until it shuts down (in seconds)",
@@ -508,6 +523,41 @@ public enum GlobalConfiguration {
       Integer.class,
       8),
 
+  DISK_CACHE_READ_AHEAD_PAGES(
+      "storage.diskCache.readAheadPages",
+      "Maximum amount of pages which are read from the disk at once if pages of the file are read"
+          + " sequentially, 0 disables read ahead",
+      Integer.class,
+      16),
+
+  DISK_CACHE_PAGE_COMPRESSION_FILES(
+      "storage.diskCache.pageCompression.files",
+      "Comma separated list of names or name suffixes of the files pages of which are compressed"
+          + " using LZ4 when they are written to the disk, for example '.pcl,.cbt' compresses data"
+          + " of all clusters and indexes while 'person.pcl' compresses data of the single cluster."
+          + " Compressed pages keep their place in the file, only the used part of the page is"
+          + " written. Not supported for encrypted storages. Empty by default",
+      String.class,
+      ""),
+
+  DISK_CACHE_DIRECT_IO(
+      "storage.diskCache.directIO",
+      "Open data files with the O_DIRECT flag, so pages are cached only by the disk cache of the"
+          + " database and not by the OS page cache. If direct IO is not supported by the platform"
+          + " or the file system, files are accessed through the OS page cache. Disabled by"
+          + " default",
+      Boolean.class,
+      false),
+
+  DISK_CACHE_MAPPED_READ_ONLY(
+      "storage.diskCache.mappedReadOnly",
+      "Open storage in read-only mode and map data files into memory, so pages are read directly"
+          + " from the mapped regions without copying. Intended for immutable snapshots of the"
+          + " database which were closed cleanly, any attempt to change data fails. Is not"
+          + " supported for encrypted storages. Disabled by default",
+      Boolean.class,
+      false),
+
   DISK_CACHE_PRINT_FLUSH_TILL_SEGMENT_STATISTICS(
       "storage.diskCache.printFlushTillSegmentStatistics",
       "Print information about write cache state when it is requested to flush all data operations"
@@ -700,6 +750,41 @@ public enum GlobalConfiguration {
   INDEX_CURSOR_PREFETCH_SIZE(
       "index.stream.prefetchSize", "Default prefetch size of index stream", Integer.class, 10),
 
+  INDEX_BULK_LOAD(
+      "index.bulkLoad",
+      "Index is filled during creation by sorting of the keys of all records and building of the"
+          + " index pages bottom-up instead of insertion of keys one by one. Rebuild uses it only"
+          + " if the index is built online (index.onlineBuild), otherwise concurrent transactions"
+          + " change the index during the rebuild. Used only by the index types which support it."
+          + " Index whose load was interrupted by a crash is rebuilt when the database is opened",
+      Boolean.class,
+      true),
+
+  INDEX_BULK_LOAD_FILL_FACTOR(
+      "index.bulkLoad.fillFactor",
+      "Percent of the page space which is filled by entries during bulk load of index, the rest is"
+          + " left for the following insertions (90 by default)",
+      Integer.class,
+      90),
+
+  INDEX_BULK_LOAD_SORT_BUFFER_SIZE(
+      "index.bulkLoad.sortBufferSize",
+      "Amount of index entries which are sorted in memory during bulk load of index, once this"
+          + " limit is reached entries are spilled to the temporary file",
+      Integer.class,
+      500_000),
+
+  INDEX_ONLINE_BUILD(
+      "index.onlineBuild",
+      "Index is built and rebuilt without blocking of the concurrent transactions. Changes of the"
+          + " concurrent transactions are recorded in the side log and merged into the index once"
+          + " the records are indexed, the index is not used by queries till then. Uniqueness is"
+          + " not checked at commit during the build, a duplicate key created concurrently fails"
+          + " the build of a unique index at its end. Can be overridden by the 'online' flag in"
+          + " the index metadata",
+      Boolean.class,
+      false),
+
   // SBTREE
   SBTREE_MAX_DEPTH(
       "sbtree.maxDepth",
@@ -902,6 +987,48 @@ public enum GlobalConfiguration {
       false,
       true),
 
+  NETWORK_BINARY_VIRTUAL_THREADS(
+      "network.binary.virtualThreads",
+      "Serve connections of the binary protocol by virtual threads instead of platform threads, so"
+          + " the amount of concurrent connections is not limited by the amount of OS threads",
+      Boolean.class,
+      Boolean.FALSE,
+      true),
+
+  NETWORK_BINARY_PIPELINE_DEPTH(
+      "network.binary.pipelineDepth",
+      "Maximum amount of pipelined requests which are sent on the same connection before the"
+          + " response of the first of them is read. Only requests of a single operation are"
+          + " pipelined, the connection is not shared with other operations meanwhile",
+      Integer.class,
+      32,
+      true),
+
+  NETWORK_BINARY_READ_RECORDS_BATCH_SIZE(
+      "network.binary.readRecordsBatchSize",
+      "Maximum amount of linked records which are loaded by a single request when links of a"
+          + " collection are resolved by a remote database. 0 disables loading of records by"
+          + " batches",
+      Integer.class,
+      1000,
+      true),
+
+  NETWORK_BINARY_COMPRESSION(
+      "network.binary.compression",
+      "Requests the server to compress responses of the binary protocol by LZ4. Useful for"
+          + " clients which are connected by slow network links",
+      Boolean.class,
+      Boolean.FALSE,
+      true),
+
+  NETWORK_BINARY_COMPRESSION_THRESHOLD(
+      "network.binary.compressionThreshold",
+      "Minimal size in bytes of a response of the binary protocol which is compressed if"
+          + " compression was requested by the client. -1 disables compression of responses",
+      Integer.class,
+      4096,
+      true),
+
   NETWORK_BINARY_ALLOW_NO_TOKEN(
       "network.binary.allowNoToken",
       "Backward compatibility option to allow binary connections without tokens (STRONGLY"
@@ -1092,7 +1219,9 @@ public enum GlobalConfiguration {
   // CLASS
   CLASS_MINIMUM_CLUSTERS(
       "class.minimumClusters",
-      "Minimum clusters to create when a new class is created. 0 means Automatic",
+      "Minimum clusters to create when a new class is created. 0 means Automatic. Classes which"
+          + " use the 'affinity' cluster selection strategy are extended up to this amount of"
+          + " clusters if there are more concurrent writers than clusters",
       Integer.class,
       8),
 
@@ -1111,6 +1240,13 @@ public enum GlobalConfiguration {
       String.class,
       "com.jetbrains.youtrack.db.internal.core.cache.RecordCacheWeakRefs"),
 
+  CACHE_SHARED_RECORD_SIZE(
+      "cache.shared.record.size",
+      "Maximum size in megabytes of the serialized records kept in the record cache shared by all"
+          + " the sessions of a database. Zero means the cache is disabled",
+      Integer.class,
+      0),
+
   // COMMAND
   COMMAND_TIMEOUT("command.timeout", "Default timeout for commands (in ms)", Long.class, 0, true),
 
@@ -1142,6 +1278,14 @@ public enum GlobalConfiguration {
       Integer.class,
       1000),
 
+  QUERY_REMOTE_RESULTSET_PREFETCH(
+      "query.remoteResultSet.prefetch",
+      "Request the next page of a remote ResultSet while the current page is consumed. The page"
+          + " size grows up to 16 times of query.remoteResultSet.pageSize if the consumer has to"
+          + " wait for the next page. This has to be set on the client.",
+      Boolean.class,
+      false),
+
   QUERY_REMOTE_SEND_EXECUTION_PLAN(
       "query.remoteResultSet.sendExecutionPlan",
       "Send the execution plan details or not. False by default",
@@ -1167,6 +1311,20 @@ public enum GlobalConfiguration {
       Integer.class,
       20000),
 
+  QUERY_PARALLEL_DEGREE(
+      "query.parallelDegree",
+      "Maximum number of threads used to execute a single parallel query. 0 means the number of"
+          + " available processors",
+      Integer.class,
+      0),
+
+  QUERY_BINARY_FILTER(
+      "query.binaryFilter",
+      "Evaluate simple conditions of WHERE clause on serialized content of records, so records"
+          + " which do not match the conditions are not deserialized",
+      Boolean.class,
+      true),
+
   QUERY_SCAN_BATCH_SIZE(
       "query.scanBatchSize",
       "Scan clusters in blocks of records. This setting reduces the lock time on the cluster during"
@@ -1193,13 +1351,44 @@ public enum GlobalConfiguration {
   QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP(
       "query.maxHeapElementsAllowedPerOp",
       "Maximum number of entities (records) allowed in a single query for memory-intensive"
-          + " operations (eg. ORDER BY in heap). If exceeded, the query fails with an"
-          + " CommandExecutionException. Negative number means no limit.This setting is intended"
-          + " as a safety measure against excessive resource consumption from a single query (eg."
-          + " prevent OutOfMemory)",
+          + " operations (eg. ORDER BY in heap). If exceeded, and spilling to disk is enabled"
+          + " (see query.spill.enabled), the operation continues using temporary files,"
+          + " otherwise the query fails with an CommandExecutionException. Negative number means"
+          + " no limit.This setting is intended as a safety measure against excessive resource"
+          + " consumption from a single query (eg. prevent OutOfMemory)",
       Long.class,
       500_000),
 
+  QUERY_SPILL_ENABLED(
+      "query.spill.enabled",
+      "Enable spilling of intermediate results of memory-intensive operations (eg. ORDER BY) to"
+          + " temporary files once the limit set by query.maxHeapElementsAllowedPerOp is"
+          + " exceeded",
+      Boolean.class,
+      true),
+
+  QUERY_SPILL_DIRECTORY(
+      "query.spill.directory",
+      "Directory where temporary files of memory-intensive query operations are stored. If not"
+          + " set, the default temporary directory of the JVM is used",
+      String.class,
+      null),
+
+  QUERY_SPILL_MERGE_FACTOR(
+      "query.spill.mergeFactor",
+      "Maximum number of temporary files merged at once during an external sort. If more files"
+          + " are produced, they are merged in several passes",
+      Integer.class,
+      64),
+
+  QUERY_SPILL_PARTITIONS(
+      "query.spill.partitions",
+      "Number of temporary files groups of a GROUP BY or results of a DISTINCT are hash"
+          + " partitioned into once the limit set by query.maxHeapElementsAllowedPerOp is"
+          + " exceeded. Each partition is then processed separately",
+      Integer.class,
+      32),
+
   QUERY_LIVE_SUPPORT(
       "query.live.support",
       "Enable/Disable the support of live query. (Use false to disable)",
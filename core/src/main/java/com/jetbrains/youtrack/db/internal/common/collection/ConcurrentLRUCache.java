@@ -0,0 +1,210 @@
+/*
+ *
+ *
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *
+ *
+ */
+package com.jetbrains.youtrack.db.internal.common.collection;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import javax.annotation.Nullable;
+
+/**
+ * Bounded cache which can be read by many threads concurrently without any locks.
+ *
+ * <p>Items are kept in a {@link ConcurrentHashMap}, reads only mark the item as recently used.
+ * Eviction uses CLOCK (second chance) algorithm which approximates LRU: items are evicted in the
+ * order of insertion, but items which were read since the last pass of the clock hand are moved
+ * to the tail of the queue instead. Only eviction is serialized, and if eviction is already in
+ * progress, other writers do not wait for it, so the size of the cache can exceed its capacity for
+ * a short time.
+ *
+ * <p>The cache counts hits, misses and evictions.
+ */
+public final class ConcurrentLRUCache<K, V> {
+
+  private final int capacity;
+  private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+
+  /**
+   * Clock queue, may contain nodes which are already removed from the map, they are dropped once
+   * the clock hand reaches them.
+   */
+  private final ConcurrentLinkedQueue<Node<K, V>> clock = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger clockSize = new AtomicInteger();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public ConcurrentLRUCache(final int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns value associated with the key and marks it as recently used.
+   */
+  @Nullable
+  public V get(final K key) {
+    final Node<K, V> node = map.get(key);
+    if (node == null) {
+      misses.increment();
+      return null;
+    }
+
+    if (!node.referenced) {
+      node.referenced = true;
+    }
+    hits.increment();
+    return node.value;
+  }
+
+  /**
+   * Checks whether the key is present in the cache, does not affect usage statistics.
+   */
+  public boolean containsKey(final K key) {
+    return map.containsKey(key);
+  }
+
+  public void put(final K key, final V value) {
+    final Node<K, V> node = new Node<>(key, value);
+    map.put(key, node);
+    clock.add(node);
+    clockSize.incrementAndGet();
+
+    evict();
+  }
+
+  public void remove(final K key) {
+    map.remove(key);
+  }
+
+  /**
+   * Removes all items for which the predicate returns <code>true</code>.
+   *
+   * @return number of removed items
+   */
+  public int removeIf(final BiPredicate<K, V> predicate) {
+    int removed = 0;
+    for (final Node<K, V> node : map.values()) {
+      if (predicate.test(node.key, node.value) && map.remove(node.key, node)) {
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  public void clear() {
+    map.clear();
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  private boolean needsEviction() {
+    // queue is compacted if it is mostly filled by removed nodes
+    return map.size() > capacity || clockSize.get() > 2 * Math.max(capacity, 16);
+  }
+
+  private void evict() {
+    // items added by writers which could not acquire the lock are evicted by the lock holder
+    // once it releases the lock
+    while (needsEviction() && evictionLock.tryLock()) {
+      boolean progress;
+      try {
+        progress = evictionPass();
+      } finally {
+        evictionLock.unlock();
+      }
+
+      if (!progress) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return <code>true</code> if at least one node was removed from the clock queue.
+   */
+  private boolean evictionPass() {
+    boolean progress = false;
+    // every node is visited at most twice: to reset its flag and to evict it
+    int limit = 2 * clockSize.get();
+    while (limit-- > 0 && needsEviction()) {
+      final Node<K, V> node = clock.poll();
+      if (node == null) {
+        break;
+      }
+      clockSize.decrementAndGet();
+
+      if (map.get(node.key) != node) {
+        progress = true;
+        continue;
+      }
+
+      if (map.size() > capacity) {
+        if (!node.referenced) {
+          if (map.remove(node.key, node)) {
+            evictions.increment();
+          }
+          progress = true;
+          continue;
+        }
+        node.referenced = false;
+      }
+
+      clock.add(node);
+      clockSize.incrementAndGet();
+    }
+    return progress;
+  }
+
+  private static final class Node<K, V> {
+
+    private final K key;
+    private final V value;
+    private volatile boolean referenced;
+
+    private Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
@@ -31,7 +31,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -60,7 +59,7 @@ public class OneEntryPerKeyLockManager<T> implements LockManager<T> {
   private static class CountableLock {
 
     private final AtomicInteger countLocks = new AtomicInteger(1);
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
   }
 
   public OneEntryPerKeyLockManager(
@@ -303,6 +302,20 @@ public class OneEntryPerKeyLockManager<T> implements LockManager<T> {
     return locks;
   }
 
+  /**
+   * Checks whether the exclusive lock for the given resource is held by any thread at the moment.
+   * The result is only a hint, because the lock can be acquired or released right after the
+   * check.
+   */
+  public boolean isExclusivelyLocked(final T iResourceId) {
+    if (!enabled) {
+      return false;
+    }
+
+    final CountableLock lock = map.get(iResourceId == null ? (T) NULL_KEY : iResourceId);
+    return lock != null && lock.readWriteLock.isWriteLocked();
+  }
+
   // For tests purposes.
   public int getCountCurrentLocks() {
     return map.size();
@@ -443,7 +443,10 @@ public class DirectMemoryAllocator implements DirectMemoryAllocatorMXBean {
     ALLOCATE_FIRST_WAL_BUFFER,
     ALLOCATE_SECOND_WAL_BUFFER,
 
-    ADD_NEW_PAGE_IN_FILE
+    ADD_NEW_PAGE_IN_FILE,
+    READ_AHEAD_PAGES_FROM_DISK,
+    DIRECT_IO_BUFFER,
+    MAPPED_PAGE
   }
 
   /**
@@ -3,8 +3,10 @@ package com.jetbrains.youtrack.db.internal.common.directmemory;
 import com.kenai.jffi.MemoryIO;
 import com.jetbrains.youtrack.db.internal.common.directmemory.DirectMemoryAllocator.Intention;
 import java.lang.ref.SoftReference;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
 
 public final class Pointer {
 
@@ -12,16 +14,54 @@ public final class Pointer {
   private final int size;
   private final Intention intention;
 
+  /**
+   * Buffer which owns memory of the pointer if memory is not allocated by
+   * {@link DirectMemoryAllocator}, is kept to prevent unmapping of the memory while pointer is
+   * used.
+   */
+  private final Buffer owner;
+
   private SoftReference<ByteBuffer> byteBuffer;
   private int hash = 0;
 
   Pointer(long pointer, int size, Intention intention) {
+    this(pointer, size, intention, null);
+  }
+
+  private Pointer(long pointer, int size, Intention intention, Buffer owner) {
     this.pointer = pointer;
     this.size = size;
     this.intention = intention;
+    this.owner = owner;
+  }
+
+  /**
+   * Wraps region of the memory which is not allocated by {@link DirectMemoryAllocator}, for example
+   * part of the memory mapped file. Such pointer is never deallocated and keeps the buffer
+   * reachable. If the buffer is read-only, memory of the pointer can only be read: buffers returned
+   * by {@link #getNativeByteBuffer()} are read-only and {@link #clear()} throws exception, so an
+   * attempt to change the page does not write to the memory protected from writes.
+   *
+   * @param buffer Direct buffer region of which is wrapped.
+   * @param offset Offset of the region inside of the buffer.
+   * @param size   Size of the region.
+   */
+  public static Pointer wrap(final Buffer buffer, final int offset, final int size) {
+    assert buffer.isDirect();
+    assert offset >= 0 && offset + size <= buffer.capacity();
+
+    return new Pointer(
+        MemoryIO.getInstance().getDirectBufferAddress(buffer) + offset,
+        size,
+        Intention.MAPPED_PAGE,
+        buffer);
   }
 
   public void clear() {
+    if (isReadOnly()) {
+      throw new ReadOnlyBufferException();
+    }
+
     MemoryIO.getInstance().setMemory(pointer, size, (byte) 0);
   }
 
@@ -41,6 +81,13 @@ public final class Pointer {
     return buffer;
   }
 
+  /**
+   * @return <code>true</code> if memory of the pointer can not be changed.
+   */
+  public boolean isReadOnly() {
+    return owner != null && owner.isReadOnly();
+  }
+
   long getNativePointer() {
     return pointer;
   }
@@ -54,7 +101,11 @@ public final class Pointer {
   }
 
   private ByteBuffer createNativeBuffer() {
-    return MemoryIO.getInstance().newDirectByteBuffer(pointer, size).order(ByteOrder.nativeOrder());
+    ByteBuffer buffer = MemoryIO.getInstance().newDirectByteBuffer(pointer, size);
+    if (isReadOnly()) {
+      buffer = buffer.asReadOnlyBuffer();
+    }
+    return buffer.order(ByteOrder.nativeOrder());
   }
 
   @Override
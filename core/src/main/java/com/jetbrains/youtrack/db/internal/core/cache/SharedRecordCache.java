@@ -0,0 +1,393 @@
+/*
+ *
+ *
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *
+ *
+ */
+package com.jetbrains.youtrack.db.internal.core.cache;
+
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.core.storage.RawBuffer;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.chm.FrequencySketch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+
+/**
+ * Second level record cache shared by all the sessions of a database. Unlike {@link
+ * LocalRecordCache} it does not contain record instances, which are bound to a session, but
+ * immutable serialized content of the records together with their versions, so sessions which read
+ * popular records skip the lookup of the records in the storage pages.
+ *
+ * <p>Reads do not wait for any locks. Size of the cache is limited by the total size of the cached
+ * content. Cache uses TinyLFU admission policy: a new record is added to the full cache only if it
+ * was requested more often than the record which should be evicted to free space for it, according
+ * to {@link FrequencySketch}. Victims are chosen by CLOCK algorithm, which approximates LRU.
+ * Insertion and eviction are serialized, but threads which can not insert a record immediately do
+ * not wait and just skip caching of it.
+ *
+ * <p>The storage calls {@link #beginInvalidation(RID)} before the change of the record becomes
+ * visible to readers and {@link #endInvalidation(RID)} once it is visible. Records are not cached
+ * in between, so neither the old content nor the content read by a reader which started before
+ * the change can be cached once the change is visible. To detect such readers, they take a
+ * {@link #stamp(RID)} before reading of the record from the storage and pass it to
+ * {@link #put(RID, RawBuffer, long)}. The stamp changes on every invalidation of the record, so
+ * the content is not cached if the record was changed in the meantime.
+ */
+public final class SharedRecordCache {
+
+  private static final int STRIPES = 1024;
+
+  /**
+   * Only one of 16 cache hits is recorded in the frequency sketch.
+   */
+  private static final int HIT_SAMPLE_MASK = 15;
+
+  /**
+   * Overhead of the cache entry in bytes, approximately.
+   */
+  private static final int ENTRY_OVERHEAD = 96;
+
+  private final long maxSize;
+  private final long maxRecordSize;
+
+  private final ConcurrentHashMap<RecordKey, Entry> map = new ConcurrentHashMap<>();
+  /**
+   * Clock queue, may contain entries which are already removed from the map, they are dropped once
+   * the clock hand reaches them. Modified only under the eviction lock.
+   */
+  private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+  private int clockSize;
+  private final AtomicLong size = new AtomicLong();
+
+  private final AtomicLongArray stripes = new AtomicLongArray(STRIPES);
+  /**
+   * Amount of records of the stripe whose changes are being made visible, records of the stripe
+   * are not cached till it drops to zero.
+   */
+  private final AtomicIntegerArray writers = new AtomicIntegerArray(STRIPES);
+  private final AtomicLongArray clusterStripes = new AtomicLongArray(STRIPES);
+  private final AtomicLong epoch = new AtomicLong();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final FrequencySketch sketch = new FrequencySketch();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maxSize Maximum total size of cached records in bytes.
+   */
+  public SharedRecordCache(final long maxSize) {
+    this.maxSize = maxSize;
+    // single record may not take more than a small part of the cache
+    this.maxRecordSize = maxSize / 64;
+    // records are at least several hundreds bytes in size usually
+    sketch.ensureCapacity(Math.max(maxSize / 512, 16));
+  }
+
+  /**
+   * @return Copy of the cached content of the record or <code>null</code> if the record is not
+   * cached.
+   */
+  @Nullable
+  public RawBuffer get(final RID rid) {
+    final RecordKey key = new RecordKey(rid.getClusterId(), rid.getClusterPosition());
+    final Entry entry = map.get(key);
+    if (entry == null) {
+      // access is recorded once the record is read from the storage and put into the cache
+      misses.increment();
+      return null;
+    }
+
+    recordHit(key);
+
+    if (!entry.referenced) {
+      entry.referenced = true;
+    }
+    hits.increment();
+    return new RawBuffer(entry.content.clone(), entry.version, entry.recordType);
+  }
+
+  /**
+   * Returns the value which should be passed to {@link #put(RID, RawBuffer, long)} after the
+   * record is read from the storage. It should be taken before the read.
+   */
+  public long stamp(final RID rid) {
+    return stamp(new RecordKey(rid.getClusterId(), rid.getClusterPosition()));
+  }
+
+  /**
+   * Caches content of the record if it was not changed since the stamp was taken.
+   */
+  public void put(final RID rid, final RawBuffer buffer, final long stamp) {
+    if (buffer.buffer == null || buffer.buffer.length > maxRecordSize) {
+      return;
+    }
+
+    final RecordKey key = new RecordKey(rid.getClusterId(), rid.getClusterPosition());
+    if (!isValid(key, stamp) || !evictionLock.tryLock()) {
+      return;
+    }
+
+    final Entry entry = new Entry(key, buffer.buffer.clone(), buffer.version, buffer.recordType);
+    try {
+      sketch.increment(key.hashCode());
+      if (clockSize > 2 * map.size() + 64) {
+        // queue is mostly filled by invalidated entries
+        compactClock();
+      }
+
+      if (!makeRoom(entry)) {
+        return;
+      }
+
+      final Entry previous = map.put(key, entry);
+      if (previous != null) {
+        size.addAndGet(-previous.weight());
+      }
+      size.addAndGet(entry.weight());
+      clock.add(entry);
+      clockSize++;
+    } finally {
+      evictionLock.unlock();
+    }
+
+    // record could be invalidated after the stamp check, but before the entry was added
+    if (!isValid(key, stamp) && map.remove(key, entry)) {
+      size.addAndGet(-entry.weight());
+    }
+  }
+
+  /**
+   * Removes the record from the cache and stops caching of it till
+   * {@link #endInvalidation(RID)} is called. Should be called before the change of the record
+   * becomes visible to readers.
+   */
+  public void beginInvalidation(final RID rid) {
+    final RecordKey key = new RecordKey(rid.getClusterId(), rid.getClusterPosition());
+    final int stripe = stripe(key);
+    stripes.incrementAndGet(stripe);
+    writers.incrementAndGet(stripe);
+
+    remove(key);
+  }
+
+  /**
+   * Resumes caching of the record, should be called once the change of the record is visible to
+   * readers, or is rolled back.
+   */
+  public void endInvalidation(final RID rid) {
+    final RecordKey key = new RecordKey(rid.getClusterId(), rid.getClusterPosition());
+    final int stripe = stripe(key);
+    // readers which took the stamp before this point still may hold the old content
+    stripes.incrementAndGet(stripe);
+    writers.decrementAndGet(stripe);
+
+    remove(key);
+  }
+
+  /**
+   * Removes the record from the cache, for changes which are already visible to readers.
+   */
+  public void invalidate(final RID rid) {
+    beginInvalidation(rid);
+    endInvalidation(rid);
+  }
+
+  /**
+   * Removes all records of the cluster from the cache, should be called when the cluster is
+   * dropped, because its id can be reused by a new cluster.
+   */
+  public void invalidateCluster(final int clusterId) {
+    clusterStripes.incrementAndGet(clusterId & (STRIPES - 1));
+
+    for (final Entry entry : map.values()) {
+      if (entry.key.clusterId() == clusterId && map.remove(entry.key, entry)) {
+        size.addAndGet(-entry.weight());
+      }
+    }
+  }
+
+  /**
+   * Removes all records from the cache.
+   */
+  public void clear() {
+    epoch.incrementAndGet();
+
+    for (final Entry entry : map.values()) {
+      if (map.remove(entry.key, entry)) {
+        size.addAndGet(-entry.weight());
+      }
+    }
+  }
+
+  public int getEntries() {
+    return map.size();
+  }
+
+  public long getSize() {
+    return size.get();
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Frequency sketch is not thread safe, so to avoid contention between readers only a sample of
+   * hits is recorded, and only if the sketch is not busy. It is enough to keep popular records
+   * above the rest.
+   */
+  private void recordHit(final RecordKey key) {
+    if ((ThreadLocalRandom.current().nextInt() & HIT_SAMPLE_MASK) == 0
+        && evictionLock.tryLock()) {
+      try {
+        sketch.increment(key.hashCode());
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private long stamp(final RecordKey key) {
+    return epoch.get() + stripes.get(stripe(key))
+        + clusterStripes.get(key.clusterId() & (STRIPES - 1));
+  }
+
+  /**
+   * @return <code>true</code> if the record was not invalidated since the stamp was taken and its
+   * change is not being made visible now.
+   */
+  private boolean isValid(final RecordKey key, final long stamp) {
+    // amount of writers is read first, the stamp changes before it drops to zero
+    return writers.get(stripe(key)) == 0 && stamp == stamp(key);
+  }
+
+  private void remove(final RecordKey key) {
+    final Entry entry = map.remove(key);
+    if (entry != null) {
+      size.addAndGet(-entry.weight());
+    }
+  }
+
+  private void compactClock() {
+    clock.removeIf(entry -> map.get(entry.key) != entry);
+    clockSize = clock.size();
+  }
+
+  /**
+   * Evicts records until there is enough space for the candidate, if the candidate is more
+   * popular than the victims.
+   *
+   * @return <code>false</code> if the candidate should not be added to the cache.
+   */
+  private boolean makeRoom(final Entry candidate) {
+    final int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+
+    // every entry is visited at most twice: to reset its flag and to evict it
+    int limit = 2 * map.size() + 1;
+    while (size.get() + candidate.weight() > maxSize) {
+      if (limit-- <= 0) {
+        return false;
+      }
+
+      final Entry victim = clock.poll();
+      if (victim == null) {
+        return false;
+      }
+      clockSize--;
+
+      if (map.get(victim.key) != victim) {
+        // already removed
+        continue;
+      }
+
+      if (victim.referenced) {
+        victim.referenced = false;
+        clock.add(victim);
+        clockSize++;
+        continue;
+      }
+
+      if (candidateFrequency <= sketch.frequency(victim.key.hashCode())) {
+        // victim is more popular than the candidate, keep it
+        clock.add(victim);
+        clockSize++;
+        return false;
+      }
+
+      if (map.remove(victim.key, victim)) {
+        size.addAndGet(-victim.weight());
+        evictions.increment();
+      }
+    }
+
+    return true;
+  }
+
+  private static int stripe(final RecordKey key) {
+    return key.hashCode() & (STRIPES - 1);
+  }
+
+  private record RecordKey(int clusterId, long clusterPosition) {
+
+    @Override
+    public int hashCode() {
+      long hash = clusterPosition * 0x9E3779B97F4A7C15L + clusterId;
+      return (int) (hash ^ (hash >>> 32));
+    }
+  }
+
+  private static final class Entry {
+
+    private final RecordKey key;
+    private final byte[] content;
+    private final int version;
+    private final byte recordType;
+    private volatile boolean referenced;
+
+    private Entry(RecordKey key, byte[] content, int version, byte recordType) {
+      this.key = key;
+      this.content = content;
+      this.version = version;
+      this.recordType = recordType;
+    }
+
+    private long weight() {
+      return content.length + ENTRY_OVERHEAD;
+    }
+  }
+}
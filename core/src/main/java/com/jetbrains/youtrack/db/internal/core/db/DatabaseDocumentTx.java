@@ -1225,6 +1225,18 @@ public class DatabaseDocumentTx implements DatabaseSessionInternal {
     internal.checkForClusterPermissions(name);
   }
 
+  @Override
+  public List<? extends DBRecord> preloadRecords(Iterable<?> links) {
+    checkOpenness();
+    return internal.preloadRecords(links);
+  }
+
+  @Override
+  public List<? extends DBRecord> preloadRecords(Iterable<?> links, int batches) {
+    checkOpenness();
+    return internal.preloadRecords(links, batches);
+  }
+
   @Override
   public ResultSet execute(String language, String script, Object... args)
       throws CommandExecutionException, CommandScriptException {
@@ -52,6 +52,7 @@ import com.jetbrains.youtrack.db.internal.common.listener.ListenerManger;
 import com.jetbrains.youtrack.db.internal.common.log.LogManager;
 import com.jetbrains.youtrack.db.internal.core.YouTrackDBEnginesManager;
 import com.jetbrains.youtrack.db.internal.core.cache.LocalRecordCache;
+import com.jetbrains.youtrack.db.internal.core.cache.SharedRecordCache;
 import com.jetbrains.youtrack.db.internal.core.command.CommandRequest;
 import com.jetbrains.youtrack.db.internal.core.command.CommandRequestInternal;
 import com.jetbrains.youtrack.db.internal.core.db.record.CurrentStorageComponentsFactory;
@@ -918,7 +919,7 @@ public abstract class DatabaseSessionAbstract extends ListenerManger<SessionList
       if (!rid.isValid()) {
         recordBuffer = null;
       } else {
-        recordBuffer = getStorage().readRecord(this, rid, false, prefetchRecords, null);
+        recordBuffer = readRecordBuffer(rid);
       }
 
       if (recordBuffer == null) {
@@ -978,6 +979,30 @@ public abstract class DatabaseSessionAbstract extends ListenerManger<SessionList
     }
   }
 
+  /**
+   * Reads content of the record from the record cache shared between sessions, if it is enabled,
+   * or from the storage.
+   */
+  private RawBuffer readRecordBuffer(final RecordId rid) {
+    final SharedRecordCache recordCache =
+        sharedContext == null ? null : sharedContext.getRecordCache();
+    if (recordCache == null) {
+      return getStorage().readRecord(this, rid, false, prefetchRecords, null);
+    }
+
+    RawBuffer recordBuffer = recordCache.get(rid);
+    if (recordBuffer != null) {
+      return recordBuffer;
+    }
+
+    final long stamp = recordCache.stamp(rid);
+    recordBuffer = getStorage().readRecord(this, rid, false, prefetchRecords, null);
+    if (recordBuffer != null) {
+      recordCache.put(rid, recordBuffer, stamp);
+    }
+    return recordBuffer;
+  }
+
   public int assignAndCheckCluster(DBRecord record, String clusterName) {
     RecordId rid = (RecordId) record.getIdentity();
     // if provided a cluster name use it.
@@ -1446,11 +1471,15 @@ public abstract class DatabaseSessionAbstract extends ListenerManger<SessionList
     }
     EntityInternalUtils.convertAllMultiValuesToTrackedVersions(entity);
 
+    // cluster chosen by the class, rather than by the user, may be changed by the storage on commit
+    boolean clusterNotRequested = false;
     if (!entity.getIdentity().isValid()) {
       if (entity.getClassName() != null) {
         checkSecurity(Rule.ResourceGeneric.CLASS, Role.PERMISSION_CREATE, entity.getClassName());
       }
 
+      clusterNotRequested =
+          clusterName == null && entity.getIdentity().getClusterId() <= RID.CLUSTER_ID_INVALID;
       assignAndCheckCluster(entity, clusterName);
     } else {
       // UPDATE: CHECK ACCESS ON SCHEMA CLASS NAME (IF ANY)
@@ -1463,7 +1492,14 @@ public abstract class DatabaseSessionAbstract extends ListenerManger<SessionList
       RecordInternal.setRecordSerializer(entity, serializer);
     }
 
-    return (RET) currentTx.saveRecord(record, clusterName);
+    final RET saved = (RET) currentTx.saveRecord(record, clusterName);
+    if (clusterNotRequested) {
+      final RecordOperation recordOperation = currentTx.getRecordEntry(saved.getIdentity());
+      if (recordOperation != null && recordOperation.type == RecordOperation.CREATED) {
+        recordOperation.clusterNotRequested = true;
+      }
+    }
+    return saved;
   }
 
   /**
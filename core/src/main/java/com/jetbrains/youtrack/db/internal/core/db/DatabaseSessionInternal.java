@@ -68,6 +68,7 @@ import com.jetbrains.youtrack.db.internal.core.tx.FrontendTransactionNoTx;
 import com.jetbrains.youtrack.db.internal.core.tx.TransactionOptimistic;
 import com.jetbrains.youtrack.db.internal.enterprise.EnterpriseEndpoint;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -173,6 +174,36 @@ public interface DatabaseSessionInternal extends DatabaseSession {
 
   void checkForClusterPermissions(String name);
 
+  /**
+   * Loads records referenced by the links into the local cache before they are resolved one by
+   * one, so the remote database can load them by a single request. Elements which are not links
+   * are ignored. Embedded database loads records directly from the storage, so it does nothing.
+   *
+   * <p>Local cache references records weakly, so the caller keeps the returned records till the
+   * links are resolved.
+   *
+   * <p>Records are loaded by batches of
+   * {@link GlobalConfiguration#NETWORK_BINARY_READ_RECORDS_BATCH_SIZE} records, which are
+   * pipelined on the same connection, so it is used when all the links are going to be resolved.
+   *
+   * @return Records which were loaded.
+   */
+  default List<? extends DBRecord> preloadRecords(Iterable<?> links) {
+    return preloadRecords(links, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Loads records referenced by the links into the local cache as
+   * {@link #preloadRecords(Iterable)} does, but loads at most given amount of batches. Callers
+   * which iterate a collection of links lazily increase the amount of batches as the iteration
+   * advances, so a short iteration does not load the whole collection.
+   *
+   * @return Records which were loaded.
+   */
+  default List<? extends DBRecord> preloadRecords(Iterable<?> links, int batches) {
+    return Collections.emptyList();
+  }
+
   default ResultSet getActiveQuery(String id) {
     throw new UnsupportedOperationException();
   }
@@ -4,6 +4,7 @@ import com.jetbrains.youtrack.db.api.exception.BaseException;
 import com.jetbrains.youtrack.db.internal.common.listener.ListenerManger;
 import com.jetbrains.youtrack.db.internal.common.profiler.Profiler;
 import com.jetbrains.youtrack.db.internal.core.YouTrackDBEnginesManager;
+import com.jetbrains.youtrack.db.internal.core.cache.SharedRecordCache;
 import com.jetbrains.youtrack.db.api.exception.DatabaseException;
 import com.jetbrains.youtrack.db.internal.core.index.IndexManagerAbstract;
 import com.jetbrains.youtrack.db.internal.core.metadata.function.FunctionLibraryImpl;
@@ -22,6 +23,7 @@ import com.jetbrains.youtrack.db.internal.core.storage.impl.local.AbstractPagina
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 
 /**
  *
@@ -46,6 +48,7 @@ public abstract class SharedContext extends ListenerManger<MetadataUpdateListene
   protected volatile boolean loaded = false;
   protected Map<String, Object> resources;
   protected StringCache stringCache;
+  protected SharedRecordCache recordCache;
 
   public SharedContext() {
     super(true);
@@ -139,4 +142,13 @@ public abstract class SharedContext extends ListenerManger<MetadataUpdateListene
   public StringCache getStringCache() {
     return this.stringCache;
   }
+
+  /**
+   * @return Record cache shared by all the sessions of the database or <code>null</code> if it is
+   * disabled.
+   */
+  @Nullable
+  public SharedRecordCache getRecordCache() {
+    return recordCache;
+  }
 }
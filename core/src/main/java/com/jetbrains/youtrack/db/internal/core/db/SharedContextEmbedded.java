@@ -1,6 +1,7 @@
 package com.jetbrains.youtrack.db.internal.core.db;
 
 import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.internal.core.cache.SharedRecordCache;
 import com.jetbrains.youtrack.db.internal.core.id.RecordId;
 import com.jetbrains.youtrack.db.internal.core.index.IndexFactory;
 import com.jetbrains.youtrack.db.internal.core.index.IndexManagerShared;
@@ -67,6 +68,20 @@ public class SharedContextEmbedded extends SharedContext {
                 .getContextConfiguration()
                 .getValueAsInteger(GlobalConfiguration.STATEMENT_CACHE_SIZE));
     this.registerListener(executionPlanCache);
+    statementCache.registerMBean(storage.getName());
+    executionPlanCache.registerMBean(storage.getName());
+
+    int recordCacheSize =
+        storage
+            .getConfiguration()
+            .getContextConfiguration()
+            .getValueAsInteger(GlobalConfiguration.CACHE_SHARED_RECORD_SIZE);
+    if (recordCacheSize > 0) {
+      recordCache = new SharedRecordCache(recordCacheSize * 1024L * 1024L);
+    } else {
+      recordCache = null;
+    }
+    ((AbstractPaginatedStorage) storage).setSharedRecordCache(recordCache);
 
     queryStats = new QueryStats();
     activeDistributedQueries = new HashMap<>();
@@ -115,8 +130,13 @@ public class SharedContextEmbedded extends SharedContext {
     functionLibrary.close();
     scheduler.close();
     sequenceLibrary.close();
+    if (recordCache != null) {
+      recordCache.clear();
+    }
     statementCache.clear();
+    statementCache.unregisterMBean();
     executionPlanCache.invalidate();
+    executionPlanCache.unregisterMBean();
     liveQueryOps.close();
     liveQueryOpsV2.close();
     activeDistributedQueries.values().forEach(DistributedQueryContext::close);
@@ -37,6 +37,14 @@ public final class RecordOperation implements Comparable<RecordOperation> {
   // used in processing of server transactions
   public boolean callHooksOnServerTx = false;
 
+  /**
+   * <code>true</code> if the cluster of the created record was chosen by the cluster selection
+   * strategy of its class rather than requested by the user, by the name of the cluster or by the
+   * cluster id of the record, so the storage may place the record into another cluster of the same
+   * class.
+   */
+  public boolean clusterNotRequested = false;
+
   public RecordOperation() {
   }
 
@@ -113,7 +113,13 @@ public class EngineLocalPaginated extends EngineAbstract {
       pages.clear();
     }
 
-    readCache = new AsyncReadCache(ByteBufferPool.instance(null), diskCacheSize, pageSize, false);
+    readCache =
+        new AsyncReadCache(
+            ByteBufferPool.instance(null),
+            diskCacheSize,
+            pageSize,
+            false,
+            GlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.getValueAsInteger());
   }
 
   private static long calculateReadCacheMaxMemory(final long cacheSize) {
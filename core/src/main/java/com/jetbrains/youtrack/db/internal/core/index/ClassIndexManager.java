@@ -23,14 +23,17 @@ package com.jetbrains.youtrack.db.internal.core.index;
 import com.jetbrains.youtrack.db.api.exception.BaseException;
 import com.jetbrains.youtrack.db.api.exception.RecordNotFoundException;
 import com.jetbrains.youtrack.db.api.record.Identifiable;
+import com.jetbrains.youtrack.db.api.record.RID;
 import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
 import com.jetbrains.youtrack.db.internal.core.db.record.MultiValueChangeEvent;
 import com.jetbrains.youtrack.db.internal.core.db.record.MultiValueChangeTimeLine;
 import com.jetbrains.youtrack.db.internal.core.db.record.TrackedMultiValue;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexBulkLoader;
 import com.jetbrains.youtrack.db.internal.core.metadata.schema.SchemaImmutableClass;
 import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
 import com.jetbrains.youtrack.db.internal.core.record.impl.EntityInternalUtils;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -56,6 +59,29 @@ public class ClassIndexManager {
     addIndexEntry(session, entity, entity.getIdentity(), index);
   }
 
+  /**
+   * Adds keys of the entity to the loader which fills the index bypassing of the transaction. Keys
+   * are calculated the same way as by {@link #reIndex(DatabaseSessionInternal, EntityImpl,
+   * Index)}.
+   */
+  public static void reIndex(DatabaseSessionInternal session, EntityImpl entity,
+      IndexInternal index, IndexBulkLoader<Object> bulkLoader) throws IOException {
+    entity = checkForLoading(session, entity);
+
+    final IndexDefinition indexDefinition = index.getDefinition();
+    final RID rid = entity.getIdentity();
+    final Object key = indexDefinition.getDocumentValueToIndex(session, entity);
+    if (key instanceof Collection) {
+      for (final Object keyItem : (Collection<?>) key) {
+        if (!indexDefinition.isNullValuesIgnored() || keyItem != null) {
+          bulkLoader.add(index.getCollatingValue(keyItem), rid);
+        }
+      }
+    } else if (!indexDefinition.isNullValuesIgnored() || key != null) {
+      bulkLoader.add(index.getCollatingValue(key), rid);
+    }
+  }
+
   public static void processIndexOnCreate(DatabaseSessionInternal database,
       EntityImpl entity) {
     final SchemaImmutableClass cls = EntityInternalUtils.getImmutableSchemaClass(database, entity);
@@ -47,6 +47,7 @@ public class DefaultIndexFactory implements IndexFactory {
   public static final String SBTREE_BONSAI_VALUE_CONTAINER = "SBTREEBONSAISET";
   public static final String NONE_VALUE_CONTAINER = "NONE";
   static final String CELL_BTREE_ALGORITHM = "CELL_BTREE";
+  static final String NKBTREE_ALGORITHM = "NKBTREE";
 
   private static final Set<String> TYPES;
   private static final Set<String> ALGORITHMS;
@@ -64,6 +65,7 @@ public class DefaultIndexFactory implements IndexFactory {
     final Set<String> algorithms = new HashSet<>();
     algorithms.add(SBTREE_ALGORITHM);
     algorithms.add(CELL_BTREE_ALGORITHM);
+    algorithms.add(NKBTREE_ALGORITHM);
 
     ALGORITHMS = Collections.unmodifiableSet(algorithms);
   }
@@ -133,6 +135,7 @@ public class DefaultIndexFactory implements IndexFactory {
       case SBTREE_ALGORITHM:
         return SBTreeIndexEngine.VERSION;
       case CELL_BTREE_ALGORITHM:
+      case NKBTREE_ALGORITHM:
         return CellBTreeIndexEngine.VERSION;
     }
 
@@ -173,6 +176,17 @@ public class DefaultIndexFactory implements IndexFactory {
                       data.getIndexId(), data.getName(), realStorage, data.getVersion());
             }
             break;
+          case NKBTREE_ALGORITHM:
+            if (data.isMultivalue()) {
+              indexEngine =
+                  new CellBTreeMultiValueIndexEngine(
+                      data.getIndexId(), data.getName(), realStorage, data.getVersion(), true);
+            } else {
+              indexEngine =
+                  new CellBTreeSingleValueIndexEngine(
+                      data.getIndexId(), data.getName(), realStorage, data.getVersion(), true);
+            }
+            break;
           default:
             throw new IllegalStateException("Invalid name of algorithm :'" + "'");
         }
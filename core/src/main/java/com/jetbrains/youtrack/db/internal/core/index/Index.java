@@ -126,10 +126,9 @@ public interface Index extends Comparable<Index> {
   long getRebuildVersion();
 
   /**
-   * @return Indicates whether index is rebuilding at the moment.
-   * @see #getRebuildVersion()
+   * @return Indicates whether index is built online at the moment, such index is not used by
+   * queries.
    */
-  @Deprecated
   boolean isRebuilding();
 
   /**
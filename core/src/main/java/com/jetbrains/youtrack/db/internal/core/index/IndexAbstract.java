@@ -39,6 +39,8 @@ import com.jetbrains.youtrack.db.internal.core.exception.InvalidIndexEngineIdExc
 import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysGreaterKey;
 import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysLessKey;
 import com.jetbrains.youtrack.db.internal.core.index.engine.BaseIndexEngine;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexBulkLoader;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValidator;
 import com.jetbrains.youtrack.db.internal.core.index.iterator.IndexCursorStream;
 import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
 import com.jetbrains.youtrack.db.internal.core.record.impl.EntityInternalUtils;
@@ -58,11 +60,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 /**
  * Handles indexing when records change. The underlying lock manager for keys can be the
@@ -76,6 +80,8 @@ public abstract class IndexAbstract implements IndexInternal {
   private static final AlwaysGreaterKey ALWAYS_GREATER_KEY = new AlwaysGreaterKey();
   protected static final String CONFIG_MAP_RID = "mapRid";
   private static final String CONFIG_CLUSTERS = "clusters";
+  private static final String CONFIG_BUILDING = "building";
+  private static final String METADATA_ONLINE = "online";
   protected final AbstractPaginatedStorage storage;
   private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
 
@@ -85,6 +91,11 @@ public abstract class IndexAbstract implements IndexInternal {
   protected Set<String> clustersToIndex = new HashSet<>();
   protected IndexMetadata im;
 
+  /**
+   * Not <code>null</code> only while the index is built online.
+   */
+  private volatile IndexBuildLog buildLog;
+
   public IndexAbstract(IndexMetadata im, final Storage storage) {
     acquireExclusiveLock();
     try {
@@ -236,7 +247,13 @@ public abstract class IndexAbstract implements IndexInternal {
       onIndexEngineChange(indexId);
 
       if (rebuild) {
-        fillIndex(session, progressListener, false);
+        if (isOnlineBuild()) {
+          // index is filled by completeOnlineBuild() once it is visible to the transactions
+          buildLog = new IndexBuildLog(Thread.currentThread());
+        } else {
+          // index is not visible to the transactions yet, so nobody else changes it
+          fillIndex(session, progressListener, false, true);
+        }
       }
     } catch (Exception e) {
       LogManager.instance().error(this, "Exception during index '%s' creation", e, im.getName());
@@ -288,6 +305,17 @@ public abstract class IndexAbstract implements IndexInternal {
 
         onIndexEngineChange(indexId);
 
+        if (Boolean.TRUE.equals(config.field(CONFIG_BUILDING))) {
+          LogManager.instance()
+              .warn(this, "Online build of index '%s' was not completed, rebuild it from scratch",
+                  im.getName());
+          rebuild(session);
+        } else if (storage.isIndexBulkLoadInterrupted(indexId)) {
+          LogManager.instance()
+              .warn(this, "Bulk load of index '%s' was not completed, rebuild it from scratch",
+                  im.getName());
+          rebuild(session);
+        }
       } catch (Exception e) {
         LogManager.instance()
             .error(
@@ -383,12 +411,10 @@ public abstract class IndexAbstract implements IndexInternal {
   }
 
   /**
-   * @return Indicates whether index is rebuilding at the moment.
-   * @see #getRebuildVersion()
+   * @return Indicates whether index is built online at the moment.
    */
-  @Deprecated
   public boolean isRebuilding() {
-    return false;
+    return buildLog != null;
   }
 
   @Deprecated
@@ -479,6 +505,7 @@ public abstract class IndexAbstract implements IndexInternal {
   public long rebuild(DatabaseSessionInternal session,
       final ProgressListener iProgressListener) {
     long entitiesIndexed;
+    IndexBuildLog buildLog = null;
 
     acquireExclusiveLock();
     try {
@@ -496,6 +523,11 @@ public abstract class IndexAbstract implements IndexInternal {
       apiVersion = AbstractPaginatedStorage.extractEngineAPIVersion(indexId);
 
       onIndexEngineChange(indexId);
+
+      if (isOnlineBuild()) {
+        buildLog = new IndexBuildLog(Thread.currentThread());
+        this.buildLog = buildLog;
+      }
     } catch (Exception e) {
       try {
         if (indexId >= 0) {
@@ -516,7 +548,11 @@ public abstract class IndexAbstract implements IndexInternal {
 
     acquireSharedLock();
     try {
-      entitiesIndexed = fillIndex(session, iProgressListener, true);
+      // without side log transactions change the index concurrently with the fill
+      entitiesIndexed = fillIndex(session, iProgressListener, true, buildLog != null);
+      if (buildLog != null) {
+        mergeBuildLog(session, buildLog);
+      }
     } catch (final Exception e) {
       LogManager.instance().error(this, "Error during index rebuild", e);
       try {
@@ -533,15 +569,98 @@ public abstract class IndexAbstract implements IndexInternal {
           new IndexException("Error on rebuilding the index for clusters: " + clustersToIndex),
           e);
     } finally {
+      if (buildLog != null) {
+        closeBuildLog(buildLog);
+      }
       releaseSharedLock();
     }
 
     return entitiesIndexed;
   }
 
+  @Override
+  public long completeOnlineBuild(DatabaseSessionInternal session,
+      final ProgressListener progressListener) {
+    final IndexBuildLog buildLog = this.buildLog;
+    if (buildLog == null) {
+      throw new IllegalStateException("Index '" + im.getName() + "' is not built online");
+    }
+
+    acquireSharedLock();
+    try {
+      final long entitiesIndexed = fillIndex(session, progressListener, false, true);
+      mergeBuildLog(session, buildLog);
+      return entitiesIndexed;
+    } finally {
+      closeBuildLog(buildLog);
+      releaseSharedLock();
+    }
+  }
+
+  @Nullable
+  @Override
+  public IndexBuildLog getBuildLog() {
+    return buildLog;
+  }
+
+  /**
+   * @return <code>true</code> if the index should be filled without blocking of the concurrent
+   * transactions.
+   */
+  private boolean isOnlineBuild() {
+    if (im.getIndexDefinition() == null || im.getIndexDefinition().getClassName() == null) {
+      return false;
+    }
+
+    final Map<String, ?> metadata = im.getMetadata();
+    if (metadata != null && metadata.get(METADATA_ONLINE) instanceof Boolean online) {
+      return online;
+    }
+
+    return storage
+        .getConfiguration()
+        .getContextConfiguration()
+        .getValueAsBoolean(GlobalConfiguration.INDEX_ONLINE_BUILD);
+  }
+
+  /**
+   * Applies changes of the transactions committed during the build, new transactions which change
+   * the index wait till the log is closed.
+   */
+  private void mergeBuildLog(DatabaseSessionInternal session, final IndexBuildLog buildLog) {
+    final List<IndexBuildLog.Change> changes = buildLog.drain();
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    LogManager.instance()
+        .info(this, "Merging %,d changes of concurrent transactions into index '%s'",
+            changes.size(), im.getName());
+    session.executeInTxBatches(
+        changes.iterator(),
+        (db, change) ->
+            session
+                .getTransaction()
+                .addIndexEntry(this, im.getName(), change.operation(), change.key(),
+                    change.value()));
+  }
+
+  private void closeBuildLog(final IndexBuildLog buildLog) {
+    this.buildLog = null;
+    buildLog.close();
+  }
+
+  /**
+   * @param exclusiveWriter <code>true</code> if the current thread is the only one which changes
+   *                        the index till the end of the fill. Bulk load is performed by several
+   *                        atomic operations and expects that the tree stays empty till it is
+   *                        complete, so otherwise entries are put one by one.
+   */
   private long fillIndex(DatabaseSessionInternal session,
-      final ProgressListener iProgressListener, final boolean rebuild) {
+      final ProgressListener iProgressListener, final boolean rebuild,
+      final boolean exclusiveWriter) {
     long entitiesIndexed = 0;
+    final IndexBulkLoader<Object> bulkLoader = exclusiveWriter ? createBulkLoader() : null;
     try {
       long entityNum = 0;
       long entitiesTotal = 0;
@@ -558,11 +677,15 @@ public abstract class IndexAbstract implements IndexInternal {
       for (final String clusterName : clustersToIndex) {
         final long[] metrics =
             indexCluster(session, clusterName, iProgressListener, entityNum,
-                entitiesIndexed, entitiesTotal);
+                entitiesIndexed, entitiesTotal, bulkLoader);
         entityNum = metrics[0];
         entitiesIndexed = metrics[1];
       }
 
+      if (bulkLoader != null) {
+        bulkLoader.load();
+      }
+
       if (iProgressListener != null) {
         iProgressListener.onCompletition(session, this, true);
       }
@@ -571,10 +694,59 @@ public abstract class IndexAbstract implements IndexInternal {
         iProgressListener.onCompletition(session, this, false);
       }
       throw e;
+    } catch (final IOException e) {
+      if (iProgressListener != null) {
+        iProgressListener.onCompletition(session, this, false);
+      }
+      throw BaseException.wrapException(
+          new IndexException("Error during bulk load of index " + im.getName()), e);
+    } finally {
+      if (bulkLoader != null) {
+        try {
+          bulkLoader.close();
+        } catch (final IOException e) {
+          LogManager.instance()
+              .error(this, "Error during cleanup of bulk load of index '%s'", e, im.getName());
+        }
+      }
     }
     return entitiesIndexed;
   }
 
+  /**
+   * @return Loader which fills the index bypassing of the transactions or <code>null</code> if
+   * bulk load is switched off or is not supported by the index.
+   */
+  @Nullable
+  private IndexBulkLoader<Object> createBulkLoader() {
+    if (!GlobalConfiguration.INDEX_BULK_LOAD.getValueAsBoolean() || !isBulkLoadSupported()) {
+      return null;
+    }
+
+    try {
+      return storage.createIndexBulkLoader(indexId, getBulkLoadValidator());
+    } catch (final InvalidIndexEngineIdException e) {
+      throw BaseException.wrapException(
+          new IndexException("Error during bulk load of index " + im.getName()), e);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if index is filled by sorting of all keys and building of index
+   * pages bottom-up during creation and rebuild, if index engine supports it.
+   */
+  protected boolean isBulkLoadSupported() {
+    return false;
+  }
+
+  /**
+   * @return Validator of entries with equal keys which is used during bulk load of the index.
+   */
+  @Nullable
+  protected IndexEngineValidator<Object, RID> getBulkLoadValidator() {
+    return null;
+  }
+
   @Override
   public boolean doRemove(DatabaseSessionInternal session, AbstractPaginatedStorage storage,
       Object key, RID rid)
@@ -714,7 +886,7 @@ public abstract class IndexAbstract implements IndexInternal {
     try {
       if (clustersToIndex.add(clusterName)) {
         // INDEX SINGLE CLUSTER
-        indexCluster(session, clusterName, null, 0, 0, 0);
+        indexCluster(session, clusterName, null, 0, 0, 0, null);
       }
 
       return this;
@@ -763,6 +935,9 @@ public abstract class IndexAbstract implements IndexInternal {
     }
 
     entity.field(CONFIG_CLUSTERS, clustersToIndex, PropertyType.EMBEDDEDSET);
+    if (buildLog != null) {
+      entity.field(CONFIG_BUILDING, true);
+    }
     entity.field(ALGORITHM, im.getAlgorithm());
     entity.field(VALUE_CONTAINER_ALGORITHM, im.getValueContainerAlgorithm());
 
@@ -938,7 +1113,8 @@ public abstract class IndexAbstract implements IndexInternal {
       final ProgressListener iProgressListener,
       long documentNum,
       long documentIndexed,
-      long documentTotal) {
+      long documentTotal,
+      final IndexBulkLoader<Object> bulkLoader) {
     if (im.getIndexDefinition() == null) {
       throw new ConfigurationException(
           "Index '"
@@ -957,7 +1133,16 @@ public abstract class IndexAbstract implements IndexInternal {
       }
 
       if (record instanceof EntityImpl entity) {
-        ClassIndexManager.reIndex(session, entity, this);
+        if (bulkLoader != null) {
+          try {
+            ClassIndexManager.reIndex(session, entity, this, bulkLoader);
+          } catch (IOException e) {
+            throw BaseException.wrapException(
+                new IndexException("Error during bulk load of index " + im.getName()), e);
+          }
+        } else {
+          ClassIndexManager.reIndex(session, entity, this);
+        }
         ++stat[1];
       }
 
@@ -965,7 +1150,7 @@ public abstract class IndexAbstract implements IndexInternal {
 
       if (iProgressListener != null) {
         iProgressListener.onProgress(
-            this, documentNum, (float) (documentNum * 100.0 / documentTotal));
+            this, stat[0], (float) (stat[0] * 100.0 / documentTotal));
       }
     });
 
@@ -0,0 +1,132 @@
+package com.jetbrains.youtrack.db.internal.core.index;
+
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.core.tx.FrontendTransactionIndexChanges.OPERATION;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.Nullable;
+
+/**
+ * Side log of the index which is built online. Transactions which are committed during the build
+ * do not change the index, their changes are recorded in the log instead and are merged into the
+ * index by the builder once all records are indexed.
+ *
+ * <p>Changes are numbered while keys of the index are locked by the committing transaction, so
+ * changes of the same key are merged in the order of commits. The builder is the only thread which
+ * writes into the index directly till the log is closed.
+ *
+ * <p>Uniqueness of the keys is not checked when changes are recorded: the index does not contain
+ * keys of the records which are not scanned yet, so a duplicate can not be detected at commit time.
+ * Commits which add a key already used by another record succeed during the build, and the
+ * conflict is found only when the log is merged. The build of a unique index then fails with
+ * {@link com.jetbrains.youtrack.db.api.exception.RecordDuplicatedException}, a created index is
+ * dropped and a rebuilt one is cleared, even if it was almost built. Unique indexes should be built
+ * online only if concurrent transactions are not expected to violate uniqueness.
+ */
+public final class IndexBuildLog {
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final AtomicLong sequence = new AtomicLong();
+  private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+  private final Thread builder;
+
+  /**
+   * Guarded by {@link #lock}.
+   */
+  private boolean closed;
+
+  public IndexBuildLog(final Thread builder) {
+    this.builder = builder;
+  }
+
+  /**
+   * Called by the transaction which changes the index before the start of the commit. If changes
+   * should be recorded in the log, completion of the build is suspended till
+   * {@link #endCommit()} is called.
+   *
+   * @return <code>true</code> if changes of the transaction should be recorded in the log and
+   * <code>false</code> if they should be applied to the index.
+   */
+  public boolean beginCommit() {
+    if (Thread.currentThread() == builder) {
+      return false;
+    }
+
+    lock.readLock().lock();
+    if (closed) {
+      lock.readLock().unlock();
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Creates change of the index, should be called while the key is locked by the transaction.
+   */
+  public Change change(final OPERATION operation, final Object key, @Nullable final RID value) {
+    return new Change(sequence.getAndIncrement(), operation, key, value);
+  }
+
+  /**
+   * Records changes of the transaction once it is committed.
+   */
+  public void publish(final List<Change> committed) {
+    changes.addAll(committed);
+  }
+
+  /**
+   * Resumes completion of the build suspended by {@link #beginCommit()}.
+   */
+  public void endCommit() {
+    lock.readLock().unlock();
+  }
+
+  /**
+   * @return Amount of changes waiting to be merged into the index.
+   */
+  public int size() {
+    return changes.size();
+  }
+
+  /**
+   * Waits till all transactions which record changes in the log are completed and suspends the
+   * new ones till {@link #close()} is called.
+   *
+   * @return All recorded changes in the order of commits.
+   */
+  List<Change> drain() {
+    lock.writeLock().lock();
+
+    final List<Change> result = new ArrayList<>(changes);
+    changes.clear();
+    result.sort(Comparator.comparingLong(Change::sequence));
+
+    return result;
+  }
+
+  /**
+   * Closes the log, following transactions apply changes to the index directly. Changes which were
+   * not drained by {@link #drain()} are discarded.
+   */
+  void close() {
+    if (!lock.isWriteLockedByCurrentThread()) {
+      lock.writeLock().lock();
+    }
+
+    try {
+      closed = true;
+      changes.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public record Change(long sequence, OPERATION operation, Object key, @Nullable RID value) {
+
+  }
+}
@@ -42,6 +42,7 @@ import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 /**
  * Interface to handle index.
@@ -320,5 +321,21 @@ public interface IndexInternal extends Index {
   Index create(DatabaseSessionInternal session, IndexMetadata metadata, boolean rebuild,
       ProgressListener progressListener);
 
+  /**
+   * Fills the index which was created empty because online build was requested. Should be called
+   * once the index is visible to the concurrent transactions.
+   *
+   * @return Amount of indexed records.
+   * @see #getBuildLog()
+   */
+  long completeOnlineBuild(DatabaseSessionInternal session, ProgressListener progressListener);
+
+  /**
+   * @return Side log which records changes of the concurrent transactions while the index is built
+   * online, or <code>null</code> if the index is not built online at the moment.
+   */
+  @Nullable
+  IndexBuildLog getBuildLog();
+
   int getIndexId();
 }
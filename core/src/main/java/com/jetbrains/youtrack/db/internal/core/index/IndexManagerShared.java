@@ -20,6 +20,7 @@
 package com.jetbrains.youtrack.db.internal.core.index;
 
 import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.exception.BaseException;
 import com.jetbrains.youtrack.db.api.record.DBRecord;
 import com.jetbrains.youtrack.db.api.record.RID;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
@@ -686,9 +687,43 @@ public class IndexManagerShared implements IndexManagerAbstract {
       notifyInvolvedClasses(database, clusterIdsToIndex);
     }
 
+    if (index.getBuildLog() != null) {
+      completeOnlineBuild(
+          database,
+          index,
+          progressListener != null ? progressListener : new IndexRebuildOutputListener(index));
+    }
+
     return index;
   }
 
+  /**
+   * Fills the index which is visible to the concurrent transactions already, the index is dropped
+   * if the build fails.
+   */
+  private void completeOnlineBuild(
+      DatabaseSessionInternal database, IndexInternal index, ProgressListener progressListener) {
+    try {
+      index.completeOnlineBuild(database, progressListener);
+    } catch (RuntimeException e) {
+      LogManager.instance()
+          .error(this, "Online build of index '%s' failed, index will be dropped", e,
+              index.getName());
+      try {
+        dropIndex(database, index.getName());
+      } catch (RuntimeException ex) {
+        LogManager.instance().error(this, "Error on deletion of index '%s'", ex, index.getName());
+      }
+
+      throw BaseException.wrapException(
+          new IndexException("Cannot create the index '" + index.getName() + "'"), e);
+    }
+
+    // store configuration of the index which is not marked as being built anymore
+    acquireExclusiveLock();
+    releaseExclusiveLock(database, true);
+  }
+
   private IndexInternal createIndexFromMetadata(
       DatabaseSessionInternal session, Storage storage, IndexMetadata indexMetadata,
       ProgressListener progressListener) {
@@ -48,6 +48,11 @@ public class IndexNotUnique extends IndexMultiValues {
     }
   }
 
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return true;
+  }
+
   @Override
   public Iterable<TransactionIndexEntry> interpretTxKeyChanges(
       FrontendTransactionIndexChangesPerKey changes) {
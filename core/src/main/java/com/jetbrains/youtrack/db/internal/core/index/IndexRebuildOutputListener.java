@@ -70,15 +70,19 @@ public class IndexRebuildOutputListener implements ProgressListener {
   public boolean onProgress(final Object iTask, final long iCounter, final float iPercent) {
     final long now = System.currentTimeMillis();
     if (now - lastDump > 10000) {
-      // DUMP EVERY 5 SECONDS FOR LARGE INDEXES
-      if (rebuild) {
+      // DUMP EVERY 10 SECONDS FOR LARGE INDEXES
+      final long itemsPerSec = (iCounter - lastCounter) * 1000 / (now - lastDump);
+      final IndexBuildLog buildLog = idx.getInternal().getBuildLog();
+      if (buildLog != null) {
         LogManager.instance()
             .info(
                 this,
-                "--> %3.2f%% progress, %,d indexed so far (%,d items/sec)",
+                "--> %3.2f%% progress, %,d indexed so far (%,d items/sec), %,d concurrent changes"
+                    + " are waiting to be merged",
                 iPercent,
                 iCounter,
-                ((iCounter - lastCounter) / 10));
+                itemsPerSec,
+                buildLog.size());
       } else {
         LogManager.instance()
             .info(
@@ -86,7 +90,7 @@ public class IndexRebuildOutputListener implements ProgressListener {
                 "--> %3.2f%% progress, %,d indexed so far (%,d items/sec)",
                 iPercent,
                 iCounter,
-                ((iCounter - lastCounter) / 10));
+                itemsPerSec);
       }
       lastDump = now;
       lastCounter = iCounter;
@@ -100,20 +104,24 @@ public class IndexRebuildOutputListener implements ProgressListener {
     final long idxSize = idx.getInternal().size(session);
 
     if (idxSize > 0) {
-      if (rebuild) {
+      final long elapsed = System.currentTimeMillis() - startTime;
+      final long itemsPerSec = idxSize * 1000 / Math.max(elapsed, 1);
+      if (rebuild || idx.getInternal().getBuildLog() != null) {
         LogManager.instance()
             .info(
                 this,
-                "--> OK, indexed %,d items in %,d ms",
+                "--> OK, indexed %,d items in %,d ms (%,d items/sec)",
                 idxSize,
-                (System.currentTimeMillis() - startTime));
+                elapsed,
+                itemsPerSec);
       } else {
         LogManager.instance()
             .debug(
                 this,
-                "--> OK, indexed %,d items in %,d ms",
+                "--> OK, indexed %,d items in %,d ms (%,d items/sec)",
                 idxSize,
-                (System.currentTimeMillis() - startTime));
+                elapsed,
+                itemsPerSec);
       }
     }
   }
@@ -70,6 +70,16 @@ public class IndexUnique extends IndexOneValue {
     }
   }
 
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return true;
+  }
+
+  @Override
+  protected IndexEngineValidator<Object, RID> getBulkLoadValidator() {
+    return uniqueValidator;
+  }
+
   @Override
   public Iterable<TransactionIndexEntry> interpretTxKeyChanges(
       FrontendTransactionIndexChangesPerKey changes) {
@@ -0,0 +1,29 @@
+package com.jetbrains.youtrack.db.internal.core.index.engine;
+
+import com.jetbrains.youtrack.db.api.record.RID;
+import java.io.IOException;
+
+/**
+ * Fills empty index by entries which are collected in any order. Entries are sorted and written to
+ * the index pages bottom-up during {@link #load()} instead of being inserted one by one.
+ *
+ * @param <K> the key type.
+ */
+public interface IndexBulkLoader<K> extends AutoCloseable {
+
+  /**
+   * Adds entry which will be written to the index during {@link #load()}.
+   */
+  void add(K key, RID value) throws IOException;
+
+  /**
+   * Writes all added entries to the index. Should be called outside of atomic operation.
+   */
+  void load() throws IOException;
+
+  /**
+   * Releases resources allocated for the sorting of entries.
+   */
+  @Override
+  void close() throws IOException;
+}
@@ -0,0 +1,239 @@
+package com.jetbrains.youtrack.db.internal.core.index.engine;
+
+import com.jetbrains.youtrack.db.api.exception.BaseException;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.common.comparator.DefaultComparator;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.BinarySerializer;
+import com.jetbrains.youtrack.db.internal.common.util.RawPair;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.index.IndexException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts index entries in bounded amount of memory. Entries are accumulated in memory till the size
+ * of buffer is reached, then they are sorted and spilled to the temporary file as a sorted run.
+ * Runs are merged on the fly when sorted entries are requested. Entries are ordered by keys,
+ * <code>null</code> keys go first, entries with equal keys are ordered by values.
+ *
+ * @param <K> the key type.
+ */
+public final class IndexEntriesSorter<K> implements AutoCloseable {
+
+  private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+  private final BinarySerializer<K> keySerializer;
+  private final Object[] keyHints;
+  private final int bufferSize;
+
+  private final List<RawPair<K, RID>> buffer;
+  private final List<Path> runs = new ArrayList<>();
+  private final List<RunReader> readers = new ArrayList<>();
+
+  public IndexEntriesSorter(
+      final BinarySerializer<K> keySerializer, final Object[] keyHints, final int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Invalid size of sort buffer " + bufferSize);
+    }
+
+    this.keySerializer = keySerializer;
+    this.keyHints = keyHints;
+    this.bufferSize = bufferSize;
+    this.buffer = new ArrayList<>(Math.min(bufferSize, 1024));
+  }
+
+  public void add(final K key, final RID value) throws IOException {
+    buffer.add(new RawPair<>(key, value));
+
+    if (buffer.size() >= bufferSize) {
+      spill();
+    }
+  }
+
+  /**
+   * @return Iterator over all added entries in sorted order. Should be called only once.
+   */
+  public Iterator<RawPair<K, RID>> sortedEntries() throws IOException {
+    if (runs.isEmpty()) {
+      buffer.sort(IndexEntriesSorter::compareEntries);
+      return buffer.iterator();
+    }
+
+    if (!buffer.isEmpty()) {
+      spill();
+    }
+
+    for (final Path run : runs) {
+      readers.add(new RunReader(run));
+    }
+
+    return new MergeIterator();
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException error = null;
+    for (final RunReader reader : readers) {
+      try {
+        reader.close();
+      } catch (final IOException e) {
+        error = e;
+      }
+    }
+    readers.clear();
+
+    for (final Path run : runs) {
+      try {
+        Files.deleteIfExists(run);
+      } catch (final IOException e) {
+        error = e;
+      }
+    }
+    runs.clear();
+    buffer.clear();
+
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  private void spill() throws IOException {
+    buffer.sort(IndexEntriesSorter::compareEntries);
+
+    final Path run = Files.createTempFile("index-sort-", ".run");
+    runs.add(run);
+
+    try (final DataOutputStream output =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+      for (final RawPair<K, RID> entry : buffer) {
+        if (entry.first == null) {
+          output.writeInt(-1);
+        } else {
+          final byte[] serializedKey = keySerializer.serializeNativeAsWhole(entry.first, keyHints);
+          output.writeInt(serializedKey.length);
+          output.write(serializedKey);
+        }
+
+        output.writeInt(entry.second.getClusterId());
+        output.writeLong(entry.second.getClusterPosition());
+      }
+    }
+
+    buffer.clear();
+  }
+
+  private static <K> int compareEntries(final RawPair<K, RID> first, final RawPair<K, RID> second) {
+    if (first.first == null) {
+      if (second.first != null) {
+        return -1;
+      }
+    } else if (second.first == null) {
+      return 1;
+    } else {
+      final int result = DefaultComparator.INSTANCE.compare(first.first, second.first);
+      if (result != 0) {
+        return result;
+      }
+    }
+
+    return first.second.compareTo(second.second);
+  }
+
+  private final class RunReader {
+
+    private final DataInputStream input;
+    private RawPair<K, RID> current;
+
+    private RunReader(final Path run) throws IOException {
+      input =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE));
+    }
+
+    /**
+     * @return <code>false</code> if all entries of the run were read.
+     */
+    private boolean advance() throws IOException {
+      final int keyLength;
+      try {
+        keyLength = input.readInt();
+      } catch (final EOFException e) {
+        current = null;
+        return false;
+      }
+
+      final K key;
+      if (keyLength < 0) {
+        key = null;
+      } else {
+        final byte[] serializedKey = new byte[keyLength];
+        input.readFully(serializedKey);
+        key = keySerializer.deserializeNativeObject(serializedKey, 0);
+      }
+
+      final int clusterId = input.readInt();
+      final long clusterPosition = input.readLong();
+
+      current = new RawPair<>(key, new RecordId(clusterId, clusterPosition));
+      return true;
+    }
+
+    private void close() throws IOException {
+      input.close();
+    }
+  }
+
+  private final class MergeIterator implements Iterator<RawPair<K, RID>> {
+
+    private final PriorityQueue<RunReader> queue =
+        new PriorityQueue<>(
+            Math.max(readers.size(), 1),
+            Comparator.comparing(
+                (RunReader reader) -> reader.current, IndexEntriesSorter::compareEntries));
+
+    private MergeIterator() throws IOException {
+      for (final RunReader reader : readers) {
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public RawPair<K, RID> next() {
+      final RunReader reader = queue.poll();
+      if (reader == null) {
+        throw new NoSuchElementException();
+      }
+
+      final RawPair<K, RID> entry = reader.current;
+      try {
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      } catch (final IOException e) {
+        throw BaseException.wrapException(
+            new IndexException("Error during reading of sorted run of index entries"), e);
+      }
+
+      return entry;
+    }
+  }
+}
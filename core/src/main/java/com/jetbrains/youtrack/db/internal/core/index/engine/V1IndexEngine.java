@@ -3,6 +3,7 @@ package com.jetbrains.youtrack.db.internal.core.index.engine;
 import com.jetbrains.youtrack.db.api.record.RID;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.atomicoperations.AtomicOperation;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 public interface V1IndexEngine extends BaseIndexEngine {
 
@@ -12,6 +13,25 @@ public interface V1IndexEngine extends BaseIndexEngine {
 
   Stream<RID> get(Object key);
 
+  /**
+   * Creates loader which fills empty index bypassing of the transactional put path.
+   *
+   * @param validator Validator of entries with equal keys, may be <code>null</code>.
+   * @return Loader or <code>null</code> if bulk load is not supported by the index engine.
+   */
+  @Nullable
+  default IndexBulkLoader<Object> createBulkLoader(IndexEngineValidator<Object, RID> validator) {
+    return null;
+  }
+
+  /**
+   * @return <code>true</code> if the bulk load of the index was interrupted by a crash, so the
+   * index should be rebuilt.
+   */
+  default boolean isBulkLoadInterrupted() {
+    return false;
+  }
+
   @Override
   default int getEngineAPIVersion() {
     return API_VERSION;
@@ -1,5 +1,6 @@
 package com.jetbrains.youtrack.db.internal.core.index.engine.v1;
 
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.api.exception.BaseException;
 import com.jetbrains.youtrack.db.api.record.Identifiable;
 import com.jetbrains.youtrack.db.api.record.RID;
@@ -13,12 +14,15 @@ import com.jetbrains.youtrack.db.internal.core.id.RecordId;
 import com.jetbrains.youtrack.db.internal.core.index.CompositeKey;
 import com.jetbrains.youtrack.db.internal.core.index.IndexException;
 import com.jetbrains.youtrack.db.internal.core.index.IndexMetadata;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexBulkLoader;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValidator;
 import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValuesTransformer;
 import com.jetbrains.youtrack.db.internal.core.index.engine.MultiValueIndexEngine;
 import com.jetbrains.youtrack.db.internal.core.serialization.serializer.binary.impl.CompactedLinkSerializer;
 import com.jetbrains.youtrack.db.internal.core.serialization.serializer.binary.impl.index.IndexMultiValuKeySerializer;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.AbstractPaginatedStorage;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.atomicoperations.AtomicOperation;
+import com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree.NormalizedKeyBTreeValue;
 import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.multivalue.CellBTreeMultiValue;
 import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.multivalue.v2.CellBTreeMultiValueV2;
 import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.CellBTreeSingleValue;
@@ -49,12 +53,34 @@ public final class CellBTreeMultiValueIndexEngine
 
   public CellBTreeMultiValueIndexEngine(
       int id, @Nonnull String name, AbstractPaginatedStorage storage, final int version) {
+    this(id, name, storage, version, false);
+  }
+
+  /**
+   * @param normalizedKeys If <code>true</code> keys are stored in byte comparable form by
+   *                       {@link NormalizedKeyBTreeValue}, supported only by the last version of
+   *                       index.
+   */
+  public CellBTreeMultiValueIndexEngine(
+      int id, @Nonnull String name, AbstractPaginatedStorage storage, final int version,
+      final boolean normalizedKeys) {
     this.id = id;
     this.name = name;
     this.storage = storage;
     nullTreeName = name + "$null";
 
-    if (version == 1) {
+    if (normalizedKeys) {
+      if (version != VERSION) {
+        throw new IllegalStateException("Invalid tree version " + version);
+      }
+      mvTree = null;
+      svTree =
+          new NormalizedKeyBTreeValue<>(
+              name, DATA_FILE_EXTENSION, NULL_BUCKET_FILE_EXTENSION, storage);
+      nullTree =
+          new NormalizedKeyBTreeValue<>(
+              nullTreeName, DATA_FILE_EXTENSION, NULL_BUCKET_FILE_EXTENSION, storage);
+    } else if (version == 1) {
       throw new IllegalArgumentException("Unsupported version of index : " + version);
     } else if (version == 2) {
       this.mvTree =
@@ -437,6 +463,66 @@ public final class CellBTreeMultiValueIndexEngine
     }
   }
 
+  @Override
+  public boolean isBulkLoadInterrupted() {
+    if (mvTree != null) {
+      return false;
+    }
+
+    return svTree.isBulkLoadInterrupted() || nullTree.isBulkLoadInterrupted();
+  }
+
+  @Override
+  public IndexBulkLoader<Object> createBulkLoader(IndexEngineValidator<Object, RID> validator) {
+    if (mvTree != null) {
+      return null;
+    }
+    assert svTree != null;
+    assert nullTree != null;
+
+    final int fillFactor = GlobalConfiguration.INDEX_BULK_LOAD_FILL_FACTOR.getValueAsInteger();
+    final IndexBulkLoader<CompositeKey> svLoader = svTree.createBulkLoader(fillFactor, null);
+    if (svLoader == null) {
+      return null;
+    }
+    final IndexBulkLoader<Identifiable> nullLoader = nullTree.createBulkLoader(fillFactor, null);
+    if (nullLoader == null) {
+      try {
+        svLoader.close();
+      } catch (IOException e) {
+        throw BaseException.wrapException(
+            new IndexException("Error during bulk load of index " + name), e);
+      }
+      return null;
+    }
+
+    return new IndexBulkLoader<>() {
+      @Override
+      public void add(Object key, RID value) throws IOException {
+        if (key != null) {
+          svLoader.add(createCompositeKey(key, value), value);
+        } else {
+          nullLoader.add(value, value);
+        }
+      }
+
+      @Override
+      public void load() throws IOException {
+        svLoader.load();
+        nullLoader.load();
+      }
+
+      @Override
+      public void close() throws IOException {
+        try {
+          svLoader.close();
+        } finally {
+          nullLoader.close();
+        }
+      }
+    };
+  }
+
   @Override
   public Stream<RawPair<Object, RID>> iterateEntriesBetween(
       DatabaseSessionInternal session, Object rangeFrom,
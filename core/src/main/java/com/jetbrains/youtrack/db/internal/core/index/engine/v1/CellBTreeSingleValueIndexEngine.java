@@ -1,5 +1,6 @@
 package com.jetbrains.youtrack.db.internal.core.index.engine.v1;
 
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.api.exception.BaseException;
 import com.jetbrains.youtrack.db.api.record.RID;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
@@ -9,11 +10,13 @@ import com.jetbrains.youtrack.db.internal.core.config.IndexEngineData;
 import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
 import com.jetbrains.youtrack.db.internal.core.index.IndexException;
 import com.jetbrains.youtrack.db.internal.core.index.IndexMetadata;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexBulkLoader;
 import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValidator;
 import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValuesTransformer;
 import com.jetbrains.youtrack.db.internal.core.index.engine.SingleValueIndexEngine;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.AbstractPaginatedStorage;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.atomicoperations.AtomicOperation;
+import com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree.NormalizedKeyBTreeValue;
 import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.CellBTreeSingleValue;
 import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.v1.CellBTreeSingleValueV1;
 import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.v3.CellBTreeSingleValueV3;
@@ -36,11 +39,29 @@ public final class CellBTreeSingleValueIndexEngine
 
   public CellBTreeSingleValueIndexEngine(
       int id, String name, AbstractPaginatedStorage storage, int version) {
+    this(id, name, storage, version, false);
+  }
+
+  /**
+   * @param normalizedKeys If <code>true</code> keys are stored in byte comparable form by
+   *                       {@link NormalizedKeyBTreeValue}, supported only by the last version of
+   *                       index.
+   */
+  public CellBTreeSingleValueIndexEngine(
+      int id, String name, AbstractPaginatedStorage storage, int version,
+      boolean normalizedKeys) {
     this.name = name;
     this.id = id;
     this.storage = storage;
 
-    if (version < 3) {
+    if (normalizedKeys) {
+      if (version != VERSION) {
+        throw new IllegalStateException("Invalid tree version " + version);
+      }
+      this.sbTree =
+          new NormalizedKeyBTreeValue<>(
+              name, DATA_FILE_EXTENSION, NULL_BUCKET_FILE_EXTENSION, storage);
+    } else if (version < 3) {
       this.sbTree =
           new CellBTreeSingleValueV1<>(
               name, DATA_FILE_EXTENSION, NULL_BUCKET_FILE_EXTENSION, storage);
@@ -196,6 +217,17 @@ public final class CellBTreeSingleValueIndexEngine
     }
   }
 
+  @Override
+  public IndexBulkLoader<Object> createBulkLoader(IndexEngineValidator<Object, RID> validator) {
+    return sbTree.createBulkLoader(
+        GlobalConfiguration.INDEX_BULK_LOAD_FILL_FACTOR.getValueAsInteger(), validator);
+  }
+
+  @Override
+  public boolean isBulkLoadInterrupted() {
+    return sbTree.isBulkLoadInterrupted();
+  }
+
   @Override
   public boolean validatedPut(
       AtomicOperation atomicOperation,
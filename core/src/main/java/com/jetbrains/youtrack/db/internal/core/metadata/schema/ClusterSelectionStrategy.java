@@ -28,4 +28,14 @@ public interface ClusterSelectionStrategy {
   int getCluster(final SchemaClass iClass, int[] selection, final EntityImpl entity);
 
   String getName();
+
+  /**
+   * Tells whether a new record may be stored in any cluster of the class instead of the selected
+   * one, for example if the selected cluster is locked by another transaction at the moment of
+   * commit. Strategies which choose the cluster by the content of the record should keep the
+   * default.
+   */
+  default boolean isSelectionInterchangeable() {
+    return false;
+  }
 }
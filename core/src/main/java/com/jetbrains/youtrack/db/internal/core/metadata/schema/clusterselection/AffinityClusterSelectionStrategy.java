@@ -0,0 +1,223 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jetbrains.youtrack.db.internal.core.metadata.schema.clusterselection;
+
+import com.jetbrains.youtrack.db.api.schema.SchemaClass;
+import com.jetbrains.youtrack.db.internal.common.log.LogManager;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseRecordThreadLocal;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.metadata.schema.ClusterSelectionStrategy;
+import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Makes every writer session add records to its own cluster of the class, so concurrent
+ * transactions which insert records into the same class do not contend for the lock of the same
+ * cluster. Each active writer holds a slot of a bounded pool, and the writer with the n-th slot
+ * uses the n-th cluster of the class. Slots are bound to sessions rather than threads, and slots of
+ * writers which did not insert records during {@link #ACTIVITY_TIMEOUT} are reused, so the
+ * selection does not degrade if every request is served by a new thread.
+ *
+ * <p>If more writers are active at the same time than the class has clusters, new clusters are
+ * added to the class in background, up to the minimum amount of clusters of a class configured for
+ * the database.
+ */
+public class AffinityClusterSelectionStrategy implements ClusterSelectionStrategy {
+
+  public static final String NAME = "affinity";
+
+  /**
+   * Writer is considered active during this period of time after the last record it inserted.
+   */
+  protected static final long ACTIVITY_TIMEOUT = 1000;
+
+  private static final int MAX_WRITERS = 64;
+
+  /**
+   * Time of the last insert of the writer which holds the slot.
+   */
+  private final AtomicLongArray lastActivity = new AtomicLongArray(MAX_WRITERS);
+
+  private final Map<DatabaseSessionInternal, Writer> writers =
+      Collections.synchronizedMap(new WeakHashMap<>());
+  private final AtomicBoolean growing = new AtomicBoolean();
+  private volatile long lastCheck;
+
+  public int getCluster(final SchemaClass iClass, final EntityImpl entity) {
+    final int[] clusters = iClass.getClusterIds();
+
+    final long now = System.currentTimeMillis();
+    final int slot = writerSlot(now);
+
+    if (now - lastCheck > ACTIVITY_TIMEOUT) {
+      lastCheck = now;
+      checkConcurrency(iClass, clusters.length, now);
+    }
+
+    return clusters[slot % clusters.length];
+  }
+
+  public int getCluster(final SchemaClass iClass, final int[] clusters, final EntityImpl entity) {
+    if (clusters.length == 1)
+    // ONLY ONE: RETURN THE FIRST ONE
+    {
+      return clusters[0];
+    }
+
+    return clusters[writerSlot(System.currentTimeMillis()) % clusters.length];
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public boolean isSelectionInterchangeable() {
+    return true;
+  }
+
+  /**
+   * Returns slot of the session which is active on the current thread. Session keeps its slot
+   * while it inserts records, otherwise it takes a free slot, preferably its previous one. If all
+   * slots are taken, writers share slots.
+   */
+  private int writerSlot(final long now) {
+    final DatabaseSessionInternal db = DatabaseRecordThreadLocal.instance().getIfDefined();
+    if (db == null) {
+      return 0;
+    }
+
+    Writer writer = writers.get(db);
+    if (writer == null) {
+      writer = new Writer(claimSlot(-1, now));
+      writers.put(db, writer);
+    } else if (now - writer.lastInsert > ACTIVITY_TIMEOUT) {
+      // slot could be taken by another writer in the meantime
+      writer.slot = claimSlot(writer.slot, now);
+    }
+
+    writer.lastInsert = now;
+    if (lastActivity.get(writer.slot) != now) {
+      lastActivity.set(writer.slot, now);
+    }
+    return writer.slot;
+  }
+
+  private int claimSlot(final int preferred, final long now) {
+    if (preferred >= 0 && tryClaim(preferred, now)) {
+      return preferred;
+    }
+    for (int i = 0; i < MAX_WRITERS; i++) {
+      if (tryClaim(i, now)) {
+        return i;
+      }
+    }
+    return preferred >= 0 ? preferred : (int) (now % MAX_WRITERS);
+  }
+
+  private boolean tryClaim(final int slot, final long now) {
+    final long last = lastActivity.get(slot);
+    return now - last > ACTIVITY_TIMEOUT && lastActivity.compareAndSet(slot, last, now);
+  }
+
+  private void checkConcurrency(final SchemaClass iClass, final int clusters, final long now) {
+    int activeWriters = 0;
+    for (int i = 0; i < MAX_WRITERS; i++) {
+      if (now - lastActivity.get(i) <= ACTIVITY_TIMEOUT) {
+        activeWriters++;
+      }
+    }
+
+    if (activeWriters <= clusters) {
+      return;
+    }
+
+    final DatabaseSessionInternal db = DatabaseRecordThreadLocal.instance().getIfDefined();
+    if (db == null || db.isRemote() || db.getSharedContext() == null) {
+      return;
+    }
+
+    final int target =
+        Math.min(activeWriters, db.getStorageInfo().getConfiguration().getMinimumClusters());
+    if (target <= clusters || !growing.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      addClusters(db, iClass.getName(), target);
+    } catch (RuntimeException e) {
+      growing.set(false);
+      LogManager.instance()
+          .warn(this, "Can not add clusters to class %s", e, iClass.getName());
+    }
+  }
+
+  /**
+   * Clusters are added in a separate session, because schema can not be changed inside of the
+   * transaction which inserts the record.
+   */
+  private void addClusters(
+      final DatabaseSessionInternal db, final String className, final int target) {
+    db.getSharedContext()
+        .getYouTrackDB()
+        .executeNoAuthorizationAsync(
+            db.getName(),
+            session -> {
+              try {
+                final SchemaClass clazz = session.getMetadata().getSchema().getClass(className);
+                if (clazz == null || clazz.isAbstract()) {
+                  return null;
+                }
+
+                for (int i = clazz.getClusterIds().length; i < target; i++) {
+                  clazz.addCluster(session, nextClusterName(session, className));
+                }
+              } catch (RuntimeException e) {
+                LogManager.instance()
+                    .warn(this, "Can not add clusters to class %s", e, className);
+              } finally {
+                growing.set(false);
+              }
+              return null;
+            });
+  }
+
+  private static final class Writer {
+
+    private int slot;
+    private long lastInsert;
+
+    private Writer(final int slot) {
+      this.slot = slot;
+    }
+  }
+
+  private static String nextClusterName(
+      final DatabaseSessionInternal session, final String className) {
+    final String prefix = className.toLowerCase(Locale.ENGLISH) + "_";
+    for (int i = 1; ; ++i) {
+      final String clusterName = prefix + i;
+      if (session.getClusterIdByName(clusterName) < 0) {
+        return clusterName;
+      }
+    }
+  }
+}
@@ -45,4 +45,9 @@ public class RoundRobinClusterSelectionStrategy implements ClusterSelectionStrat
   public String getName() {
     return NAME;
   }
+
+  @Override
+  public boolean isSelectionInterchangeable() {
+    return true;
+  }
 }
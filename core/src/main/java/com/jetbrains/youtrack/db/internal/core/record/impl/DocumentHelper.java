@@ -54,12 +54,14 @@ import com.jetbrains.youtrack.db.internal.core.sql.filter.SQLPredicate;
 import com.jetbrains.youtrack.db.internal.core.sql.functions.SQLFunctionRuntime;
 import com.jetbrains.youtrack.db.internal.core.sql.method.SQLMethod;
 import com.jetbrains.youtrack.db.internal.core.util.DateHelper;
+import java.lang.ref.Reference;
 import java.lang.reflect.Array;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -647,6 +649,12 @@ public class DocumentHelper {
           } else if (value instanceof Map<?, ?>) {
             value = getMapEntry(session, (Map<String, ?>) value, fieldName);
           } else if (MultiValue.isMultiValue(value)) {
+            // LOAD LINKED RECORDS IN ONE BATCH INSTEAD OF ONE BY ONE
+            final List<? extends DBRecord> preloaded =
+                session != null
+                    ? session.preloadRecords(MultiValue.getMultiValueIterable(value))
+                    : Collections.emptyList();
+
             final Set<Object> values = new LinkedHashSet<Object>();
             for (Object v : MultiValue.getMultiValueIterable(value)) {
               final Object item;
@@ -667,6 +675,8 @@ public class DocumentHelper {
                 }
               }
             }
+            // preloaded records are referenced weakly by the local cache
+            Reference.reachabilityFence(preloaded);
 
             if (values.isEmpty()) {
               value = null;
@@ -25,6 +25,7 @@ import com.jetbrains.youtrack.db.api.record.Direction;
 import com.jetbrains.youtrack.db.api.record.Edge;
 import com.jetbrains.youtrack.db.api.record.Entity;
 import com.jetbrains.youtrack.db.api.record.Identifiable;
+import com.jetbrains.youtrack.db.api.record.RID;
 import com.jetbrains.youtrack.db.api.record.Vertex;
 import com.jetbrains.youtrack.db.internal.common.log.LogManager;
 import com.jetbrains.youtrack.db.internal.common.util.Pair;
@@ -33,7 +34,11 @@ import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
 import com.jetbrains.youtrack.db.internal.core.iterator.LazyWrapperIterator;
 import com.jetbrains.youtrack.db.internal.core.metadata.schema.SchemaImmutableClass;
 import com.jetbrains.youtrack.db.internal.core.record.RecordAbstract;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 /**
  *
@@ -44,6 +49,29 @@ public class EdgeIterator extends LazyWrapperIterator<Edge> {
   private final Vertex targetVertex;
   private final Pair<Direction, String> connection;
   private final String[] labels;
+  private boolean preloadVertices;
+
+  /**
+   * Records preloaded for the links of the iterated collection, they are referenced by the iterator
+   * because local cache references records weakly.
+   */
+  private final List<DBRecord> preloadedRecords = new ArrayList<>();
+
+  /**
+   * Identities of the preloaded records.
+   */
+  private final Set<RID> preloadedRids = new HashSet<>();
+
+  /**
+   * Amount of batches of records which are loaded by the next preload, it is doubled after each
+   * preload, so a short iteration does not load the whole collection.
+   */
+  private int preloadBatches = 1;
+
+  /**
+   * Whether all links of the collection which could be preloaded are already loaded.
+   */
+  private boolean preloadCompleted;
 
   public EdgeIterator(
       final Vertex iSourceVertex,
@@ -70,6 +98,14 @@ public class EdgeIterator extends LazyWrapperIterator<Edge> {
     this.labels = iLabels;
   }
 
+  /**
+   * Requests to preload also the vertices on the other side of the edges once the edges are
+   * preloaded, used when the iterator is used to iterate vertices connected by the edges.
+   */
+  void setPreloadVertices(final boolean preloadVertices) {
+    this.preloadVertices = preloadVertices;
+  }
+
   public Edge createGraphElement(final Object iObject) {
     if (iObject instanceof Entity && ((Entity) iObject).isEdge()) {
       return ((Entity) iObject).asEdge().get();
@@ -82,6 +118,11 @@ public class EdgeIterator extends LazyWrapperIterator<Edge> {
       return null;
     }
 
+    if (rec instanceof RID rid && !preloadCompleted && !preloadedRids.contains(rid)) {
+      // LOAD LINKED RECORDS IN BATCHES INSTEAD OF ONE BY ONE
+      preloadRecords();
+    }
+
     final DBRecord record;
     try {
       record = rec.getRecord();
@@ -153,4 +194,48 @@ public class EdgeIterator extends LazyWrapperIterator<Edge> {
   public boolean canUseMultiValueDirectly() {
     return true;
   }
+
+  private void preloadRecords() {
+    final DatabaseSessionInternal db = DatabaseRecordThreadLocal.instance().getIfDefined();
+    if (db == null || !(multiValue instanceof Iterable<?> links)) {
+      preloadCompleted = true;
+      return;
+    }
+
+    // links which are already loaded are skipped, so the next links of the collection are loaded
+    final List<? extends DBRecord> edges = db.preloadRecords(links, preloadBatches);
+    if (edges.isEmpty()) {
+      preloadCompleted = true;
+      return;
+    }
+
+    addPreloaded(edges);
+    if (preloadVertices) {
+      preloadVertices(db, edges);
+    }
+
+    preloadBatches *= 2;
+  }
+
+  private void preloadVertices(
+      final DatabaseSessionInternal db, final List<? extends DBRecord> edges) {
+    // regular edges link the vertices, lightweight edges are the vertices themselves
+    final String vertexProperty =
+        connection.getKey() == Direction.OUT ? Edge.DIRECTION_IN : Edge.DIRECTION_OUT;
+    final List<Object> vertexLinks = new ArrayList<>(edges.size());
+    for (final DBRecord record : edges) {
+      if (record instanceof EntityImpl entity && entity.isEdge()) {
+        vertexLinks.add(entity.getPropertyInternal(vertexProperty, false));
+      }
+    }
+
+    addPreloaded(db.preloadRecords(vertexLinks, preloadBatches));
+  }
+
+  private void addPreloaded(final List<? extends DBRecord> records) {
+    preloadedRecords.addAll(records);
+    for (final DBRecord record : records) {
+      preloadedRids.add(record.getIdentity());
+    }
+  }
 }
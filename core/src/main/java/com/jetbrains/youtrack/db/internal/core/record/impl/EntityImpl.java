@@ -81,6 +81,7 @@ import com.jetbrains.youtrack.db.internal.core.record.RecordInternal;
 import com.jetbrains.youtrack.db.internal.core.record.RecordSchemaAware;
 import com.jetbrains.youtrack.db.internal.core.record.RecordVersionHelper;
 import com.jetbrains.youtrack.db.internal.core.serialization.serializer.StringSerializerHelper;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.RecordSerializerBinary;
 import com.jetbrains.youtrack.db.internal.core.sql.SQLHelper;
 import com.jetbrains.youtrack.db.internal.core.sql.filter.SQLPredicate;
 import java.io.ByteArrayOutputStream;
@@ -2819,6 +2820,23 @@ public class EntityImpl extends RecordAbstract
     return this;
   }
 
+  /**
+   * Returns content of the entity serialized in binary format if none of its properties were
+   * deserialized or changed since the entity was loaded, otherwise <code>null</code>.
+   */
+  @Nullable
+  byte[] getPristineSource() {
+    if (source == null
+        || dirty
+        || status != RecordElement.STATUS.LOADED
+        || (fields != null && !fields.isEmpty())
+        || !(recordFormat instanceof RecordSerializerBinary)) {
+      return null;
+    }
+
+    return source;
+  }
+
   /*
    * Initializes the object if has been unserialized
    */
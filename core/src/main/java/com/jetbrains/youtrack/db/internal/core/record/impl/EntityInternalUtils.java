@@ -33,6 +33,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 public class EntityInternalUtils {
 
@@ -149,6 +150,11 @@ public class EntityInternalUtils {
     entity.clearTransactionTrackData();
   }
 
+  @Nullable
+  public static byte[] getPristineSource(EntityImpl entity) {
+    return entity.getPristineSource();
+  }
+
   public static Iterator<String> iteratePropertieNames(EntityImpl entity) {
     return entity.calculatePropertyNames().iterator();
   }
@@ -195,7 +195,7 @@ public interface VertexInternal extends Vertex, EntityInternal {
       return IterableUtils.chainedIterable(
           getVertices(Direction.OUT, type), getVertices(Direction.IN, type));
     } else {
-      Iterable<Edge> edges = getEdgesInternal(direction, type);
+      Iterable<Edge> edges = getEdgesInternal(direction, type, true);
       return new EdgeToVertexIterable(edges, direction);
     }
   }
@@ -341,10 +341,15 @@ public interface VertexInternal extends Vertex, EntityInternal {
 
   @Override
   default Iterable<Edge> getEdges(Direction direction, String... labels) {
-    return getEdgesInternal(direction, labels);
+    return getEdgesInternal(direction, labels, false);
   }
 
-  private Iterable<Edge> getEdgesInternal(Direction direction, String[] labels) {
+  /**
+   * @param preloadVertices If <code>true</code> edges are iterated to get connected vertices, so
+   *                        the vertices are loaded together with the edges.
+   */
+  private Iterable<Edge> getEdgesInternal(
+      Direction direction, String[] labels, boolean preloadVertices) {
     var db = getBaseDocument().getSession();
     var schema = db.getMetadata().getImmutableSchemaSnapshot();
 
@@ -381,21 +386,29 @@ public interface VertexInternal extends Vertex, EntityInternal {
       fieldValue = entity.getPropertyInternal(fieldName);
 
       if (fieldValue != null) {
+        final EdgeIterator edgeIterator;
         if (fieldValue instanceof Identifiable) {
           var coll = Collections.singleton(fieldValue);
-          iterables.add(new EdgeIterator(this, coll, coll.iterator(), connection, labels, 1));
+          edgeIterator = new EdgeIterator(this, coll, coll.iterator(), connection, labels, 1);
         } else if (fieldValue instanceof Collection<?> coll) {
           // CREATE LAZY Iterable AGAINST COLLECTION FIELD
-          iterables.add(new EdgeIterator(this, coll, coll.iterator(), connection, labels, -1));
+          edgeIterator = new EdgeIterator(this, coll, coll.iterator(), connection, labels, -1);
         } else if (fieldValue instanceof RidBag) {
-          iterables.add(
+          edgeIterator =
               new EdgeIterator(
                   this,
                   fieldValue,
                   ((RidBag) fieldValue).iterator(),
                   connection,
                   labels,
-                  ((RidBag) fieldValue).size()));
+                  ((RidBag) fieldValue).size());
+        } else {
+          edgeIterator = null;
+        }
+
+        if (edgeIterator != null) {
+          edgeIterator.setPreloadVertices(preloadVertices);
+          iterables.add(edgeIterator);
         }
       }
     }
@@ -30,6 +30,7 @@ import com.jetbrains.youtrack.db.internal.common.util.RawPair;
 import com.jetbrains.youtrack.db.internal.core.YouTrackDBEnginesManager;
 import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
 import com.jetbrains.youtrack.db.internal.core.index.Index;
+import com.jetbrains.youtrack.db.internal.core.index.IndexBuildLog;
 import com.jetbrains.youtrack.db.internal.core.index.IndexCursor;
 import com.jetbrains.youtrack.db.internal.core.index.IndexDefinition;
 import com.jetbrains.youtrack.db.internal.core.index.IndexInternal;
@@ -702,6 +703,17 @@ public class ChainedIndexProxy<T> implements IndexInternal {
     throw new UnsupportedOperationException("Not allowed operation");
   }
 
+  @Override
+  public long completeOnlineBuild(DatabaseSessionInternal session,
+      ProgressListener progressListener) {
+    throw new UnsupportedOperationException("Not allowed operation");
+  }
+
+  @Override
+  public IndexBuildLog getBuildLog() {
+    return null;
+  }
+
   @Override
   public boolean isUnique() {
     return firstIndex.isUnique();
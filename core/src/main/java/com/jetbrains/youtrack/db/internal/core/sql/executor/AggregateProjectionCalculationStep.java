@@ -1,28 +1,39 @@
 package com.jetbrains.youtrack.db.internal.core.sql.executor;
 
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.api.exception.CommandExecutionException;
 import com.jetbrains.youtrack.db.api.query.ExecutionStep;
 import com.jetbrains.youtrack.db.api.query.Result;
 import com.jetbrains.youtrack.db.internal.common.concur.TimeoutException;
 import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStream;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.spill.SpillPartitions;
 import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLExpression;
 import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLGroupBy;
 import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLProjection;
 import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLProjectionItem;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  *
  */
 public class AggregateProjectionCalculationStep extends ProjectionCalculationStep {
 
+  /**
+   * Metadata property which holds the key of a partially aggregated group spilled to disk.
+   */
+  private static final String GROUP_KEY = "$groupKey";
+
   private final SQLGroupBy groupBy;
   private final long timeoutMillis;
   private final long limit;
+  private boolean spilled;
 
   public AggregateProjectionCalculationStep(
       SQLProjection projection,
@@ -39,57 +50,55 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
 
   @Override
   public ExecutionStream internalStart(CommandContext ctx) throws TimeoutException {
-    List<Result> finalResults = executeAggregation(ctx);
-    return ExecutionStream.resultIterator(finalResults.iterator());
-  }
-
-  private List<Result> executeAggregation(CommandContext ctx) {
-    long timeoutBegin = System.currentTimeMillis();
     if (prev == null) {
       throw new CommandExecutionException(
           "Cannot execute an aggregation or a GROUP BY without a previous result");
     }
 
-    ExecutionStepInternal prevStep = prev;
-    ExecutionStream lastRs = prevStep.start(ctx);
-    Map<List<?>, ResultInternal> aggregateResults = new LinkedHashMap<>();
-    while (lastRs.hasNext(ctx)) {
-      if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
-        sendTimeout();
-      }
-      aggregate(lastRs.next(ctx), ctx, aggregateResults);
+    var aggregation = new Aggregation(ctx);
+    List<Result> finalResults;
+    ExecutionStream lastRs = prev.start(ctx);
+    try {
+      finalResults = aggregation.aggregateAll(new StreamIterator(lastRs, ctx), false, 0);
+    } catch (RuntimeException e) {
+      aggregation.close();
+      throw e;
+    } finally {
+      lastRs.close(ctx);
     }
-    lastRs.close(ctx);
-    List<Result> finalResults = new ArrayList<>(aggregateResults.values());
-    aggregateResults.clear();
-    for (Result ele : finalResults) {
-      ResultInternal item = (ResultInternal) ele;
-      if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
-        sendTimeout();
-      }
-      for (String name : item.getTemporaryProperties()) {
-        Object prevVal = item.getTemporaryProperty(name);
-        if (prevVal instanceof AggregationContext) {
-          item.setTemporaryProperty(name, ((AggregationContext) prevVal).getFinalValue());
-        }
-      }
+
+    if (!aggregation.hasPendingPartitions()) {
+      return ExecutionStream.resultIterator(finalResults.iterator());
     }
-    return finalResults;
+
+    spilled = true;
+    return ExecutionStream.resultIterator(aggregation.iterator(finalResults))
+        .onClose(context -> aggregation.close());
+  }
+
+  private List<?> calculateKey(Result next, CommandContext ctx) {
+    if (groupBy == null) {
+      return Collections.emptyList();
+    }
+
+    List<Object> key = new ArrayList<>(groupBy.getItems().size());
+    for (SQLExpression item : groupBy.getItems()) {
+      Object val = item.execute(next, ctx);
+      key.add(val);
+    }
+    return key;
   }
 
   private void aggregate(
-      Result next, CommandContext ctx, Map<List<?>, ResultInternal> aggregateResults) {
+      Result next,
+      List<?> key,
+      CommandContext ctx,
+      Map<List<?>, ResultInternal> aggregateResults,
+      boolean applyLimit) {
     var db = ctx.getDatabase();
-    List<Object> key = new ArrayList<>();
-    if (groupBy != null) {
-      for (SQLExpression item : groupBy.getItems()) {
-        Object val = item.execute(next, ctx);
-        key.add(val);
-      }
-    }
     ResultInternal preAggr = aggregateResults.get(key);
     if (preAggr == null) {
-      if (limit > 0 && aggregateResults.size() > limit) {
+      if (applyLimit && limit > 0 && aggregateResults.size() > limit) {
         return;
       }
       preAggr = new ResultInternal(ctx.getDatabase());
@@ -116,6 +125,286 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
     }
   }
 
+  /**
+   * Merges group which was partially aggregated and spilled to disk by
+   * {@link #toPartialState(List, ResultInternal, CommandContext)}.
+   */
+  private void merge(
+      Result partialState,
+      List<?> key,
+      CommandContext ctx,
+      Map<List<?>, ResultInternal> aggregateResults) {
+    var db = ctx.getDatabase();
+    ResultInternal preAggr = aggregateResults.get(key);
+    if (preAggr == null) {
+      preAggr = new ResultInternal(db);
+      for (String name : partialState.getPropertyNames()) {
+        preAggr.setProperty(name, partialState.getProperty(name));
+      }
+      aggregateResults.put(key, preAggr);
+    }
+
+    var partialStateInternal = (ResultInternal) partialState;
+    for (SQLProjectionItem proj : this.projection.getItems()) {
+      String alias = proj.getProjectionAlias().getStringValue();
+      if (proj.isAggregate(db)) {
+        AggregationContext aggrCtx = (AggregationContext) preAggr.getTemporaryProperty(alias);
+        if (aggrCtx == null) {
+          aggrCtx = proj.getAggregationContext(ctx);
+          preAggr.setTemporaryProperty(alias, aggrCtx);
+        }
+        aggrCtx.mergePartialState(partialStateInternal.getTemporaryProperty(alias));
+      }
+    }
+  }
+
+  private static ResultInternal toPartialState(
+      List<?> key, ResultInternal preAggr, CommandContext ctx) {
+    var result = new ResultInternal(ctx.getDatabase());
+    for (String name : preAggr.getPropertyNames()) {
+      result.setProperty(name, preAggr.getProperty(name));
+    }
+    for (String name : preAggr.getTemporaryProperties()) {
+      Object value = preAggr.getTemporaryProperty(name);
+      if (value instanceof AggregationContext) {
+        result.setTemporaryProperty(name, ((AggregationContext) value).getPartialState());
+      }
+    }
+    result.setMetadata(GROUP_KEY, new ArrayList<>(key));
+    return result;
+  }
+
+  /**
+   * Mergeability is reported by the aggregation context of every group, not by the projection, so
+   * it is not assumed to be the same for all groups and every group is checked.
+   */
+  private static boolean isMergeable(Map<List<?>, ResultInternal> aggregateResults) {
+    for (ResultInternal preAggr : aggregateResults.values()) {
+      for (String name : preAggr.getTemporaryProperties()) {
+        Object value = preAggr.getTemporaryProperty(name);
+        if (value instanceof AggregationContext && !((AggregationContext) value).isMergeable()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Hybrid hash aggregation. Groups are kept in heap until their amount exceeds
+   * {@link GlobalConfiguration#QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP}, then:
+   *
+   * <ul>
+   *   <li>if all aggregate functions support partial aggregation (see
+   *   {@link AggregationContext#isMergeable()}) intermediate states of all groups in heap are
+   *   written to hash partitioned spill files and the heap is cleared;
+   *   <li>otherwise groups which are already in heap continue to be aggregated, and records which
+   *   belong to other groups are written to hash partitioned spill files.
+   * </ul>
+   *
+   * <p>Each partition holds a disjoint subset of groups and is aggregated separately once the
+   * previous groups are returned. Partitions which do not fit into the heap are partitioned again
+   * with a different hash function.
+   */
+  private final class Aggregation {
+
+    private final CommandContext ctx;
+    private final long timeoutBegin = System.currentTimeMillis();
+    private final long maxGroupsInHeap;
+    private final boolean spillEnabled;
+
+    /**
+     * Spilled partitions, attribute of a partition tells whether it consists of partially
+     * aggregated groups.
+     */
+    private final SpillPartitions<Boolean> partitions;
+
+    private Aggregation(CommandContext ctx) {
+      this.ctx = ctx;
+
+      var db = ctx.getDatabase();
+      if (db == null) {
+        maxGroupsInHeap =
+            GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
+        spillEnabled = GlobalConfiguration.QUERY_SPILL_ENABLED.getValueAsBoolean();
+        partitions =
+            new SpillPartitions<>(
+                null, GlobalConfiguration.QUERY_SPILL_PARTITIONS.getValueAsInteger());
+      } else {
+        var configuration = db.getConfiguration();
+        maxGroupsInHeap =
+            configuration.getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP);
+        spillEnabled = configuration.getValueAsBoolean(GlobalConfiguration.QUERY_SPILL_ENABLED);
+        partitions =
+            new SpillPartitions<>(
+                configuration,
+                configuration.getValueAsInteger(GlobalConfiguration.QUERY_SPILL_PARTITIONS));
+      }
+    }
+
+    /**
+     * Aggregates passed in results and returns groups which are aggregated in heap, groups which
+     * were spilled to disk are added to the list of pending partitions.
+     *
+     * @param input         Results to aggregate.
+     * @param partialStates If <code>true</code> input consists of partially aggregated groups,
+     *                      otherwise of records to aggregate.
+     * @param level         Level of recursion of partitioning.
+     */
+    private List<Result> aggregateAll(Iterator<Result> input, boolean partialStates, int level) {
+      Map<List<?>, ResultInternal> aggregateResults = new LinkedHashMap<>();
+      SpillPartitions<Boolean>.Writer spill = null;
+      while (input.hasNext()) {
+        checkTimeout();
+
+        Result next = input.next();
+        List<?> key;
+        if (partialStates) {
+          key = (List<?>) next.getMetadata(GROUP_KEY);
+          merge(next, key, ctx, aggregateResults);
+        } else {
+          key = calculateKey(next, ctx);
+          if (spill != null && !spill.getAttribute() && !aggregateResults.containsKey(key)) {
+            spill.append(key.hashCode(), next);
+            continue;
+          }
+          aggregate(next, key, ctx, aggregateResults, spill == null);
+        }
+
+        if (canSpill(level) && aggregateResults.size() > maxGroupsInHeap) {
+          if (spill == null) {
+            spill =
+                partitions.newWriter(level + 1, partialStates || isMergeable(aggregateResults));
+          }
+          if (spill.getAttribute()) {
+            appendGroups(spill, aggregateResults);
+            aggregateResults.clear();
+          }
+        }
+      }
+
+      if (spill != null) {
+        if (spill.getAttribute()) {
+          appendGroups(spill, aggregateResults);
+          aggregateResults.clear();
+        }
+        spill.finish();
+      }
+
+      List<Result> finalResults = new ArrayList<>(aggregateResults.values());
+      aggregateResults.clear();
+      for (Result ele : finalResults) {
+        ResultInternal item = (ResultInternal) ele;
+        checkTimeout();
+        for (String name : item.getTemporaryProperties()) {
+          Object prevVal = item.getTemporaryProperty(name);
+          if (prevVal instanceof AggregationContext) {
+            item.setTemporaryProperty(name, ((AggregationContext) prevVal).getFinalValue());
+          }
+        }
+      }
+      return finalResults;
+    }
+
+    private void appendGroups(
+        SpillPartitions<Boolean>.Writer spill, Map<List<?>, ResultInternal> aggregateResults) {
+      for (var entry : aggregateResults.entrySet()) {
+        spill.append(
+            entry.getKey().hashCode(), toPartialState(entry.getKey(), entry.getValue(), ctx));
+      }
+    }
+
+    private List<Result> aggregatePartition(SpillPartitions.Partition<Boolean> partition) {
+      try (var reader = partition.file().openReader(ctx.getDatabase())) {
+        return aggregateAll(
+            new Iterator<>() {
+              @Override
+              public boolean hasNext() {
+                return reader.hasNext();
+              }
+
+              @Override
+              public Result next() {
+                return reader.next();
+              }
+            },
+            partition.attribute(),
+            partition.level());
+      } finally {
+        partition.file().delete();
+      }
+    }
+
+    private boolean canSpill(int level) {
+      return spillEnabled && maxGroupsInHeap >= 0 && level < SpillPartitions.MAX_LEVEL;
+    }
+
+    private void checkTimeout() {
+      if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
+        sendTimeout();
+      }
+    }
+
+    private boolean hasPendingPartitions() {
+      return !partitions.isEmpty();
+    }
+
+    /**
+     * Returns passed in results followed by the groups of pending partitions, partitions are
+     * aggregated lazily one by one.
+     */
+    private Iterator<Result> iterator(List<Result> firstResults) {
+      return new Iterator<>() {
+        private Iterator<Result> current = firstResults.iterator();
+
+        @Override
+        public boolean hasNext() {
+          while (!current.hasNext()) {
+            var partition = partitions.poll();
+            if (partition == null) {
+              return false;
+            }
+            current = aggregatePartition(partition).iterator();
+          }
+          return true;
+        }
+
+        @Override
+        public Result next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return current.next();
+        }
+      };
+    }
+
+    private void close() {
+      partitions.close();
+    }
+  }
+
+  private static final class StreamIterator implements Iterator<Result> {
+
+    private final ExecutionStream stream;
+    private final CommandContext ctx;
+
+    private StreamIterator(ExecutionStream stream, CommandContext ctx) {
+      this.stream = stream;
+      this.ctx = ctx;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return stream.hasNext(ctx);
+    }
+
+    @Override
+    public Result next() {
+      return stream.next(ctx);
+    }
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     String spaces = ExecutionStepInternal.getIndent(depth, indent);
@@ -129,6 +418,9 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
             + "      "
             + projection.toString()
             + (groupBy == null ? "" : (spaces + "\n  " + groupBy));
+    if (spilled) {
+      result += "\n" + spaces + "  (spilled to disk)";
+    }
     return result;
   }
 
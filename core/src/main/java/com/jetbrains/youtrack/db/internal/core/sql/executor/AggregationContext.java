@@ -11,4 +11,30 @@ public interface AggregationContext {
   Object getFinalValue();
 
   void apply(Result next, CommandContext ctx);
+
+  /**
+   * @return <code>true</code> if intermediate state of the aggregation can be extracted by
+   * {@link #getPartialState()} and merged by {@link #mergePartialState(Object)}.
+   */
+  default boolean isMergeable() {
+    return false;
+  }
+
+  /**
+   * @return intermediate state of the aggregation which can be serialized as a property of
+   * {@link Result}.
+   */
+  default Object getPartialState() {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support partial aggregation");
+  }
+
+  /**
+   * Merges intermediate state returned by {@link #getPartialState()} of another aggregation
+   * context of the same projection.
+   */
+  default void mergePartialState(Object partialState) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support partial aggregation");
+  }
 }
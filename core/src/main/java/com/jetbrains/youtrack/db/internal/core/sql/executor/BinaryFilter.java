@@ -0,0 +1,524 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor;
+
+import com.jetbrains.youtrack.db.api.query.Result;
+import com.jetbrains.youtrack.db.api.record.DBRecord;
+import com.jetbrains.youtrack.db.api.schema.Collate;
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.api.schema.SchemaProperty;
+import com.jetbrains.youtrack.db.internal.common.collection.MultiValue;
+import com.jetbrains.youtrack.db.internal.core.collate.DefaultCollate;
+import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.metadata.schema.ImmutableSchema;
+import com.jetbrains.youtrack.db.internal.core.metadata.schema.SchemaImmutableClass;
+import com.jetbrains.youtrack.db.internal.core.metadata.security.PropertyAccess;
+import com.jetbrains.youtrack.db.internal.core.metadata.security.PropertyEncryption;
+import com.jetbrains.youtrack.db.internal.core.metadata.security.PropertyEncryptionNone;
+import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
+import com.jetbrains.youtrack.db.internal.core.record.impl.EntityInternalUtils;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.BinaryComparator;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.BinaryField;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.BytesContainer;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.EntitySerializer;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.RecordSerializerBinary;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLAndBlock;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLBetweenCondition;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLBinaryCompareOperator;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLBinaryCondition;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLBooleanExpression;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLEqualsCompareOperator;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLExpression;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLGeOperator;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLGtOperator;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLInCondition;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLIsNullCondition;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLLeOperator;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLLtOperator;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLNotBlock;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLOrBlock;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLParenthesisBlock;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLWhereClause;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Evaluates simple conditions of a WHERE clause directly on the serialized content of records, so
+ * records which do not match the filter are never deserialized.
+ *
+ * <p>Only comparisons of a property with a constant (<code>=, &lt;, &lt;=, &gt;, &gt;=, IN,
+ * BETWEEN, IS NULL</code>) are evaluated in binary form, and only if the stored value and the
+ * constant are numbers or strings which can be compared without any conversion which could change
+ * the result. In all the other cases the condition is considered as {@link Match#UNKNOWN} and the
+ * record is checked by the regular evaluation of the WHERE clause, so both ways of evaluation
+ * always give the same result.
+ */
+public final class BinaryFilter {
+
+  public enum Match {
+    TRUE,
+    FALSE,
+    UNKNOWN
+  }
+
+  private final Condition condition;
+
+  private BinaryFilter(Condition condition) {
+    this.condition = condition;
+  }
+
+  /**
+   * @return Filter which evaluates the conditions of the WHERE clause which can be evaluated in
+   * binary form, or <code>null</code> if there are no such conditions.
+   */
+  @Nullable
+  public static BinaryFilter compile(SQLWhereClause whereClause, CommandContext ctx) {
+    if (whereClause == null || whereClause.getBaseExpression() == null) {
+      return null;
+    }
+
+    final Condition condition = compile(whereClause.getBaseExpression(), ctx);
+    if (condition == UnknownCondition.INSTANCE) {
+      return null;
+    }
+    return new BinaryFilter(condition);
+  }
+
+  public Match matches(Result result, CommandContext ctx) {
+    if (result.getClass() != ResultInternal.class) {
+      return Match.UNKNOWN;
+    }
+
+    final ResultInternal resultInternal = (ResultInternal) result;
+    if (resultInternal.content != null && !resultInternal.content.isEmpty()) {
+      return Match.UNKNOWN;
+    }
+
+    final DBRecord record = resultInternal.getRecord().orElse(null);
+    if (!(record instanceof EntityImpl entity) || entity.isEmbedded()) {
+      return Match.UNKNOWN;
+    }
+
+    final byte[] source = EntityInternalUtils.getPristineSource(entity);
+    if (source == null || source.length == 0) {
+      return Match.UNKNOWN;
+    }
+
+    // properties hidden by security policies are evaluated as nulls
+    final PropertyAccess propertyAccess = EntityInternalUtils.getPropertyAccess(entity);
+    final PropertyEncryption encryption = EntityInternalUtils.getPropertyEncryption(entity);
+    if ((propertyAccess != null && propertyAccess.hasFilters())
+        || (encryption != null && !(encryption instanceof PropertyEncryptionNone))) {
+      return Match.UNKNOWN;
+    }
+
+    final DatabaseSessionInternal db = ctx.getDatabase();
+    final EntitySerializer serializer = RecordSerializerBinary.INSTANCE.getSerializer(source[0]);
+    if (db == null || serializer == null) {
+      return Match.UNKNOWN;
+    }
+
+    return condition.evaluate(
+        new SerializedEntity(
+            source,
+            serializer,
+            EntityInternalUtils.getImmutableSchemaClass(entity),
+            db.getMetadata().getImmutableSchemaSnapshot()));
+  }
+
+  private static Condition compile(SQLBooleanExpression expression, CommandContext ctx) {
+    if (expression instanceof SQLOrBlock orBlock) {
+      final List<Condition> conditions = compile(orBlock.getSubBlocks(), ctx);
+      return conditions == null ? UnknownCondition.INSTANCE : new OrCondition(conditions);
+    }
+    if (expression instanceof SQLAndBlock andBlock) {
+      final List<Condition> conditions = compile(andBlock.getSubBlocks(), ctx);
+      return conditions == null ? UnknownCondition.INSTANCE : new AndCondition(conditions);
+    }
+    if (expression instanceof SQLNotBlock notBlock) {
+      final Condition condition = compile(notBlock.getSub(), ctx);
+      if (!notBlock.isNegate() || condition == UnknownCondition.INSTANCE) {
+        return condition;
+      }
+      return new NotCondition(condition);
+    }
+    if (expression instanceof SQLParenthesisBlock parenthesisBlock) {
+      return compile(parenthesisBlock.getSubElement(), ctx);
+    }
+    if (expression instanceof SQLBinaryCondition binaryCondition) {
+      return compileBinaryCondition(binaryCondition, ctx);
+    }
+    if (expression instanceof SQLInCondition inCondition) {
+      return compileInCondition(inCondition, ctx);
+    }
+    if (expression instanceof SQLBetweenCondition betweenCondition) {
+      return compileBetweenCondition(betweenCondition, ctx);
+    }
+    if (expression instanceof SQLIsNullCondition isNullCondition) {
+      final String property = propertyName(isNullCondition.getExpression());
+      return property == null ? UnknownCondition.INSTANCE : new IsNullCondition(property);
+    }
+
+    return UnknownCondition.INSTANCE;
+  }
+
+  /**
+   * @return Compiled conditions or <code>null</code> if none of them can be evaluated in binary
+   * form.
+   */
+  @Nullable
+  private static List<Condition> compile(
+      List<SQLBooleanExpression> expressions, CommandContext ctx) {
+    final List<Condition> conditions = new ArrayList<>(expressions.size());
+    boolean known = false;
+    for (final SQLBooleanExpression expression : expressions) {
+      final Condition condition = compile(expression, ctx);
+      known |= condition != UnknownCondition.INSTANCE;
+      conditions.add(condition);
+    }
+    return known ? conditions : null;
+  }
+
+  private static Condition compileBinaryCondition(
+      SQLBinaryCondition binaryCondition, CommandContext ctx) {
+    final String property = propertyName(binaryCondition.getLeft());
+    final SQLBinaryCompareOperator operator = binaryCondition.getOperator();
+    if (property == null
+        || !(operator instanceof SQLEqualsCompareOperator
+        || operator instanceof SQLLtOperator
+        || operator instanceof SQLLeOperator
+        || operator instanceof SQLGtOperator
+        || operator instanceof SQLGeOperator)) {
+      return UnknownCondition.INSTANCE;
+    }
+
+    final Constant constant = constant(binaryCondition.getRight(), ctx);
+    if (constant == null) {
+      return UnknownCondition.INSTANCE;
+    }
+    return new CompareCondition(property, operator, constant);
+  }
+
+  private static Condition compileInCondition(SQLInCondition inCondition, CommandContext ctx) {
+    final String property = propertyName(inCondition.getLeft());
+    if (property == null || inCondition.getRightStatement() != null) {
+      return UnknownCondition.INSTANCE;
+    }
+
+    final Object values;
+    if (inCondition.getRightParam() != null) {
+      values = inCondition.getRightParam().getValue(ctx.getInputParameters());
+    } else if (inCondition.getRightMathExpression() != null
+        && inCondition.getRightMathExpression().isEarlyCalculated(ctx)) {
+      values = inCondition.getRightMathExpression().execute((Result) null, ctx);
+    } else {
+      return UnknownCondition.INSTANCE;
+    }
+
+    if (!MultiValue.isMultiValue(values)) {
+      return UnknownCondition.INSTANCE;
+    }
+
+    final List<Constant> constants = new ArrayList<>();
+    for (final Object value : MultiValue.getMultiValueIterable(values)) {
+      final Constant constant = constant(value, ctx);
+      if (constant == null) {
+        return UnknownCondition.INSTANCE;
+      }
+      constants.add(constant);
+    }
+    return new InCondition(property, constants);
+  }
+
+  private static Condition compileBetweenCondition(
+      SQLBetweenCondition betweenCondition, CommandContext ctx) {
+    final String property = propertyName(betweenCondition.getFirst());
+    if (property == null) {
+      return UnknownCondition.INSTANCE;
+    }
+
+    final Constant from = constant(betweenCondition.getSecond(), ctx);
+    final Constant to = constant(betweenCondition.getThird(), ctx);
+    if (from == null || to == null) {
+      return UnknownCondition.INSTANCE;
+    }
+    return new BetweenCondition(property, from, to);
+  }
+
+  @Nullable
+  private static String propertyName(SQLExpression expression) {
+    if (expression == null || !expression.isBaseIdentifier()) {
+      return null;
+    }
+    return expression.getDefaultAlias().getStringValue();
+  }
+
+  @Nullable
+  private static Constant constant(SQLExpression expression, CommandContext ctx) {
+    if (expression == null || !expression.isEarlyCalculated(ctx)) {
+      return null;
+    }
+    return constant(expression.execute((Result) null, ctx), ctx);
+  }
+
+  @Nullable
+  private static Constant constant(Object value, CommandContext ctx) {
+    if (!(value instanceof Number || value instanceof String)) {
+      return null;
+    }
+
+    final PropertyType type = PropertyType.getTypeByValue(value);
+    if (type == null || !isComparable(type)) {
+      return null;
+    }
+
+    final DatabaseSessionInternal db = ctx.getDatabase();
+    final BytesContainer bytes = new BytesContainer();
+    RecordSerializerBinary.INSTANCE
+        .getCurrentSerializer()
+        .serializeValue(
+            db, bytes, value, type, null,
+            db == null ? null : db.getMetadata().getImmutableSchemaSnapshot(), null);
+    return new Constant(type, bytes.fitBytes());
+  }
+
+  private static boolean isComparable(PropertyType type) {
+    return switch (type) {
+      case BYTE, SHORT, INTEGER, LONG, FLOAT, DOUBLE, STRING -> true;
+      default -> false;
+    };
+  }
+
+  /**
+   * Values of these types are compared by the regular evaluation after conversion to the common
+   * type, which is lossless only for the following combinations.
+   */
+  private static boolean isComparable(PropertyType stored, PropertyType constant) {
+    return switch (stored) {
+      case BYTE -> constant == PropertyType.BYTE;
+      case SHORT -> constant == PropertyType.BYTE || constant == PropertyType.SHORT;
+      case INTEGER -> constant == PropertyType.BYTE
+          || constant == PropertyType.SHORT
+          || constant == PropertyType.INTEGER;
+      case LONG -> constant == PropertyType.BYTE
+          || constant == PropertyType.SHORT
+          || constant == PropertyType.INTEGER
+          || constant == PropertyType.LONG;
+      case FLOAT -> constant == PropertyType.FLOAT;
+      case DOUBLE -> constant == PropertyType.BYTE
+          || constant == PropertyType.SHORT
+          || constant == PropertyType.INTEGER
+          || constant == PropertyType.FLOAT
+          || constant == PropertyType.DOUBLE;
+      case STRING -> constant == PropertyType.STRING;
+      default -> false;
+    };
+  }
+
+  private static boolean hasCollate(BinaryField field) {
+    return field.collate != null && !DefaultCollate.NAME.equals(field.collate.getName());
+  }
+
+  private static Match not(Match match) {
+    return switch (match) {
+      case TRUE -> Match.FALSE;
+      case FALSE -> Match.TRUE;
+      default -> Match.UNKNOWN;
+    };
+  }
+
+  private static Match of(boolean value) {
+    return value ? Match.TRUE : Match.FALSE;
+  }
+
+  private record Constant(PropertyType type, byte[] bytes) {
+
+    private BinaryField toField(Collate collate) {
+      return new BinaryField(null, type, new BytesContainer(bytes), collate);
+    }
+  }
+
+  private record SerializedEntity(
+      byte[] source,
+      EntitySerializer serializer,
+      @Nullable SchemaImmutableClass schemaClass,
+      ImmutableSchema schema) {
+
+    /**
+     * @return Stored value of the property or <code>null</code> if the property is absent, is
+     * <code>null</code> or can not be compared in binary form.
+     */
+    @Nullable
+    private BinaryField field(String property) {
+      final BytesContainer bytes = new BytesContainer(source);
+      // skip version of the serializer
+      bytes.offset = 1;
+      final BinaryField field =
+          serializer.deserializeField(bytes, schemaClass, property, false, schema, null);
+      if (field == null || !isComparable(field.type)) {
+        return null;
+      }
+      return field;
+    }
+
+    @Nullable
+    private Collate collate(String property) {
+      if (schemaClass == null) {
+        return null;
+      }
+      final SchemaProperty schemaProperty = schemaClass.getProperty(property);
+      return schemaProperty == null ? null : schemaProperty.getCollate();
+    }
+
+    private BinaryComparator comparator() {
+      return serializer.getComparator();
+    }
+  }
+
+  private interface Condition {
+
+    Match evaluate(SerializedEntity entity);
+  }
+
+  private static final class UnknownCondition implements Condition {
+
+    private static final UnknownCondition INSTANCE = new UnknownCondition();
+
+    @Override
+    public Match evaluate(SerializedEntity entity) {
+      return Match.UNKNOWN;
+    }
+  }
+
+  private record AndCondition(List<Condition> conditions) implements Condition {
+
+    @Override
+    public Match evaluate(SerializedEntity entity) {
+      Match result = Match.TRUE;
+      for (final Condition condition : conditions) {
+        final Match match = condition.evaluate(entity);
+        if (match == Match.FALSE) {
+          return Match.FALSE;
+        }
+        if (match == Match.UNKNOWN) {
+          result = Match.UNKNOWN;
+        }
+      }
+      return result;
+    }
+  }
+
+  private record OrCondition(List<Condition> conditions) implements Condition {
+
+    @Override
+    public Match evaluate(SerializedEntity entity) {
+      Match result = Match.FALSE;
+      for (final Condition condition : conditions) {
+        final Match match = condition.evaluate(entity);
+        if (match == Match.TRUE) {
+          return Match.TRUE;
+        }
+        if (match == Match.UNKNOWN) {
+          result = Match.UNKNOWN;
+        }
+      }
+      return result;
+    }
+  }
+
+  private record NotCondition(Condition condition) implements Condition {
+
+    @Override
+    public Match evaluate(SerializedEntity entity) {
+      return not(condition.evaluate(entity));
+    }
+  }
+
+  private record IsNullCondition(String property) implements Condition {
+
+    @Override
+    public Match evaluate(SerializedEntity entity) {
+      // absent and null properties can not be told apart in binary form
+      return entity.field(property) != null ? Match.FALSE : Match.UNKNOWN;
+    }
+  }
+
+  private record CompareCondition(
+      String property, SQLBinaryCompareOperator operator, Constant constant)
+      implements Condition {
+
+    @Override
+    public Match evaluate(SerializedEntity entity) {
+      final BinaryField field = entity.field(property);
+      if (field == null || !isComparable(field.type, constant.type)) {
+        return Match.UNKNOWN;
+      }
+
+      // the regular evaluation applies collate of the property to both of the values
+      final BinaryField value = constant.toField(entity.collate(property));
+      final BinaryComparator comparator = entity.comparator();
+      if (operator instanceof SQLEqualsCompareOperator) {
+        return of(comparator.isEqual(field, value));
+      }
+
+      final int compare = comparator.compare(field, value);
+      if (operator instanceof SQLLtOperator) {
+        return of(compare < 0);
+      }
+      if (operator instanceof SQLLeOperator) {
+        return of(compare <= 0);
+      }
+      if (operator instanceof SQLGtOperator) {
+        return of(compare > 0);
+      }
+      return of(compare >= 0);
+    }
+  }
+
+  private record InCondition(String property, List<Constant> constants) implements Condition {
+
+    @Override
+    public Match evaluate(SerializedEntity entity) {
+      final BinaryField field = entity.field(property);
+      // collate is not applied by the regular evaluation of IN, but is applied by the comparator
+      if (field == null || hasCollate(field)) {
+        return Match.UNKNOWN;
+      }
+
+      for (final Constant constant : constants) {
+        if (!isComparable(field.type, constant.type)) {
+          return Match.UNKNOWN;
+        }
+      }
+
+      final BinaryComparator comparator = entity.comparator();
+      for (final Constant constant : constants) {
+        if (comparator.isEqual(field, constant.toField(null))) {
+          return Match.TRUE;
+        }
+      }
+      return Match.FALSE;
+    }
+  }
+
+  private record BetweenCondition(String property, Constant from, Constant to)
+      implements Condition {
+
+    @Override
+    public Match evaluate(SerializedEntity entity) {
+      final BinaryField field = entity.field(property);
+      // collate is not applied by the regular evaluation of BETWEEN, but is applied by the
+      // comparator
+      if (field == null
+          || hasCollate(field)
+          || !isComparable(field.type, from.type)
+          || !isComparable(field.type, to.type)) {
+        return Match.UNKNOWN;
+      }
+
+      final BinaryComparator comparator = entity.comparator();
+      return of(comparator.compare(field, from.toField(null)) >= 0
+          && comparator.compare(field, to.toField(null)) <= 0);
+    }
+  }
+}
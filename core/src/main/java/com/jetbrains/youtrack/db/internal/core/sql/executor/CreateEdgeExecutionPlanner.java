@@ -153,7 +153,8 @@ public class CreateEdgeExecutionPlanner {
         && statement.executinPlanCanBeCached(db)
         && result.canBeCached()
         && ExecutionPlanCache.getLastInvalidation(db) < planningStart) {
-      ExecutionPlanCache.put(statement.getOriginalStatement(), result, ctx.getDatabase());
+      ExecutionPlanCache.put(
+          statement.getOriginalStatement(), statement, result, ctx.getDatabase());
     }
 
     return result;
@@ -143,7 +143,8 @@ public class DeleteEdgeExecutionPlanner {
         && this.statement.executinPlanCanBeCached(db)
         && result.canBeCached()
         && ExecutionPlanCache.getLastInvalidation(db) < planningStart) {
-      ExecutionPlanCache.put(this.statement.getOriginalStatement(), result, ctx.getDatabase());
+      ExecutionPlanCache.put(
+          this.statement.getOriginalStatement(), this.statement, result, ctx.getDatabase());
     }
 
     return result;
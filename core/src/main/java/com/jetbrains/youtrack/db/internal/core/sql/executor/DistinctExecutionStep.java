@@ -8,78 +8,86 @@ import com.jetbrains.youtrack.db.api.DatabaseSession;
 import com.jetbrains.youtrack.db.api.exception.CommandExecutionException;
 import com.jetbrains.youtrack.db.api.record.RID;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStream;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStreamProducer;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.MultipleExecutionStream;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.spill.ExternalResultSorter;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.spill.ResultFingerprint;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.spill.SpillPartitions;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
+ * Removes duplicates from the results of the previous step preserving the order of the first
+ * occurrences.
  *
+ * <p>Records are tracked by their RIDs, other results are tracked by their
+ * {@link ResultFingerprint}s, which take much less heap than the results themselves. Once the
+ * amount of fingerprints exceeds {@link GlobalConfiguration#QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP}
+ * and spilling is enabled, results which were not seen yet are written to hash partitioned spill
+ * files, each partition is deduplicated separately after the rest of the results is returned.
+ * Partitions which are still too big are partitioned again with a different hash function.
  */
 public class DistinctExecutionStep extends AbstractExecutionStep {
 
+  private static final String FINGERPRINT = "$distinctFingerprint";
+  private static final String SEQUENCE = "$distinctSequence";
+
   private final long maxElementsAllowed;
+  private final boolean spillEnabled;
+  private final int partitionsCount;
+
+  private boolean spilled;
 
   public DistinctExecutionStep(CommandContext ctx, boolean profilingEnabled) {
     super(ctx, profilingEnabled);
     DatabaseSession db = ctx == null ? null : ctx.getDatabase();
 
-    maxElementsAllowed =
-        db == null
-            ? GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong()
-            : db.getConfiguration()
-                .getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP);
+    if (db == null) {
+      maxElementsAllowed =
+          GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
+      spillEnabled = GlobalConfiguration.QUERY_SPILL_ENABLED.getValueAsBoolean();
+      partitionsCount = GlobalConfiguration.QUERY_SPILL_PARTITIONS.getValueAsInteger();
+    } else {
+      var configuration = db.getConfiguration();
+      maxElementsAllowed =
+          configuration.getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP);
+      spillEnabled = configuration.getValueAsBoolean(GlobalConfiguration.QUERY_SPILL_ENABLED);
+      partitionsCount = configuration.getValueAsInteger(GlobalConfiguration.QUERY_SPILL_PARTITIONS);
+    }
   }
 
   @Override
   public ExecutionStream internalStart(CommandContext ctx) throws TimeoutException {
     assert prev != null;
     ExecutionStream resultSet = prev.start(ctx);
-    Set<Result> pastItems = new HashSet<>();
-    RidSet pastRids = new RidSet();
+    var distinct = new Distinct(ctx);
 
-    return resultSet.filter((result, context) -> filterMap(result, pastRids, pastItems));
-  }
+    ExecutionStreamProducer producer =
+        new ExecutionStreamProducer() {
+          private boolean inputReturned;
 
-  private Result filterMap(Result result, Set<RID> pastRids, Set<Result> pastItems) {
-    if (alreadyVisited(result, pastRids, pastItems)) {
-      return null;
-    } else {
-      markAsVisited(result, pastRids, pastItems);
-      return result;
-    }
-  }
+          @Override
+          public ExecutionStream next(CommandContext ctx) {
+            if (!inputReturned) {
+              inputReturned = true;
+              return resultSet.filter((result, context) -> distinct.filterInput(result));
+            }
+            return distinct.spilledResults();
+          }
 
-  private void markAsVisited(Result nextValue, Set<RID> pastRids, Set<Result> pastItems) {
-    if (nextValue.isEntity()) {
-      RID identity = nextValue.toEntity().getIdentity();
-      int cluster = identity.getClusterId();
-      long pos = identity.getClusterPosition();
-      if (cluster >= 0 && pos >= 0) {
-        pastRids.add(identity);
-        return;
-      }
-    }
-    pastItems.add(nextValue);
-    if (maxElementsAllowed > 0 && maxElementsAllowed < pastItems.size()) {
-      pastItems.clear();
-      throw new CommandExecutionException(
-          "Limit of allowed entities for in-heap DISTINCT in a single query exceeded ("
-              + maxElementsAllowed
-              + ") . You can set "
-              + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey()
-              + " to increase this limit");
-    }
-  }
+          @Override
+          public boolean hasNext(CommandContext ctx) {
+            return !inputReturned || distinct.hasSpilledResults();
+          }
 
-  private boolean alreadyVisited(Result nextValue, Set<RID> pastRids, Set<Result> pastItems) {
-    if (nextValue.isEntity()) {
-      RID identity = nextValue.toEntity().getIdentity();
-      int cluster = identity.getClusterId();
-      long pos = identity.getClusterPosition();
-      if (cluster >= 0 && pos >= 0) {
-        return pastRids.contains(identity);
-      }
-    }
-    return pastItems.contains(nextValue);
+          @Override
+          public void close(CommandContext ctx) {
+            distinct.close();
+          }
+        };
+
+    return new MultipleExecutionStream(producer);
   }
 
   @Override
@@ -99,6 +107,170 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
     if (profilingEnabled) {
       result += " (" + getCostFormatted() + ")";
     }
+    if (spilled) {
+      result += "\n" + ExecutionStepInternal.getIndent(depth, indent) + "  (spilled to disk)";
+    }
     return result;
   }
+
+  private CommandExecutionException limitExceeded() {
+    return new CommandExecutionException(
+        "Limit of allowed entities for in-heap DISTINCT in a single query exceeded ("
+            + maxElementsAllowed
+            + ") . You can set "
+            + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey()
+            + " to increase this limit or enable "
+            + GlobalConfiguration.QUERY_SPILL_ENABLED.getKey());
+  }
+
+  /**
+   * State of the deduplication of a single execution of the step.
+   */
+  private final class Distinct {
+
+    private final CommandContext ctx;
+    private final RidSet pastRids = new RidSet();
+    private Set<Object> pastItems = new HashSet<>();
+
+    /**
+     * If some results can not be fingerprinted, they are kept in heap as is and spilling is not
+     * possible any more.
+     */
+    private boolean canSpill = true;
+
+    private final SpillPartitions<Void> partitions;
+    private SpillPartitions<Void>.Writer spill;
+    private long sequence;
+
+    private ExternalResultSorter sorter;
+
+    private Distinct(CommandContext ctx) {
+      this.ctx = ctx;
+      var db = ctx.getDatabase();
+      this.partitions =
+          new SpillPartitions<>(db == null ? null : db.getConfiguration(), partitionsCount);
+    }
+
+    private Result filterInput(Result result) {
+      if (result.isEntity()) {
+        RID identity = result.toEntity().getIdentity();
+        int cluster = identity.getClusterId();
+        long pos = identity.getClusterPosition();
+        if (cluster >= 0 && pos >= 0) {
+          return pastRids.add(identity) ? result : null;
+        }
+      }
+
+      Object key = ResultFingerprint.of(result);
+      if (key == null) {
+        key = result;
+        canSpill = false;
+      }
+      if (pastItems.contains(key)) {
+        return null;
+      }
+
+      if (spill != null) {
+        if (!(key instanceof ResultFingerprint fingerprint)) {
+          throw limitExceeded();
+        }
+        // heap is full, result is either new or its first occurrence is in the spilled data
+        append(spill, fingerprint, sequence++, result);
+        return null;
+      }
+
+      pastItems.add(key);
+      if (maxElementsAllowed > 0 && maxElementsAllowed < pastItems.size()) {
+        if (!spillEnabled || !canSpill) {
+          pastItems.clear();
+          throw limitExceeded();
+        }
+        // results seen so far are already returned, they stay in heap to filter the rest
+        spill = partitions.newWriter(1, null);
+        spilled = true;
+      }
+      return result;
+    }
+
+    private boolean hasSpilledResults() {
+      if (spill != null) {
+        spill.finish();
+        spill = null;
+        // fingerprints of returned results are not needed any more
+        pastItems = null;
+
+        var db = ctx.getDatabase();
+        sorter =
+            new ExternalResultSorter(
+                Comparator.comparingLong(r -> (Long) ((ResultInternal) r).getTemporaryProperty(
+                    SEQUENCE)),
+                maxElementsAllowed,
+                null,
+                db);
+        while (!partitions.isEmpty()) {
+          deduplicate(partitions.poll());
+        }
+        return true;
+      }
+      return false;
+    }
+
+    private ExecutionStream spilledResults() {
+      var stream = sorter.sortedStream();
+      sorter = null;
+      return stream;
+    }
+
+    /**
+     * Passes the first occurrences of the results of the partition to the sorter, which restores
+     * the original order of the results. If there are too many distinct results in the partition,
+     * the rest of the partition is split into sub-partitions of the next level.
+     */
+    private void deduplicate(SpillPartitions.Partition<Void> partition) {
+      try (var reader = partition.file().openReader(ctx.getDatabase())) {
+        Set<ResultFingerprint> seen = new HashSet<>();
+        SpillPartitions<Void>.Writer subPartitions = null;
+        while (reader.hasNext()) {
+          var result = reader.next();
+          var key = ResultFingerprint.fromBytes((byte[]) result.getTemporaryProperty(FINGERPRINT));
+          if (seen.contains(key)) {
+            continue;
+          }
+
+          if (subPartitions != null) {
+            append(subPartitions, key, (Long) result.getTemporaryProperty(SEQUENCE), result);
+            continue;
+          }
+
+          seen.add(key);
+          sorter.add(result);
+          if (partition.level() < SpillPartitions.MAX_LEVEL && maxElementsAllowed < seen.size()) {
+            subPartitions = partitions.newWriter(partition.level() + 1, null);
+          }
+        }
+
+        if (subPartitions != null) {
+          subPartitions.finish();
+        }
+      } finally {
+        partition.file().delete();
+      }
+    }
+
+    private void append(
+        SpillPartitions<Void>.Writer spill, ResultFingerprint key, long sequence, Result result) {
+      var item = (ResultInternal) result;
+      item.setTemporaryProperty(FINGERPRINT, key.toBytes());
+      item.setTemporaryProperty(SEQUENCE, sequence);
+      spill.append(key.hashCode(), item);
+    }
+
+    private void close() {
+      partitions.close();
+      if (sorter != null) {
+        sorter.close();
+        sorter = null;
+      }
+    }
+  }
 }
@@ -1,5 +1,6 @@
 package com.jetbrains.youtrack.db.internal.core.sql.executor;
 
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.api.query.ExecutionStep;
 import com.jetbrains.youtrack.db.api.query.Result;
 import com.jetbrains.youtrack.db.internal.common.concur.TimeoutException;
@@ -11,6 +12,9 @@ import com.jetbrains.youtrack.db.api.schema.SchemaClass;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStream;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.MultipleExecutionStream;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStreamProducer;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ParallelExecutionStream;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLTimeout;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLWhereClause;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -18,9 +22,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
+ * Iterates over all clusters of a class and its subclasses.
  *
+ * <p>If parallel execution is enabled by {@link #enableParallelExecution(SQLTimeout)} clusters are
+ * scanned by separate threads, the filter set by {@link #setFilter(SQLWhereClause)} is evaluated by
+ * the same threads, so only matching records are passed to the next step.
  */
 public class FetchFromClassExecutionStep extends AbstractExecutionStep {
 
@@ -29,6 +38,14 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
   protected boolean orderByRidDesc = false;
   protected List<ExecutionStep> subSteps = new ArrayList<>();
 
+  @Nullable
+  protected SQLWhereClause filter;
+  protected boolean parallel = false;
+  @Nullable
+  protected SQLTimeout timeout;
+  @Nullable
+  private ParallelExecutionStream parallelStream;
+
   protected FetchFromClassExecutionStep(CommandContext ctx, boolean profilingEnabled) {
     super(ctx, profilingEnabled);
   }
@@ -136,6 +153,22 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
       prev.start(ctx).close(ctx);
     }
 
+    ExecutionStream stream;
+    var parallelism = parallelism(ctx);
+    if (parallelism > 1) {
+      stream = parallelStream = createParallelStream(parallelism);
+    } else {
+      stream = createSequentialStream();
+    }
+
+    return stream.map(
+        (result, context) -> {
+          context.setVariable("$current", result);
+          return result;
+        });
+  }
+
+  private ExecutionStream createSequentialStream() {
     List<ExecutionStep> stepsIter = subSteps;
 
     ExecutionStreamProducer res =
@@ -158,16 +191,122 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
           }
         };
 
-    return new MultipleExecutionStream(res)
-        .map(
-            (result, context) -> {
-              context.setVariable("$current", result);
-              return result;
-            });
+    ExecutionStream stream = new MultipleExecutionStream(res);
+    if (filter != null) {
+      var whereClause = filter;
+      stream =
+          stream.filter(
+              (result, context) -> {
+                context.setVariable("$current", result);
+                return whereClause.matchesFilters(result, context) ? result : null;
+              });
+    }
+    return stream;
+  }
+
+  private ParallelExecutionStream createParallelStream(int parallelism) {
+    var tasks = new ArrayList<ParallelExecutionStream.Task>(subSteps.size());
+    for (var step : subSteps) {
+      if (!(step instanceof FetchFromClusterExecutionStep clusterStep)) {
+        // records of the current transaction, there are none of them outside of transaction
+        continue;
+      }
+
+      var whereClause = filter;
+      tasks.add(
+          (workerCtx, cancelled) -> {
+            var workerStep = (AbstractExecutionStep) clusterStep.copy(workerCtx);
+            var stream =
+                ParallelExecutionStream.cancellable(workerStep.start(workerCtx), cancelled);
+            if (whereClause == null) {
+              return stream;
+            }
+
+            var workerFilter = whereClause.copy();
+            return stream.filter(
+                (result, context) -> {
+                  context.setVariable("$current", result);
+                  return workerFilter.matchesFilters(result, context) ? result : null;
+                });
+          });
+    }
+
+    return ParallelExecStep.parallelStream(tasks, parallelism, timeout, this);
+  }
+
+  /**
+   * Parallel scan is used only if it is enabled for the query, records are not required to be
+   * sorted by RID and amount of records to scan is not less than
+   * {@link GlobalConfiguration#QUERY_PARALLEL_MINIMUM_RECORDS}.
+   */
+  private int parallelism(CommandContext ctx) {
+    if (!parallel || orderByRidAsc || orderByRidDesc) {
+      return 1;
+    }
+
+    var parallelism = ParallelExecStep.parallelism(ctx);
+    if (parallelism <= 1) {
+      return 1;
+    }
+
+    var clusterIds = new IntArrayList();
+    for (var step : subSteps) {
+      if (step instanceof FetchFromClusterExecutionStep clusterStep) {
+        clusterIds.add(clusterStep.getClusterId());
+      }
+    }
+    if (clusterIds.size() < 2) {
+      return 1;
+    }
+
+    var db = ctx.getDatabase();
+    var minimumRecords =
+        db.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_PARALLEL_MINIMUM_RECORDS);
+    if (db.countClusterElements(clusterIds.toIntArray()) < minimumRecords) {
+      return 1;
+    }
+
+    return Math.min(parallelism, clusterIds.size());
+  }
+
+  /**
+   * Sets the filter which is applied to the fetched records by this step instead of the separate
+   * {@link FilterStep}, so it can be evaluated in parallel with the scan.
+   */
+  public void setFilter(@Nullable SQLWhereClause filter) {
+    this.filter = filter;
+  }
+
+  @Nullable
+  public SQLWhereClause getFilter() {
+    return filter;
+  }
+
+  /**
+   * Allows to scan clusters of the class by separate threads. Clusters are still scanned one by
+   * one if parallel execution is not possible at the moment when the step is started, for example
+   * if there is an active transaction.
+   *
+   * @param timeout Timeout of the query, if any.
+   */
+  public void enableParallelExecution(@Nullable SQLTimeout timeout) {
+    this.parallel = true;
+    this.timeout = timeout;
+  }
+
+  public boolean isParallelExecutionEnabled() {
+    return parallel;
+  }
+
+  public boolean isOrderedByRid() {
+    return orderByRidAsc || orderByRidDesc;
   }
 
   @Override
   public void sendTimeout() {
+    if (parallelStream != null) {
+      parallelStream.cancel();
+    }
     for (ExecutionStep step : subSteps) {
       ((AbstractExecutionStep) step).sendTimeout();
     }
@@ -192,10 +331,19 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
     String ind = ExecutionStepInternal.getIndent(depth, indent);
     builder.append(ind);
     builder.append("+ FETCH FROM CLASS ").append(className);
+    if (parallel) {
+      builder.append(" (multi-threaded)");
+    }
     if (profilingEnabled) {
       builder.append(" (").append(getCostFormatted()).append(")");
     }
     builder.append("\n");
+    if (filter != null) {
+      builder.append(ind);
+      builder.append("  WHERE ");
+      builder.append(filter);
+      builder.append("\n");
+    }
     for (int i = 0; i < subSteps.size(); i++) {
       ExecutionStepInternal step = (ExecutionStepInternal) subSteps.get(i);
       builder.append(step.prettyPrint(depth + 1, indent));
@@ -212,6 +360,13 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
     result.setProperty("className", className);
     result.setProperty("orderByRidAsc", orderByRidAsc);
     result.setProperty("orderByRidDesc", orderByRidDesc);
+    if (filter != null) {
+      result.setProperty("filter", filter.serialize(db));
+    }
+    result.setProperty("parallel", parallel);
+    if (timeout != null) {
+      result.setProperty("timeout", timeout.serialize(db));
+    }
     return result;
   }
 
@@ -222,6 +377,15 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
       this.className = fromResult.getProperty("className");
       this.orderByRidAsc = fromResult.getProperty("orderByRidAsc");
       this.orderByRidDesc = fromResult.getProperty("orderByRidDesc");
+      if (fromResult.getProperty("filter") != null) {
+        filter = new SQLWhereClause(-1);
+        filter.deserialize(fromResult.getProperty("filter"));
+      }
+      this.parallel = Boolean.TRUE.equals(fromResult.getProperty("parallel"));
+      if (fromResult.getProperty("timeout") != null) {
+        timeout = new SQLTimeout(-1);
+        timeout.deserialize(fromResult.getProperty("timeout"));
+      }
     } catch (Exception e) {
       throw BaseException.wrapException(new CommandExecutionException(""), e);
     }
@@ -243,6 +407,9 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
     result.className = this.className;
     result.orderByRidAsc = this.orderByRidAsc;
     result.orderByRidDesc = this.orderByRidDesc;
+    result.filter = this.filter == null ? null : this.filter.copy();
+    result.parallel = this.parallel;
+    result.timeout = this.timeout == null ? null : this.timeout.copy();
     result.subSteps =
         this.subSteps.stream()
             .map(x -> ((ExecutionStepInternal) x).copy(ctx))
@@ -49,6 +49,10 @@ public class FetchFromClusterExecutionStep extends AbstractExecutionStep {
     this.queryPlanning = queryPlanning;
   }
 
+  public int getClusterId() {
+    return clusterId;
+  }
+
   @Override
   public ExecutionStream internalStart(CommandContext ctx) throws TimeoutException {
     if (prev != null) {
@@ -1,5 +1,6 @@
 package com.jetbrains.youtrack.db.internal.core.sql.executor;
 
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.api.query.ExecutionStep;
 import com.jetbrains.youtrack.db.api.query.Result;
 import com.jetbrains.youtrack.db.internal.common.concur.TimeoutException;
@@ -18,6 +19,7 @@ public class FilterStep extends AbstractExecutionStep {
 
   private final long timeoutMillis;
   private SQLWhereClause whereClause;
+  private BinaryFilter binaryFilter;
 
   public FilterStep(
       SQLWhereClause whereClause, CommandContext ctx, long timeoutMillis,
@@ -33,6 +35,12 @@ public class FilterStep extends AbstractExecutionStep {
       throw new IllegalStateException("filter step requires a previous step");
     }
 
+    var db = ctx.getDatabase();
+    if (db != null
+        && db.getConfiguration().getValueAsBoolean(GlobalConfiguration.QUERY_BINARY_FILTER)) {
+      binaryFilter = BinaryFilter.compile(whereClause, ctx);
+    }
+
     ExecutionStream resultSet = prev.start(ctx);
     resultSet = resultSet.filter(this::filterMap);
     if (timeoutMillis > 0) {
@@ -42,6 +50,18 @@ public class FilterStep extends AbstractExecutionStep {
   }
 
   private Result filterMap(Result result, CommandContext ctx) {
+    if (binaryFilter != null) {
+      // records rejected on binary level are never deserialized
+      switch (binaryFilter.matches(result, ctx)) {
+        case TRUE:
+          return result;
+        case FALSE:
+          return null;
+        default:
+          break;
+      }
+    }
+
     if (whereClause.matchesFilters(result, ctx)) {
       return result;
     }
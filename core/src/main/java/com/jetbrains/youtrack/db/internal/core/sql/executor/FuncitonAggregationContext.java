@@ -2,6 +2,7 @@ package com.jetbrains.youtrack.db.internal.core.sql.executor;
 
 import com.jetbrains.youtrack.db.api.query.Result;
 import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
+import com.jetbrains.youtrack.db.internal.core.sql.functions.MergeableSQLFunction;
 import com.jetbrains.youtrack.db.internal.core.sql.functions.SQLFunction;
 import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLExpression;
 import java.util.ArrayList;
@@ -37,4 +38,20 @@ public class FuncitonAggregationContext implements AggregationContext {
     ctx.setVariable("aggregation", true);
     aggregateFunction.execute(next, null, null, paramValues.toArray(), ctx);
   }
+
+  @Override
+  public boolean isMergeable() {
+    return aggregateFunction instanceof MergeableSQLFunction
+        && aggregateFunction.aggregateResults();
+  }
+
+  @Override
+  public Object getPartialState() {
+    return ((MergeableSQLFunction) aggregateFunction).getPartialState();
+  }
+
+  @Override
+  public void mergePartialState(Object partialState) {
+    ((MergeableSQLFunction) aggregateFunction).mergePartialState(partialState);
+  }
 }
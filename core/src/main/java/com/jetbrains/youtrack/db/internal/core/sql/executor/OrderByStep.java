@@ -7,8 +7,9 @@ import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.api.exception.CommandExecutionException;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStream;
 import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLOrderBy;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.spill.ExternalResultSorter;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -19,6 +20,7 @@ public class OrderByStep extends AbstractExecutionStep {
   private final SQLOrderBy orderBy;
   private final long timeoutMillis;
   private Integer maxResults;
+  private boolean spilled;
 
   public OrderByStep(
       SQLOrderBy orderBy, CommandContext ctx, long timeoutMillis, boolean profilingEnabled) {
@@ -42,61 +44,99 @@ public class OrderByStep extends AbstractExecutionStep {
 
   @Override
   public ExecutionStream internalStart(CommandContext ctx) throws TimeoutException {
-    List<Result> results;
-
     if (prev != null) {
-      results = init(prev, ctx);
+      return init(prev, ctx);
     } else {
-      results = Collections.emptyList();
+      return ExecutionStream.empty();
     }
-
-    return ExecutionStream.resultIterator(results.iterator());
   }
 
-  private List<Result> init(ExecutionStepInternal p, CommandContext ctx) {
+  private ExecutionStream init(ExecutionStepInternal p, CommandContext ctx) {
     long timeoutBegin = System.currentTimeMillis();
     List<Result> cachedResult = new ArrayList<>();
+    ExternalResultSorter sorter = null;
+    var db = ctx.getDatabase();
     final long maxElementsAllowed =
-        GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
+        db == null
+            ? GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong()
+            : db.getConfiguration()
+                .getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP);
+    final boolean spillEnabled =
+        db == null
+            ? GlobalConfiguration.QUERY_SPILL_ENABLED.getValueAsBoolean()
+            : db.getConfiguration().getValueAsBoolean(GlobalConfiguration.QUERY_SPILL_ENABLED);
+    Comparator<Result> comparator = (a, b) -> orderBy.compare(a, b, ctx);
     boolean sorted = true;
     ExecutionStream lastBatch = p.start(ctx);
-    while (lastBatch.hasNext(ctx)) {
-      if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
-        sendTimeout();
-      }
+    try {
+      while (lastBatch.hasNext(ctx)) {
+        if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
+          sendTimeout();
+        }
 
-      Result item = lastBatch.next(ctx);
-      cachedResult.add(item);
-      if (maxElementsAllowed >= 0 && maxElementsAllowed < cachedResult.size()) {
-        throw new CommandExecutionException(
-            "Limit of allowed entities for in-heap ORDER BY in a single query exceeded ("
-                + maxElementsAllowed
-                + ") . You can set "
-                + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey()
-                + " to increase this limit");
-      }
-      sorted = false;
-      // compact, only at twice as the buffer, to avoid to do it at each add
-      if (this.maxResults != null) {
-        long compactThreshold = 2L * maxResults;
-        if (compactThreshold < cachedResult.size()) {
-          cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
-          cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
-          sorted = true;
+        Result item = lastBatch.next(ctx);
+        if (sorter != null) {
+          sorter.add(item);
+          continue;
+        }
+
+        cachedResult.add(item);
+        if (maxElementsAllowed >= 0 && maxElementsAllowed < cachedResult.size()) {
+          if (!spillEnabled) {
+            throw new CommandExecutionException(
+                "Limit of allowed entities for in-heap ORDER BY in a single query exceeded ("
+                    + maxElementsAllowed
+                    + ") . You can set "
+                    + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey()
+                    + " to increase this limit or enable "
+                    + GlobalConfiguration.QUERY_SPILL_ENABLED.getKey());
+          }
+
+          // switch to the external sort, the limit becomes size of a single sorted run
+          sorter =
+              new ExternalResultSorter(
+                  comparator, Math.max(maxElementsAllowed, 1), maxResults, db);
+          for (var cached : cachedResult) {
+            sorter.add(cached);
+          }
+          cachedResult = null;
+          spilled = true;
+          continue;
+        }
+        sorted = false;
+        // compact, only at twice as the buffer, to avoid to do it at each add
+        if (this.maxResults != null) {
+          long compactThreshold = 2L * maxResults;
+          if (compactThreshold < cachedResult.size()) {
+            cachedResult.sort(comparator);
+            cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
+            sorted = true;
+          }
         }
       }
+    } catch (RuntimeException e) {
+      if (sorter != null) {
+        sorter.close();
+      }
+      throw e;
+    } finally {
+      lastBatch.close(ctx);
     }
-    lastBatch.close(ctx);
+
+    if (sorter != null) {
+      return sorter.sortedStream();
+    }
+
     // compact at each batch, if needed
     if (!sorted && this.maxResults != null && maxResults < cachedResult.size()) {
-      cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
+      cachedResult.sort(comparator);
       cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
       sorted = true;
     }
     if (!sorted) {
-      cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
+      cachedResult.sort(comparator);
     }
-    return cachedResult;
+    return ExecutionStream.resultIterator(cachedResult.iterator());
   }
 
   @Override
@@ -106,6 +146,9 @@ public class OrderByStep extends AbstractExecutionStep {
       result += " (" + getCostFormatted() + ")";
     }
     result += (maxResults != null ? "\n  (buffer size: " + maxResults + ")" : "");
+    if (spilled) {
+      result += "\n  (external sort)";
+    }
     return result;
   }
 }
@@ -1,5 +1,6 @@
 package com.jetbrains.youtrack.db.internal.core.sql.executor;
 
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.api.query.ExecutionPlan;
 import com.jetbrains.youtrack.db.api.query.ExecutionStep;
 import com.jetbrains.youtrack.db.internal.common.concur.TimeoutException;
@@ -7,17 +8,29 @@ import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStream;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStreamProducer;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.MultipleExecutionStream;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ParallelExecutionStream;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLTimeout;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
- *
+ * Executes several sub-plans and returns results of all of them. If parallel execution is enabled
+ * by {@link #enableParallelExecution(SQLTimeout)} sub-plans are executed by separate threads, in
+ * such case order of results is not preserved.
  */
 public class ParallelExecStep extends AbstractExecutionStep {
 
   private final List<InternalExecutionPlan> subExecutionPlans;
 
+  private boolean parallel = false;
+  @Nullable
+  private SQLTimeout timeout;
+  @Nullable
+  private ParallelExecutionStream parallelStream;
+
   public ParallelExecStep(
       List<InternalExecutionPlan> subExecuitonPlans,
       CommandContext ctx,
@@ -32,6 +45,17 @@ public class ParallelExecStep extends AbstractExecutionStep {
       prev.start(ctx).close(ctx);
     }
 
+    var parallelism = parallel && subExecutionPlans.size() > 1 ? parallelism(ctx) : 1;
+    if (parallelism > 1) {
+      var tasks = new ArrayList<ParallelExecutionStream.Task>(subExecutionPlans.size());
+      for (var plan : subExecutionPlans) {
+        tasks.add((workerCtx, cancelled) -> plan.copy(workerCtx).start());
+      }
+
+      parallelStream = parallelStream(tasks, parallelism, timeout, this);
+      return parallelStream;
+    }
+
     List<InternalExecutionPlan> stepsIter = subExecutionPlans;
 
     ExecutionStreamProducer res =
@@ -57,6 +81,66 @@ public class ParallelExecStep extends AbstractExecutionStep {
     return new MultipleExecutionStream(res);
   }
 
+  /**
+   * Allows to execute sub-plans on separate threads. Sub-plans are still executed one by one if
+   * parallel execution is not possible at the moment when the step is started, for example if
+   * there is an active transaction.
+   *
+   * @param timeout Timeout of the query, if any.
+   */
+  public void enableParallelExecution(@Nullable SQLTimeout timeout) {
+    this.parallel = true;
+    this.timeout = timeout;
+  }
+
+  public boolean isParallelExecutionEnabled() {
+    return parallel;
+  }
+
+  @Override
+  public void sendTimeout() {
+    if (parallelStream != null) {
+      parallelStream.cancel();
+    }
+    super.sendTimeout();
+  }
+
+  /**
+   * Returns number of threads that may be used to execute the query in parallel or 1 if query can
+   * not be executed in parallel in current context. Only top level queries outside of transaction
+   * are executed in parallel, because workers use their own copies of the session.
+   */
+  static int parallelism(CommandContext ctx) {
+    var db = ctx.getDatabase();
+    if (ctx.getParent() != null || db.isRemote() || db.getTransaction().isActive()) {
+      return 1;
+    }
+
+    var degree = db.getConfiguration().getValueAsInteger(GlobalConfiguration.QUERY_PARALLEL_DEGREE);
+    if (degree <= 0) {
+      degree = Runtime.getRuntime().availableProcessors();
+    }
+    return degree;
+  }
+
+  static ParallelExecutionStream parallelStream(
+      List<ParallelExecutionStream.Task> tasks,
+      int parallelism,
+      @Nullable SQLTimeout timeout,
+      AbstractExecutionStep step) {
+    var timeoutMillis = timeout == null ? -1 : timeout.getVal().longValue();
+    return new ParallelExecutionStream(
+        tasks,
+        parallelism,
+        timeoutMillis,
+        () -> {
+          step.sendTimeout();
+          if (!SQLTimeout.RETURN.equals(timeout.getFailureStrategy())) {
+            throw new TimeoutException("Timeout expired");
+          }
+        });
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     StringBuilder result = new StringBuilder();
@@ -140,7 +224,7 @@ public class ParallelExecStep extends AbstractExecutionStep {
 
   private String head(int depth, int indent) {
     String ind = ExecutionStepInternal.getIndent(depth, indent);
-    return ind + "+ PARALLEL";
+    return ind + (parallel ? "+ PARALLEL (multi-threaded)" : "+ PARALLEL");
   }
 
   private String foot(int[] blockSizes) {
@@ -168,9 +252,13 @@ public class ParallelExecStep extends AbstractExecutionStep {
 
   @Override
   public ExecutionStep copy(CommandContext ctx) {
-    return new ParallelExecStep(
-        subExecutionPlans.stream().map(x -> x.copy(ctx)).collect(Collectors.toList()),
-        ctx,
-        profilingEnabled);
+    var result =
+        new ParallelExecStep(
+            subExecutionPlans.stream().map(x -> x.copy(ctx)).collect(Collectors.toList()),
+            ctx,
+            profilingEnabled);
+    result.parallel = parallel;
+    result.timeout = timeout == null ? null : timeout.copy();
+    return result;
   }
 }
@@ -21,6 +21,7 @@ import java.util.Set;
 public class QueryPlanningInfo {
 
   protected SQLTimeout timeout;
+  protected boolean parallel = false;
   protected boolean distinct = false;
   protected boolean expand = false;
 
@@ -64,6 +65,7 @@ public class QueryPlanningInfo {
   public QueryPlanningInfo copy() {
     // TODO check what has to be copied and what can be just referenced as it is
     QueryPlanningInfo result = new QueryPlanningInfo();
+    result.parallel = this.parallel;
     result.distinct = this.distinct;
     result.expand = this.expand;
     result.preAggregateProjection = this.preAggregateProjection;
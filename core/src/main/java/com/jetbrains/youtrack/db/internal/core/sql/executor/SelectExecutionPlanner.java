@@ -110,6 +110,11 @@ public class SelectExecutionPlanner {
     info.unwind = this.statement.getUnwind() == null ? null : this.statement.getUnwind().copy();
     info.skip = this.statement.getSkip();
     info.limit = this.statement.getLimit();
+    info.parallel =
+        this.statement.isParallel()
+            || ctx.getDatabase()
+            .getConfiguration()
+            .getValueAsBoolean(GlobalConfiguration.QUERY_PARALLEL_AUTO);
     info.timeout = this.statement.getTimeout() == null ? null : this.statement.getTimeout().copy();
     if (info.timeout == null
         &&
@@ -169,6 +174,8 @@ public class SelectExecutionPlanner {
 
     handleProjectionsBlock(result, info, ctx, enableProfiling);
 
+    handleParallelExecution(result, info);
+
     if (info.timeout != null) {
       result.chain(new AccumulatingTimeoutStep(info.timeout, ctx, enableProfiling));
     }
@@ -178,7 +185,8 @@ public class SelectExecutionPlanner {
         && statement.executinPlanCanBeCached(db)
         && result.canBeCached()
         && ExecutionPlanCache.getLastInvalidation(db) < planningStart) {
-      ExecutionPlanCache.put(statement.getOriginalStatement(), result, ctx.getDatabase());
+      ExecutionPlanCache.put(
+          statement.getOriginalStatement(), statement, result, ctx.getDatabase());
     }
     return result;
   }
@@ -691,6 +699,9 @@ public class SelectExecutionPlanner {
     }
 
     for (Index classIndex : clazz.getClassIndexesInternal(ctx.getDatabase())) {
+      if (classIndex.isRebuilding()) {
+        continue;
+      }
       List<String> fields = classIndex.getDefinition().getFields();
       if (fields.size() == 1
           && fields.get(0).equals(binaryCondition.getLeft().getDefaultAlias().getStringValue())) {
@@ -1850,6 +1861,9 @@ public class SelectExecutionPlanner {
                 profilingEnabled));
       } else {
         for (SelectExecutionPlan shardedPlan : info.distributedFetchExecutionPlans.values()) {
+          if (pushFilterToClassScan(shardedPlan, info)) {
+            continue;
+          }
           shardedPlan.chain(
               new FilterStep(
                   info.whereClause.copy(),
@@ -1861,6 +1875,46 @@ public class SelectExecutionPlanner {
     }
   }
 
+  /**
+   * In case of parallel execution the filter of a full class scan is evaluated by the same threads
+   * which scan the clusters, otherwise only the scan itself would be parallel.
+   */
+  private static boolean pushFilterToClassScan(SelectExecutionPlan plan, QueryPlanningInfo info) {
+    if (!info.parallel || info.perRecordLetClause != null || plan.getSteps().isEmpty()) {
+      return false;
+    }
+
+    var lastStep = plan.getSteps().get(plan.getSteps().size() - 1);
+    if (lastStep instanceof FetchFromClassExecutionStep fetchStep
+        && fetchStep.getFilter() == null
+        && !fetchStep.isOrderedByRid()) {
+      fetchStep.setFilter(info.whereClause.copy());
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Enables multi-threaded execution of the steps which support it, if it is requested by the
+   * PARALLEL keyword of the query or by {@link GlobalConfiguration#QUERY_PARALLEL_AUTO}. Results
+   * of such steps are returned in arbitrary order, so steps are left intact if the order of the
+   * fetched records is used to sort the result.
+   */
+  private static void handleParallelExecution(SelectExecutionPlan plan, QueryPlanningInfo info) {
+    if (!info.parallel || info.orderApplied) {
+      return;
+    }
+
+    for (var step : plan.getSteps()) {
+      if (step instanceof ParallelExecStep parallelStep) {
+        parallelStep.enableParallelExecution(info.timeout);
+      } else if (step instanceof FetchFromClassExecutionStep fetchStep
+          && !fetchStep.isOrderedByRid()) {
+        fetchStep.enableParallelExecution(info.timeout);
+      }
+    }
+  }
+
   public static void handleOrderBy(
       SelectExecutionPlan plan,
       QueryPlanningInfo info,
@@ -2029,7 +2083,7 @@ public class SelectExecutionPlanner {
 
       if (indexedFunctionConditions == null || indexedFunctionConditions.isEmpty()) {
         IndexSearchDescriptor bestIndex = findBestIndexFor(ctx,
-            clazz.getIndexesInternal(ctx.getDatabase()),
+            getQueryableIndexes(clazz, ctx),
             block, clazz);
         if (bestIndex != null) {
 
@@ -2224,7 +2278,7 @@ public class SelectExecutionPlanner {
     }
 
     for (Index idx :
-        clazz.getIndexesInternal(ctx.getDatabase()).stream()
+        getQueryableIndexes(clazz, ctx).stream()
             .filter(i -> i.supportsOrderedIterations())
             .filter(i -> i.getDefinition() != null)
             .collect(Collectors.toList())) {
@@ -2422,7 +2476,7 @@ public class SelectExecutionPlanner {
       throw new CommandExecutionException("Cannot find class " + targetClass);
     }
 
-    Set<Index> indexes = clazz.getIndexesInternal(ctx.getDatabase());
+    Set<Index> indexes = getQueryableIndexes(clazz, ctx);
 
     final SchemaClass c = clazz;
     List<IndexSearchDescriptor> indexSearchDescriptors =
@@ -2509,6 +2563,16 @@ public class SelectExecutionPlanner {
     return ctx.getDatabase().getMetadata().getImmutableSchemaSnapshot();
   }
 
+  /**
+   * @return Indexes of the class which may be used by the query, indexes which are built online at
+   * the moment are not complete yet and are skipped.
+   */
+  private static Set<Index> getQueryableIndexes(SchemaClassInternal clazz, CommandContext ctx) {
+    return clazz.getIndexesInternal(ctx.getDatabase()).stream()
+        .filter(index -> !index.isRebuilding())
+        .collect(Collectors.toSet());
+  }
+
   private boolean fullySorted(SQLOrderBy orderBy, IndexSearchDescriptor desc) {
     if (orderBy.ordersWithCollate() || !orderBy.ordersSameDirection()) {
       return false;
@@ -0,0 +1,428 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor.resultset;
+
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.exception.BaseException;
+import com.jetbrains.youtrack.db.api.exception.CommandExecutionException;
+import com.jetbrains.youtrack.db.api.query.Result;
+import com.jetbrains.youtrack.db.api.record.Entity;
+import com.jetbrains.youtrack.db.api.record.Identifiable;
+import com.jetbrains.youtrack.db.internal.common.log.LogManager;
+import com.jetbrains.youtrack.db.internal.core.command.BasicCommandContext;
+import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseRecordThreadLocal;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.db.ExecutionThreadLocal;
+import com.jetbrains.youtrack.db.internal.core.exception.CommandInterruptedException;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.ResultInternal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Executes a list of independent tasks on the worker threads of the YouTrackDB executor and merges
+ * their results into a single stream.
+ *
+ * <p>At most <code>parallelism</code> workers are started, every worker takes the next not yet
+ * started task once the previous one is finished. Results are passed to the consumer through a
+ * blocking queue bounded by {@link GlobalConfiguration#QUERY_PARALLEL_RESULT_QUEUE_SIZE}, so workers
+ * wait if the consumer is slower than them.
+ *
+ * <p>Every worker uses its own copy of the database session and of the command context. Because
+ * records are bound to the session that loaded them, results that represent persistent records are
+ * passed to the consumer as record ids and are loaded again lazily by the consumer session, links
+ * inside projections are replaced by record ids and embedded entities are converted to results.
+ *
+ * <p>Order of results is not preserved. Workers are stopped once the stream is closed, cancelled
+ * or its timeout is expired. The first error thrown by a worker is rethrown to the consumer.
+ */
+public final class ParallelExecutionStream implements ExecutionStream {
+
+  private static final long POLL_INTERVAL_MILLIS = 10;
+
+  /**
+   * Part of the work executed by a single worker.
+   */
+  public interface Task {
+
+    /**
+     * Starts execution of the task inside of the worker.
+     *
+     * @param ctx       Context of the worker, it is bound to the worker copy of the session.
+     * @param cancelled Returns <code>true</code> once execution of the stream is cancelled, tasks
+     *                  which may skip a lot of records without returning a result should check it
+     *                  to stop early.
+     */
+    ExecutionStream start(CommandContext ctx, BooleanSupplier cancelled);
+  }
+
+  private final List<Task> tasks;
+  private final int parallelism;
+  private final long timeoutMillis;
+  private final ExpireResultSet.TimedOut timedOut;
+
+  private final AtomicInteger nextTask = new AtomicInteger();
+  private final AtomicInteger runningWorkers = new AtomicInteger();
+  private final AtomicReference<Throwable> error = new AtomicReference<>();
+  private volatile boolean cancelled;
+
+  private BlockingQueue<Result> queue;
+  private List<Future<?>> workers;
+  private long expiryTime;
+
+  private Result nextResult;
+  private boolean finished;
+
+  /**
+   * @param tasks         Tasks to execute.
+   * @param parallelism   Maximum number of workers executed simultaneously.
+   * @param timeoutMillis Time after which execution is cancelled, not positive value means no
+   *                      timeout.
+   * @param timedOut      Callback which is called once the timeout is expired.
+   */
+  public ParallelExecutionStream(
+      List<Task> tasks, int parallelism, long timeoutMillis, ExpireResultSet.TimedOut timedOut) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException(
+          "Parallelism should be positive, but was " + parallelism);
+    }
+
+    this.tasks = tasks;
+    this.parallelism = parallelism;
+    this.timeoutMillis = timeoutMillis;
+    this.timedOut = timedOut;
+  }
+
+  @Override
+  public boolean hasNext(CommandContext ctx) {
+    if (nextResult != null) {
+      return true;
+    }
+    if (finished) {
+      return false;
+    }
+    if (queue == null) {
+      start(ctx);
+    }
+
+    try {
+      while (true) {
+        checkError();
+        if (cancelled) {
+          // error is published before the flag, so check it once more to not lose it
+          checkError();
+          finished = true;
+          return false;
+        }
+
+        if (ExecutionThreadLocal.isInterruptCurrentOperation()) {
+          cancel();
+          throw new CommandInterruptedException("The command has been interrupted");
+        }
+
+        // workers put all their results to the queue before they are accounted as finished
+        var running = runningWorkers.get();
+        nextResult = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (nextResult != null) {
+          return true;
+        }
+
+        if (running == 0) {
+          checkError();
+          finished = true;
+          return false;
+        }
+
+        if (System.currentTimeMillis() > expiryTime) {
+          cancel();
+          finished = true;
+          timedOut.timeout();
+          return false;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel();
+      throw BaseException.wrapException(
+          new CommandInterruptedException("The command has been interrupted"), e);
+    }
+  }
+
+  @Override
+  public Result next(CommandContext ctx) {
+    if (!hasNext(ctx)) {
+      throw new IllegalStateException();
+    }
+
+    var result = nextResult;
+    nextResult = null;
+    return result;
+  }
+
+  @Override
+  public void close(CommandContext ctx) {
+    cancel();
+    finished = true;
+    nextResult = null;
+
+    if (workers == null) {
+      return;
+    }
+
+    // release workers which wait for the free space in the queue
+    queue.clear();
+    for (var worker : workers) {
+      try {
+        worker.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        LogManager.instance().error(this, "Error during parallel execution of the query", e);
+      }
+    }
+    workers = null;
+    queue.clear();
+  }
+
+  /**
+   * Stops all workers, the stream returns no more results after this call.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Wraps the stream of a task, so it stops to return results once execution is cancelled. It
+   * should be applied to the source of the records before the filtering, so workers do not scan
+   * the rest of the data after cancellation.
+   */
+  public static ExecutionStream cancellable(ExecutionStream source, BooleanSupplier cancelled) {
+    return new ExecutionStream() {
+      @Override
+      public boolean hasNext(CommandContext ctx) {
+        return !cancelled.getAsBoolean() && source.hasNext(ctx);
+      }
+
+      @Override
+      public Result next(CommandContext ctx) {
+        return source.next(ctx);
+      }
+
+      @Override
+      public void close(CommandContext ctx) {
+        source.close(ctx);
+      }
+    };
+  }
+
+  private void start(CommandContext ctx) {
+    var session = ctx.getDatabase();
+    queue =
+        new ArrayBlockingQueue<>(
+            Math.max(
+                session
+                    .getConfiguration()
+                    .getValueAsInteger(GlobalConfiguration.QUERY_PARALLEL_RESULT_QUEUE_SIZE),
+                1));
+    expiryTime =
+        timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+
+    var workersCount = Math.min(parallelism, tasks.size());
+    workers = new ArrayList<>(workersCount);
+    var variables = ctx.getVariables();
+
+    try {
+      for (var i = 0; i < workersCount; i++) {
+        // copy of the session makes the current session active again
+        var workerSession = session.copy();
+        var workerCtx = new BasicCommandContext();
+        workerCtx.setDatabase(workerSession);
+        workerCtx.setInputParameters(ctx.getInputParameters());
+        variables.forEach(workerCtx::setVariable);
+
+        runningWorkers.incrementAndGet();
+        try {
+          workers.add(
+              session
+                  .getSharedContext()
+                  .getYouTrackDB()
+                  .execute(() -> work(workerSession, workerCtx, session)));
+        } catch (RuntimeException e) {
+          runningWorkers.decrementAndGet();
+          workerSession.activateOnCurrentThread();
+          workerSession.close();
+          session.activateOnCurrentThread();
+          throw e;
+        }
+      }
+    } catch (RuntimeException e) {
+      close(ctx);
+      throw e;
+    }
+  }
+
+  private void work(
+      DatabaseSessionInternal workerSession,
+      CommandContext workerCtx,
+      DatabaseSessionInternal consumerSession) {
+    try {
+      workerSession.activateOnCurrentThread();
+      while (!cancelled) {
+        var taskIndex = nextTask.getAndIncrement();
+        if (taskIndex >= tasks.size()) {
+          break;
+        }
+
+        var stream = tasks.get(taskIndex).start(workerCtx, () -> cancelled);
+        try {
+          while (!cancelled && stream.hasNext(workerCtx)) {
+            publish(detach(stream.next(workerCtx), consumerSession));
+          }
+        } finally {
+          stream.close(workerCtx);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      error.compareAndSet(
+          null, new CommandInterruptedException("Parallel execution of the query is interrupted"));
+      cancelled = true;
+    } catch (RuntimeException | Error e) {
+      error.compareAndSet(null, e);
+      cancelled = true;
+    } finally {
+      try {
+        workerSession.activateOnCurrentThread();
+        workerSession.close();
+      } catch (RuntimeException e) {
+        LogManager.instance().warn(this, "Error during closing of the worker session", e);
+      } finally {
+        DatabaseRecordThreadLocal.instance().remove();
+        runningWorkers.decrementAndGet();
+      }
+    }
+  }
+
+  private void publish(Result result) throws InterruptedException {
+    while (!cancelled) {
+      if (queue.offer(result, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+        return;
+      }
+    }
+  }
+
+  private void checkError() {
+    var e = error.get();
+    if (e == null) {
+      return;
+    }
+
+    if (e instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    if (e instanceof Error err) {
+      throw err;
+    }
+    throw BaseException.wrapException(
+        new CommandExecutionException("Error during parallel execution of the query"), e);
+  }
+
+  /**
+   * Converts result produced by a worker into the result which does not reference records loaded
+   * by the worker session.
+   */
+  private static Result detach(Result result, DatabaseSessionInternal session) {
+    var rid = result.isRecord() ? result.getRecordId() : null;
+
+    ResultInternal detached;
+    if (rid != null && rid.isPersistent()) {
+      detached = new ResultInternal(session, rid);
+    } else {
+      detached = new ResultInternal(session);
+      for (var name : result.getPropertyNames()) {
+        detached.setProperty(name, detachValue(result.getProperty(name), session));
+      }
+    }
+
+    for (var key : result.getMetadataKeys()) {
+      detached.setMetadata(key, detachValue(result.getMetadata(key), session));
+    }
+    if (result instanceof ResultInternal resultInternal) {
+      for (var name : resultInternal.getTemporaryProperties()) {
+        detached.setTemporaryProperty(
+            name, detachValue(resultInternal.getTemporaryProperty(name), session));
+      }
+    }
+
+    return detached;
+  }
+
+  private static Object detachValue(Object value, DatabaseSessionInternal session) {
+    if (value instanceof Result result) {
+      var rid = result.isRecord() ? result.getRecordId() : null;
+      if (rid != null && rid.isPersistent()) {
+        return rid;
+      }
+      return detach(result, session);
+    }
+
+    if (value instanceof Identifiable identifiable) {
+      var rid = identifiable.getIdentity();
+      if (rid.isPersistent() || !(value instanceof Entity entity)) {
+        return rid;
+      }
+
+      var detached = new ResultInternal(session);
+      for (var name : entity.getPropertyNames()) {
+        detached.setProperty(name, detachValue(entity.getProperty(name), session));
+      }
+      return detached;
+    }
+
+    if (value instanceof List<?> list) {
+      var detached = new ArrayList<>(list.size());
+      for (var item : list) {
+        detached.add(detachValue(item, session));
+      }
+      return detached;
+    }
+
+    if (value instanceof Set<?> set) {
+      var detached = new LinkedHashSet<>();
+      for (var item : set) {
+        detached.add(detachValue(item, session));
+      }
+      return detached;
+    }
+
+    if (value instanceof Collection<?> collection) {
+      var detached = new ArrayList<>(collection.size());
+      for (var item : collection) {
+        detached.add(detachValue(item, session));
+      }
+      return detached;
+    }
+
+    if (value instanceof Map<?, ?> map) {
+      var detached = new LinkedHashMap<>();
+      for (var entry : map.entrySet()) {
+        detached.put(entry.getKey(), detachValue(entry.getValue(), session));
+      }
+      return detached;
+    }
+
+    return value;
+  }
+}
@@ -0,0 +1,296 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor.spill;
+
+import com.jetbrains.youtrack.db.api.config.ContextConfiguration;
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.query.Result;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.resultset.ExecutionStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+
+/**
+ * Sorts a stream of results that may not fit into the heap.
+ *
+ * <p>Results are accumulated in memory until the configured number of results is reached, then
+ * the buffer is sorted and written to a {@link ResultSpillFile} as a sorted run. Once all results
+ * are added, the runs and the rest of the in-memory buffer are merged lazily by
+ * {@link #sortedStream()} using a k-way merge. If the number of runs exceeds
+ * {@link GlobalConfiguration#QUERY_SPILL_MERGE_FACTOR} runs are merged in several passes, so the
+ * number of simultaneously open files stays bounded.
+ *
+ * <p>Sort is stable: results that are equal according to the comparator are returned in the order
+ * they were added.
+ */
+public final class ExternalResultSorter {
+
+  private final Comparator<Result> comparator;
+  private final long maxResultsInHeap;
+  private final int mergeFactor;
+  @Nullable
+  private final Integer maxResults;
+
+  @Nullable
+  private final DatabaseSessionInternal session;
+  @Nullable
+  private final ContextConfiguration configuration;
+
+  private List<Result> buffer = new ArrayList<>();
+  private final List<ResultSpillFile> runs = new ArrayList<>();
+
+  /**
+   * @param comparator       Comparator which defines the order of results.
+   * @param maxResultsInHeap Amount of results kept in heap before the buffer is spilled to disk.
+   * @param maxResults       If not <code>null</code> only the first <code>maxResults</code>
+   *                         results are returned, so only that amount of results is kept per
+   *                         sorted run.
+   * @param session          Session which is used to load records back from the spill files.
+   */
+  public ExternalResultSorter(
+      Comparator<Result> comparator,
+      long maxResultsInHeap,
+      @Nullable Integer maxResults,
+      @Nullable DatabaseSessionInternal session) {
+    if (maxResultsInHeap <= 0) {
+      throw new IllegalArgumentException(
+          "Amount of results kept in heap should be positive, but was " + maxResultsInHeap);
+    }
+
+    this.comparator = comparator;
+    this.maxResultsInHeap = maxResultsInHeap;
+    this.maxResults = maxResults;
+    this.session = session;
+    this.configuration = session == null ? null : session.getConfiguration();
+
+    var factor =
+        configuration == null
+            ? GlobalConfiguration.QUERY_SPILL_MERGE_FACTOR.getValueAsInteger()
+            : configuration.getValueAsInteger(GlobalConfiguration.QUERY_SPILL_MERGE_FACTOR);
+    this.mergeFactor = Math.max(factor, 2);
+  }
+
+  public void add(Result result) {
+    buffer.add(result);
+    if (buffer.size() >= maxResultsInHeap) {
+      spill();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if at least one sorted run was written to disk.
+   */
+  public boolean isSpilled() {
+    return !runs.isEmpty();
+  }
+
+  /**
+   * @return Number of sorted runs currently stored on disk.
+   */
+  public int getRunsCount() {
+    return runs.size();
+  }
+
+  /**
+   * Returns all added results in sorted order. Returned stream owns the spill files, so they are
+   * removed once the stream is closed. Sorter can not be used after the call of this method.
+   */
+  public ExecutionStream sortedStream() {
+    buffer.sort(comparator);
+    if (maxResults != null && buffer.size() > maxResults) {
+      buffer = new ArrayList<>(buffer.subList(0, maxResults));
+    }
+
+    if (runs.isEmpty()) {
+      var result = ExecutionStream.resultIterator(buffer.iterator());
+      buffer = null;
+      return result;
+    }
+
+    try {
+      while (runs.size() > mergeFactor) {
+        mergePass();
+      }
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+
+    var sources = new ArrayList<Iterator<Result>>(runs.size() + 1);
+    var readers = new ArrayList<ResultSpillFile.Reader>(runs.size());
+    try {
+      for (var run : runs) {
+        var reader = run.openReader(session);
+        readers.add(reader);
+        sources.add(new ReaderIterator(reader));
+      }
+    } catch (RuntimeException e) {
+      readers.forEach(ResultSpillFile.Reader::close);
+      close();
+      throw e;
+    }
+    sources.add(buffer.iterator());
+    buffer = null;
+
+    var files = new ArrayList<>(runs);
+    runs.clear();
+
+    var stream = ExecutionStream.resultIterator(new MergeIterator(sources, comparator));
+    if (maxResults != null) {
+      stream = stream.limit(maxResults);
+    }
+
+    return stream.onClose(
+        ctx -> {
+          readers.forEach(ResultSpillFile.Reader::close);
+          files.forEach(ResultSpillFile::delete);
+        });
+  }
+
+  /**
+   * Removes all spill files and releases the heap buffer.
+   */
+  public void close() {
+    runs.forEach(ResultSpillFile::delete);
+    runs.clear();
+    buffer = null;
+  }
+
+  private void spill() {
+    buffer.sort(comparator);
+
+    var run = ResultSpillFile.create(configuration);
+    runs.add(run);
+
+    var limit = maxResults == null ? buffer.size() : Math.min(maxResults, buffer.size());
+    for (var i = 0; i < limit; i++) {
+      run.append(buffer.get(i));
+    }
+    run.finishWriting();
+
+    buffer = new ArrayList<>();
+  }
+
+  /**
+   * Merges neighbouring groups of at most {@link #mergeFactor} runs into single runs. Neighbour
+   * runs are merged together to keep the sort stable.
+   */
+  private void mergePass() {
+    var merged = new ArrayList<ResultSpillFile>((runs.size() + mergeFactor - 1) / mergeFactor);
+    try {
+      for (var from = 0; from < runs.size(); from += mergeFactor) {
+        var group = runs.subList(from, Math.min(from + mergeFactor, runs.size()));
+        if (group.size() == 1) {
+          merged.add(group.get(0));
+          continue;
+        }
+
+        var readers = new ArrayList<ResultSpillFile.Reader>(group.size());
+        var target = ResultSpillFile.create(configuration);
+        merged.add(target);
+        try {
+          var sources = new ArrayList<Iterator<Result>>(group.size());
+          for (var run : group) {
+            var reader = run.openReader(session);
+            readers.add(reader);
+            sources.add(new ReaderIterator(reader));
+          }
+
+          var iterator = new MergeIterator(sources, comparator);
+          var written = 0L;
+          while (iterator.hasNext() && (maxResults == null || written < maxResults)) {
+            target.append(iterator.next());
+            written++;
+          }
+          target.finishWriting();
+        } finally {
+          readers.forEach(ResultSpillFile.Reader::close);
+        }
+
+        group.forEach(ResultSpillFile::delete);
+      }
+    } catch (RuntimeException e) {
+      merged.forEach(ResultSpillFile::delete);
+      throw e;
+    }
+
+    runs.clear();
+    runs.addAll(merged);
+  }
+
+  private static final class ReaderIterator implements Iterator<Result> {
+
+    private final ResultSpillFile.Reader reader;
+
+    private ReaderIterator(ResultSpillFile.Reader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return reader.hasNext();
+    }
+
+    @Override
+    public Result next() {
+      return reader.next();
+    }
+  }
+
+  /**
+   * K-way merge of sorted iterators. Ties are resolved by the index of the source iterator, which
+   * keeps the merge stable.
+   */
+  private static final class MergeIterator implements Iterator<Result> {
+
+    private final List<Iterator<Result>> sources;
+    private final PriorityQueue<Head> heads;
+
+    private MergeIterator(List<Iterator<Result>> sources, Comparator<Result> comparator) {
+      this.sources = sources;
+      this.heads =
+          new PriorityQueue<>(
+              Math.max(sources.size(), 1),
+              (a, b) -> {
+                var cmp = comparator.compare(a.result, b.result);
+                if (cmp != 0) {
+                  return cmp;
+                }
+                return Integer.compare(a.source, b.source);
+              });
+
+      for (var i = 0; i < sources.size(); i++) {
+        var source = sources.get(i);
+        if (source.hasNext()) {
+          heads.add(new Head(source.next(), i));
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public Result next() {
+      var head = heads.poll();
+      if (head == null) {
+        throw new IllegalStateException("All results are already merged");
+      }
+
+      var source = sources.get(head.source);
+      if (source.hasNext()) {
+        heads.add(new Head(source.next(), head.source));
+      }
+
+      return head.result;
+    }
+  }
+
+  private record Head(Result result, int source) {
+
+  }
+}
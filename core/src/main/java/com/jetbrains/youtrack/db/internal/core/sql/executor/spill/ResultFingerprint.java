@@ -0,0 +1,178 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor.spill;
+
+import com.jetbrains.youtrack.db.api.exception.BaseException;
+import com.jetbrains.youtrack.db.api.query.Result;
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.BytesContainer;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.VarIntSerializer;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.result.binary.ResultSerializerNetwork;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Compact binary representation of the properties of a {@link Result}, used instead of the result
+ * itself by operations which need to remember a lot of results, like DISTINCT.
+ *
+ * <p>Fingerprint contains names, types and values of all properties in the order they are
+ * returned by the result, so two results have equal fingerprints if they have the same properties
+ * with values of the same types. Elements of sets and entries of maps are sorted by their binary
+ * form, so their iteration order does not affect the fingerprint. Metadata and temporary
+ * properties are not included. Fingerprint is exact, it is not a hash, so equal fingerprints
+ * always mean equal results.
+ */
+public final class ResultFingerprint {
+
+  private static final ResultSerializerNetwork SERIALIZER = new ResultSerializerNetwork();
+
+  private final byte[] bytes;
+  private final int hash;
+
+  private ResultFingerprint(byte[] bytes) {
+    this.bytes = bytes;
+    this.hash = Arrays.hashCode(bytes);
+  }
+
+  /**
+   * Calculates fingerprint of the result.
+   *
+   * @return Fingerprint or <code>null</code> if some of the property values can not be serialized
+   * in binary form.
+   */
+  @Nullable
+  public static ResultFingerprint of(Result result) {
+    var container = new BytesContainer();
+    try {
+      var propertyNames = result.getPropertyNames();
+      VarIntSerializer.write(container, propertyNames.size());
+      for (var name : propertyNames) {
+        writeString(container, name);
+        if (!writeValue(container, result.getProperty(name))) {
+          return null;
+        }
+      }
+    } catch (BaseException | ClassCastException | UnsupportedOperationException e) {
+      return null;
+    }
+
+    return new ResultFingerprint(container.fitBytes());
+  }
+
+  /**
+   * Writes type and value to the container, nested results, collections and maps are written
+   * recursively.
+   *
+   * @return <code>false</code> if the value can not be serialized in binary form.
+   */
+  private static boolean writeValue(BytesContainer container, Object value) {
+    if (value == null) {
+      container.bytes[container.alloc(1)] = -1;
+      return true;
+    }
+
+    if (value instanceof Result nested) {
+      if (nested.isEntity()) {
+        container.bytes[container.alloc(1)] = (byte) PropertyType.LINK.getId();
+        SERIALIZER.serializeValue(
+            container, nested.getEntity().get().getIdentity(), PropertyType.LINK, null);
+        return true;
+      }
+
+      container.bytes[container.alloc(1)] = (byte) PropertyType.EMBEDDED.getId();
+      var propertyNames = nested.getPropertyNames();
+      VarIntSerializer.write(container, propertyNames.size());
+      for (var name : propertyNames) {
+        writeString(container, name);
+        if (!writeValue(container, nested.getProperty(name))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    var type = PropertyType.getTypeByValue(value);
+    if (type == null) {
+      return false;
+    }
+    container.bytes[container.alloc(1)] = (byte) type.getId();
+
+    if (value instanceof Set<?> set) {
+      List<byte[]> elements = new ArrayList<>(set.size());
+      for (var element : set) {
+        var elementContainer = new BytesContainer();
+        if (!writeValue(elementContainer, element)) {
+          return false;
+        }
+        elements.add(elementContainer.fitBytes());
+      }
+      writeSorted(container, elements);
+    } else if (value instanceof Map<?, ?> map) {
+      List<byte[]> entries = new ArrayList<>(map.size());
+      for (var entry : map.entrySet()) {
+        var entryContainer = new BytesContainer();
+        if (!writeValue(entryContainer, entry.getKey())
+            || !writeValue(entryContainer, entry.getValue())) {
+          return false;
+        }
+        entries.add(entryContainer.fitBytes());
+      }
+      writeSorted(container, entries);
+    } else if (value instanceof Collection<?> collection) {
+      VarIntSerializer.write(container, collection.size());
+      for (var element : collection) {
+        if (!writeValue(container, element)) {
+          return false;
+        }
+      }
+    } else {
+      SERIALIZER.serializeValue(container, value, type, null);
+    }
+    return true;
+  }
+
+  private static void writeSorted(BytesContainer container, List<byte[]> items) {
+    items.sort(Arrays::compareUnsigned);
+    VarIntSerializer.write(container, items.size());
+    for (var item : items) {
+      writeBytes(container, item);
+    }
+  }
+
+  private static void writeString(BytesContainer container, String value) {
+    writeBytes(container, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void writeBytes(BytesContainer container, byte[] bytes) {
+    VarIntSerializer.write(container, bytes.length);
+    System.arraycopy(bytes, 0, container.bytes, container.alloc(bytes.length), bytes.length);
+  }
+
+  public static ResultFingerprint fromBytes(byte[] bytes) {
+    return new ResultFingerprint(bytes);
+  }
+
+  public byte[] toBytes() {
+    return bytes;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ResultFingerprint that)) {
+      return false;
+    }
+    return hash == that.hash && Arrays.equals(bytes, that.bytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
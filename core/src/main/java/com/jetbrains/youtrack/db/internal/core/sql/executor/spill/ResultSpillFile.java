@@ -0,0 +1,262 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor.spill;
+
+import com.jetbrains.youtrack.db.api.config.ContextConfiguration;
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.exception.BaseException;
+import com.jetbrains.youtrack.db.api.exception.CommandExecutionException;
+import com.jetbrains.youtrack.db.api.query.Result;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.common.log.LogManager;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.BytesContainer;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.VarIntSerializer;
+import com.jetbrains.youtrack.db.internal.core.serialization.serializer.result.binary.ResultSerializerNetwork;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.ResultInternal;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.annotation.Nullable;
+
+/**
+ * Temporary file that holds a sequence of {@link Result}s spilled to disk by memory-intensive
+ * execution steps.
+ *
+ * <p>Results that represent persistent (or transaction-bound) records are stored as record ids
+ * and are loaded again lazily once read back, projections are stored using
+ * {@link ResultSerializerNetwork}. Temporary properties and metadata are preserved in both cases.
+ *
+ * <p>The file is written once through {@link #append(Result)}, sealed by {@link #finishWriting()}
+ * and then can be read any number of times through {@link #openReader(DatabaseSessionInternal)}.
+ * Instances are not thread safe.
+ */
+public final class ResultSpillFile implements AutoCloseable {
+
+  private static final byte PROJECTION = 0;
+  private static final byte RECORD = 1;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ResultSerializerNetwork serializer = new ResultSerializerNetwork();
+  private final Path path;
+
+  private DataOutputStream output;
+  private long size;
+
+  private ResultSpillFile(Path path) throws IOException {
+    this.path = path;
+    this.output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+  }
+
+  /**
+   * Creates new empty spill file in the directory configured by
+   * {@link GlobalConfiguration#QUERY_SPILL_DIRECTORY}, or in the JVM temporary directory if the
+   * setting is absent.
+   */
+  public static ResultSpillFile create(@Nullable ContextConfiguration configuration) {
+    var dir =
+        configuration == null
+            ? GlobalConfiguration.QUERY_SPILL_DIRECTORY.getValueAsString()
+            : configuration.getValueAsString(GlobalConfiguration.QUERY_SPILL_DIRECTORY);
+    try {
+      Path directory;
+      if (dir == null || dir.isEmpty()) {
+        directory = Paths.get(System.getProperty("java.io.tmpdir"));
+      } else {
+        directory = Paths.get(dir);
+        Files.createDirectories(directory);
+      }
+
+      var path = Files.createTempFile(directory, "ytdb-query-spill-", ".tmp");
+      return new ResultSpillFile(path);
+    } catch (IOException e) {
+      throw BaseException.wrapException(
+          new CommandExecutionException("Can not create temporary file to spill query results"),
+          e);
+    }
+  }
+
+  public void append(Result result) {
+    if (output == null) {
+      throw new IllegalStateException("Spill file " + path + " is already sealed");
+    }
+
+    var bytes = new BytesContainer();
+    var identity = result.isRecord() ? result.getRecordId() : null;
+
+    var extra = new ResultInternal(null);
+    if (result instanceof ResultInternal resultInternal) {
+      for (var name : resultInternal.getTemporaryProperties()) {
+        extra.setProperty(name, resultInternal.getTemporaryProperty(name));
+      }
+    }
+
+    if (identity != null && identity.getClusterPosition() != RID.CLUSTER_POS_INVALID) {
+      bytes.bytes[bytes.alloc(1)] = RECORD;
+      VarIntSerializer.write(bytes, identity.getClusterId());
+      VarIntSerializer.write(bytes, identity.getClusterPosition());
+
+      for (var key : result.getMetadataKeys()) {
+        extra.setMetadata(key, result.getMetadata(key));
+      }
+    } else {
+      bytes.bytes[bytes.alloc(1)] = PROJECTION;
+      serializer.serialize(result, bytes);
+    }
+    serializer.serialize(extra, bytes);
+
+    try {
+      output.writeInt(bytes.offset);
+      output.write(bytes.bytes, 0, bytes.offset);
+    } catch (IOException e) {
+      throw BaseException.wrapException(
+          new CommandExecutionException("Error during writing of spill file " + path), e);
+    }
+
+    size++;
+  }
+
+  /**
+   * Flushes all buffered data and closes the file for writing.
+   */
+  public void finishWriting() {
+    if (output == null) {
+      return;
+    }
+
+    try {
+      output.close();
+    } catch (IOException e) {
+      throw BaseException.wrapException(
+          new CommandExecutionException("Error during writing of spill file " + path), e);
+    } finally {
+      output = null;
+    }
+  }
+
+  /**
+   * @return number of results stored in this file.
+   */
+  public long size() {
+    return size;
+  }
+
+  public Reader openReader(DatabaseSessionInternal session) {
+    finishWriting();
+    try {
+      return new Reader(session);
+    } catch (IOException e) {
+      throw BaseException.wrapException(
+          new CommandExecutionException("Error during opening of spill file " + path), e);
+    }
+  }
+
+  /**
+   * Removes the file from disk, all readers opened for this file should be closed before.
+   */
+  public void delete() {
+    if (output != null) {
+      try {
+        output.close();
+      } catch (IOException e) {
+        LogManager.instance().warn(this, "Error during closing of spill file %s", e, path);
+      }
+      output = null;
+    }
+
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LogManager.instance().warn(this, "Can not delete spill file %s", e, path);
+    }
+  }
+
+  @Override
+  public void close() {
+    delete();
+  }
+
+  @Override
+  public String toString() {
+    return "ResultSpillFile{" + "path=" + path + ", size=" + size + '}';
+  }
+
+  /**
+   * Sequential reader of the results stored in the spill file.
+   */
+  public final class Reader implements AutoCloseable {
+
+    private final DatabaseSessionInternal session;
+    private final DataInputStream input;
+    private long read;
+
+    private Reader(DatabaseSessionInternal session) throws IOException {
+      this.session = session;
+      this.input =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+    }
+
+    public boolean hasNext() {
+      return read < size;
+    }
+
+    public ResultInternal next() {
+      if (read >= size) {
+        throw new IllegalStateException("All results of spill file " + path + " are read");
+      }
+
+      byte[] content;
+      try {
+        var length = input.readInt();
+        content = new byte[length];
+        input.readFully(content);
+      } catch (EOFException e) {
+        throw BaseException.wrapException(
+            new CommandExecutionException("Spill file " + path + " is truncated"), e);
+      } catch (IOException e) {
+        throw BaseException.wrapException(
+            new CommandExecutionException("Error during reading of spill file " + path), e);
+      }
+      read++;
+
+      var bytes = new BytesContainer(content);
+      var kind = bytes.bytes[bytes.offset];
+      bytes.skip(1);
+
+      ResultInternal result;
+      if (kind == RECORD) {
+        var clusterId = VarIntSerializer.readAsInteger(bytes);
+        var clusterPosition = VarIntSerializer.readAsLong(bytes);
+        result = new ResultInternal(session, new RecordId(clusterId, clusterPosition));
+      } else {
+        result = serializer.deserialize(session, bytes);
+      }
+
+      var extra = serializer.deserialize(session, bytes);
+      for (var name : extra.getPropertyNames()) {
+        result.setTemporaryProperty(name, extra.getProperty(name));
+      }
+      for (var key : extra.getMetadataKeys()) {
+        result.setMetadata(key, extra.getMetadata(key));
+      }
+
+      return result;
+    }
+
+    @Override
+    public void close() {
+      try {
+        input.close();
+      } catch (IOException e) {
+        LogManager.instance().warn(this, "Error during closing of spill file %s", e, path);
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor.spill;
+
+import com.jetbrains.youtrack.db.api.config.ContextConfiguration;
+import com.jetbrains.youtrack.db.api.query.Result;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Hash partitioned spill files of a single execution of a memory-intensive step, like GROUP BY or
+ * DISTINCT.
+ *
+ * <p>Results are split between the files of a {@link Writer} by the hash of their keys, so every
+ * partition holds a disjoint subset of keys and can be processed separately. Partitions which are
+ * still too big are written again by a writer of the next level, which uses a different hash
+ * function. Partitions on {@link #MAX_LEVEL} are not partitioned any more.
+ *
+ * @param <T> Type of the attribute of the writer which is needed to process its partitions.
+ */
+public final class SpillPartitions<T> {
+
+  /**
+   * Maximum depth of recursive partitioning. Partitions on the last level are processed in heap
+   * regardless of their size.
+   */
+  public static final int MAX_LEVEL = 4;
+
+  @Nullable
+  private final ContextConfiguration configuration;
+  private final int partitionsCount;
+
+  private final Deque<Partition<T>> pendingPartitions = new ArrayDeque<>();
+  private final List<ResultSpillFile> files = new ArrayList<>();
+
+  /**
+   * @param configuration   Configuration of the database which defines the directory of spill
+   *                        files.
+   * @param partitionsCount Amount of partitions created by a single writer.
+   */
+  public SpillPartitions(@Nullable ContextConfiguration configuration, int partitionsCount) {
+    this.configuration = configuration;
+    this.partitionsCount = Math.max(partitionsCount, 2);
+  }
+
+  /**
+   * Returns number from <code>0</code> to <code>partitions - 1</code> which is used to split keys
+   * between partitions. Different levels give independent distributions, so partitions can be
+   * split again.
+   */
+  public static int partition(int hash, int level, int partitions) {
+    // murmur3 finalizer seeded by level
+    int h = hash ^ (level * 0x9E3779B9);
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return Math.floorMod(h, partitions);
+  }
+
+  public Writer newWriter(int level, T attribute) {
+    return new Writer(level, attribute);
+  }
+
+  /**
+   * @return Next partition to process or <code>null</code> if all partitions are processed. The
+   * file of the partition should be deleted by the caller once it is read.
+   */
+  @Nullable
+  public Partition<T> poll() {
+    return pendingPartitions.poll();
+  }
+
+  public boolean isEmpty() {
+    return pendingPartitions.isEmpty();
+  }
+
+  /**
+   * Deletes all files, including the files of partitions which were not processed.
+   */
+  public void close() {
+    pendingPartitions.clear();
+    files.forEach(ResultSpillFile::delete);
+    files.clear();
+  }
+
+  /**
+   * Writes results of a single level of partitioning.
+   */
+  public final class Writer {
+
+    private final int level;
+    private final T attribute;
+    private final ResultSpillFile[] partitionFiles;
+
+    private Writer(int level, T attribute) {
+      this.level = level;
+      this.attribute = attribute;
+      this.partitionFiles = new ResultSpillFile[partitionsCount];
+    }
+
+    public T getAttribute() {
+      return attribute;
+    }
+
+    public void append(int hash, Result result) {
+      var index = partition(hash, level, partitionFiles.length);
+      var file = partitionFiles[index];
+      if (file == null) {
+        file = ResultSpillFile.create(configuration);
+        files.add(file);
+        partitionFiles[index] = file;
+      }
+      file.append(result);
+    }
+
+    /**
+     * Seals the files of the writer and adds them to the partitions which are waiting to be
+     * processed.
+     */
+    public void finish() {
+      for (var file : partitionFiles) {
+        if (file != null) {
+          file.finishWriting();
+          pendingPartitions.add(new Partition<>(file, level, attribute));
+        }
+      }
+    }
+  }
+
+  public record Partition<T>(ResultSpillFile file, int level, T attribute) {
+
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ *
+ *  *  Copyright YouTrackDB
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *
+ *
+ */
+
+package com.jetbrains.youtrack.db.internal.core.sql.functions;
+
+/**
+ * Aggregate function whose intermediate state can be extracted and merged into another instance
+ * of the same function. It allows to aggregate parts of the data independently, for example when
+ * groups of GROUP BY are spilled to disk and merged later.
+ */
+public interface MergeableSQLFunction extends SQLFunction {
+
+  /**
+   * Returns intermediate state of the aggregation. The state should consist only of values that
+   * can be stored as properties of a query result (numbers, strings, dates, lists and so on).
+   *
+   * @return intermediate state of the aggregation, can be null.
+   */
+  Object getPartialState();
+
+  /**
+   * Merges intermediate state returned by {@link #getPartialState()} of another instance of the
+   * same function into the current one.
+   *
+   * @param partialState intermediate state to merge, can be null.
+   */
+  void mergePartialState(Object partialState);
+}
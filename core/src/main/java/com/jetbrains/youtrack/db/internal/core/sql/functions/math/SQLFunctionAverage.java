@@ -24,8 +24,10 @@ import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
 import com.jetbrains.youtrack.db.api.DatabaseSession;
 import com.jetbrains.youtrack.db.api.record.Identifiable;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.core.sql.functions.MergeableSQLFunction;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +36,7 @@ import java.util.Map;
  * Compute the average value for a field. Uses the context to save the last average number. When
  * different Number class are used, take the class with most precision.
  */
-public class SQLFunctionAverage extends SQLFunctionMathAbstract {
+public class SQLFunctionAverage extends SQLFunctionMathAbstract implements MergeableSQLFunction {
 
   public static final String NAME = "avg";
 
@@ -99,6 +101,35 @@ public class SQLFunctionAverage extends SQLFunctionMathAbstract {
     }
   }
 
+  /**
+   * @return list of two items: sum of values (can be null) and amount of summed values.
+   */
+  @Override
+  public Object getPartialState() {
+    var state = new ArrayList<>(2);
+    state.add(sum);
+    state.add(total);
+    return state;
+  }
+
+  @Override
+  public void mergePartialState(Object partialState) {
+    if (partialState == null) {
+      return;
+    }
+
+    var state = (List<?>) partialState;
+    var partialSum = (Number) state.get(0);
+    if (partialSum != null) {
+      if (sum == null) {
+        sum = partialSum;
+      } else {
+        sum = PropertyType.increment(sum, partialSum);
+      }
+    }
+    total += ((Number) state.get(1)).intValue();
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Object mergeDistributedResult(final List<Object> resultsToMerge) {
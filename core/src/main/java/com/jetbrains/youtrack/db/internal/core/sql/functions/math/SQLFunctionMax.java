@@ -23,6 +23,7 @@ import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
 import com.jetbrains.youtrack.db.api.DatabaseSession;
 import com.jetbrains.youtrack.db.api.record.Identifiable;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.core.sql.functions.MergeableSQLFunction;
 import java.util.Collection;
 import java.util.List;
 
@@ -30,7 +31,7 @@ import java.util.List;
  * Compute the maximum value for a field. Uses the context to save the last maximum number. When
  * different Number class are used, take the class with most precision.
  */
-public class SQLFunctionMax extends SQLFunctionMathAbstract {
+public class SQLFunctionMax extends SQLFunctionMathAbstract implements MergeableSQLFunction {
 
   public static final String NAME = "max";
 
@@ -73,23 +74,7 @@ public class SQLFunctionMax extends SQLFunctionMathAbstract {
     // what to do with the result, for current record, depends on how this function has been invoked
     // for an unique result aggregated from all output records
     if (aggregateResults() && max != null) {
-      if (context == null)
-      // FIRST TIME
-      {
-        context = max;
-      } else {
-        if (context instanceof Number && max instanceof Number) {
-          final Number[] casted = PropertyType.castComparableNumber((Number) context, (Number) max);
-          context = casted[0];
-          max = casted[1];
-        }
-        if (((Comparable<Object>) context).compareTo(max) < 0)
-        // BIGGER
-        {
-          context = max;
-        }
-      }
-
+      merge(max);
       return null;
     }
 
@@ -97,6 +82,26 @@ public class SQLFunctionMax extends SQLFunctionMathAbstract {
     return max;
   }
 
+  @SuppressWarnings("unchecked")
+  private void merge(Object max) {
+    if (context == null)
+    // FIRST TIME
+    {
+      context = max;
+    } else {
+      if (context instanceof Number && max instanceof Number) {
+        final Number[] casted = PropertyType.castComparableNumber((Number) context, (Number) max);
+        context = casted[0];
+        max = casted[1];
+      }
+      if (((Comparable<Object>) context).compareTo(max) < 0)
+      // BIGGER
+      {
+        context = max;
+      }
+    }
+  }
+
   public boolean aggregateResults() {
     // LET definitions (contain $current) does not require results aggregation
     return ((configuredParameters.length == 1)
@@ -112,6 +117,18 @@ public class SQLFunctionMax extends SQLFunctionMathAbstract {
     return context;
   }
 
+  @Override
+  public Object getPartialState() {
+    return context;
+  }
+
+  @Override
+  public void mergePartialState(Object partialState) {
+    if (partialState != null) {
+      merge(partialState);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Object mergeDistributedResult(List<Object> resultsToMerge) {
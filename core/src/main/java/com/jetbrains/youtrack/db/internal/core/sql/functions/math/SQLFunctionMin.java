@@ -23,6 +23,7 @@ import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
 import com.jetbrains.youtrack.db.api.DatabaseSession;
 import com.jetbrains.youtrack.db.api.record.Identifiable;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.core.sql.functions.MergeableSQLFunction;
 import java.util.Collection;
 import java.util.List;
 
@@ -30,7 +31,7 @@ import java.util.List;
  * Compute the minimum value for a field. Uses the context to save the last minimum number. When
  * different Number class are used, take the class with most precision.
  */
-public class SQLFunctionMin extends SQLFunctionMathAbstract {
+public class SQLFunctionMin extends SQLFunctionMathAbstract implements MergeableSQLFunction {
 
   public static final String NAME = "min";
 
@@ -73,24 +74,7 @@ public class SQLFunctionMin extends SQLFunctionMathAbstract {
     // what to do with the result, for current record, depends on how this function has been invoked
     // for an unique result aggregated from all output records
     if (aggregateResults() && min != null) {
-      if (context == null)
-      // FIRST TIME
-      {
-        context = min;
-      } else {
-        if (context instanceof Number && min instanceof Number) {
-          final Number[] casted = PropertyType.castComparableNumber((Number) context, (Number) min);
-          context = casted[0];
-          min = casted[1];
-        }
-
-        if (((Comparable<Object>) context).compareTo(min) > 0)
-        // MINOR
-        {
-          context = min;
-        }
-      }
-
+      merge(min);
       return null;
     }
 
@@ -98,6 +82,27 @@ public class SQLFunctionMin extends SQLFunctionMathAbstract {
     return min;
   }
 
+  @SuppressWarnings("unchecked")
+  private void merge(Object min) {
+    if (context == null)
+    // FIRST TIME
+    {
+      context = min;
+    } else {
+      if (context instanceof Number && min instanceof Number) {
+        final Number[] casted = PropertyType.castComparableNumber((Number) context, (Number) min);
+        context = casted[0];
+        min = casted[1];
+      }
+
+      if (((Comparable<Object>) context).compareTo(min) > 0)
+      // MINOR
+      {
+        context = min;
+      }
+    }
+  }
+
   public boolean aggregateResults() {
     // LET definitions (contain $current) does not require results aggregation
     return ((configuredParameters.length == 1)
@@ -113,6 +118,18 @@ public class SQLFunctionMin extends SQLFunctionMathAbstract {
     return context;
   }
 
+  @Override
+  public Object getPartialState() {
+    return context;
+  }
+
+  @Override
+  public void mergePartialState(Object partialState) {
+    if (partialState != null) {
+      merge(partialState);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Object mergeDistributedResult(List<Object> resultsToMerge) {
@@ -24,13 +24,14 @@ import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
 import com.jetbrains.youtrack.db.api.DatabaseSession;
 import com.jetbrains.youtrack.db.api.record.Identifiable;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.core.sql.functions.MergeableSQLFunction;
 import java.util.List;
 
 /**
  * Computes the sum of field. Uses the context to save the last sum number. When different Number
  * class are used, take the class with most precision.
  */
-public class SQLFunctionSum extends SQLFunctionMathAbstract {
+public class SQLFunctionSum extends SQLFunctionMathAbstract implements MergeableSQLFunction {
 
   public static final String NAME = "sum";
 
@@ -89,6 +90,16 @@ public class SQLFunctionSum extends SQLFunctionMathAbstract {
     return sum == null ? 0 : sum;
   }
 
+  @Override
+  public Object getPartialState() {
+    return sum;
+  }
+
+  @Override
+  public void mergePartialState(Object partialState) {
+    sum((Number) partialState);
+  }
+
   @Override
   public Object mergeDistributedResult(List<Object> resultsToMerge) {
     Number sum = null;
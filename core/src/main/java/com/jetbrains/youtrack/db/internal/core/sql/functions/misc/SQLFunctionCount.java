@@ -22,6 +22,7 @@ package com.jetbrains.youtrack.db.internal.core.sql.functions.misc;
 import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
 import com.jetbrains.youtrack.db.api.DatabaseSession;
 import com.jetbrains.youtrack.db.api.record.Identifiable;
+import com.jetbrains.youtrack.db.internal.core.sql.functions.MergeableSQLFunction;
 import com.jetbrains.youtrack.db.internal.core.sql.functions.math.SQLFunctionMathAbstract;
 import java.util.List;
 
@@ -30,7 +31,7 @@ import java.util.List;
  * the context to save the counter number. When different Number class are used, take the class with
  * most precision.
  */
-public class SQLFunctionCount extends SQLFunctionMathAbstract {
+public class SQLFunctionCount extends SQLFunctionMathAbstract implements MergeableSQLFunction {
 
   public static final String NAME = "count";
 
@@ -71,6 +72,18 @@ public class SQLFunctionCount extends SQLFunctionMathAbstract {
     total = ((Number) iResult).longValue();
   }
 
+  @Override
+  public Object getPartialState() {
+    return total;
+  }
+
+  @Override
+  public void mergePartialState(Object partialState) {
+    if (partialState != null) {
+      total += ((Number) partialState).longValue();
+    }
+  }
+
   @Override
   public Object mergeDistributedResult(List<Object> resultsToMerge) {
     long total = 0;
@@ -1,42 +1,66 @@
 package com.jetbrains.youtrack.db.internal.core.sql.parser;
 
+import com.jetbrains.youtrack.db.api.schema.SchemaClass;
+import com.jetbrains.youtrack.db.api.schema.SchemaProperty;
+import com.jetbrains.youtrack.db.internal.common.collection.ConcurrentLRUCache;
+import com.jetbrains.youtrack.db.internal.common.log.LogManager;
 import com.jetbrains.youtrack.db.internal.core.command.BasicCommandContext;
 import com.jetbrains.youtrack.db.internal.core.command.CommandContext;
 import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.internal.core.config.StorageClusterConfiguration;
 import com.jetbrains.youtrack.db.internal.core.config.StorageConfiguration;
+import com.jetbrains.youtrack.db.internal.core.config.StorageEntryConfiguration;
 import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
 import com.jetbrains.youtrack.db.internal.core.db.MetadataUpdateListener;
+import com.jetbrains.youtrack.db.internal.core.index.Index;
 import com.jetbrains.youtrack.db.internal.core.index.IndexManagerAbstract;
+import com.jetbrains.youtrack.db.internal.core.metadata.schema.ImmutableSchema;
+import com.jetbrains.youtrack.db.internal.core.metadata.schema.SchemaClassInternal;
 import com.jetbrains.youtrack.db.internal.core.metadata.schema.SchemaShared;
 import com.jetbrains.youtrack.db.api.query.ExecutionPlan;
 import com.jetbrains.youtrack.db.internal.core.sql.executor.InternalExecutionPlan;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import javax.management.ObjectName;
 
 /**
  * This class is an LRU cache for already prepared SQL execution plans. It stores itself in the
  * storage as a resource. It also acts an an entry point for the SQL executor.
+ *
+ * <p>Cached plans can be read concurrently without locks. Every plan remembers the definitions of
+ * the classes, indexes and clusters its statement and subqueries read from, as found in the parsed
+ * statement, so on schema and index changes only the plans which depend on the changed classes or
+ * indexes are removed from the cache.
  */
-public class ExecutionPlanCache implements MetadataUpdateListener {
+public class ExecutionPlanCache implements MetadataUpdateListener, QueryCacheMXBean {
 
-  Map<String, InternalExecutionPlan> map;
-  int mapSize;
+  private final ConcurrentLRUCache<String, CachedPlan> map;
 
-  protected long lastInvalidation = -1;
-  protected long lastGlobalTimeout = GlobalConfiguration.COMMAND_TIMEOUT.getValueAsLong();
+  protected volatile long lastInvalidation = -1;
+  protected volatile long lastGlobalTimeout = GlobalConfiguration.COMMAND_TIMEOUT.getValueAsLong();
+
+  private ObjectName mBeanName;
+
+  /**
+   * Storage settings and cluster ids seen by the last storage configuration update, used to find
+   * out what has been changed by the next one.
+   */
+  private String lastStorageSettings;
+  private Map<String, Integer> lastClusters;
 
   /**
    * @param size the size of the cache
    */
   public ExecutionPlanCache(int size) {
-    this.mapSize = size;
-    map =
-        new LinkedHashMap<>(size) {
-          protected boolean removeEldestEntry(
-              final Map.Entry<String, InternalExecutionPlan> eldest) {
-            return super.size() > mapSize;
-          }
-        };
+    map = new ConcurrentLRUCache<>(size);
   }
 
   public static long getLastInvalidation(DatabaseSessionInternal db) {
@@ -45,9 +69,7 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
     }
 
     ExecutionPlanCache resource = db.getSharedContext().getExecutionPlanCache();
-    synchronized (resource) {
-      return resource.lastInvalidation;
-    }
+    return resource.lastInvalidation;
   }
 
   /**
@@ -58,9 +80,7 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
     if (GlobalConfiguration.STATEMENT_CACHE_SIZE.getValueAsInteger() == 0) {
       return false;
     }
-    synchronized (map) {
-      return map.containsKey(statement);
-    }
+    return map.containsKey(statement);
   }
 
   /**
@@ -86,7 +106,14 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
     return result;
   }
 
-  public static void put(String statement, ExecutionPlan plan, DatabaseSessionInternal db) {
+  /**
+   * @param statement the SQL statement, used as the key of the plan
+   * @param parsed    the parsed statement, used to find out what the plan depends on
+   * @param plan      the execution plan of the statement
+   * @param db        the current DB instance
+   */
+  public static void put(
+      String statement, SQLStatement parsed, ExecutionPlan plan, DatabaseSessionInternal db) {
     if (db == null) {
       throw new IllegalArgumentException("DB cannot be null");
     }
@@ -95,10 +122,11 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
     }
 
     ExecutionPlanCache resource = db.getSharedContext().getExecutionPlanCache();
-    resource.putInternal(statement, plan, db);
+    resource.putInternal(statement, parsed, plan, db);
   }
 
-  public void putInternal(String statement, ExecutionPlan plan, DatabaseSessionInternal db) {
+  public void putInternal(
+      String statement, SQLStatement parsed, ExecutionPlan plan, DatabaseSessionInternal db) {
     if (statement == null) {
       return;
     }
@@ -107,15 +135,31 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
       return;
     }
 
-    synchronized (map) {
-      InternalExecutionPlan internal = (InternalExecutionPlan) plan;
-      BasicCommandContext ctx = new BasicCommandContext();
-      ctx.setDatabase(db);
-      internal = internal.copy(ctx);
-      // this copy is never used, so it has to be closed to free resources
-      internal.close();
-      map.put(statement, internal);
+    InternalExecutionPlan internal = (InternalExecutionPlan) plan;
+    BasicCommandContext ctx = new BasicCommandContext();
+    ctx.setDatabase(db);
+    internal = internal.copy(ctx);
+    // this copy is never used, so it has to be closed to free resources
+    internal.close();
+
+    Map<String, String> dependencies = null;
+    ImmutableSchema schema = db.getMetadata().getImmutableSchemaSnapshot();
+    if (schema != null) {
+      try {
+        Set<String> names = dependencies(parsed);
+        if (names != null) {
+          dependencies = new HashMap<>();
+          for (String name : names) {
+            dependencies.put(name, signature(db, schema, name));
+          }
+        }
+      } catch (RuntimeException e) {
+        LogManager.instance()
+            .debug(this, "Can not calculate dependencies of execution plan for %s", e, statement);
+        dependencies = null;
+      }
     }
+    map.put(statement, new CachedPlan(internal, dependencies));
   }
 
   /**
@@ -140,13 +184,11 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
     if (GlobalConfiguration.STATEMENT_CACHE_SIZE.getValueAsInteger() == 0) {
       return null;
     }
-    synchronized (map) {
-      // LRU
-      result = map.remove(statement);
-      if (result != null) {
-        map.put(statement, result);
-        result = result.copy(ctx);
-      }
+    CachedPlan cached = map.get(statement);
+    if (cached != null) {
+      result = cached.plan().copy(ctx);
+    } else {
+      result = null;
     }
 
     return result;
@@ -158,24 +200,240 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
       return;
     }
 
-    synchronized (this) {
-      synchronized (map) {
-        map.clear();
+    map.clear();
+    lastInvalidation = System.currentTimeMillis();
+  }
+
+  /**
+   * Removes from the cache only the plans which depend on classes or indexes whose definitions
+   * differ from the ones the plans were created for.
+   */
+  private void invalidate(@Nullable DatabaseSessionInternal session,
+      @Nullable ImmutableSchema schema) {
+    if (session == null || schema == null
+        || GlobalConfiguration.STATEMENT_CACHE_SIZE.getValueAsInteger() == 0) {
+      invalidate();
+      return;
+    }
+
+    Map<String, String> signatures = new HashMap<>();
+    try {
+      map.removeIf(
+          (statement, cached) -> {
+            if (cached.dependencies() == null) {
+              return true;
+            }
+            for (Map.Entry<String, String> dependency : cached.dependencies().entrySet()) {
+              String signature =
+                  signatures.computeIfAbsent(
+                      dependency.getKey(), name -> signature(session, schema, name));
+              if (!signature.equals(dependency.getValue())) {
+                return true;
+              }
+            }
+            return false;
+          });
+    } catch (RuntimeException e) {
+      LogManager.instance().debug(this, "Can not invalidate execution plans selectively", e);
+      map.clear();
+    }
+    lastInvalidation = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns names of the classes, indexes and clusters which the statement and its subqueries read
+   * from. Subqueries are found in the same way the planner finds them to plan them together with
+   * the statement.
+   *
+   * @return the names or <code>null</code> if some targets are known only at execution time or
+   * the statement is not supported.
+   */
+  @Nullable
+  static Set<String> dependencies(@Nullable SQLStatement statement) {
+    Set<String> result = new HashSet<>();
+    return statement != null && addDependencies(statement, result) ? result : null;
+  }
+
+  private static boolean addDependencies(SQLStatement statement, Set<String> result) {
+    // subqueries are extracted from a copy, as extraction replaces them with LET variables
+    SubQueryCollector collector = new SubQueryCollector();
+    if (statement instanceof SQLSelectStatement select) {
+      SQLSelectStatement copy = select.copy();
+      if (copy.getTarget() != null && !addDependencies(copy.getTarget().getItem(), result)) {
+        return false;
       }
-      lastInvalidation = System.currentTimeMillis();
+      if (copy.getLetClause() != null) {
+        for (SQLLetItem item : copy.getLetClause().getItems()) {
+          if (item.getQuery() != null) {
+            collector.addStatement(item.getQuery());
+          }
+        }
+        copy.getLetClause().extractSubQueries(collector);
+      }
+      if (copy.getWhereClause() != null) {
+        copy.getWhereClause().extractSubQueries(collector);
+      }
+      if (copy.getProjection() != null) {
+        copy.getProjection().extractSubQueries(collector);
+      }
+      if (copy.getOrderBy() != null) {
+        copy.getOrderBy().extractSubQueries(collector);
+      }
+      if (copy.getGroupBy() != null) {
+        copy.getGroupBy().extractSubQueries(collector);
+      }
+    } else if (statement instanceof SQLCreateEdgeStatement createEdge) {
+      // class of the target cluster is resolved by the planner
+      if (createEdge.getTargetClass() == null && createEdge.getTargetClusterName() != null) {
+        return false;
+      }
+      addEdgeTarget(createEdge.getTargetClass(), createEdge.getTargetClusterName(), result);
+    } else if (statement instanceof SQLDeleteEdgeStatement deleteEdge) {
+      if (deleteEdge.getClassName() == null && deleteEdge.getTargetClusterName() != null) {
+        return false;
+      }
+      addEdgeTarget(deleteEdge.getClassName(), deleteEdge.getTargetClusterName(), result);
+      if (deleteEdge.getWhereClause() != null) {
+        deleteEdge.getWhereClause().copy().extractSubQueries(collector);
+      }
+    } else {
+      return false;
+    }
+
+    for (SQLStatement subQuery : collector.getSubQueries().values()) {
+      if (!addDependencies(subQuery, result)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean addDependencies(SQLFromItem target, Set<String> result) {
+    if (target.getIdentifier() != null) {
+      result.add(target.getIdentifier().getStringValue());
+    } else if (target.getIndex() != null) {
+      result.add(target.getIndex().getIndexName());
+    } else if (target.getCluster() != null) {
+      if (target.getCluster().getClusterName() != null) {
+        result.add(target.getCluster().getClusterName());
+      }
+    } else if (target.getClusterList() != null) {
+      for (SQLCluster cluster : target.getClusterList().toListOfClusters()) {
+        if (cluster.getClusterName() != null) {
+          result.add(cluster.getClusterName());
+        }
+      }
+    } else if (target.getStatement() != null) {
+      return addDependencies(target.getStatement(), result);
+    } else if (target.getRids() == null || target.getRids().isEmpty()) {
+      // input parameters, functions and metadata are resolved at execution time
+      return false;
+    }
+    return true;
+  }
+
+  private static void addEdgeTarget(
+      @Nullable SQLIdentifier className, @Nullable SQLIdentifier clusterName, Set<String> result) {
+    result.add(className == null ? "E" : className.getStringValue());
+    if (clusterName != null) {
+      result.add(clusterName.getStringValue());
     }
   }
 
+  /**
+   * Returns the definition of the class and of the index with the given name in the form which
+   * changes whenever something that may affect execution planning changes: properties, indexes,
+   * clusters and hierarchy of the class and indexes of its subclasses. Empty string means there is
+   * no such class or index.
+   */
+  private static String signature(
+      DatabaseSessionInternal session, ImmutableSchema schema, String name) {
+    StringBuilder builder = new StringBuilder();
+
+    SchemaClassInternal clazz = schema.getClassInternal(name);
+    if (clazz != null) {
+      builder.append("class:").append(clazz.getName());
+      builder.append(clazz.isAbstract() ? ",abstract" : "");
+      builder.append(clazz.isStrictMode() ? ",strict" : "");
+      builder.append(",superClasses:").append(new TreeSet<>(clazz.getSuperClassesNames()));
+      builder.append(",clusters:").append(sorted(clazz.getClusterIds()));
+      builder.append(",polymorphicClusters:").append(sorted(clazz.getPolymorphicClusterIds()));
+
+      Set<String> properties = new TreeSet<>();
+      for (SchemaProperty property : clazz.properties(session)) {
+        properties.add(
+            property.getName()
+                + ":"
+                + property.getType()
+                + ":"
+                + property.getLinkedType()
+                + ":"
+                + (property.getLinkedClass() == null ? null : property.getLinkedClass().getName())
+                + ":"
+                + (property.getCollate() == null ? null : property.getCollate().getName()));
+      }
+      builder.append(",properties:").append(properties);
+
+      Set<String> indexes = new TreeSet<>();
+      for (Index index : clazz.getIndexesInternal(session)) {
+        indexes.add(indexSignature(index));
+      }
+      builder.append(",indexes:").append(indexes);
+
+      // queries against the class may be planned with indexes of its subclasses
+      Set<String> subclassIndexes = new TreeSet<>();
+      for (SchemaClass subclass : clazz.getAllSubclasses()) {
+        for (Index index : ((SchemaClassInternal) subclass).getClassIndexesInternal(session)) {
+          subclassIndexes.add(indexSignature(index));
+        }
+      }
+      builder.append(",subclassIndexes:").append(subclassIndexes);
+    }
+
+    Index index = session.getMetadata().getIndexManagerInternal().getIndex(session, name);
+    if (index != null) {
+      builder.append(";index:").append(indexSignature(index));
+    }
+    return builder.toString();
+  }
+
+  private static String indexSignature(Index index) {
+    var definition = index.getDefinition();
+    return index.getName()
+        + ":"
+        + index.getType()
+        + ":"
+        + (definition == null ? null : definition.getClassName())
+        + ":"
+        + (definition == null ? null : definition.getFields())
+        + ":"
+        + (definition == null || definition.getCollate() == null
+        ? null
+        : definition.getCollate().getName());
+  }
+
+  private static List<Integer> sorted(int[] ids) {
+    int[] copy = ids.clone();
+    Arrays.sort(copy);
+    List<Integer> result = new ArrayList<>(copy.length);
+    for (int id : copy) {
+      result.add(id);
+    }
+    return result;
+  }
+
   @Override
   public void onSchemaUpdate(DatabaseSessionInternal session, String database,
       SchemaShared schema) {
-    invalidate();
+    invalidate(session, session == null ? null : schema.makeSnapshot(session));
   }
 
   @Override
   public void onIndexManagerUpdate(DatabaseSessionInternal session, String database,
       IndexManagerAbstract indexManager) {
-    invalidate();
+    invalidate(
+        session,
+        session == null ? null : session.getSharedContext().getSchema().makeSnapshot(session));
   }
 
   @Override
@@ -188,9 +446,126 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
     invalidate();
   }
 
+  /**
+   * Changes of storage settings invalidate all the plans, while changes of the set of clusters
+   * invalidate only the plans whose statements mention the changed clusters. Other changes of the
+   * storage configuration, like registration of index engines, are already covered by schema and
+   * index updates.
+   */
   @Override
   public void onStorageConfigurationUpdate(String database, StorageConfiguration update) {
-    invalidate();
+    String settings;
+    Map<String, Integer> clusters;
+    try {
+      settings = storageSettings(update);
+      clusters = new HashMap<>();
+      for (StorageClusterConfiguration cluster : update.getClusters()) {
+        if (cluster != null && cluster.getName() != null) {
+          clusters.put(cluster.getName().toLowerCase(Locale.ENGLISH), cluster.getId());
+        }
+      }
+    } catch (RuntimeException e) {
+      LogManager.instance().debug(this, "Can not read updated storage configuration", e);
+      invalidate();
+      return;
+    }
+
+    synchronized (this) {
+      if (lastStorageSettings == null || !lastStorageSettings.equals(settings)) {
+        invalidate();
+      } else {
+        Set<String> changedClusters = new HashSet<>();
+        for (Map.Entry<String, Integer> cluster : clusters.entrySet()) {
+          if (!cluster.getValue().equals(lastClusters.get(cluster.getKey()))) {
+            changedClusters.add(cluster.getKey());
+          }
+        }
+        for (String cluster : lastClusters.keySet()) {
+          if (!clusters.containsKey(cluster)) {
+            changedClusters.add(cluster);
+          }
+        }
+
+        if (!changedClusters.isEmpty()) {
+          map.removeIf(
+              (statement, cached) -> {
+                if (cached.dependencies() == null) {
+                  return true;
+                }
+                for (String name : cached.dependencies().keySet()) {
+                  if (changedClusters.contains(name.toLowerCase(Locale.ENGLISH))) {
+                    return true;
+                  }
+                }
+                return false;
+              });
+          lastInvalidation = System.currentTimeMillis();
+        }
+      }
+
+      lastStorageSettings = settings;
+      lastClusters = clusters;
+    }
+  }
+
+  private static String storageSettings(StorageConfiguration configuration) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(configuration.getCharset()).append(',');
+    builder.append(configuration.getLocaleLanguage()).append(',');
+    builder.append(configuration.getLocaleCountry()).append(',');
+    builder.append(configuration.getTimeZone() == null ? null : configuration.getTimeZone().getID())
+        .append(',');
+    builder.append(configuration.getDateFormat()).append(',');
+    builder.append(configuration.getDateTimeFormat()).append(',');
+    builder.append(configuration.isStrictSql()).append(',');
+    builder.append(configuration.getClusterSelection()).append(',');
+    builder.append(configuration.getConflictStrategy()).append(',');
+    builder.append(configuration.isValidationEnabled()).append(',');
+    builder.append(configuration.getMinimumClusters());
+    List<StorageEntryConfiguration> properties = configuration.getProperties();
+    if (properties != null) {
+      for (StorageEntryConfiguration property : properties) {
+        builder.append(',').append(property.name).append('=').append(property.value);
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Registers the cache in the platform MBean server as a {@link QueryCacheMXBean}.
+   */
+  public void registerMBean(String database) {
+    mBeanName = QueryCacheMBeans.register(this, "ExecutionPlanCache", database);
+  }
+
+  public void unregisterMBean() {
+    QueryCacheMBeans.unregister(mBeanName);
+    mBeanName = null;
+  }
+
+  @Override
+  public int getSize() {
+    return map.size();
+  }
+
+  @Override
+  public int getCapacity() {
+    return map.getCapacity();
+  }
+
+  @Override
+  public long getHits() {
+    return map.getHits();
+  }
+
+  @Override
+  public long getMisses() {
+    return map.getMisses();
+  }
+
+  @Override
+  public long getEvictions() {
+    return map.getEvictions();
   }
 
   public static ExecutionPlanCache instance(DatabaseSessionInternal db) {
@@ -201,4 +576,14 @@ public class ExecutionPlanCache implements MetadataUpdateListener {
     ExecutionPlanCache resource = db.getSharedContext().getExecutionPlanCache();
     return resource;
   }
+
+  /**
+   * Plan kept in the cache, together with signatures of classes and indexes it depends on, or
+   * <code>null</code> if the dependencies are unknown and the plan should be invalidated on every
+   * change.
+   */
+  private record CachedPlan(InternalExecutionPlan plan,
+                            @Nullable Map<String, String> dependencies) {
+
+  }
 }
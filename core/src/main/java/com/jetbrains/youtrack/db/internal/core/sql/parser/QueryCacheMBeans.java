@@ -0,0 +1,58 @@
+package com.jetbrains.youtrack.db.internal.core.sql.parser;
+
+import com.jetbrains.youtrack.db.internal.common.log.LogManager;
+import java.lang.management.ManagementFactory;
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registers {@link QueryCacheMXBean}s of a database in the platform MBean server.
+ */
+final class QueryCacheMBeans {
+
+  private static final String DOMAIN = "com.jetbrains.youtrack.db";
+
+  private QueryCacheMBeans() {
+  }
+
+  /**
+   * @return Name of the registered MBean or <code>null</code> if the MBean was not registered,
+   * for example because a database with the same name is opened by another YouTrackDB instance.
+   */
+  @Nullable
+  static ObjectName register(QueryCacheMXBean cache, String type, String database) {
+    try {
+      var mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      var name =
+          new ObjectName(DOMAIN + ":type=" + type + ",database=" + ObjectName.quote(database));
+      if (mBeanServer.isRegistered(name)) {
+        return null;
+      }
+
+      mBeanServer.registerMBean(cache, name);
+      return name;
+    } catch (JMException e) {
+      LogManager.instance()
+          .warn(QueryCacheMBeans.class, "Can not register MBean of %s for database %s", e, type,
+              database);
+      return null;
+    }
+  }
+
+  static void unregister(@Nullable ObjectName name) {
+    if (name == null) {
+      return;
+    }
+
+    try {
+      var mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      if (mBeanServer.isRegistered(name)) {
+        mBeanServer.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      LogManager.instance()
+          .warn(QueryCacheMBeans.class, "Can not unregister MBean %s", e, name);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.jetbrains.youtrack.db.internal.core.sql.parser;
+
+/**
+ * Provides an MBean for the caches of parsed SQL statements and SQL execution plans.
+ */
+public interface QueryCacheMXBean {
+
+  /**
+   * @return Current amount of items in the cache
+   */
+  int getSize();
+
+  /**
+   * @return Maximum amount of items in the cache
+   */
+  int getCapacity();
+
+  /**
+   * @return Amount of lookups which found the item in the cache
+   */
+  long getHits();
+
+  /**
+   * @return Amount of lookups which did not find the item in the cache
+   */
+  long getMisses();
+
+  /**
+   * @return Amount of items removed from the cache to free space for new ones
+   */
+  long getEvictions();
+}
@@ -132,5 +132,9 @@ public class SQLParenthesisBlock extends SQLBooleanExpression {
   public boolean isAlwaysTrue() {
     return subElement.isAlwaysTrue();
   }
+
+  public SQLBooleanExpression getSubElement() {
+    return subElement;
+  }
 }
 /* JavaCC - OriginalChecksum=9a16b6cf7d051382acb94c45067631a9 (do not edit this line) */
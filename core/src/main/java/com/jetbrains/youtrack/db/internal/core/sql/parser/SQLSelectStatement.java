@@ -484,6 +484,10 @@ public class SQLSelectStatement extends SQLStatement {
     this.timeout = timeout;
   }
 
+  public boolean isParallel() {
+    return Boolean.TRUE.equals(parallel);
+  }
+
   public void setParallel(Boolean parallel) {
     this.parallel = parallel;
   }
@@ -1,5 +1,6 @@
 package com.jetbrains.youtrack.db.internal.core.sql.parser;
 
+import com.jetbrains.youtrack.db.internal.common.collection.ConcurrentLRUCache;
 import com.jetbrains.youtrack.db.internal.common.log.LogManager;
 import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
 import com.jetbrains.youtrack.db.internal.core.db.DatabaseRecordThreadLocal;
@@ -9,29 +10,24 @@ import com.jetbrains.youtrack.db.internal.core.db.YouTrackDBInternal;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import javax.management.ObjectName;
 
 /**
  * This class is an LRU cache for already parsed SQL statement executors. It stores itself in the
- * storage as a resource. It also acts an an entry point for the SQL parser.
+ * storage as a resource. It also acts an an entry point for the SQL parser. Cached statements can
+ * be read concurrently without locks.
  */
-public class StatementCache {
+public class StatementCache implements QueryCacheMXBean {
 
-  private final Map<String, SQLStatement> map;
-  private final int mapSize;
+  private final ConcurrentLRUCache<String, SQLStatement> map;
+
+  private ObjectName mBeanName;
 
   /**
    * @param size the size of the cache
    */
   public StatementCache(int size) {
-    this.mapSize = size;
-    map =
-        new LinkedHashMap<String, SQLStatement>(size) {
-          protected boolean removeEldestEntry(final Map.Entry<String, SQLStatement> eldest) {
-            return super.size() > mapSize;
-          }
-        };
+    map = new ConcurrentLRUCache<>(size);
   }
 
   /**
@@ -43,9 +39,7 @@ public class StatementCache {
       return false;
     }
 
-    synchronized (map) {
-      return map.containsKey(statement);
-    }
+    return map.containsKey(statement);
   }
 
   /**
@@ -89,19 +83,10 @@ public class StatementCache {
       return parse(statement);
     }
 
-    SQLStatement result;
-    synchronized (map) {
-      // LRU
-      result = map.remove(statement);
-      if (result != null) {
-        map.put(statement, result);
-      }
-    }
+    SQLStatement result = map.get(statement);
     if (result == null) {
       result = parse(statement);
-      synchronized (map) {
-        map.put(statement, result);
-      }
+      map.put(statement, result);
     }
     return result;
   }
@@ -203,8 +188,43 @@ public class StatementCache {
       return;
     }
 
-    synchronized (map) {
-      map.clear();
-    }
+    map.clear();
+  }
+
+  /**
+   * Registers the cache in the platform MBean server as a {@link QueryCacheMXBean}.
+   */
+  public void registerMBean(String database) {
+    mBeanName = QueryCacheMBeans.register(this, "StatementCache", database);
+  }
+
+  public void unregisterMBean() {
+    QueryCacheMBeans.unregister(mBeanName);
+    mBeanName = null;
+  }
+
+  @Override
+  public int getSize() {
+    return map.size();
+  }
+
+  @Override
+  public int getCapacity() {
+    return map.getCapacity();
+  }
+
+  @Override
+  public long getHits() {
+    return map.getHits();
+  }
+
+  @Override
+  public long getMisses() {
+    return map.getMisses();
+  }
+
+  @Override
+  public long getEvictions() {
+    return map.getEvictions();
   }
 }
@@ -150,6 +150,12 @@ public interface StorageCluster {
    */
   void acquireAtomicExclusiveLock();
 
+  /**
+   * @return <code>true</code> if an atomic operation holds exclusive lock of this cluster at the
+   * moment. The result is only a hint, the lock can be acquired or released right after the check.
+   */
+  boolean isAtomicExclusiveLocked();
+
   ClusterBrowsePage nextPage(long lastPosition) throws IOException;
 
   int getBinaryVersion();
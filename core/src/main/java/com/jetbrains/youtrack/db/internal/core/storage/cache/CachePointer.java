@@ -21,6 +21,7 @@ package com.jetbrains.youtrack.db.internal.core.storage.cache;
 
 import com.jetbrains.youtrack.db.internal.common.directmemory.ByteBufferPool;
 import com.jetbrains.youtrack.db.internal.common.directmemory.Pointer;
+import com.jetbrains.youtrack.db.internal.core.exception.StorageException;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.LogSequenceNumber;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -54,6 +55,12 @@ public final class CachePointer {
   private volatile WritersListener writersListener;
 
   private final Pointer pointer;
+
+  /**
+   * Pool to which memory of the page is returned once it is not used any more, <code>null</code>
+   * if memory of the page is not owned by the cache, for example if it is part of the memory mapped
+   * file.
+   */
   private final ByteBufferPool bufferPool;
 
   private long version;
@@ -220,7 +227,7 @@ public final class CachePointer {
 
   public void decrementReferrer() {
     final int rf = REFERRERS_COUNT_UPDATER.decrementAndGet(this);
-    if (rf == 0 && pointer != null) {
+    if (rf == 0 && pointer != null && bufferPool != null) {
       bufferPool.release(pointer);
     }
 
@@ -243,6 +250,12 @@ public final class CachePointer {
   }
 
   public void acquireExclusiveLock() {
+    // page which is mapped in read-only mode can not be changed
+    if (pointer != null && pointer.isReadOnly()) {
+      throw new StorageException(
+          "Page " + pageIndex + " of file " + fileId + " is read-only and can not be changed");
+    }
+
     readWriteLock.writeLock().lock();
     version++;
   }
@@ -99,6 +99,35 @@ public interface WriteCache {
       long fileId, long startPageIndex, ModifiableBoolean cacheHit, boolean verifyChecksums)
       throws IOException;
 
+  /**
+   * Returns stamp of the pages of the given file. Stamp is changed every time when page of the file
+   * is put in write cache or new page is added to the file, so pages read from the disk can be
+   * checked for staleness by {@link #acceptLoadedPage(long, long, CachePointer, long)}.
+   */
+  long getPagesStamp(long fileId);
+
+  /**
+   * Reads run of consecutive pages directly from the file using single batch of read requests.
+   * Pages are read only till the first page which is present in write cache or is absent in the
+   * file, so amount of returned pages may be smaller than requested.
+   *
+   * <p>Returned pages are not tracked by write cache, each of them has to be passed to {@link
+   * #acceptLoadedPage(long, long, CachePointer, long)} before it is used.
+   *
+   * @return Pointers to the loaded pages, with incremented readers referrer.
+   */
+  CachePointer[] loadPages(long fileId, long startPageIndex, int pageCount, boolean verifyChecksums)
+      throws IOException;
+
+  /**
+   * Checks whether page returned by {@link #loadPages(long, long, int, boolean)} is still actual.
+   *
+   * @param stamp Value of {@link #getPagesStamp(long)} taken before pages were loaded.
+   * @return Passed pointer if page was not changed, pointer to the page held by write cache if page
+   * was changed after it was loaded, or <code>null</code> if page has to be loaded once again.
+   */
+  CachePointer acceptLoadedPage(long fileId, long pageIndex, CachePointer pointer, long stamp);
+
   void flush(long fileId);
 
   void flush();
@@ -53,6 +53,7 @@ public final class AsyncReadCache implements ReadCache {
 
   private final Buffer readBuffer = new BoundedBuffer();
   private final MPSCLinkedQueue<CacheEntry> writeBuffer = new MPSCLinkedQueue<>();
+  private final MPSCLinkedQueue<CacheEntry> prefetchBuffer = new MPSCLinkedQueue<>();
   private final AtomicInteger cacheSize = new AtomicInteger();
   private final int maxCacheSize;
 
@@ -61,6 +62,11 @@ public final class AsyncReadCache implements ReadCache {
   private final LongAdder requests = new LongAdder();
   private final LongAdder hits = new LongAdder();
 
+  /**
+   * Amount of pages which were put in the cache by read ahead.
+   */
+  private final LongAdder readAheadPagesCount = new LongAdder();
+
   /**
    * Status which indicates whether flush of buffers should be performed or may be delayed.
    */
@@ -70,15 +76,37 @@ public final class AsyncReadCache implements ReadCache {
 
   private final ByteBufferPool bufferPool;
 
+  /**
+   * Maximum amount of pages which are read from the file at once if pages of the file are read
+   * sequentially, or 0 if read ahead is disabled.
+   */
+  private final int readAheadPages;
+
+  /**
+   * Index of the page which is expected to be missed next for each file if the file is read
+   * sequentially.
+   */
+  private final ConcurrentHashMap<Long, Integer> sequentialPages = new ConcurrentHashMap<>();
+
   public AsyncReadCache(
       final ByteBufferPool bufferPool,
       final long maxCacheSizeInBytes,
       final int pageSize,
       final boolean trackHitRate) {
+    this(bufferPool, maxCacheSizeInBytes, pageSize, trackHitRate, 0);
+  }
+
+  public AsyncReadCache(
+      final ByteBufferPool bufferPool,
+      final long maxCacheSizeInBytes,
+      final int pageSize,
+      final boolean trackHitRate,
+      final int readAheadPages) {
     evictionLock.lock();
     try {
       this.pageSize = pageSize;
       this.bufferPool = bufferPool;
+      this.readAheadPages = readAheadPages;
 
       this.trackHitRate = trackHitRate;
       this.maxCacheSize = (int) (maxCacheSizeInBytes / pageSize);
@@ -113,8 +141,22 @@ public final class AsyncReadCache implements ReadCache {
     final CacheEntry cacheEntry = doLoad(fileId, (int) pageIndex, writeCache, verifyChecksums);
 
     if (cacheEntry != null) {
-      cacheEntry.acquireExclusiveLock();
-      writeCache.updateDirtyPagesTable(cacheEntry.getCachePointer(), startLSN);
+      // pages of the storage opened in read-only mode can not be changed, page is released
+      // untouched in such case
+      try {
+        cacheEntry.acquireExclusiveLock();
+      } catch (final RuntimeException e) {
+        releaseFromRead(cacheEntry);
+        throw e;
+      }
+
+      try {
+        writeCache.updateDirtyPagesTable(cacheEntry.getCachePointer(), startLSN);
+      } catch (final RuntimeException e) {
+        cacheEntry.releaseExclusiveLock();
+        releaseFromRead(cacheEntry);
+        throw e;
+      }
     }
 
     return cacheEntry;
@@ -199,6 +241,7 @@ public final class AsyncReadCache implements ReadCache {
       requests.increment();
     }
 
+    boolean readAhead = false;
     while (true) {
       checkWriteBuffer();
 
@@ -210,12 +253,17 @@ public final class AsyncReadCache implements ReadCache {
         if (cacheEntry.acquireEntry()) {
           afterRead(cacheEntry);
 
-          if (trackHitRate) {
+          // page loaded by read ahead is not a cache hit
+          if (trackHitRate && !readAhead) {
             hits.increment();
           }
 
           return cacheEntry;
         }
+      } else if (!readAhead
+          && readAheadPages > 0
+          && readAhead(fileId, pageIndex, writeCache, verifyChecksums)) {
+        readAhead = true;
       } else {
         final boolean[] read = new boolean[1];
 
@@ -253,7 +301,7 @@ public final class AsyncReadCache implements ReadCache {
 
         if (cacheEntry.acquireEntry()) {
           if (read[0]) {
-            if (trackHitRate) {
+            if (trackHitRate && !readAhead) {
               hits.increment();
             }
 
@@ -276,6 +324,102 @@ public final class AsyncReadCache implements ReadCache {
     }
   }
 
+  /**
+   * Reads run of pages which starts from the requested page by single batch of reads if pages of
+   * the file are requested sequentially. Pages which are read ahead are put in the cache without
+   * increment of their frequency, so pages which are read only once during scan do not displace
+   * pages which are frequently used.
+   *
+   * @return <code>true</code> if pages were read ahead. Requested page itself may be still absent
+   * in the cache if it was changed during the read.
+   */
+  private boolean readAhead(
+      final long fileId,
+      final int pageIndex,
+      final WriteCache writeCache,
+      final boolean verifyChecksums) {
+    final Integer expectedPage = sequentialPages.put(fileId, pageIndex + 1);
+    if (expectedPage == null || expectedPage != pageIndex) {
+      return false;
+    }
+
+    int pageCount = 1;
+    while (pageCount < readAheadPages
+        && !data.containsKey(new PageKey(fileId, pageIndex + pageCount))) {
+      pageCount++;
+    }
+
+    if (pageCount == 1) {
+      return false;
+    }
+
+    final long stamp = writeCache.getPagesStamp(fileId);
+    final CachePointer[] pointers;
+    try {
+      pointers = writeCache.loadPages(fileId, pageIndex, pageCount, verifyChecksums);
+    } catch (final IOException e) {
+      throw BaseException.wrapException(
+          new StorageException(
+              "Error during read ahead of pages starting from page "
+                  + pageIndex
+                  + " for file "
+                  + fileId),
+          e);
+    }
+
+    if (pointers.length == 0) {
+      return false;
+    }
+
+    final List<CacheEntry> addedEntries = new ArrayList<>(pointers.length);
+    for (final CachePointer pointer : pointers) {
+      final boolean[] used = new boolean[1];
+
+      data.compute(
+          new PageKey(fileId, pointer.getPageIndex()),
+          (page, entry) -> {
+            if (entry != null) {
+              return entry;
+            }
+
+            // page could be changed while it was read from the file
+            final CachePointer actualPointer =
+                writeCache.acceptLoadedPage(fileId, page.getPageIndex(), pointer, stamp);
+            if (actualPointer == null) {
+              return null;
+            }
+
+            used[0] = actualPointer == pointer;
+            cacheSize.incrementAndGet();
+
+            final CacheEntry cacheEntry =
+                new CacheEntryImpl(page.getFileId(), page.getPageIndex(), actualPointer, true, this);
+            addedEntries.add(cacheEntry);
+            return cacheEntry;
+          });
+
+      if (!used[0]) {
+        pointer.decrementReadersReferrer();
+      }
+    }
+
+    for (final CacheEntry cacheEntry : addedEntries) {
+      afterPrefetch(cacheEntry);
+    }
+    readAheadPagesCount.add(addedEntries.size());
+
+    sequentialPages.put(fileId, pageIndex + pointers.length);
+
+    try {
+      writeCache.checkCacheOverflow();
+    } catch (final java.lang.InterruptedException e) {
+      throw BaseException.wrapException(
+          new ThreadInterruptedException("Check of write cache overflow was interrupted"), e);
+    }
+
+    return true;
+  }
+
   private CacheEntry addNewPagePointerToTheCache(final long fileId, final int pageIndex) {
 
     final Pointer pointer = bufferPool.acquireDirect(true, Intention.ADD_NEW_PAGE_IN_DISK_CACHE);
@@ -287,7 +431,25 @@ public final class AsyncReadCache implements ReadCache {
     final CacheEntry cacheEntry = new CacheEntryImpl(fileId, pageIndex, cachePointer, true, this);
     cacheEntry.acquireEntry();
 
-    final CacheEntry oldCacheEntry = data.putIfAbsent(cacheEntry.getPageKey(), cacheEntry);
+    CacheEntry oldCacheEntry = data.putIfAbsent(cacheEntry.getPageKey(), cacheEntry);
+    if (oldCacheEntry != null && readAheadPages > 0) {
+      // space of the page could be read ahead just after it was allocated
+      evictionLock.lock();
+      try {
+        emptyBuffers();
+
+        if (oldCacheEntry.freeze()) {
+          data.remove(oldCacheEntry.getPageKey(), oldCacheEntry);
+          policy.onRemove(oldCacheEntry);
+          cacheSize.decrementAndGet();
+
+          oldCacheEntry = data.putIfAbsent(cacheEntry.getPageKey(), cacheEntry);
+        }
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+
     if (oldCacheEntry != null) {
       throw new IllegalStateException(
           "Page  " + fileId + ":" + pageIndex + " was allocated in other thread");
@@ -389,6 +551,16 @@ public final class AsyncReadCache implements ReadCache {
   private void afterWrite(final CacheEntry command) {
     writeBuffer.offer(command);
 
+    scheduleDrain();
+  }
+
+  private void afterPrefetch(final CacheEntry entry) {
+    prefetchBuffer.offer(entry);
+
+    scheduleDrain();
+  }
+
+  private void scheduleDrain() {
     drainStatus.lazySet(DrainStatus.REQUIRED);
     if (cacheSize.get() > 1.07 * maxCacheSize) {
       forceDrainBuffers();
@@ -416,7 +588,7 @@ public final class AsyncReadCache implements ReadCache {
   }
 
   private void checkWriteBuffer() {
-    if (!writeBuffer.isEmpty()) {
+    if (!writeBuffer.isEmpty() || !prefetchBuffer.isEmpty()) {
 
       drainStatus.lazySet(DrainStatus.REQUIRED);
       tryToDrainBuffers();
@@ -467,6 +639,16 @@ public final class AsyncReadCache implements ReadCache {
 
       this.policy.onAdd(entry);
     }
+
+    for (int i = 0; i < WRITE_BUFFER_MAX_BATCH; i++) {
+      final CacheEntry entry = prefetchBuffer.poll();
+
+      if (entry == null) {
+        break;
+      }
+
+      this.policy.onPrefetch(entry);
+    }
   }
 
   private void emptyWriteBuffer() {
@@ -479,6 +661,16 @@ public final class AsyncReadCache implements ReadCache {
 
       this.policy.onAdd(entry);
     }
+
+    while (true) {
+      final CacheEntry entry = prefetchBuffer.poll();
+
+      if (entry == null) {
+        break;
+      }
+
+      this.policy.onPrefetch(entry);
+    }
   }
 
   @Override
@@ -506,6 +698,7 @@ public final class AsyncReadCache implements ReadCache {
       }
 
       data.clear();
+      sequentialPages.clear();
       cacheSize.set(0);
     } finally {
       evictionLock.unlock();
@@ -573,6 +766,7 @@ public final class AsyncReadCache implements ReadCache {
     evictionLock.lock();
     try {
       emptyBuffers();
+      sequentialPages.remove(fileId);
 
       for (int pageIndex = 0; pageIndex < filledUpTo; pageIndex++) {
         final PageKey pageKey = new PageKey(fileId, pageIndex);
@@ -633,6 +827,10 @@ public final class AsyncReadCache implements ReadCache {
     return (int) ((hits.sum() * 100) / reqSum);
   }
 
+  long readAheadPages() {
+    return readAheadPagesCount.sum();
+  }
+
   private enum DrainStatus {
     IDLE {
       @Override
@@ -57,7 +57,7 @@ public final class FrequencySketch implements Admittor {
    * the maximum size of the cache has been determined.
    */
   @SuppressWarnings("NullAway.Init")
-  FrequencySketch() {
+  public FrequencySketch() {
     final int seed = ThreadLocalRandom.current().nextInt();
     this.randomSeed = ((seed & 1) == 0) ? seed + 1 : seed;
   }
@@ -83,6 +83,14 @@ public final class WTinyLFUPolicy {
   void onAdd(final CacheEntry cacheEntry) {
     admittor.increment(cacheEntry.getPageKey().hashCode());
 
+    onPrefetch(cacheEntry);
+  }
+
+  /**
+   * Adds page which was read ahead to the cache. Frequency of such page is not incremented till
+   * page is accessed, so pages read ahead are the first candidates for eviction.
+   */
+  void onPrefetch(final CacheEntry cacheEntry) {
     if (cacheEntry.isAlive()) {
       assert !eden.contains(cacheEntry);
       assert !probation.contains(cacheEntry);
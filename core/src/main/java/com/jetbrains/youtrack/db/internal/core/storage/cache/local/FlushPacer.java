@@ -0,0 +1,151 @@
+package com.jetbrains.youtrack.db.internal.core.storage.cache.local;
+
+/**
+ * Calculates amount of dirty pages which are flushed by the periodic flush of the write cache, so
+ * pages changes of which are logged in the non-active WAL segments are flushed continuously and WAL
+ * can be cut smoothly, instead of the burst of writes once the WAL size limit is reached.
+ *
+ * <p>Pages are flushed at the rate of the WAL growth, scaled by the square of the ratio of the WAL
+ * size to the {@link #TARGET_WAL_PRESSURE target} share of the WAL size limit. So the flush speeds
+ * up while the WAL grows towards the limit and slows down once it shrinks. The rate is limited by
+ * the share of the disk write bandwidth measured on previous flushes, so writes of the WAL are not
+ * stalled by the flush. Once the WAL size limit is reached or the WAL does not grow, pages are
+ * flushed as fast as possible.
+ *
+ * <p>Is not thread safe, it is used only by the flush thread of the write cache.
+ */
+final class FlushPacer {
+
+  /**
+   * Share of the WAL size limit at which pages are flushed at the rate of the WAL growth.
+   */
+  private static final double TARGET_WAL_PRESSURE = 0.5;
+
+  /**
+   * Share of the measured disk write bandwidth which may be used by the paced flush.
+   */
+  private static final double BANDWIDTH_SHARE = 0.5;
+
+  /**
+   * Time in seconds in which all pages of non-active WAL segments are flushed at least, even if
+   * the WAL grows slowly.
+   */
+  private static final double MAX_FLUSH_TIME = 60;
+
+  /**
+   * Weight of the new sample in the moving averages of the WAL growth rate and disk bandwidth.
+   */
+  private static final double SMOOTHING = 0.25;
+
+  private final int maxPagesPerFlush;
+
+  private long lastTs = -1;
+  private long lastWalSize;
+
+  /**
+   * WAL growth rate in bytes per second.
+   */
+  private double walGrowthRate;
+
+  /**
+   * Disk write bandwidth in pages per second, 0 if it was not measured yet.
+   */
+  private double writeBandwidth;
+
+  /**
+   * Amount of pages which are allowed to be flushed but were not flushed yet.
+   */
+  private double credit;
+
+  private boolean behind;
+
+  FlushPacer(final int maxPagesPerFlush) {
+    this.maxPagesPerFlush = maxPagesPerFlush;
+  }
+
+  /**
+   * @param now          Current time in nanoseconds.
+   * @param walSize      Current size of the WAL in bytes.
+   * @param walSizeLimit Size of the WAL after which checkpoint is requested, or <code>-1</code> if
+   *                     size of the WAL is not limited.
+   * @param dirtyPages   Amount of dirty pages changes of which are logged in non-active WAL
+   *                     segments.
+   * @return Amount of pages which should be flushed now.
+   */
+  int pagesToFlush(
+      final long now, final long walSize, final long walSizeLimit, final long dirtyPages) {
+    if (lastTs < 0) {
+      lastTs = now;
+      lastWalSize = walSize;
+    }
+
+    final double elapsed = (now - lastTs) / 1_000_000_000.0;
+    final long walGrowth = Math.max(0, walSize - lastWalSize);
+    if (elapsed > 0) {
+      walGrowthRate += SMOOTHING * (walGrowth / elapsed - walGrowthRate);
+    }
+
+    lastTs = now;
+    lastWalSize = walSize;
+
+    if (dirtyPages == 0 || walSize == 0) {
+      credit = 0;
+      behind = false;
+      return 0;
+    }
+
+    // WAL size limit is reached or the storage is idle, there is no reason to save bandwidth
+    if ((walSizeLimit > 0 && walSize >= walSizeLimit) || (elapsed > 0 && walGrowth == 0)) {
+      credit = 0;
+      behind = true;
+      return maxPagesPerFlush;
+    }
+
+    // pages are flushed at the rate which keeps WAL size stable at the target pressure
+    final double walPressure =
+        walSizeLimit > 0 ? (double) walSize / walSizeLimit : TARGET_WAL_PRESSURE;
+    final double pressureRatio = walPressure / TARGET_WAL_PRESSURE;
+
+    double rate =
+        Math.max(
+            walGrowthRate * dirtyPages / walSize * pressureRatio * pressureRatio,
+            dirtyPages / MAX_FLUSH_TIME);
+    if (writeBandwidth > 0) {
+      rate = Math.min(rate, writeBandwidth * BANDWIDTH_SHARE);
+    }
+
+    credit = Math.min(credit + rate * elapsed, maxPagesPerFlush);
+    final int pages = (int) credit;
+    credit -= pages;
+
+    behind = false;
+    return pages;
+  }
+
+  /**
+   * Updates disk write bandwidth by the result of the flush.
+   *
+   * @param pages Amount of flushed pages.
+   * @param time  Time of the flush in nanoseconds.
+   */
+  void pagesFlushed(final int pages, final long time) {
+    if (pages <= 0 || time <= 0) {
+      return;
+    }
+
+    final double bandwidth = pages / (time / 1_000_000_000.0);
+    if (writeBandwidth == 0) {
+      writeBandwidth = bandwidth;
+    } else {
+      writeBandwidth += SMOOTHING * (bandwidth - writeBandwidth);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if pages should be flushed without delay, because WAL size limit is
+   * reached or storage is idle.
+   */
+  boolean isBehind() {
+    return behind;
+  }
+}
@@ -77,6 +77,7 @@ import java.io.StringWriter;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileStore;
@@ -88,6 +89,7 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -112,6 +114,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.Lock;
 import java.util.zip.CRC32;
 import javax.crypto.BadPaddingException;
@@ -122,6 +125,10 @@ import javax.crypto.SecretKey;
 import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
 import net.jpountz.xxhash.XXHash64;
 import net.jpountz.xxhash.XXHashFactory;
 
@@ -237,6 +244,16 @@ public final class WOWCache extends AbstractWriteCache
    */
   private static final long MAGIC_NUMBER_WITHOUT_CHECKSUM_ENCRYPTED = 0x2L;
 
+  /**
+   * Marks pages which have a checksum stored and data compressed
+   */
+  public static final long MAGIC_NUMBER_WITH_CHECKSUM_COMPRESSED = 0xFACB03C1L;
+
+  /**
+   * Marks pages which have no checksum stored but have data compressed
+   */
+  public static final long MAGIC_NUMBER_WITHOUT_CHECKSUM_COMPRESSED = 0xEF30BCC2L;
+
   private static final int MAGIC_NUMBER_OFFSET = 0;
 
   public static final int CHECKSUM_OFFSET = MAGIC_NUMBER_OFFSET + LongSerializer.LONG_SIZE;
@@ -244,8 +261,35 @@ public final class WOWCache extends AbstractWriteCache
   private static final int PAGE_OFFSET_TO_CHECKSUM_FROM =
       LongSerializer.LONG_SIZE + IntegerSerializer.INT_SIZE;
 
+  /**
+   * Offset of the compressed page content, the size of the compressed content is stored just
+   * after the checksum.
+   */
+  private static final int COMPRESSED_PAGE_DATA_OFFSET =
+      PAGE_OFFSET_TO_CHECKSUM_FROM + IntegerSerializer.INT_SIZE;
+
+  /**
+   * Compressed pages are written in blocks of this size, so the rest of the page is not touched on
+   * disk.
+   */
+  private static final int PAGE_COMPRESSION_BLOCK_SIZE = 4 * 1024;
+
+  private static final LZ4Compressor LZ_4_COMPRESSOR;
+  private static final LZ4FastDecompressor LZ_4_DECOMPRESSOR;
+
   private static final int CHUNK_SIZE = 64 * 1024 * 1024;
 
+  /**
+   * Size of the regions in which files are mapped into memory in read-only mode, is a multiple of
+   * the page size, so pages never cross borders of the regions.
+   */
+  private static final int MAPPED_SEGMENT_SIZE = 1 << 30;
+
+  /**
+   * Amount of stripes of the stamps of pages, should be power of two.
+   */
+  private static final int PAGE_STAMP_STRIPES = 64;
+
   /**
    * Executor which runs in single thread all tasks are related to flush of write cache data.
    */
@@ -255,6 +299,10 @@ public final class WOWCache extends AbstractWriteCache
     commitExecutor =
         ThreadPoolExecutors.newSingleThreadScheduledPool(
             "YouTrackDB Write Cache Flush Task", AbstractPaginatedStorage.storageThreadGroup);
+
+    final LZ4Factory factory = LZ4Factory.fastestInstance();
+    LZ_4_COMPRESSOR = factory.fastCompressor();
+    LZ_4_DECOMPRESSOR = factory.fastDecompressor();
   }
 
   /**
@@ -290,6 +338,13 @@ public final class WOWCache extends AbstractWriteCache
   private final ConcurrentHashMap<PageKey, CachePointer> writeCachePages =
       new ConcurrentHashMap<>();
 
+  /**
+   * Stamps of the pages of files, stripe of the stamp is chosen by internal id of the file. Stamp is
+   * incremented every time when page is put in write cache or added to the file, and is used to
+   * detect pages which are changed while they are read ahead from the disk.
+   */
+  private final AtomicLongArray pageStamps = new AtomicLongArray(PAGE_STAMP_STRIPES);
+
   /**
    * Storage for the pages which are hold only by write cache and are not shared with read cache.
    */
@@ -458,6 +513,35 @@ public final class WOWCache extends AbstractWriteCache
 
   private final boolean logFileDeletion;
 
+  /**
+   * Names or name suffixes of files pages of which are compressed on flush.
+   */
+  private final String[] compressedFiles;
+
+  /**
+   * Whether data files are opened with <code>O_DIRECT</code> flag to bypass the OS page cache.
+   */
+  private final boolean directIO;
+
+  /**
+   * Whether storage is opened in read-only mode and pages are read directly from the memory mapped
+   * data files.
+   */
+  private final boolean mappedReadOnly;
+
+  /**
+   * Paces flush of pages changes of which are logged in non-active WAL segments, is used only by
+   * the flush thread.
+   */
+  private final FlushPacer flushPacer;
+
+  /**
+   * Regions of the data files mapped into memory in read-only mode, mapped lazily on the first
+   * access to the file and are kept till the file is closed.
+   */
+  private final ConcurrentHashMap<Integer, MappedByteBuffer[]> mappedFiles =
+      new ConcurrentHashMap<>();
+
   public WOWCache(
       final int pageSize,
       final boolean logFileDeletion,
@@ -477,6 +561,62 @@ public final class WOWCache extends AbstractWriteCache
       final byte[] aesKey,
       final boolean callFsync,
       ExecutorService executor) {
+    this(
+        pageSize,
+        logFileDeletion,
+        bufferPool,
+        writeAheadLog,
+        doubleWriteLog,
+        pagesFlushInterval,
+        shutdownTimeout,
+        exclusiveWriteCacheMaxSize,
+        storagePath,
+        storageName,
+        stringSerializer,
+        files,
+        id,
+        checksumMode,
+        iv,
+        aesKey,
+        callFsync,
+        executor,
+        null,
+        false,
+        false);
+  }
+
+  /**
+   * @param compressedFiles Comma separated list of names or name suffixes (for example
+   *                        <code>.pcl</code>) of files pages of which are compressed on flush,
+   *                        <code>null</code> or empty string disables page compression.
+   * @param directIO        Whether data files are opened with <code>O_DIRECT</code> flag, so
+   *                        pages are cached only by the disk cache of the database.
+   * @param mappedReadOnly  Whether storage is opened in read-only mode, data files are mapped into
+   *                        memory and pages are not copied on load. Background flush of pages is
+   *                        not started in this mode.
+   */
+  public WOWCache(
+      final int pageSize,
+      final boolean logFileDeletion,
+      final ByteBufferPool bufferPool,
+      final WriteAheadLog writeAheadLog,
+      final DoubleWriteLog doubleWriteLog,
+      final long pagesFlushInterval,
+      final int shutdownTimeout,
+      final long exclusiveWriteCacheMaxSize,
+      final Path storagePath,
+      final String storageName,
+      final BinarySerializer<String> stringSerializer,
+      final ClosableLinkedContainer<Long, File> files,
+      final int id,
+      final ChecksumMode checksumMode,
+      final byte[] iv,
+      final byte[] aesKey,
+      final boolean callFsync,
+      ExecutorService executor,
+      final String compressedFiles,
+      final boolean directIO,
+      final boolean mappedReadOnly) {
 
     this.logFileDeletion = logFileDeletion;
     if (aesKey != null && aesKey.length != 16 && aesKey.length != 24 && aesKey.length != 32) {
@@ -493,6 +633,9 @@ public final class WOWCache extends AbstractWriteCache
     this.iv = iv;
     this.aesKey = aesKey;
     this.callFsync = callFsync;
+    this.compressedFiles = parseCompressedFiles(compressedFiles, aesKey != null, storageName);
+    this.directIO = directIO;
+    this.mappedReadOnly = mappedReadOnly;
 
     filesLock.acquireWriteLock();
     try {
@@ -501,6 +644,7 @@ public final class WOWCache extends AbstractWriteCache
       this.id = id;
       this.files = files;
       this.chunkSize = CHUNK_SIZE / pageSize;
+      this.flushPacer = new FlushPacer(chunkSize);
 
       this.pageSize = pageSize;
       this.writeAheadLog = writeAheadLog;
@@ -522,7 +666,8 @@ public final class WOWCache extends AbstractWriteCache
 
       this.doubleWriteLog = doubleWriteLog;
 
-      if (pagesFlushInterval > 0) {
+      // nothing is changed in read-only mode, so there is nothing to flush
+      if (pagesFlushInterval > 0 && !mappedReadOnly) {
         flushFuture =
             commitExecutor.schedule(
                 new PeriodicFlushTask(this), pagesFlushInterval, TimeUnit.MILLISECONDS);
@@ -590,6 +735,28 @@ public final class WOWCache extends AbstractWriteCache
     }
   }
 
+  private static String[] parseCompressedFiles(
+      final String compressedFiles, final boolean encrypted, final String storageName) {
+    if (compressedFiles == null || compressedFiles.isBlank()) {
+      return new String[0];
+    }
+
+    // encrypted pages are not compressed, encryption is applied to the whole page
+    if (encrypted) {
+      LogManager.instance()
+          .warn(
+              WOWCache.class,
+              "Page compression is not supported for encrypted storage %s and will be disabled",
+              storageName);
+      return new String[0];
+    }
+
+    return Arrays.stream(compressedFiles.split(","))
+        .map(String::trim)
+        .filter(name -> !name.isEmpty())
+        .toArray(String[]::new);
+  }
+
   private static int normalizeMemory(final long maxSize, final int pageSize) {
     final long tmpMaxSize = maxSize / pageSize;
     if (tmpMaxSize >= Integer.MAX_VALUE) {
@@ -761,6 +928,8 @@ public final class WOWCache extends AbstractWriteCache
 
   @Override
   public long addFile(final String fileName) throws IOException {
+    checkForReadOnly();
+
     filesLock.acquireWriteLock();
     try {
       checkForClose();
@@ -839,6 +1008,9 @@ public final class WOWCache extends AbstractWriteCache
   @Override
   public void updateDirtyPagesTable(
       final CachePointer pointer, final LogSequenceNumber startLSN) {
+    // called before the page is changed, so memory mapped in read-only mode is never written
+    checkForReadOnly();
+
     final long fileId = pointer.getFileId();
     final long pageIndex = pointer.getPageIndex();
 
@@ -868,6 +1040,8 @@ public final class WOWCache extends AbstractWriteCache
 
   @Override
   public long addFile(final String fileName, long fileId) throws IOException {
+    checkForReadOnly();
+
     filesLock.acquireWriteLock();
     try {
       checkForClose();
@@ -1070,6 +1244,8 @@ public final class WOWCache extends AbstractWriteCache
 
   @Override
   public void store(final long fileId, final long pageIndex, final CachePointer dataPointer) {
+    checkForReadOnly();
+
     final int intId = extractFileId(fileId);
 
     filesLock.acquireReadLock();
@@ -1099,6 +1275,7 @@ public final class WOWCache extends AbstractWriteCache
 
   private void doPutInCache(final CachePointer dataPointer, final PageKey pageKey) {
     writeCachePages.put(pageKey, dataPointer);
+    pageStamps.incrementAndGet(pageKey.fileId & (PAGE_STAMP_STRIPES - 1));
 
     writeCacheSize.incrementAndGet();
 
@@ -1149,8 +1326,13 @@ public final class WOWCache extends AbstractWriteCache
       if (pagePointer == null) {
         try {
           // load requested page and preload requested amount of pages
-          final CachePointer filePagePointer =
-              loadFileContent(intId, startPageIndex, verifyChecksums);
+          CachePointer filePagePointer = null;
+          if (mappedReadOnly) {
+            filePagePointer = loadMappedPage(intId, startPageIndex, verifyChecksums);
+          }
+          if (filePagePointer == null) {
+            filePagePointer = loadFileContent(intId, startPageIndex, verifyChecksums);
+          }
           if (filePagePointer != null) {
             filePagePointer.incrementReadersReferrer();
           }
@@ -1172,8 +1354,139 @@ public final class WOWCache extends AbstractWriteCache
     }
   }
 
+  @Override
+  public long getPagesStamp(final long fileId) {
+    return pageStamps.get(extractFileId(fileId) & (PAGE_STAMP_STRIPES - 1));
+  }
+
+  @Override
+  public CachePointer[] loadPages(
+      final long fileId,
+      final long startPageIndex,
+      final int pageCount,
+      final boolean verifyChecksums)
+      throws IOException {
+    final int intId = extractFileId(fileId);
+    filesLock.acquireReadLock();
+    try {
+      checkForClose();
+
+      // mapped pages are not copied, so there is no reason to read them ahead
+      if (mappedReadOnly) {
+        return new CachePointer[0];
+      }
+
+      final long externalId = composeFileId(id, intId);
+      final ClosableEntry<Long, File> entry = files.acquire(externalId);
+      try {
+        final File fileClassic = entry.get();
+        if (fileClassic == null) {
+          throw new IllegalArgumentException(
+              "File with id " + intId + " not found in WOW Cache");
+        }
+
+        // pages which are held by write cache are more recent than the ones stored in the file
+        final int pagesInFile =
+            (int) Math.min(pageCount, fileClassic.getFileSize() / pageSize - startPageIndex);
+        int pagesToLoad = 0;
+        while (pagesToLoad < pagesInFile
+            && !writeCachePages.containsKey(new PageKey(intId, startPageIndex + pagesToLoad))) {
+          pagesToLoad++;
+        }
+
+        if (pagesToLoad <= 0) {
+          return new CachePointer[0];
+        }
+
+        final Pointer[] pointers = new Pointer[pagesToLoad];
+        final List<ByteBuffer> buffers = new ArrayList<>(pagesToLoad);
+        try {
+          for (int i = 0; i < pagesToLoad; i++) {
+            pointers[i] = bufferPool.acquireDirect(true, Intention.READ_AHEAD_PAGES_FROM_DISK);
+            buffers.add(pointers[i].getNativeByteBuffer());
+          }
+
+          fileClassic.read(startPageIndex * pageSize, buffers, false);
+        } catch (final IOException | RuntimeException e) {
+          for (final Pointer pointer : pointers) {
+            if (pointer != null) {
+              bufferPool.release(pointer);
+            }
+          }
+          throw e;
+        }
+
+        int loadedPages = pagesToLoad;
+        if (verifyChecksums
+            && (checksumMode == ChecksumMode.StoreAndVerify
+            || checksumMode == ChecksumMode.StoreAndThrow
+            || checksumMode == ChecksumMode.StoreAndSwitchReadOnlyMode)) {
+          // broken pages are left for the regular load which checks double write log
+          for (int i = 0; i < pagesToLoad; i++) {
+            if (!verifyMagicChecksumAndDecryptPage(buffers.get(i), intId, startPageIndex + i)) {
+              loadedPages = i;
+              break;
+            }
+          }
+        }
+
+        // compressed pages have to be restored even if checksums are not verified
+        for (int i = 0; i < loadedPages; i++) {
+          if (!decompressPage(buffers.get(i))) {
+            loadedPages = i;
+            break;
+          }
+        }
+
+        final CachePointer[] result = new CachePointer[loadedPages];
+        for (int i = 0; i < pagesToLoad; i++) {
+          if (i < loadedPages) {
+            buffers.get(i).position(0);
+            result[i] =
+                new CachePointer(pointers[i], bufferPool, externalId, (int) (startPageIndex + i));
+            result[i].incrementReadersReferrer();
+          } else {
+            bufferPool.release(pointers[i]);
+          }
+        }
+
+        return result;
+      } finally {
+        files.release(entry);
+      }
+    } catch (final java.lang.InterruptedException e) {
+      throw BaseException.wrapException(new StorageException("Data load was interrupted"), e);
+    } finally {
+      filesLock.releaseReadLock();
+    }
+  }
+
+  @Override
+  public CachePointer acceptLoadedPage(
+      final long fileId, final long pageIndex, final CachePointer pointer, final long stamp) {
+    final PageKey pageKey = new PageKey(extractFileId(fileId), pageIndex);
+    final Lock pageLock = lockManager.acquireSharedLock(pageKey);
+    try {
+      final CachePointer pagePointer = writeCachePages.get(pageKey);
+      if (pagePointer != null) {
+        pagePointer.incrementReadersReferrer();
+        return pagePointer;
+      }
+
+      if (getPagesStamp(fileId) != stamp) {
+        return null;
+      }
+
+      return pointer;
+    } finally {
+      pageLock.unlock();
+    }
+  }
+
   @Override
   public int allocateNewPage(final long fileId) throws IOException {
+    checkForReadOnly();
+
     int pageIndex;
     filesLock.acquireReadLock();
     try {
@@ -1190,6 +1503,8 @@ public final class WOWCache extends AbstractWriteCache
           throw new IllegalStateException("Illegal page index value " + pageIndex);
         }
 
+        pageStamps.incrementAndGet(extractFileId(fileId) & (PAGE_STAMP_STRIPES - 1));
+
       } finally {
         files.release(entry);
       }
@@ -1272,6 +1587,8 @@ public final class WOWCache extends AbstractWriteCache
 
   @Override
   public void deleteFile(final long fileId) throws IOException {
+    checkForReadOnly();
+
     final int intId = extractFileId(fileId);
 
     filesLock.acquireWriteLock();
@@ -1301,6 +1618,8 @@ public final class WOWCache extends AbstractWriteCache
 
   @Override
   public void truncateFile(long fileId) throws IOException {
+    checkForReadOnly();
+
     final int intId = extractFileId(fileId);
     fileId = composeFileId(id, intId);
 
@@ -1332,6 +1651,8 @@ public final class WOWCache extends AbstractWriteCache
 
   @Override
   public void renameFile(long fileId, final String newFileName) throws IOException {
+    checkForReadOnly();
+
     final int intId = extractFileId(fileId);
     fileId = composeFileId(id, intId);
 
@@ -1376,6 +1697,8 @@ public final class WOWCache extends AbstractWriteCache
 
   @Override
   public void replaceFileId(final long fileId, final long newFileId) throws IOException {
+    checkForReadOnly();
+
     filesLock.acquireWriteLock();
     try {
       checkForClose();
@@ -1517,6 +1840,7 @@ public final class WOWCache extends AbstractWriteCache
       }
 
       doubleWriteLog.close();
+      mappedFiles.clear();
 
       nameIdMap.clear();
       idNameMap.clear();
@@ -1533,6 +1857,13 @@ public final class WOWCache extends AbstractWriteCache
     }
   }
 
+  private void checkForReadOnly() {
+    if (mappedReadOnly) {
+      throw new StorageException(
+          "Storage " + storageName + " is opened in read-only mode and can not be changed");
+    }
+  }
+
   @Override
   public void close(long fileId, final boolean flush) {
     final int intId = extractFileId(fileId);
@@ -1552,6 +1883,8 @@ public final class WOWCache extends AbstractWriteCache
         throw new StorageException(
             "Can not close file with id " + internalFileId(fileId) + " because it is still in use");
       }
+
+      mappedFiles.remove(intId);
     } finally {
       filesLock.releaseWriteLock();
     }
@@ -1636,6 +1969,7 @@ public final class WOWCache extends AbstractWriteCache
       for (long pos = 0; pos < filledUpTo; pos += pageSize) {
         boolean checkSumIncorrect = false;
         boolean magicNumberIncorrect = false;
+        final boolean compressedContentIncorrect;
 
         final byte[] data = new byte[pageSize];
 
@@ -1643,6 +1977,7 @@ public final class WOWCache extends AbstractWriteCache
         try {
           final ByteBuffer byteBuffer = pointer.getNativeByteBuffer();
           fileClassic.read(pos, byteBuffer, true);
+          compressedContentIncorrect = !decompressPage(byteBuffer);
           byteBuffer.rewind();
           byteBuffer.get(data);
         } finally {
@@ -1655,7 +1990,9 @@ public final class WOWCache extends AbstractWriteCache
         if (magicNumber != MAGIC_NUMBER_WITH_CHECKSUM
             && magicNumber != MAGIC_NUMBER_WITHOUT_CHECKSUM
             && magicNumber != MAGIC_NUMBER_WITH_CHECKSUM_ENCRYPTED
-            && magicNumber != MAGIC_NUMBER_WITHOUT_CHECKSUM_ENCRYPTED) {
+            && magicNumber != MAGIC_NUMBER_WITHOUT_CHECKSUM_ENCRYPTED
+            && magicNumber != MAGIC_NUMBER_WITH_CHECKSUM_COMPRESSED
+            && magicNumber != MAGIC_NUMBER_WITHOUT_CHECKSUM_COMPRESSED) {
           magicNumberIncorrect = true;
           if (commandOutputListener != null) {
             commandOutputListener.onMessage(
@@ -1668,7 +2005,18 @@ public final class WOWCache extends AbstractWriteCache
           fileIsCorrect = false;
         }
 
-        if (magicNumber != MAGIC_NUMBER_WITHOUT_CHECKSUM) {
+        if (compressedContentIncorrect) {
+          checkSumIncorrect = true;
+          if (commandOutputListener != null) {
+            commandOutputListener.onMessage(
+                "Error: Compressed content of page "
+                    + (pos / pageSize)
+                    + " in file '"
+                    + fileName
+                    + "' is broken!\n");
+          }
+          fileIsCorrect = false;
+        } else if (magicNumber != MAGIC_NUMBER_WITHOUT_CHECKSUM) {
           final int storedCRC32 =
               IntegerSerializer.INSTANCE.deserializeNative(data, CHECKSUM_OFFSET);
 
@@ -1763,6 +2111,8 @@ public final class WOWCache extends AbstractWriteCache
         }
       }
 
+      mappedFiles.clear();
+
       if (nameIdMapHolderPath != null) {
         if (Files.exists(nameIdMapHolderPath)) {
           Files.delete(nameIdMapHolderPath);
@@ -1921,7 +2271,7 @@ public final class WOWCache extends AbstractWriteCache
   private File createFileInstance(final String fileName, final int fileId) {
     final String internalFileName = createInternalFileName(fileName, fileId);
     return new AsyncFile(
-        storagePath.resolve(internalFileName), pageSize, logFileDeletion, this.executor);
+        storagePath.resolve(internalFileName), pageSize, logFileDeletion, this.executor, directIO);
   }
 
   private static String createInternalFileName(final String fileName, final int fileId) {
@@ -2005,7 +2355,8 @@ public final class WOWCache extends AbstractWriteCache
         if (files.get(externalId) == null) {
           final Path path =
               storagePath.resolve(idFileNameMap.get((nameIdEntry.getValue().intValue())));
-          final AsyncFile file = new AsyncFile(path, pageSize, logFileDeletion, this.executor);
+          final AsyncFile file =
+              new AsyncFile(path, pageSize, logFileDeletion, this.executor, directIO);
 
           if (file.exists()) {
             file.open();
@@ -2073,7 +2424,8 @@ public final class WOWCache extends AbstractWriteCache
         if (files.get(externalId) == null) {
           final Path path =
               storagePath.resolve(idFileNameMap.get((nameIdEntry.getValue().intValue())));
-          final AsyncFile file = new AsyncFile(path, pageSize, logFileDeletion, this.executor);
+          final AsyncFile file =
+              new AsyncFile(path, pageSize, logFileDeletion, this.executor, directIO);
 
           if (file.exists()) {
             file.open();
@@ -2151,7 +2503,8 @@ public final class WOWCache extends AbstractWriteCache
                   storagePath.resolve(nameIdEntry.getKey()),
                   pageSize,
                   logFileDeletion,
-                  this.executor);
+                  this.executor,
+                  directIO);
 
           if (fileClassic.exists()) {
             fileClassic.open();
@@ -2384,6 +2737,106 @@ public final class WOWCache extends AbstractWriteCache
     }
   }
 
+  /**
+   * Wraps page of the memory mapped file without copying of its content. Pages which can not be
+   * used as is (compressed, encrypted, broken or not stored in the file) are not wrapped and have
+   * to be loaded by {@link #loadFileContent(int, long, boolean)}.
+   *
+   * @return Pointer to the mapped page or <code>null</code> if page can not be used as is.
+   */
+  private CachePointer loadMappedPage(
+      final int internalFileId, final long pageIndex, final boolean verifyChecksums)
+      throws IOException {
+    MappedByteBuffer[] segments = mappedFiles.get(internalFileId);
+    if (segments == null) {
+      // concurrent mapping of the same file is harmless, one of the mappings is discarded
+      segments = mapFile(internalFileId);
+      final MappedByteBuffer[] existingSegments =
+          mappedFiles.putIfAbsent(internalFileId, segments);
+      if (existingSegments != null) {
+        segments = existingSegments;
+      }
+    }
+
+    final long pagePosition = pageIndex * pageSize;
+    final int segmentIndex = (int) (pagePosition / MAPPED_SEGMENT_SIZE);
+    if (segmentIndex >= segments.length) {
+      return null;
+    }
+
+    final MappedByteBuffer segment = segments[segmentIndex];
+    final int pageOffset = (int) (pagePosition % MAPPED_SEGMENT_SIZE);
+    if (pageOffset + pageSize > segment.capacity()) {
+      return null;
+    }
+
+    final long magicNumber = segment.getLong(pageOffset + MAGIC_NUMBER_OFFSET);
+    if (magicNumber != MAGIC_NUMBER_WITH_CHECKSUM && magicNumber != MAGIC_NUMBER_WITHOUT_CHECKSUM) {
+      return null;
+    }
+
+    if (verifyChecksums
+        && magicNumber == MAGIC_NUMBER_WITH_CHECKSUM
+        && (checksumMode == ChecksumMode.StoreAndVerify
+        || checksumMode == ChecksumMode.StoreAndThrow
+        || checksumMode == ChecksumMode.StoreAndSwitchReadOnlyMode)) {
+      final int storedChecksum = segment.getInt(pageOffset + CHECKSUM_OFFSET);
+
+      final CRC32 crc32 = new CRC32();
+      crc32.update(
+          segment.slice(
+              pageOffset + PAGE_OFFSET_TO_CHECKSUM_FROM, pageSize - PAGE_OFFSET_TO_CHECKSUM_FROM));
+      if ((int) crc32.getValue() != storedChecksum) {
+        return null;
+      }
+    }
+
+    return new CachePointer(
+        Pointer.wrap(segment, pageOffset, pageSize),
+        null,
+        composeFileId(id, internalFileId),
+        (int) pageIndex);
+  }
+
+  private MappedByteBuffer[] mapFile(final int internalFileId) throws IOException {
+    final ClosableEntry<Long, File> entry;
+    try {
+      entry = files.acquire(composeFileId(id, internalFileId));
+    } catch (final InterruptedException e) {
+      throw BaseException.wrapException(
+          new ThreadInterruptedException("File mapping was interrupted"), e);
+    }
+    try {
+      final File fileClassic = entry.get();
+      if (fileClassic == null) {
+        throw new IllegalArgumentException(
+            "File with id " + internalFileId + " not found in WOW Cache");
+      }
+
+      final long mappedSize = fileClassic.getFileSize() / pageSize * pageSize;
+      final MappedByteBuffer[] segments =
+          new MappedByteBuffer[(int) ((mappedSize + MAPPED_SEGMENT_SIZE - 1) / MAPPED_SEGMENT_SIZE)];
+
+      // mapping stays valid after the channel is closed
+      try (final FileChannel channel =
+          FileChannel.open(storagePath.resolve(fileClassic.getName()), StandardOpenOption.READ)) {
+        for (int i = 0; i < segments.length; i++) {
+          final long segmentPosition = (long) i * MAPPED_SEGMENT_SIZE;
+          segments[i] =
+              channel.map(
+                  FileChannel.MapMode.READ_ONLY,
+                  File.HEADER_SIZE + segmentPosition,
+                  Math.min(MAPPED_SEGMENT_SIZE, mappedSize - segmentPosition));
+          segments[i].order(ByteOrder.nativeOrder());
+        }
+      }
+
+      return segments;
+    } finally {
+      files.release(entry);
+    }
+  }
+
   private CachePointer loadFileContent(
       final int internalFileId, final long pageIndex, final boolean verifyChecksums)
       throws IOException {
@@ -2435,6 +2888,11 @@ public final class WOWCache extends AbstractWriteCache
             }
           }
 
+          // compressed pages have to be restored even if checksums are not verified
+          if (!decompressPage(buffer)) {
+            assertPageIsBroken(pageIndex, fileId, pointer);
+          }
+
           buffer.position(0);
           return new CachePointer(pointer, bufferPool, fileId, (int) pageIndex);
         } else {
@@ -2482,7 +2940,13 @@ public final class WOWCache extends AbstractWriteCache
     }
   }
 
-  private void addMagicChecksumAndEncryption(
+  /**
+   * Prepares page to be written to the disk.
+   *
+   * @return Amount of bytes of the page which should be written to the disk, it is less than size
+   * of the page if page content is compressed.
+   */
+  private int addMagicChecksumAndEncryption(
       final int intId, final int pageIndex, final ByteBuffer buffer) {
     assert buffer.order() == ByteOrder.nativeOrder();
 
@@ -2511,12 +2975,121 @@ public final class WOWCache extends AbstractWriteCache
       buffer.putLong(MAGIC_NUMBER_OFFSET, magicNumber);
       doEncryptionDecryption(intId, pageIndex, Cipher.ENCRYPT_MODE, buffer, updateCounter);
     } else {
+      final int compressedSize = isPageCompressionEnabled(intId) ? compressPage(buffer) : -1;
+      if (compressedSize >= 0) {
+        buffer.putLong(
+            MAGIC_NUMBER_OFFSET,
+            checksumMode == ChecksumMode.Off
+                ? MAGIC_NUMBER_WITHOUT_CHECKSUM_COMPRESSED
+                : MAGIC_NUMBER_WITH_CHECKSUM_COMPRESSED);
+
+        return compressedPageWriteSize(compressedSize);
+      }
+
       buffer.putLong(
           MAGIC_NUMBER_OFFSET,
           checksumMode == ChecksumMode.Off
               ? MAGIC_NUMBER_WITHOUT_CHECKSUM
               : MAGIC_NUMBER_WITH_CHECKSUM);
     }
+
+    return pageSize;
+  }
+
+  private boolean isPageCompressionEnabled(final int intId) {
+    if (compressedFiles.length == 0) {
+      return false;
+    }
+
+    final String fileName = idNameMap.get(intId);
+    if (fileName == null) {
+      return false;
+    }
+
+    for (final String compressedFile : compressedFiles) {
+      if (fileName.endsWith(compressedFile)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Compresses content of the page which follows the checksum using LZ4. Page is compressed only
+   * if it saves at least one {@link #PAGE_COMPRESSION_BLOCK_SIZE} block of the disk write.
+   *
+   * @return Size of the compressed content or <code>-1</code> if page is left uncompressed.
+   */
+  private int compressPage(final ByteBuffer buffer) {
+    final int maxCompressedSize =
+        pageSize - PAGE_COMPRESSION_BLOCK_SIZE - COMPRESSED_PAGE_DATA_OFFSET;
+    if (maxCompressedSize <= 0) {
+      return -1;
+    }
+
+    final int dataSize = pageSize - PAGE_OFFSET_TO_CHECKSUM_FROM;
+    final ByteBuffer compressed =
+        ByteBuffer.allocate(LZ_4_COMPRESSOR.maxCompressedLength(dataSize));
+    final int compressedSize =
+        LZ_4_COMPRESSOR.compress(
+            buffer, PAGE_OFFSET_TO_CHECKSUM_FROM, dataSize, compressed, 0, compressed.capacity());
+    if (compressedSize > maxCompressedSize) {
+      return -1;
+    }
+
+    buffer.putInt(PAGE_OFFSET_TO_CHECKSUM_FROM, compressedSize);
+    buffer.put(COMPRESSED_PAGE_DATA_OFFSET, compressed, 0, compressedSize);
+
+    return compressedSize;
+  }
+
+  private static int compressedPageWriteSize(final int compressedSize) {
+    final int size = COMPRESSED_PAGE_DATA_OFFSET + compressedSize;
+    return (size + PAGE_COMPRESSION_BLOCK_SIZE - 1)
+        / PAGE_COMPRESSION_BLOCK_SIZE
+        * PAGE_COMPRESSION_BLOCK_SIZE;
+  }
+
+  /**
+   * Restores content of the page compressed by {@link #compressPage(ByteBuffer)}, pages which are
+   * not compressed are left untouched.
+   *
+   * @return <code>false</code> if compressed content of the page is broken.
+   */
+  private boolean decompressPage(final ByteBuffer buffer) {
+    final long magicNumber = buffer.getLong(MAGIC_NUMBER_OFFSET);
+    if (magicNumber != MAGIC_NUMBER_WITH_CHECKSUM_COMPRESSED
+        && magicNumber != MAGIC_NUMBER_WITHOUT_CHECKSUM_COMPRESSED) {
+      return true;
+    }
+
+    final int compressedSize = buffer.getInt(PAGE_OFFSET_TO_CHECKSUM_FROM);
+    if (compressedSize <= 0 || compressedSize > pageSize - COMPRESSED_PAGE_DATA_OFFSET) {
+      return false;
+    }
+
+    final ByteBuffer compressed = ByteBuffer.allocate(compressedSize);
+    compressed.put(0, buffer, COMPRESSED_PAGE_DATA_OFFSET, compressedSize);
+
+    try {
+      final int read =
+          LZ_4_DECOMPRESSOR.decompress(
+              compressed, 0, buffer, PAGE_OFFSET_TO_CHECKSUM_FROM,
+              pageSize - PAGE_OFFSET_TO_CHECKSUM_FROM);
+      if (read != compressedSize) {
+        return false;
+      }
+    } catch (final LZ4Exception e) {
+      return false;
+    }
+
+    buffer.putLong(
+        MAGIC_NUMBER_OFFSET,
+        magicNumber == MAGIC_NUMBER_WITH_CHECKSUM_COMPRESSED
+            ? MAGIC_NUMBER_WITH_CHECKSUM
+            : MAGIC_NUMBER_WITHOUT_CHECKSUM);
+    return true;
   }
 
   private void doEncryptionDecryption(
@@ -2574,6 +3147,10 @@ public final class WOWCache extends AbstractWriteCache
       final ByteBuffer buffer, final int intId, final long pageIndex) {
     assert buffer.order() == ByteOrder.nativeOrder();
 
+    if (!decompressPage(buffer)) {
+      return false;
+    }
+
     buffer.position(MAGIC_NUMBER_OFFSET);
     final long magicNumber = LongSerializer.INSTANCE.deserializeFromByteBufferObject(buffer);
 
@@ -2751,7 +3328,7 @@ public final class WOWCache extends AbstractWriteCache
     }
   }
 
-  private void flushWriteCacheFromMinLSN(
+  private int flushWriteCacheFromMinLSN(
       final long segStart, final long segEnd, final int pagesFlushLimit)
       throws java.lang.InterruptedException, IOException {
     // first we try to find page which contains the oldest not flushed changes
@@ -2943,6 +3520,8 @@ public final class WOWCache extends AbstractWriteCache
       throw new IllegalStateException(
           "Copied pages (" + copiedPages + " ) != flushed pages (" + flushedPages + ")");
     }
+
+    return flushedPages;
   }
 
   void writeValidPageInFile(int internalFileId, int pageIndex) {
@@ -3111,26 +3690,49 @@ public final class WOWCache extends AbstractWriteCache
       containerBuffers.add(containerBuffer);
       assert containerBuffer.position() == 0;
 
-      for (var chunkPage : chunk) {
+      final var firstPage = chunk.get(0);
+      final CachePointer firstCachePointer = firstPage.originalPagePointer;
+
+      final long fileId = firstCachePointer.getFileId();
+      final int pageIndex = firstCachePointer.getPageIndex();
+
+      var fileBuffers = buffersByFileId.computeIfAbsent(fileId, (id) -> new ArrayList<>());
+
+      // chunk is written by parts which end at the compressed pages, so only the used part of
+      // compressed page is written, the last page is always written in full to keep size of the
+      // file aligned to the page size
+      int writeStart = 0;
+      for (int i = 0; i < chunk.size(); i++) {
+        final var chunkPage = chunk.get(i);
         final ByteBuffer buffer = chunkPage.copyOfPage;
 
         final CachePointer pointer = chunkPage.originalPagePointer;
 
-        addMagicChecksumAndEncryption(
-            extractFileId(pointer.getFileId()), pointer.getPageIndex(), buffer);
+        final int writeSize =
+            addMagicChecksumAndEncryption(
+                extractFileId(pointer.getFileId()), pointer.getPageIndex(), buffer);
 
         buffer.position(0);
         containerBuffer.put(buffer);
-      }
 
-      final var firstPage = chunk.get(0);
-      final CachePointer firstCachePointer = firstPage.originalPagePointer;
-
-      final long fileId = firstCachePointer.getFileId();
-      final int pageIndex = firstCachePointer.getPageIndex();
+        if (writeSize < pageSize && i < chunk.size() - 1) {
+          final int writeEnd = i * pageSize + writeSize;
+          fileBuffers.add(
+              new RawPairLongObject<>(
+                  ((long) pageIndex) * pageSize + writeStart,
+                  containerBuffer.slice(writeStart, writeEnd - writeStart)));
+          writeStart = (i + 1) * pageSize;
+        }
+      }
 
-      var fileBuffers = buffersByFileId.computeIfAbsent(fileId, (id) -> new ArrayList<>());
-      fileBuffers.add(new RawPairLongObject<>(((long) pageIndex) * pageSize, containerBuffer));
+      if (writeStart == 0) {
+        fileBuffers.add(new RawPairLongObject<>(((long) pageIndex) * pageSize, containerBuffer));
+      } else {
+        fileBuffers.add(
+            new RawPairLongObject<>(
+                ((long) pageIndex) * pageSize + writeStart,
+                containerBuffer.slice(writeStart, chunk.size() * pageSize - writeStart)));
+      }
 
       chunkPageIndexes.add(pageIndex);
       chunkFileIds.add(internalFileId(fileId));
@@ -3595,12 +4197,31 @@ public final class WOWCache extends AbstractWriteCache
           if (firstSegment != null) {
             final long firstSegmentIndex = firstSegment.getKey();
             if (firstSegmentIndex < end.getSegment()) {
-              flushWriteCacheFromMinLSN(firstSegmentIndex, firstSegmentIndex + 1, chunkSize);
+              long dirtyPages = 0;
+              for (final TreeSet<PageKey> segmentPages :
+                  localDirtyPagesBySegment.headMap(end.getSegment()).values()) {
+                dirtyPages += segmentPages.size();
+              }
+
+              final int pagesToFlush =
+                  flushPacer.pagesToFlush(
+                      System.nanoTime(),
+                      writeAheadLog.size(),
+                      writeAheadLog.sizeLimit(),
+                      dirtyPages);
+              if (pagesToFlush > 0) {
+                final long flushStart = System.nanoTime();
+                final int flushedPages =
+                    flushWriteCacheFromMinLSN(firstSegmentIndex, end.getSegment(), pagesToFlush);
+                flushPacer.pagesFlushed(flushedPages, System.nanoTime() - flushStart);
+              }
             }
           }
 
           firstSegment = localDirtyPagesBySegment.firstEntry();
-          if (firstSegment != null && firstSegment.getKey() < end.getSegment()) {
+          if (flushPacer.isBehind()
+              && firstSegment != null
+              && firstSegment.getKey() < end.getSegment()) {
             flushInterval = 1;
           }
         }
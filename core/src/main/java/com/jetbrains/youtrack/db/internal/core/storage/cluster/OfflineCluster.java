@@ -246,6 +246,11 @@ public class OfflineCluster implements StorageCluster {
     // do nothing, anyway there is no real data behind to lock it
   }
 
+  @Override
+  public boolean isAtomicExclusiveLocked() {
+    return false;
+  }
+
   @Override
   public ClusterBrowsePage nextPage(long lastPosition) {
     return null;
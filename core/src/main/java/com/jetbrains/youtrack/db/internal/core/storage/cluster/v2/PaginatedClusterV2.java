@@ -1396,6 +1396,11 @@ public final class PaginatedClusterV2 extends PaginatedCluster {
     atomicOperationsManager.acquireExclusiveLockTillOperationComplete(this);
   }
 
+  @Override
+  public boolean isAtomicExclusiveLocked() {
+    return atomicOperationsManager.isExclusivelyLocked(this);
+  }
+
   @Override
   public String toString() {
     return "plocal cluster: " + getName();
@@ -836,14 +836,19 @@ public class LocalPaginatedStorage extends AbstractPaginatedStorage {
             .map(keyEncoded -> Base64.getDecoder().decode(keyEncoded))
             .orElse(null);
 
-    fuzzyCheckpointTask =
-        fuzzyCheckpointExecutor.scheduleWithFixedDelay(
-            new PeriodicFuzzyCheckpoint(this),
-            contextConfiguration.getValueAsInteger(
-                GlobalConfiguration.WAL_FUZZY_CHECKPOINT_INTERVAL),
-            contextConfiguration.getValueAsInteger(
-                GlobalConfiguration.WAL_FUZZY_CHECKPOINT_INTERVAL),
-            TimeUnit.SECONDS);
+    final boolean mappedReadOnly = isMappedReadOnly(contextConfiguration, aesKey);
+
+    // nothing is changed in read-only mode, so there is nothing to checkpoint
+    if (!mappedReadOnly) {
+      fuzzyCheckpointTask =
+          fuzzyCheckpointExecutor.scheduleWithFixedDelay(
+              new PeriodicFuzzyCheckpoint(this),
+              contextConfiguration.getValueAsInteger(
+                  GlobalConfiguration.WAL_FUZZY_CHECKPOINT_INTERVAL),
+              contextConfiguration.getValueAsInteger(
+                  GlobalConfiguration.WAL_FUZZY_CHECKPOINT_INTERVAL),
+              TimeUnit.SECONDS);
+    }
 
     final String configWalPath =
         contextConfiguration.getValueAsString(GlobalConfiguration.WAL_LOCATION);
@@ -891,7 +896,8 @@ public class LocalPaginatedStorage extends AbstractPaginatedStorage {
                 * diskCacheSize);
 
     final DoubleWriteLog doubleWriteLog;
-    if (contextConfiguration.getValueAsBoolean(
+    if (!mappedReadOnly
+        && contextConfiguration.getValueAsBoolean(
         GlobalConfiguration.STORAGE_USE_DOUBLE_WRITE_LOG)) {
       doubleWriteLog = new DoubleWriteLogGL(doubleWriteLogMaxSegSize);
     } else {
@@ -919,7 +925,11 @@ public class LocalPaginatedStorage extends AbstractPaginatedStorage {
             iv,
             aesKey,
             contextConfiguration.getValueAsBoolean(GlobalConfiguration.STORAGE_CALL_FSYNC),
-            ((YouTrackDBEmbedded) context).getIoExecutor());
+            ((YouTrackDBEmbedded) context).getIoExecutor(),
+            contextConfiguration.getValueAsString(
+                GlobalConfiguration.DISK_CACHE_PAGE_COMPRESSION_FILES),
+            contextConfiguration.getValueAsBoolean(GlobalConfiguration.DISK_CACHE_DIRECT_IO),
+            mappedReadOnly);
 
     wowCache.loadRegisteredFiles();
     wowCache.addBackgroundExceptionListener(this);
@@ -928,6 +938,26 @@ public class LocalPaginatedStorage extends AbstractPaginatedStorage {
     writeCache = wowCache;
   }
 
+  private boolean isMappedReadOnly(
+      final ContextConfiguration contextConfiguration, final byte[] aesKey) {
+    if (!contextConfiguration.getValueAsBoolean(GlobalConfiguration.DISK_CACHE_MAPPED_READ_ONLY)) {
+      return false;
+    }
+
+    // encrypted pages can not be used without decryption, so they can not be mapped
+    if (aesKey != null) {
+      LogManager.instance()
+          .warn(
+              this,
+              "Memory mapped read-only mode is not supported for encrypted storage %s and will be"
+                  + " disabled",
+              name);
+      return false;
+    }
+
+    return true;
+  }
+
   public static boolean exists(final Path path) {
     try {
       final boolean[] exists = new boolean[1];
@@ -6,6 +6,7 @@ import com.jetbrains.youtrack.db.internal.common.concur.lock.ThreadInterruptedEx
 import com.jetbrains.youtrack.db.internal.common.log.LogManager;
 import com.jetbrains.youtrack.db.internal.common.util.RawPairLongObject;
 import com.jetbrains.youtrack.db.internal.core.exception.StorageException;
+import com.sun.nio.file.ExtendedOpenOption;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -16,6 +17,7 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -24,6 +26,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 public final class AsyncFile implements File {
@@ -43,19 +46,51 @@ public final class AsyncFile implements File {
 
   private final Semaphore syncSemaphore = new Semaphore(Integer.MAX_VALUE);
   private static final Set<OpenOption> options;
+  private static final Set<OpenOption> directOptions;
+
+  /**
+   * Fallback to the IO through the OS page cache is logged only once.
+   */
+  private static final AtomicBoolean directIOFallbackLogged = new AtomicBoolean();
 
   static {
     options = new HashSet<>();
     options.add(StandardOpenOption.READ);
     options.add(StandardOpenOption.WRITE);
+
+    directOptions = new HashSet<>(options);
+    directOptions.add(ExtendedOpenOption.DIRECT);
   }
 
+  private final boolean directIORequested;
+
+  /**
+   * Indicates whether the file is opened with <code>O_DIRECT</code> flag, so IO operations bypass
+   * the OS page cache. Changed only under exclusive lock.
+   */
+  private volatile boolean directIO;
+
   public AsyncFile(
       final Path osFile, final int pageSize, boolean logFileDeletion, ExecutorService executor) {
+    this(osFile, pageSize, logFileDeletion, executor, false);
+  }
+
+  /**
+   * @param directIO Whether the file should be opened with <code>O_DIRECT</code> flag. If the
+   *                 platform or the file system do not support direct IO with aligned pages, the
+   *                 file is accessed through the OS page cache.
+   */
+  public AsyncFile(
+      final Path osFile,
+      final int pageSize,
+      boolean logFileDeletion,
+      ExecutorService executor,
+      boolean directIO) {
     this.osFile = osFile;
     this.pageSize = pageSize;
     this.executor = executor;
     this.logFileDeletion = logFileDeletion;
+    this.directIORequested = directIO;
   }
 
   @Override
@@ -146,6 +181,89 @@ public final class AsyncFile implements File {
     fileChannel = AsynchronousFileChannel.open(osFile, options, executor);
 
     initSize();
+
+    if (directIORequested) {
+      openDirect();
+    }
+  }
+
+  /**
+   * Reopens the file with <code>O_DIRECT</code> flag once the header of the file is written. The
+   * file stays opened without the flag if direct IO is not supported or if the file system
+   * requires an alignment which is bigger than {@link DirectIOBuffer#ALIGNMENT}.
+   */
+  private void openDirect() throws IOException {
+    final AsynchronousFileChannel directChannel;
+    try {
+      directChannel = AsynchronousFileChannel.open(osFile, directOptions, executor);
+    } catch (final UnsupportedOperationException | IOException e) {
+      logDirectIOFallback(e);
+      return;
+    }
+
+    // header is always present, so the read checks the alignment of the position of the pages
+    final DirectIOBuffer probe = DirectIOBuffer.allocate(DirectIOBuffer.ALIGNMENT);
+    try {
+      directChannel.read(probe.buffer(), DirectIOBuffer.ALIGNMENT).get();
+    } catch (final java.lang.InterruptedException e) {
+      directChannel.close();
+      throw BaseException.wrapException(
+          new ThreadInterruptedException("File read was interrupted"), e);
+    } catch (final ExecutionException e) {
+      directChannel.close();
+      logDirectIOFallback(e.getCause());
+      return;
+    } finally {
+      probe.release();
+    }
+
+    fileChannel.close();
+    fileChannel = directChannel;
+    directIO = true;
+  }
+
+  private void logDirectIOFallback(final Throwable e) {
+    if (directIOFallbackLogged.compareAndSet(false, true)) {
+      LogManager.instance()
+          .warn(
+              this,
+              "Direct IO is not supported for file %s, files will be accessed through the OS page"
+                  + " cache",
+              e,
+              osFile);
+    }
+  }
+
+  /**
+   * Provides buffer which can be used for the IO operation on the file opened with
+   * <code>O_DIRECT</code> flag.
+   *
+   * @return <code>null</code> if the passed in buffer can be used as is, or the aligned copy of
+   * the buffer which should be released once operation is completed.
+   */
+  private DirectIOBuffer alignForDirectIO(
+      final long offset, final ByteBuffer buffer, final boolean copyContent) {
+    if (!DirectIOBuffer.isAligned(offset + HEADER_SIZE, buffer.limit())) {
+      throw new StorageException(
+          "Region of the file "
+              + osFile
+              + " which starts at position "
+              + offset
+              + " and has size "
+              + buffer.limit()
+              + " is not aligned for direct IO");
+    }
+
+    if (DirectIOBuffer.isAligned(buffer)) {
+      return null;
+    }
+
+    final DirectIOBuffer directIOBuffer = DirectIOBuffer.allocate(buffer.limit());
+    if (copyContent) {
+      directIOBuffer.buffer().put(0, buffer, 0, buffer.limit());
+    }
+
+    return directIOBuffer;
   }
 
   @Override
@@ -189,21 +307,30 @@ public final class AsyncFile implements File {
       checkPosition(offset);
       checkPosition(offset + buffer.limit() - 1);
 
+      final DirectIOBuffer directIOBuffer =
+          directIO ? alignForDirectIO(offset, buffer, true) : null;
+      final ByteBuffer source = directIOBuffer != null ? directIOBuffer.buffer() : buffer;
       int written = 0;
-      do {
-        buffer.position(written);
-        final Future<Integer> writeFuture =
-            fileChannel.write(buffer, offset + HEADER_SIZE + written);
-        try {
-          written += writeFuture.get();
-        } catch (java.lang.InterruptedException e) {
-          throw BaseException.wrapException(
-              new ThreadInterruptedException("File write was interrupted"), e);
-        } catch (ExecutionException e) {
-          throw BaseException.wrapException(
-              new StorageException("Error during write operation to the file " + osFile), e);
+      try {
+        do {
+          source.position(written);
+          final Future<Integer> writeFuture =
+              fileChannel.write(source, offset + HEADER_SIZE + written);
+          try {
+            written += writeFuture.get();
+          } catch (java.lang.InterruptedException e) {
+            throw BaseException.wrapException(
+                new ThreadInterruptedException("File write was interrupted"), e);
+          } catch (ExecutionException e) {
+            throw BaseException.wrapException(
+                new StorageException("Error during write operation to the file " + osFile), e);
+          }
+        } while (written < source.limit());
+      } finally {
+        if (directIOBuffer != null) {
+          directIOBuffer.release();
         }
-      } while (written < buffer.limit());
+      }
 
       dirtyCounter.incrementAndGet();
       assert written == buffer.limit();
@@ -229,11 +356,21 @@ public final class AsyncFile implements File {
         checkPosition(pair.first + pair.second.limit() - 1);
 
         final long position = pair.first + HEADER_SIZE;
-        fileChannel.write(
-            byteBuffer,
-            position,
-            latch,
-            new WriteHandler(byteBuffer, asyncIOResult, position, syncSemaphore));
+        final DirectIOBuffer directIOBuffer =
+            directIO ? alignForDirectIO(pair.first, byteBuffer, true) : null;
+        final ByteBuffer source = directIOBuffer != null ? directIOBuffer.buffer() : byteBuffer;
+        try {
+          fileChannel.write(
+              source,
+              position,
+              latch,
+              new WriteHandler(source, directIOBuffer, asyncIOResult, position, syncSemaphore));
+        } catch (final RuntimeException e) {
+          if (directIOBuffer != null) {
+            directIOBuffer.release();
+          }
+          throw e;
+        }
       } finally {
         lock.sharedUnlock();
       }
@@ -249,10 +386,119 @@ public final class AsyncFile implements File {
       checkForClose();
       checkPosition(offset);
 
-      int read = 0;
+      doRead(offset, buffer, 0, throwOnEof);
+    } finally {
+      lock.sharedUnlock();
+    }
+  }
+
+  @Override
+  public void read(long offset, List<ByteBuffer> buffers, boolean throwOnEof)
+      throws IOException {
+    lock.sharedLock();
+    try {
+      checkForClose();
+      checkPosition(offset);
+
+      final DirectIOBuffer[] directIOBuffers = new DirectIOBuffer[buffers.size()];
+      try {
+        if (directIO) {
+          long position = offset;
+          for (int i = 0; i < buffers.size(); i++) {
+            final ByteBuffer buffer = buffers.get(i);
+            directIOBuffers[i] = alignForDirectIO(position, buffer, false);
+            position += buffer.limit();
+          }
+        }
+
+        final List<Future<Integer>> readFutures = new ArrayList<>(buffers.size());
+        long position = offset;
+        for (int i = 0; i < buffers.size(); i++) {
+          final ByteBuffer buffer = buffers.get(i);
+          buffer.position(0);
+
+          final ByteBuffer target =
+              directIOBuffers[i] != null ? directIOBuffers[i].buffer() : buffer;
+          readFutures.add(fileChannel.read(target, position + HEADER_SIZE));
+          position += buffer.limit();
+        }
+
+        awaitReads(offset, buffers, directIOBuffers, readFutures, throwOnEof);
+      } finally {
+        for (final DirectIOBuffer directIOBuffer : directIOBuffers) {
+          if (directIOBuffer != null) {
+            directIOBuffer.release();
+          }
+        }
+      }
+    } finally {
+      lock.sharedUnlock();
+    }
+  }
+
+  private void awaitReads(
+      final long offset,
+      final List<ByteBuffer> buffers,
+      final DirectIOBuffer[] directIOBuffers,
+      final List<Future<Integer>> readFutures,
+      final boolean throwOnEof)
+      throws IOException {
+    // all the reads are awaited even if some of them fail, because buffers may be released
+    // by the caller once the method returns
+    final int[] bytesRead = new int[buffers.size()];
+    BaseException error = null;
+    boolean interrupted = false;
+    for (int i = 0; i < buffers.size(); i++) {
+      while (true) {
+        try {
+          bytesRead[i] = readFutures.get(i).get();
+          break;
+        } catch (java.lang.InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (error == null) {
+            error =
+                BaseException.wrapException(
+                    new StorageException("Error during read operation from the file " + osFile),
+                    e);
+          }
+          break;
+        }
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (error != null) {
+      throw error;
+    }
+
+    long position = offset;
+    for (int i = 0; i < buffers.size(); i++) {
+      final ByteBuffer buffer = buffers.get(i);
+      if (directIOBuffers[i] != null && bytesRead[i] > 0) {
+        buffer.put(0, directIOBuffers[i].buffer(), 0, bytesRead[i]);
+      }
+
+      if (bytesRead[i] < buffer.limit()) {
+        // partial read, the rest of the buffer is read one more time
+        doRead(position, buffer, Math.max(bytesRead[i], 0), throwOnEof);
+      }
+      position += buffer.limit();
+    }
+  }
+
+  private void doRead(long offset, ByteBuffer buffer, int read, boolean throwOnEof)
+      throws IOException {
+    final DirectIOBuffer directIOBuffer =
+        directIO ? alignForDirectIO(offset, buffer, false) : null;
+    final ByteBuffer target = directIOBuffer != null ? directIOBuffer.buffer() : buffer;
+    final int initialRead = read;
+    try {
       do {
-        buffer.position(read);
-        final Future<Integer> readFuture = fileChannel.read(buffer, offset + HEADER_SIZE + read);
+        target.position(read);
+        final Future<Integer> readFuture = fileChannel.read(target, offset + HEADER_SIZE + read);
         final int bytesRead;
         try {
           bytesRead = readFuture.get();
@@ -273,9 +519,16 @@ public final class AsyncFile implements File {
         }
 
         read += bytesRead;
-      } while (read < buffer.limit());
+      } while (read < target.limit());
+
+      if (directIOBuffer != null) {
+        buffer.put(initialRead, target, initialRead, read - initialRead);
+        buffer.position(read);
+      }
     } finally {
-      lock.sharedUnlock();
+      if (directIOBuffer != null) {
+        directIOBuffer.release();
+      }
     }
   }
 
@@ -351,6 +604,7 @@ public final class AsyncFile implements File {
     if (fileChannel != null) {
       fileChannel.close();
       fileChannel = null;
+      directIO = false;
     }
   }
 
@@ -418,19 +672,31 @@ public final class AsyncFile implements File {
   private final class WriteHandler implements CompletionHandler<Integer, CountDownLatch> {
 
     private final ByteBuffer byteBuffer;
+    private final DirectIOBuffer directIOBuffer;
     private final AsyncIOResult ioResult;
     private final long position;
 
     private final Semaphore syncSemaphore;
 
     private WriteHandler(
-        ByteBuffer byteBuffer, AsyncIOResult ioResult, long position, Semaphore syncSemaphore) {
+        ByteBuffer byteBuffer,
+        DirectIOBuffer directIOBuffer,
+        AsyncIOResult ioResult,
+        long position,
+        Semaphore syncSemaphore) {
       this.byteBuffer = byteBuffer;
+      this.directIOBuffer = directIOBuffer;
       this.ioResult = ioResult;
       this.position = position;
       this.syncSemaphore = syncSemaphore;
     }
 
+    private void releaseDirectIOBuffer() {
+      if (directIOBuffer != null) {
+        directIOBuffer.release();
+      }
+    }
+
     @Override
     public void completed(Integer result, CountDownLatch attachment) {
       if (byteBuffer.remaining() > 0) {
@@ -443,6 +709,7 @@ public final class AsyncFile implements File {
           lock.sharedUnlock();
         }
       } else {
+        releaseDirectIOBuffer();
         dirtyCounter.incrementAndGet();
         attachment.countDown();
         syncSemaphore.release();
@@ -454,6 +721,7 @@ public final class AsyncFile implements File {
       ioResult.exc = exc;
       LogManager.instance().error(this, "Error during write operation to the file " + osFile, exc);
 
+      releaseDirectIOBuffer();
       dirtyCounter.incrementAndGet();
       attachment.countDown();
       syncSemaphore.release();
@@ -0,0 +1,59 @@
+package com.jetbrains.youtrack.db.internal.core.storage.fs;
+
+import com.jetbrains.youtrack.db.internal.common.directmemory.DirectMemoryAllocator;
+import com.jetbrains.youtrack.db.internal.common.directmemory.DirectMemoryAllocator.Intention;
+import com.jetbrains.youtrack.db.internal.common.directmemory.Pointer;
+import java.nio.ByteBuffer;
+
+/**
+ * Buffer which is used to perform IO operations on the file opened with <code>O_DIRECT</code> flag
+ * if memory of the buffer passed by the caller is not aligned.
+ */
+final class DirectIOBuffer {
+
+  /**
+   * Alignment of memory, file positions and sizes of the IO operations performed on the file
+   * opened with <code>O_DIRECT</code> flag. It is the size of the logical sector of most of the
+   * block devices and it divides {@link File#HEADER_SIZE}, so positions of the pages are aligned.
+   */
+  static final int ALIGNMENT = 512;
+
+  private final Pointer pointer;
+  private final ByteBuffer buffer;
+
+  private DirectIOBuffer(final Pointer pointer, final int size) {
+    this.pointer = pointer;
+    this.buffer = pointer.getNativeByteBuffer().alignedSlice(ALIGNMENT).limit(size);
+  }
+
+  static DirectIOBuffer allocate(final int size) {
+    final Pointer pointer =
+        DirectMemoryAllocator.instance()
+            .allocate(size + ALIGNMENT, false, Intention.DIRECT_IO_BUFFER);
+    return new DirectIOBuffer(pointer, size);
+  }
+
+  /**
+   * @return <code>true</code> if file position and size of the IO operation are aligned and it can
+   * be performed on the file opened with <code>O_DIRECT</code> flag.
+   */
+  static boolean isAligned(final long position, final int size) {
+    return position % ALIGNMENT == 0 && size % ALIGNMENT == 0;
+  }
+
+  /**
+   * @return <code>true</code> if memory of the buffer is aligned and the buffer can be used for the
+   * IO operation on the file opened with <code>O_DIRECT</code> flag as is.
+   */
+  static boolean isAligned(final ByteBuffer buffer) {
+    return buffer.isDirect() && buffer.alignmentOffset(0, ALIGNMENT) == 0;
+  }
+
+  ByteBuffer buffer() {
+    return buffer;
+  }
+
+  void release() {
+    DirectMemoryAllocator.instance().deallocate(pointer);
+  }
+}
@@ -19,6 +19,12 @@ public interface File extends ClosableItem {
 
   void read(long offset, ByteBuffer buffer, boolean throwOnEof) throws IOException;
 
+  /**
+   * Reads continuous region of the file which starts at the given offset into the given buffers,
+   * one after another. All the reads are issued at once, so they are served concurrently.
+   */
+  void read(long offset, List<ByteBuffer> buffers, boolean throwOnEof) throws IOException;
+
   void write(long offset, ByteBuffer buffer) throws IOException;
 
   IOResult write(List<RawPairLongObject<ByteBuffer>> buffers) throws IOException;
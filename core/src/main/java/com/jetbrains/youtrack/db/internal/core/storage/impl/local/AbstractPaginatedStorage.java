@@ -58,11 +58,13 @@ import com.jetbrains.youtrack.db.internal.common.serialization.types.UTF8Seriali
 import com.jetbrains.youtrack.db.internal.common.thread.ThreadPoolExecutors;
 import com.jetbrains.youtrack.db.internal.common.types.ModifiableBoolean;
 import com.jetbrains.youtrack.db.internal.common.types.ModifiableLong;
+import com.jetbrains.youtrack.db.internal.common.util.ArrayUtils;
 import com.jetbrains.youtrack.db.internal.common.util.CallableFunction;
 import com.jetbrains.youtrack.db.internal.common.util.CommonConst;
 import com.jetbrains.youtrack.db.internal.common.util.RawPair;
 import com.jetbrains.youtrack.db.internal.core.YouTrackDBConstants;
 import com.jetbrains.youtrack.db.internal.core.YouTrackDBEnginesManager;
+import com.jetbrains.youtrack.db.internal.core.cache.SharedRecordCache;
 import com.jetbrains.youtrack.db.internal.core.command.BasicCommandContext;
 import com.jetbrains.youtrack.db.internal.core.command.CommandExecutor;
 import com.jetbrains.youtrack.db.internal.core.command.CommandOutputListener;
@@ -85,6 +87,7 @@ import com.jetbrains.youtrack.db.internal.core.exception.InvalidInstanceIdExcept
 import com.jetbrains.youtrack.db.internal.core.exception.RetryQueryException;
 import com.jetbrains.youtrack.db.internal.core.exception.StorageException;
 import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.index.IndexBuildLog;
 import com.jetbrains.youtrack.db.internal.core.index.IndexDefinition;
 import com.jetbrains.youtrack.db.internal.core.index.IndexException;
 import com.jetbrains.youtrack.db.internal.core.index.IndexInternal;
@@ -94,6 +97,7 @@ import com.jetbrains.youtrack.db.internal.core.index.IndexMetadata;
 import com.jetbrains.youtrack.db.internal.core.index.Indexes;
 import com.jetbrains.youtrack.db.internal.core.index.RuntimeKeyIndexDefinition;
 import com.jetbrains.youtrack.db.internal.core.index.engine.BaseIndexEngine;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexBulkLoader;
 import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngine;
 import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValidator;
 import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValuesTransformer;
@@ -200,8 +204,10 @@ import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -287,6 +293,12 @@ public abstract class AbstractPaginatedStorage
   protected volatile ReadCache readCache;
   protected volatile WriteCache writeCache;
 
+  /**
+   * Record cache shared by all sessions of the database, records are removed from it once their
+   * changes become visible.
+   */
+  private volatile SharedRecordCache sharedRecordCache;
+
   private volatile RecordConflictStrategy recordConflictStrategy =
       YouTrackDBEnginesManager.instance().getRecordConflictStrategy().getDefaultImplementation();
 
@@ -303,6 +315,11 @@ public abstract class AbstractPaginatedStorage
   private UUID uuid;
   private volatile byte[] lastMetadata = null;
 
+  /**
+   * Serializes allocation of pages during the restore of data from WAL in several threads.
+   */
+  private final Object restorePageAllocationLock = new Object();
+
   private final ModifiableLong recordCreated = new ModifiableLong();
   private final ModifiableLong recordUpdated = new ModifiableLong();
   private final ModifiableLong recordRead = new ModifiableLong();
@@ -1254,19 +1271,27 @@ public abstract class AbstractPaginatedStorage
 
         makeStorageDirty();
 
-        return atomicOperationsManager.calculateInsideAtomicOperation(
-            null,
-            atomicOperation -> {
-              if (dropClusterInternal(atomicOperation, clusterId)) {
-                return false;
-              }
+        final boolean dropped =
+            atomicOperationsManager.calculateInsideAtomicOperation(
+                null,
+                atomicOperation -> {
+                  if (dropClusterInternal(atomicOperation, clusterId)) {
+                    return false;
+                  }
 
-              ((ClusterBasedStorageConfiguration) configuration)
-                  .dropCluster(atomicOperation, clusterId);
-              sbTreeCollectionManager.deleteComponentByClusterId(atomicOperation, clusterId);
+                  ((ClusterBasedStorageConfiguration) configuration)
+                      .dropCluster(atomicOperation, clusterId);
+                  sbTreeCollectionManager.deleteComponentByClusterId(atomicOperation, clusterId);
 
-              return true;
-            });
+                  return true;
+                });
+
+        // id of the dropped cluster can be reused by a new one
+        final SharedRecordCache recordCache = sharedRecordCache;
+        if (dropped && recordCache != null) {
+          recordCache.invalidateCluster(clusterId);
+        }
+        return dropped;
       } catch (final Exception e) {
         throw BaseException.wrapException(
             new StorageException("Error while removing cluster '" + clusterId + "'"), e);
@@ -1954,18 +1979,28 @@ public abstract class AbstractPaginatedStorage
           makeStorageDirty();
 
           final StorageCluster cluster = doGetAndCheckCluster(rid.getClusterId());
-          atomicOperationsManager.calculateInsideAtomicOperation(
-              null,
-              atomicOperation ->
-                  doUpdateRecord(
-                      atomicOperation,
-                      rid,
-                      updateContent,
-                      content,
-                      version,
-                      recordType,
-                      callback,
-                      cluster));
+          final SharedRecordCache recordCache = sharedRecordCache;
+          if (recordCache != null) {
+            recordCache.beginInvalidation(rid);
+          }
+          try {
+            atomicOperationsManager.calculateInsideAtomicOperation(
+                null,
+                atomicOperation ->
+                    doUpdateRecord(
+                        atomicOperation,
+                        rid,
+                        updateContent,
+                        content,
+                        version,
+                        recordType,
+                        callback,
+                        cluster));
+          } finally {
+            if (recordCache != null) {
+              recordCache.endInvalidation(rid);
+            }
+          }
         } finally {
           lock.unlock();
         }
@@ -2011,8 +2046,18 @@ public abstract class AbstractPaginatedStorage
 
         makeStorageDirty();
 
-        return atomicOperationsManager.calculateInsideAtomicOperation(
-            null, atomicOperation -> doDeleteRecord(atomicOperation, rid, version, cluster));
+        final SharedRecordCache recordCache = sharedRecordCache;
+        if (recordCache != null) {
+          recordCache.beginInvalidation(rid);
+        }
+        try {
+          return atomicOperationsManager.calculateInsideAtomicOperation(
+              null, atomicOperation -> doDeleteRecord(atomicOperation, rid, version, cluster));
+        } finally {
+          if (recordCache != null) {
+            recordCache.endInvalidation(rid);
+          }
+        }
       } finally {
         stateLock.readLock().unlock();
       }
@@ -2231,6 +2276,8 @@ public abstract class AbstractPaginatedStorage
       final Collection<RecordOperation> recordOperations = transaction.getRecordOperations();
       final TreeMap<Integer, StorageCluster> clustersToLock = new TreeMap<>();
       final Map<RecordOperation, Integer> clusterOverrides = new IdentityHashMap<>(8);
+      final Map<RecordOperation, SchemaImmutableClass> relocatableRecords =
+          new IdentityHashMap<>(8);
 
       final Set<RecordOperation> newRecords = new TreeSet<>(COMMIT_RECORD_OPERATION_COMPARATOR);
       for (final RecordOperation recordOperation : recordOperations) {
@@ -2271,11 +2318,28 @@ public abstract class AbstractPaginatedStorage
               clusterOverrides.put(recordOperation, clusterId);
             }
           }
+
+          if (!allocated && recordOperation.clusterNotRequested && record.isDirty()
+              && !rid.isPersistent() && record instanceof EntityImpl entity) {
+            final SchemaImmutableClass class_ = EntityInternalUtils.getImmutableSchemaClass(entity);
+            if (class_ != null
+                && class_.getClusterSelection().isSelectionInterchangeable()
+                && ArrayUtils.contains(class_.getClusterIds(), clusterId)) {
+              // cluster is chosen right before it is locked
+              clusterOverrides.put(recordOperation, clusterId);
+              relocatableRecords.put(recordOperation, class_);
+              continue;
+            }
+          }
           clustersToLock.put(clusterId, doGetAndCheckCluster(clusterId));
         }
       }
 
       final List<RecordOperation> result = new ArrayList<>(8);
+      LogSequenceNumber commitLsn = null;
+      // should be called before any lock is acquired, the index builder may be waiting for them
+      final Map<IndexBuildLog, List<IndexBuildLog.Change>> indexBuildChanges =
+          beginIndexBuildLogging(indexOperations, indexManager, database);
       stateLock.readLock().lock();
       try {
         try {
@@ -2285,8 +2349,11 @@ public abstract class AbstractPaginatedStorage
 
           Throwable error = null;
           startStorageTx(transaction);
+          // changes become visible once the storage transaction ends
+          final List<RID> invalidatedRecords = beginSharedRecordCacheInvalidation(recordOperations);
           try {
             final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+            chooseClustersOfNewRecords(relocatableRecords, clusterOverrides, clustersToLock);
             lockClusters(clustersToLock);
 
             final Map<RecordOperation, PhysicalPosition> positions = new IdentityHashMap<>(8);
@@ -2352,7 +2419,7 @@ public abstract class AbstractPaginatedStorage
             }
             lockIndexes(indexOperations);
 
-            commitIndexes(transaction.getDatabase(), indexOperations);
+            commitIndexes(transaction.getDatabase(), indexOperations, indexBuildChanges);
           } catch (final IOException | RuntimeException e) {
             error = e;
             if (e instanceof RuntimeException) {
@@ -2362,19 +2429,39 @@ public abstract class AbstractPaginatedStorage
                   new StorageException("Error during transaction commit"), e);
             }
           } finally {
-            if (error != null) {
-              rollback(error);
-            } else {
-              endStorageTx();
+            try {
+              if (error != null) {
+                rollback(error);
+              } else {
+                endStorageTx();
+              }
+            } finally {
+              endSharedRecordCacheInvalidation(invalidatedRecords);
             }
             this.transaction.set(null);
           }
+
+          for (final Entry<IndexBuildLog, List<IndexBuildLog.Change>> entry :
+              indexBuildChanges.entrySet()) {
+            entry.getKey().publish(entry.getValue());
+          }
+          commitLsn = writeAheadLog.end();
         } finally {
           atomicOperationsManager.ensureThatComponentsUnlocked();
           database.getMetadata().clearThreadLocalSchemaSnapshot();
         }
       } finally {
         stateLock.readLock().unlock();
+        for (final IndexBuildLog buildLog : indexBuildChanges.keySet()) {
+          buildLog.endCommit();
+        }
+      }
+
+      if (commitLsn != null
+          && getConfiguration()
+          .getContextConfiguration()
+          .getValueAsBoolean(GlobalConfiguration.WAL_GROUP_COMMIT)) {
+        waitTillFlushed(commitLsn);
       }
 
       if (LogManager.instance().isDebugEnabled()) {
@@ -2398,11 +2485,68 @@ public abstract class AbstractPaginatedStorage
     }
   }
 
+  /**
+   * Indexes which are built online at the moment are not changed by the transaction, instead their
+   * changes are recorded in the side logs once the transaction is committed.
+   *
+   * @return Changes of the indexes which are built online, should be published to the side logs if
+   * the transaction is committed, side logs should be released at the end of the commit anyway.
+   */
+  private static Map<IndexBuildLog, List<IndexBuildLog.Change>> beginIndexBuildLogging(
+      final TreeMap<String, FrontendTransactionIndexChanges> indexes,
+      final IndexManagerAbstract manager,
+      final DatabaseSessionInternal db) {
+    Map<IndexBuildLog, List<IndexBuildLog.Change>> result = Collections.emptyMap();
+
+    try {
+      for (final Entry<String, FrontendTransactionIndexChanges> entry : indexes.entrySet()) {
+        final IndexInternal index =
+            entry.getValue().resolveAssociatedIndex(entry.getKey(), manager, db);
+        if (index == null) {
+          continue;
+        }
+
+        final IndexBuildLog buildLog = index.getBuildLog();
+        if (buildLog != null && buildLog.beginCommit()) {
+          if (result.isEmpty()) {
+            result = new HashMap<>();
+          }
+          result.put(buildLog, new ArrayList<>());
+        }
+      }
+    } catch (final RuntimeException e) {
+      for (final IndexBuildLog buildLog : result.keySet()) {
+        buildLog.endCommit();
+      }
+      throw e;
+    }
+
+    return result;
+  }
+
   private void commitIndexes(DatabaseSessionInternal session,
-      final Map<String, FrontendTransactionIndexChanges> indexesToCommit) {
+      final Map<String, FrontendTransactionIndexChanges> indexesToCommit,
+      final Map<IndexBuildLog, List<IndexBuildLog.Change>> indexBuildChanges) {
     for (final FrontendTransactionIndexChanges changes : indexesToCommit.values()) {
       final IndexInternal index = changes.getAssociatedIndex();
 
+      final IndexBuildLog buildLog = index.getBuildLog();
+      final List<IndexBuildLog.Change> buildChanges =
+          buildLog != null ? indexBuildChanges.get(buildLog) : null;
+      if (buildChanges != null) {
+        if (changes.cleared) {
+          throw new IndexException(
+              "Index '" + index.getName() + "' can not be cleared while it is built online");
+        }
+
+        for (final FrontendTransactionIndexChangesPerKey changesPerKey :
+            changes.changesPerKey.values()) {
+          logTxChanges(changesPerKey, index, buildLog, buildChanges);
+        }
+        logTxChanges(changes.nullKeyChanges, index, buildLog, buildChanges);
+        continue;
+      }
+
       try {
         final int indexId = index.getIndexId();
         if (changes.cleared) {
@@ -2418,6 +2562,24 @@ public abstract class AbstractPaginatedStorage
     }
   }
 
+  private static void logTxChanges(
+      FrontendTransactionIndexChangesPerKey changes,
+      IndexInternal index,
+      IndexBuildLog buildLog,
+      List<IndexBuildLog.Change> buildChanges) {
+    for (TransactionIndexEntry op : index.interpretTxKeyChanges(changes)) {
+      if (op.getOperation() == FrontendTransactionIndexChanges.OPERATION.CLEAR) {
+        continue;
+      }
+
+      buildChanges.add(
+          buildLog.change(
+              op.getOperation(),
+              changes.key,
+              op.getValue() != null ? op.getValue().getIdentity() : null));
+    }
+  }
+
   private void applyTxChanges(DatabaseSessionInternal session,
       FrontendTransactionIndexChangesPerKey changes, IndexInternal index)
       throws InvalidIndexEngineIdException {
@@ -2873,6 +3035,122 @@ public abstract class AbstractPaginatedStorage
     }
   }
 
+  /**
+   * @return <code>true</code> if the bulk load of the index was started, but not completed because
+   * of a crash, so the index does not contain all entries.
+   */
+  public boolean isIndexBulkLoadInterrupted(final int indexId)
+      throws InvalidIndexEngineIdException {
+    if (extractEngineAPIVersion(indexId) != 1) {
+      return false;
+    }
+
+    final int internalIndexId = extractInternalId(indexId);
+    try {
+      stateLock.readLock().lock();
+      try {
+        checkOpennessAndMigration();
+        checkIndexId(internalIndexId);
+
+        final BaseIndexEngine engine = indexEngines.get(internalIndexId);
+        assert internalIndexId == engine.getId();
+
+        return ((V1IndexEngine) engine).isBulkLoadInterrupted();
+      } finally {
+        stateLock.readLock().unlock();
+      }
+    } catch (final InvalidIndexEngineIdException ie) {
+      throw logAndPrepareForRethrow(ie);
+    } catch (final RuntimeException ee) {
+      throw logAndPrepareForRethrow(ee);
+    } catch (final Error ee) {
+      throw logAndPrepareForRethrow(ee);
+    } catch (final Throwable t) {
+      throw logAndPrepareForRethrow(t);
+    }
+  }
+
+  /**
+   * Creates loader which fills empty index bypassing of the transactional put path. Pages of index
+   * are written bottom-up by the sequence of atomic operations, once all of them are written
+   * storage is synchronized, so index is durable when {@link IndexBulkLoader#load()} returns.
+   *
+   * @param validator Validator of entries with equal keys, may be <code>null</code>.
+   * @return Loader or <code>null</code> if bulk load is not supported by the index engine.
+   */
+  @Nullable
+  public IndexBulkLoader<Object> createIndexBulkLoader(
+      final int indexId, final IndexEngineValidator<Object, RID> validator)
+      throws InvalidIndexEngineIdException {
+    if (extractEngineAPIVersion(indexId) != 1) {
+      return null;
+    }
+
+    final int internalIndexId = extractInternalId(indexId);
+    try {
+      final IndexBulkLoader<Object> engineLoader;
+      stateLock.readLock().lock();
+      try {
+        checkOpennessAndMigration();
+        checkIndexId(internalIndexId);
+
+        final BaseIndexEngine engine = indexEngines.get(internalIndexId);
+        assert internalIndexId == engine.getId();
+
+        engineLoader = ((V1IndexEngine) engine).createBulkLoader(validator);
+      } finally {
+        stateLock.readLock().unlock();
+      }
+
+      if (engineLoader == null) {
+        return null;
+      }
+
+      return new IndexBulkLoader<>() {
+        @Override
+        public void add(final Object key, final RID value) throws IOException {
+          engineLoader.add(key, value);
+        }
+
+        @Override
+        public void load() {
+          try {
+            stateLock.readLock().lock();
+            try {
+              checkOpennessAndMigration();
+
+              makeStorageDirty();
+              engineLoader.load();
+            } finally {
+              stateLock.readLock().unlock();
+            }
+
+            synch();
+          } catch (final RuntimeException ee) {
+            throw logAndPrepareForRethrow(ee);
+          } catch (final Error ee) {
+            throw logAndPrepareForRethrow(ee);
+          } catch (final Throwable t) {
+            throw logAndPrepareForRethrow(t);
+          }
+        }
+
+        @Override
+        public void close() throws IOException {
+          engineLoader.close();
+        }
+      };
+    } catch (final InvalidIndexEngineIdException ie) {
+      throw logAndPrepareForRethrow(ie);
+    } catch (final RuntimeException ee) {
+      throw logAndPrepareForRethrow(ee);
+    } catch (final Error ee) {
+      throw logAndPrepareForRethrow(ee);
+    } catch (final Throwable t) {
+      throw logAndPrepareForRethrow(t);
+    }
+  }
+
   public Object getIndexValue(DatabaseSessionInternal session, int indexId, final Object key)
       throws InvalidIndexEngineIdException {
     indexId = extractInternalId(indexId);
@@ -4346,14 +4624,14 @@ public abstract class AbstractPaginatedStorage
             new ThreadInterruptedException("Fuzzy check point was interrupted"), e);
       }
 
-      if (status != STATUS.OPEN || status != STATUS.MIGRATION) {
+      if (status != STATUS.OPEN && status != STATUS.MIGRATION) {
         return;
       }
     }
 
     try {
 
-      if (status != STATUS.OPEN || status != STATUS.MIGRATION) {
+      if (status != STATUS.OPEN && status != STATUS.MIGRATION) {
         return;
       }
 
@@ -5498,7 +5776,11 @@ public abstract class AbstractPaginatedStorage
   }
 
   private void restoreFromBeginning() throws IOException {
-    LogManager.instance().info(this, "Data restore procedure is started.");
+    LogManager.instance()
+        .info(
+            this,
+            "Data restore procedure is started, changes of pages are applied in %d threads.",
+            Math.max(1, GlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger()));
 
     final LogSequenceNumber lsn = writeAheadLog.begin();
 
@@ -5519,6 +5801,8 @@ public abstract class AbstractPaginatedStorage
 
     final int reportBatchSize =
         GlobalConfiguration.WAL_REPORT_AFTER_OPERATIONS_DURING_RESTORE.getValueAsInteger();
+    final int restoreBatchSize = GlobalConfiguration.WAL_RESTORE_BATCH_SIZE.getValueAsInteger();
+    final int restoreThreads = GlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger();
     final Long2ObjectOpenHashMap<List<WALRecord>> operationUnits =
         new Long2ObjectOpenHashMap<>(1024);
     final Map<Long, byte[]> operationMetadata = new LinkedHashMap<>(1024);
@@ -5526,9 +5810,16 @@ public abstract class AbstractPaginatedStorage
     long lastReportTime = 0;
     LogSequenceNumber lastUpdatedLSN = null;
 
+    // in case of parallel restore changes of the batch are applied only at the end of the batch,
+    // and LSN of the last applied atomic unit is tracked by the parallel restore itself
+    final PageChangesRestore pageChangesRestore =
+        restoreThreads > 1
+            ? new PageChangesRestore(name, restoreThreads, this::restorePageChanges)
+            : null;
     try {
-      List<WriteableWALRecord> records = writeAheadLog.read(lsn, 1_000);
+      List<WriteableWALRecord> records = writeAheadLog.read(lsn, restoreBatchSize);
 
+      restore:
       while (!records.isEmpty()) {
         for (final WriteableWALRecord walRecord : records) {
           if (walRecord instanceof AtomicUnitEndRecord atomicUnitEndRecord) {
@@ -5539,10 +5830,12 @@ public abstract class AbstractPaginatedStorage
             // flushed to the disk
             if (atomicUnit != null) {
               atomicUnit.add(walRecord);
-              if (!restoreAtomicUnit(atomicUnit, atLeastOnePageUpdate)) {
-                return lastUpdatedLSN;
-              } else {
+              if (!restoreAtomicUnit(atomicUnit, atLeastOnePageUpdate, pageChangesRestore)) {
+                break restore;
+              } else if (pageChangesRestore == null) {
                 lastUpdatedLSN = walRecord.getLsn();
+              } else {
+                pageChangesRestore.completeUnit(walRecord.getLsn());
               }
             }
             byte[] metadata = operationMetadata.remove(atomicUnitEndRecord.getOperationUnitId());
@@ -5578,7 +5871,11 @@ public abstract class AbstractPaginatedStorage
             }
           } else if (walRecord instanceof MetaDataRecord metaDataRecord) {
             this.lastMetadata = metaDataRecord.getMetadata();
-            lastUpdatedLSN = walRecord.getLsn();
+            if (pageChangesRestore == null) {
+              lastUpdatedLSN = walRecord.getLsn();
+            } else {
+              pageChangesRestore.completeUnit(walRecord.getLsn());
+            }
           } else {
             LogManager.instance()
                 .warn(this, "Record %s will be skipped during data restore", walRecord);
@@ -5600,7 +5897,12 @@ public abstract class AbstractPaginatedStorage
           }
         }
 
-        records = writeAheadLog.next(records.get(records.size() - 1).getLsn(), 1_000);
+        if (pageChangesRestore != null) {
+          pageChangesRestore.apply();
+        }
+
+        records =
+            writeAheadLog.next(records.get(records.size() - 1).getLsn(), restoreBatchSize);
       }
     } catch (final WALPageBrokenException e) {
       LogManager.instance()
@@ -5616,16 +5918,63 @@ public abstract class AbstractPaginatedStorage
               "Data restore was paused because of exception. The rest of changes will be rolled"
                   + " back.",
               e);
+    } finally {
+      if (pageChangesRestore != null) {
+        lastUpdatedLSN = completeParallelRestore(pageChangesRestore);
+      }
     }
 
     return lastUpdatedLSN;
   }
 
+  /**
+   * Applies changes of atomic units which were completely read from WAL before the restore was
+   * stopped, changes of the unit which was not completed are discarded.
+   *
+   * @return LSN of the end of the last atomic unit which was restored.
+   */
+  @Nullable
+  private LogSequenceNumber completeParallelRestore(
+      final PageChangesRestore pageChangesRestore) {
+    try (pageChangesRestore) {
+      pageChangesRestore.discardIncompleteUnit();
+      pageChangesRestore.apply();
+    } catch (final IOException | RuntimeException e) {
+      LogManager.instance()
+          .error(
+              this,
+              "Data restore was paused because of exception. The rest of changes will be rolled"
+                  + " back.",
+              e);
+    }
+
+    return pageChangesRestore.getAppliedLsn();
+  }
+
   protected final boolean restoreAtomicUnit(
       final List<WALRecord> atomicUnit, final ModifiableBoolean atLeastOnePageUpdate)
       throws IOException {
+    return restoreAtomicUnit(atomicUnit, atLeastOnePageUpdate, null);
+  }
+
+  /**
+   * @param pageChangesRestore If not <code>null</code> changes of pages are not applied but are
+   *                           passed to the parallel restore, file operations wait till already
+   *                           passed changes are applied.
+   */
+  private boolean restoreAtomicUnit(
+      final List<WALRecord> atomicUnit,
+      final ModifiableBoolean atLeastOnePageUpdate,
+      @Nullable final PageChangesRestore pageChangesRestore)
+      throws IOException {
     assert atomicUnit.get(atomicUnit.size() - 1) instanceof AtomicUnitEndRecord;
     for (final WALRecord walRecord : atomicUnit) {
+      if (pageChangesRestore != null
+          && (walRecord instanceof FileDeletedWALRecord
+          || walRecord instanceof FileCreatedWALRecord)) {
+        pageChangesRestore.apply();
+      }
+
       if (walRecord instanceof FileDeletedWALRecord fileDeletedWALRecord) {
         if (writeCache.exists(fileDeletedWALRecord.getFileId())) {
           readCache.deleteFile(fileDeletedWALRecord.getFileId(), writeCache);
@@ -5638,8 +5987,12 @@ public abstract class AbstractPaginatedStorage
               writeCache);
         }
       } else if (walRecord instanceof UpdatePageRecord updatePageRecord) {
-        long fileId = updatePageRecord.getFileId();
+        final long fileId = updatePageRecord.getFileId();
         if (!writeCache.exists(fileId)) {
+          if (pageChangesRestore != null) {
+            pageChangesRestore.apply();
+          }
+
           final String fileName = writeCache.restoreFileById(fileId);
 
           if (fileName == null) {
@@ -5657,45 +6010,10 @@ public abstract class AbstractPaginatedStorage
           }
         }
 
-        final long pageIndex = updatePageRecord.getPageIndex();
-        fileId = writeCache.externalFileId(writeCache.internalFileId(fileId));
-
-        CacheEntry cacheEntry = readCache.loadForWrite(fileId, pageIndex, writeCache, true, null);
-        if (cacheEntry == null) {
-          do {
-            if (cacheEntry != null) {
-              readCache.releaseFromWrite(cacheEntry, writeCache, true);
-            }
-
-            cacheEntry = readCache.allocateNewPage(fileId, writeCache, null);
-          } while (cacheEntry.getPageIndex() != pageIndex);
-        }
-
-        try {
-          final DurablePage durablePage = new DurablePage(cacheEntry);
-          var pageLsn = durablePage.getLsn();
-          if (durablePage.getLsn().compareTo(walRecord.getLsn()) < 0) {
-            if (!pageLsn.equals(updatePageRecord.getInitialLsn())) {
-              LogManager.instance()
-                  .error(
-                      this,
-                      "Page with index "
-                          + pageIndex
-                          + " and file "
-                          + writeCache.fileNameById(fileId)
-                          + " was changed before page restore was started. Page will be restored"
-                          + " from WAL, but it may contain changes that were not present before"
-                          + " storage crash and data may be lost. Initial LSN is "
-                          + updatePageRecord.getInitialLsn()
-                          + ", but page contains changes with LSN "
-                          + pageLsn,
-                      null);
-            }
-            durablePage.restoreChanges(updatePageRecord.getChanges());
-            durablePage.setLsn(updatePageRecord.getLsn());
-          }
-        } finally {
-          readCache.releaseFromWrite(cacheEntry, writeCache, true);
+        if (pageChangesRestore == null) {
+          restorePageChanges(updatePageRecord);
+        } else {
+          pageChangesRestore.add(writeCache.internalFileId(fileId), updatePageRecord);
         }
 
         atLeastOnePageUpdate.setValue(true);
@@ -5723,6 +6041,137 @@ public abstract class AbstractPaginatedStorage
     return true;
   }
 
+  private void restorePageChanges(final UpdatePageRecord updatePageRecord) throws IOException {
+    final long pageIndex = updatePageRecord.getPageIndex();
+    final long fileId =
+        writeCache.externalFileId(writeCache.internalFileId(updatePageRecord.getFileId()));
+
+    CacheEntry cacheEntry = readCache.loadForWrite(fileId, pageIndex, writeCache, true, null);
+    if (cacheEntry == null) {
+      cacheEntry = allocatePageForRestore(fileId, pageIndex);
+    }
+
+    try {
+      final DurablePage durablePage = new DurablePage(cacheEntry);
+      var pageLsn = durablePage.getLsn();
+      if (durablePage.getLsn().compareTo(updatePageRecord.getLsn()) < 0) {
+        if (!pageLsn.equals(updatePageRecord.getInitialLsn())) {
+          LogManager.instance()
+              .error(
+                  this,
+                  "Page with index "
+                      + pageIndex
+                      + " and file "
+                      + writeCache.fileNameById(fileId)
+                      + " was changed before page restore was started. Page will be restored"
+                      + " from WAL, but it may contain changes that were not present before"
+                      + " storage crash and data may be lost. Initial LSN is "
+                      + updatePageRecord.getInitialLsn()
+                      + ", but page contains changes with LSN "
+                      + pageLsn,
+                  null);
+        }
+        durablePage.restoreChanges(updatePageRecord.getChanges());
+        durablePage.setLsn(updatePageRecord.getLsn());
+      }
+    } finally {
+      readCache.releaseFromWrite(cacheEntry, writeCache, true);
+    }
+  }
+
+  /**
+   * Allocates pages of the file till the page with given index is allocated. Changes of pages may be
+   * restored by several threads, so allocation of pages is serialized and the page is checked again
+   * once the lock is acquired, it may be already allocated by the other thread.
+   */
+  private CacheEntry allocatePageForRestore(final long fileId, final long pageIndex)
+      throws IOException {
+    synchronized (restorePageAllocationLock) {
+      CacheEntry cacheEntry = readCache.loadForWrite(fileId, pageIndex, writeCache, true, null);
+      if (cacheEntry == null) {
+        do {
+          if (cacheEntry != null) {
+            readCache.releaseFromWrite(cacheEntry, writeCache, true);
+          }
+
+          cacheEntry = readCache.allocateNewPage(fileId, writeCache, null);
+        } while (cacheEntry.getPageIndex() != pageIndex);
+      }
+
+      return cacheEntry;
+    }
+  }
+
+  /**
+   * Returns future which is completed once changes of all transactions committed by the storage so
+   * far are written to the WAL and synced to the disk. Threads which need durability of their
+   * transactions may wait for the future, or pipeline next requests and be notified once the
+   * changes are durable.
+   */
+  public CompletableFuture<LogSequenceNumber> durableCommits() {
+    final WriteAheadLog wal = writeAheadLog;
+    if (wal == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return wal.whenFlushed(wal.end());
+  }
+
+  private void waitTillFlushed(final LogSequenceNumber lsn) {
+    try {
+      writeAheadLog.whenFlushed(lsn).get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw BaseException.wrapException(
+          new StorageException("Waiting for the sync of the WAL of storage " + name
+              + " was interrupted"), e);
+    } catch (final ExecutionException e) {
+      throw BaseException.wrapException(
+          new StorageException("Error during the sync of the WAL of storage " + name),
+          e.getCause());
+    }
+  }
+
+  public void setSharedRecordCache(@Nullable final SharedRecordCache sharedRecordCache) {
+    this.sharedRecordCache = sharedRecordCache;
+  }
+
+  /**
+   * Stops caching of the records updated or deleted by the transaction till its changes are
+   * visible. New records are not invalidated, they can not be read before the commit.
+   *
+   * @return Records which should be passed to {@link #endSharedRecordCacheInvalidation(List)}.
+   */
+  private List<RID> beginSharedRecordCacheInvalidation(
+      final Collection<RecordOperation> recordOperations) {
+    final SharedRecordCache recordCache = sharedRecordCache;
+    if (recordCache == null) {
+      return Collections.emptyList();
+    }
+
+    final List<RID> invalidatedRecords = new ArrayList<>(recordOperations.size());
+    for (final RecordOperation recordOperation : recordOperations) {
+      if (recordOperation.type == RecordOperation.UPDATED
+          || recordOperation.type == RecordOperation.DELETED) {
+        final RID rid = ((RecordId) recordOperation.record.getIdentity()).copy();
+        recordCache.beginInvalidation(rid);
+        invalidatedRecords.add(rid);
+      }
+    }
+    return invalidatedRecords;
+  }
+
+  private void endSharedRecordCacheInvalidation(final List<RID> invalidatedRecords) {
+    final SharedRecordCache recordCache = sharedRecordCache;
+    if (recordCache == null) {
+      return;
+    }
+
+    for (final RID rid : invalidatedRecords) {
+      recordCache.endInvalidation(rid);
+    }
+  }
+
   @SuppressWarnings("unused")
   public void setStorageConfigurationUpdateListener(
       final StorageConfigurationUpdateListener storageConfigurationUpdateListener) {
@@ -5802,6 +6251,59 @@ public abstract class AbstractPaginatedStorage
     }
   }
 
+  /**
+   * Commit holds exclusive locks of the changed clusters till the end of the transaction, so
+   * concurrent transactions which add records to the same cluster are committed one after another.
+   * If the cluster chosen for a new record is locked by another transaction at the moment, and the
+   * cluster selection strategy of the class of the record allows it, the record is moved to a
+   * cluster of the same class which is already locked by this transaction or is not locked by
+   * anybody, so commits which add records to the same class do not wait for each other.
+   *
+   * <p>Clusters and indexes are still locked as a whole, latching of pages or key ranges is not
+   * implemented. Commits which change the same index, or add records to the only unlocked cluster
+   * of a class, are committed one after another as before. Records whose cluster was requested by
+   * the user are never moved.
+   */
+  private void chooseClustersOfNewRecords(
+      final Map<RecordOperation, SchemaImmutableClass> relocatableRecords,
+      final Map<RecordOperation, Integer> clusterOverrides,
+      final TreeMap<Integer, StorageCluster> clustersToLock) {
+    for (final Entry<RecordOperation, SchemaImmutableClass> entry : relocatableRecords.entrySet()) {
+      final RecordOperation recordOperation = entry.getKey();
+      final int clusterId = clusterOverrides.get(recordOperation);
+      final StorageCluster cluster = doGetAndCheckCluster(clusterId);
+
+      if (clustersToLock.containsKey(clusterId) || !cluster.isAtomicExclusiveLocked()) {
+        clustersToLock.put(clusterId, cluster);
+        continue;
+      }
+
+      StorageCluster candidate = null;
+      for (final int candidateId : entry.getValue().getClusterIds()) {
+        final StorageCluster lockedCluster = clustersToLock.get(candidateId);
+        if (lockedCluster != null) {
+          candidate = lockedCluster;
+          break;
+        }
+
+        if (candidate == null && candidateId != clusterId) {
+          final StorageCluster freeCluster = clusters.get(candidateId);
+          if (freeCluster != null
+              && !(freeCluster instanceof OfflineCluster)
+              && !freeCluster.isAtomicExclusiveLocked()) {
+            candidate = freeCluster;
+          }
+        }
+      }
+
+      if (candidate == null) {
+        candidate = cluster;
+      }
+      clusterOverrides.put(recordOperation, candidate.getId());
+      clustersToLock.put(candidate.getId(), candidate);
+    }
+  }
+
   private static void lockClusters(final TreeMap<Integer, StorageCluster> clustersToLock) {
     for (final StorageCluster cluster : clustersToLock.values()) {
       cluster.acquireAtomicExclusiveLock();
@@ -0,0 +1,215 @@
+package com.jetbrains.youtrack.db.internal.core.storage.impl.local;
+
+import com.jetbrains.youtrack.db.api.exception.BaseException;
+import com.jetbrains.youtrack.db.internal.common.thread.ThreadPoolExecutors;
+import com.jetbrains.youtrack.db.internal.core.exception.StorageException;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.LogSequenceNumber;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.UpdatePageRecord;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * Applies changes of pages restored from WAL in several threads. Changes are partitioned by the
+ * page they belong to, so changes of the same page are applied by a single thread in the order they
+ * were logged, while changes of different pages are applied concurrently.
+ *
+ * <p>Changes are accumulated by {@link #add(int, UpdatePageRecord)} and are applied by
+ * {@link #apply()} which waits till all of them are applied, so it is also used as a barrier
+ * before operations which can not be reordered with changes of pages, like creation or deletion of
+ * files.
+ *
+ * <p>Changes are grouped by the atomic units they belong to, the end of the unit is marked by
+ * {@link #completeUnit(LogSequenceNumber)}. If one of the changes can not be applied, all threads
+ * stop at the start of the unit of this change, so the restore is stopped at the same unit boundary
+ * for all pages, and {@link #getAppliedLsn()} points to the end of the last unit which was applied
+ * completely. Threads notice the failure before every change, so only changes which are applied
+ * concurrently with the failed one may cross the boundary.
+ */
+final class PageChangesRestore implements AutoCloseable {
+
+  interface PageChangesApplier {
+
+    void apply(UpdatePageRecord updatePageRecord) throws IOException;
+  }
+
+  private record Change(int unit, UpdatePageRecord updatePageRecord) {
+
+  }
+
+  private final String storageName;
+  private final PageChangesApplier applier;
+  private final ExecutorService executor;
+  private final List<List<Change>> partitions;
+
+  /**
+   * End LSNs of the units completed since the last {@link #apply()}, index of the unit in this list
+   * is the number of the unit stored in its changes.
+   */
+  private final List<LogSequenceNumber> completedUnits = new ArrayList<>();
+
+  private int size;
+
+  @Nullable
+  private LogSequenceNumber appliedLsn;
+
+  PageChangesRestore(
+      final String storageName, final int threads, final PageChangesApplier applier) {
+    this.storageName = storageName;
+    this.applier = applier;
+    // at most one task per partition is submitted at once, so amount of threads is limited anyway
+    this.executor =
+        ThreadPoolExecutors.newCachedThreadPool(
+            "WAL restore of storage " + storageName, AbstractPaginatedStorage.storageThreadGroup);
+
+    partitions = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      partitions.add(new ArrayList<>());
+    }
+  }
+
+  /**
+   * Adds change of the current atomic unit.
+   */
+  void add(final int internalFileId, final UpdatePageRecord updatePageRecord) {
+    final int hash = 31 * internalFileId + Long.hashCode(updatePageRecord.getPageIndex());
+    partitions
+        .get(Math.floorMod(hash, partitions.size()))
+        .add(new Change(completedUnits.size(), updatePageRecord));
+    size++;
+  }
+
+  /**
+   * Marks the end of the current atomic unit, all its changes were added.
+   *
+   * @param endLsn LSN of the last record of the unit.
+   */
+  void completeUnit(final LogSequenceNumber endLsn) {
+    completedUnits.add(endLsn);
+  }
+
+  /**
+   * Removes changes of the current atomic unit which was not completed, so they are not applied.
+   */
+  void discardIncompleteUnit() {
+    final int incompleteUnit = completedUnits.size();
+    for (final List<Change> partition : partitions) {
+      // changes of the current unit are at the tail of the partition
+      while (!partition.isEmpty() && partition.getLast().unit() == incompleteUnit) {
+        partition.removeLast();
+        size--;
+      }
+    }
+  }
+
+  /**
+   * @return LSN of the end of the last atomic unit all changes of which are applied or
+   * <code>null</code> if none of the units was completed yet.
+   */
+  @Nullable
+  LogSequenceNumber getAppliedLsn() {
+    return appliedLsn;
+  }
+
+  /**
+   * Applies all added changes and waits till they are applied. If changes of one of the pages can
+   * not be applied, the rest of the changes are still waited for, so none of the pages is changed
+   * concurrently once the method returns. Changes of the failed unit and of the units which follow
+   * it are discarded.
+   */
+  void apply() throws IOException {
+    if (size == 0) {
+      completeApply(Integer.MAX_VALUE);
+      return;
+    }
+
+    final AtomicInteger failedUnit = new AtomicInteger(Integer.MAX_VALUE);
+    final List<Future<Void>> futures = new ArrayList<>(partitions.size());
+    for (final List<Change> partition : partitions) {
+      if (!partition.isEmpty()) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (final Change change : partition) {
+                    if (change.unit() >= failedUnit.get()) {
+                      break;
+                    }
+
+                    try {
+                      applier.apply(change.updatePageRecord());
+                    } catch (final IOException | RuntimeException | Error e) {
+                      failedUnit.accumulateAndGet(change.unit(), Math::min);
+                      throw e;
+                    }
+                  }
+                  return null;
+                }));
+      }
+    }
+
+    Throwable error = null;
+    boolean interrupted = false;
+    for (final Future<Void> future : futures) {
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (final InterruptedException e) {
+          interrupted = true;
+        } catch (final ExecutionException e) {
+          if (error == null) {
+            error = e.getCause();
+          }
+          break;
+        }
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    completeApply(failedUnit.get());
+
+    if (error instanceof IOException ioException) {
+      throw ioException;
+    }
+    if (error instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    if (error instanceof Error err) {
+      throw err;
+    }
+    if (error != null) {
+      throw BaseException.wrapException(
+          new StorageException("Error during restore of pages of storage " + storageName), error);
+    }
+  }
+
+  /**
+   * @param failedUnit Unit changes of which could not be applied, or {@link Integer#MAX_VALUE} if
+   *                   all changes were applied.
+   */
+  private void completeApply(final int failedUnit) {
+    final int appliedUnits = Math.min(failedUnit, completedUnits.size());
+    if (appliedUnits > 0) {
+      appliedLsn = completedUnits.get(appliedUnits - 1);
+    }
+
+    for (final List<Change> partition : partitions) {
+      partition.clear();
+    }
+    completedUnits.clear();
+    size = 0;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+}
@@ -334,6 +334,15 @@ public class AtomicOperationsManager {
     acquireExclusiveLockTillOperationComplete(operation, durableComponent.getLockName());
   }
 
+  /**
+   * Checks whether the exclusive lock of the {@code durableComponent} is held by an atomic
+   * operation at the moment. The result is only a hint, because the lock can be acquired or
+   * released right after the check.
+   */
+  public boolean isExclusivelyLocked(DurableComponent durableComponent) {
+    return lockManager.isExclusivelyLocked(durableComponent.getLockName());
+  }
+
   public void acquireReadLock(DurableComponent durableComponent) {
     assert durableComponent.getLockName() != null;
 
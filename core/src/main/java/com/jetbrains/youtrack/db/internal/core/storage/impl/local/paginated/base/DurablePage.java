@@ -30,8 +30,11 @@ import com.jetbrains.youtrack.db.internal.core.storage.cache.CacheEntry;
 import com.jetbrains.youtrack.db.internal.core.storage.cache.CachePointer;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.LogSequenceNumber;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.WALChanges;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * Base page class for all durable data structures, that is data structures state of which can be
@@ -67,6 +70,9 @@ public class DurablePage {
 
   public static final int NEXT_FREE_POSITION = WAL_POSITION_OFFSET + LongSerializer.LONG_SIZE;
 
+  private static final VarHandle LONG_ARRAY_VIEW =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
   private final WALChanges changes;
   private final CacheEntry cacheEntry;
   private final ByteBuffer buffer;
@@ -218,6 +224,54 @@ public class DurablePage {
     return changes.getBinaryValue(buffer, pageOffset, valLen);
   }
 
+  /**
+   * Compares bytes stored in the page with the passed in array. Bytes are compared as unsigned
+   * values, if one of the arrays is prefix of the other one the shorter array is the smaller one.
+   * Unlike {@link #getBinaryValue(int, int)} the content of the page is not copied.
+   *
+   * @return Negative value, zero or positive value if bytes stored in the page are less than, equal
+   * to or greater than passed in array.
+   */
+  protected final int compareBinaryValue(final int pageOffset, final int valLen,
+      final byte[] value) {
+    return compareBinaryValue(pageOffset, valLen, value, 0, value.length);
+  }
+
+  /**
+   * Compares bytes stored in the page with the part of the passed in array which starts at
+   * <code>valueOffset</code> and has length <code>valueLen</code>.
+   *
+   * @see #compareBinaryValue(int, int, byte[])
+   */
+  protected final int compareBinaryValue(final int pageOffset, final int valLen,
+      final byte[] value, final int valueOffset, final int valueLen) {
+    if (changes != null) {
+      return Arrays.compareUnsigned(
+          changes.getBinaryValue(buffer, pageOffset, valLen), 0, valLen,
+          value, valueOffset, valueOffset + valueLen);
+    }
+
+    assert buffer != null;
+    assert buffer.order() == ByteOrder.nativeOrder();
+
+    final int commonLen = Math.min(valLen, valueLen);
+    int i = 0;
+    while (i + LongSerializer.LONG_SIZE <= commonLen
+        && buffer.getLong(pageOffset + i)
+        == (long) LONG_ARRAY_VIEW.get(value, valueOffset + i)) {
+      i += LongSerializer.LONG_SIZE;
+    }
+
+    for (; i < commonLen; i++) {
+      final int diff = Byte.compareUnsigned(buffer.get(pageOffset + i), value[valueOffset + i]);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+
+    return Integer.compare(valLen, valueLen);
+  }
+
   protected final int getObjectSizeInDirectMemory(
       final BinarySerializer<?> binarySerializer, final int offset) {
     if (changes == null) {
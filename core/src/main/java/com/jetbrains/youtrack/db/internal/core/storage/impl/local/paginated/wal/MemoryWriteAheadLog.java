@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -148,6 +149,16 @@ public class MemoryWriteAheadLog extends AbstractWriteAheadLog {
     return 0;
   }
 
+  @Override
+  public long size() {
+    return 0;
+  }
+
+  @Override
+  public long sizeLimit() {
+    return -1;
+  }
+
   @Override
   public LogSequenceNumber begin(long segmentId) {
     throw new UnsupportedOperationException("Operation not supported for in memory storage.");
@@ -163,6 +174,11 @@ public class MemoryWriteAheadLog extends AbstractWriteAheadLog {
     event.run();
   }
 
+  @Override
+  public CompletableFuture<LogSequenceNumber> whenFlushed(LogSequenceNumber lsn) {
+    return CompletableFuture.completedFuture(lsn);
+  }
+
   @Override
   public boolean appendNewSegment() {
     return false;
@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @since 6/25/14
@@ -121,6 +122,17 @@ public interface WriteAheadLog extends AutoCloseable {
 
   long activeSegment();
 
+  /**
+   * @return Size of the records stored in the WAL in bytes.
+   */
+  long size();
+
+  /**
+   * @return Size of the WAL in bytes after which checkpoint is requested to cut the WAL, or
+   * <code>-1</code> if size of the WAL is not limited.
+   */
+  long sizeLimit();
+
   /**
    * Adds the event to fire when this write ahead log instances reaches the given LSN. The thread on
    * which the event will be fired is unspecified, the event may be even fired synchronously before
@@ -136,6 +148,17 @@ public interface WriteAheadLog extends AutoCloseable {
    */
   void addEventAt(LogSequenceNumber lsn, Runnable event);
 
+  /**
+   * Returns future which is completed once all records up to the given LSN are written to the disk
+   * and synced. Unlike waiting for the periodic sync, the request makes the WAL write and sync its
+   * content as soon as the sync which is in progress, if any, is finished, so requests of many
+   * threads are served by a single sync.
+   *
+   * @param lsn the LSN of the last record which should be durable.
+   * @return future which is completed by the LSN up to which the WAL is synced.
+   */
+  CompletableFuture<LogSequenceNumber> whenFlushed(LogSequenceNumber lsn);
+
   /**
    * Adds new segment so all subsequent log entries will be added to this new segment. New segment
    * can not be appended if:
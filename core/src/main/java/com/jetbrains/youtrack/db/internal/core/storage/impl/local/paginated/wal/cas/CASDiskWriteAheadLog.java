@@ -53,6 +53,7 @@ import java.util.Map;
 import java.util.NavigableSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -65,6 +66,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -158,6 +160,18 @@ public final class CASDiskWriteAheadLog implements WriteAheadLog {
   private final ConcurrentNavigableMap<LogSequenceNumber, EventWrapper> events =
       new ConcurrentSkipListMap<>();
 
+  /**
+   * Futures returned by {@link #whenFlushed(LogSequenceNumber)} which are not completed yet.
+   */
+  private final ConcurrentNavigableMap<LogSequenceNumber, CompletableFuture<LogSequenceNumber>>
+      flushWaiters = new ConcurrentSkipListMap<>();
+
+  /**
+   * Set if write and sync of the WAL content are requested by a thread which waits for durability
+   * of its records, but were not started yet.
+   */
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
   private final ScalableRWLock segmentLock = new ScalableRWLock();
 
   private final ConcurrentNavigableMap<LogSequenceNumber, Integer> cutTillLimits =
@@ -546,10 +560,16 @@ public final class CASDiskWriteAheadLog implements WriteAheadLog {
     return segmentSize.get();
   }
 
-  long size() {
+  @Override
+  public long size() {
     return logSize.get();
   }
 
+  @Override
+  public long sizeLimit() {
+    return walSizeLimit;
+  }
+
   private List<WriteableWALRecord> readFromDisk(final LogSequenceNumber lsn, final int limit)
       throws IOException {
     final List<WriteableWALRecord> result = new ArrayList<>();
@@ -837,6 +857,58 @@ public final class CASDiskWriteAheadLog implements WriteAheadLog {
     }
   }
 
+  @Override
+  public CompletableFuture<LogSequenceNumber> whenFlushed(final LogSequenceNumber lsn) {
+    // may be executed by multiple threads simultaneously
+
+    final LogSequenceNumber localFlushedLsn = flushedLSN;
+    if (localFlushedLsn != null && lsn.compareTo(localFlushedLsn) <= 0) {
+      return CompletableFuture.completedFuture(localFlushedLsn);
+    }
+
+    final CompletableFuture<LogSequenceNumber> future =
+        flushWaiters.computeIfAbsent(lsn, key -> new CompletableFuture<>());
+
+    // sync could be finished after the check above but before the future was registered
+    final LogSequenceNumber potentiallyUpdatedLocalFlushedLsn = flushedLSN;
+    if (potentiallyUpdatedLocalFlushedLsn != null
+        && lsn.compareTo(potentiallyUpdatedLocalFlushedLsn) <= 0) {
+      completeFlushWaiters(potentiallyUpdatedLocalFlushedLsn);
+    } else if (flushRequested.compareAndSet(false, true)) {
+      // all threads which request durability till the flush task is started are served by the
+      // same write and sync of the WAL
+      commitExecutor.execute(
+          () -> {
+            flushRequested.set(false);
+            try {
+              executeWriteRecords(true, false);
+            } catch (final RuntimeException e) {
+              failFlushWaiters(e);
+            }
+          });
+    }
+
+    return future;
+  }
+
+  private void completeFlushWaiters(final LogSequenceNumber lsn) {
+    final Iterator<CompletableFuture<LogSequenceNumber>> waiters =
+        flushWaiters.headMap(lsn, true).values().iterator();
+    while (waiters.hasNext()) {
+      waiters.next().complete(lsn);
+      waiters.remove();
+    }
+  }
+
+  private void failFlushWaiters(final Throwable error) {
+    final Iterator<CompletableFuture<LogSequenceNumber>> waiters =
+        flushWaiters.values().iterator();
+    while (waiters.hasNext()) {
+      waiters.next().completeExceptionally(error);
+      waiters.remove();
+    }
+  }
+
   public void delete() throws IOException {
     final LongArrayList segmentsToDelete = new LongArrayList(this.segments.size());
     segmentsToDelete.addAll(segments);
@@ -1331,6 +1403,8 @@ public final class CASDiskWriteAheadLog implements WriteAheadLog {
       allocator.deallocate(writeBufferPointerOne);
       allocator.deallocate(writeBufferPointerTwo);
 
+      failFlushWaiters(new StorageException("WAL of storage " + storageName + " is closed"));
+
       if (writeBufferPointer != null) {
         writeBufferPointer = null;
         writeBuffer = null;
@@ -1967,6 +2041,7 @@ public final class CASDiskWriteAheadLog implements WriteAheadLog {
       flushedLSN = writtenUpTo.get().getLsn();
 
       fireEventsFor(flushedLSN);
+      completeFlushWaiters(flushedLSN);
 
       if (printPerformanceStatistic) {
         final long endTs = System.nanoTime();
@@ -1977,6 +2052,7 @@ public final class CASDiskWriteAheadLog implements WriteAheadLog {
       }
     } catch (final IOException e) {
       LogManager.instance().error(this, "Error during FSync of WAL data", e);
+      failFlushWaiters(e);
       throw e;
     }
   }
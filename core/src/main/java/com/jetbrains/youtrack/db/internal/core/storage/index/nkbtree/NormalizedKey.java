@@ -0,0 +1,13 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
+
+/**
+ * Search key of {@link NormalizedKeyBTreeValue}.
+ *
+ * @param bytes      Normalized presentation of the key or of its first items.
+ * @param upperBound If <code>true</code> key is greater than all the keys which start from
+ *                   <code>bytes</code>, otherwise it is less than all of them but the one which is
+ *                   equal to <code>bytes</code>.
+ */
+record NormalizedKey(byte[] bytes, boolean upperBound) {
+
+}
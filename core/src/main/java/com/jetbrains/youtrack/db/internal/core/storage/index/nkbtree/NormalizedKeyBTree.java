@@ -1,10 +1,12 @@
 package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
 
-import com.jetbrains.youtrack.db.internal.core.index.CompositeKey;
+import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.CellBTreeSingleValue;
 
-public interface NormalizedKeyBTree<K> {
+/**
+ * Single value B-tree which stores keys in normalized form, so keys can be compared as byte arrays
+ * without deserialization. Apart from the way keys are stored it has the same contract as
+ * {@link CellBTreeSingleValue} and can be used in its place by index engines.
+ */
+public interface NormalizedKeyBTree<K> extends CellBTreeSingleValue<K> {
 
-  byte[] get(final CompositeKey key);
-
-  void put(final CompositeKey key, final byte[] value);
 }
@@ -0,0 +1,595 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
+
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.BinarySerializer;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.ByteSerializer;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.IntegerSerializer;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.LongSerializer;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.ShortSerializer;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.CacheEntry;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.base.DurablePage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bucket of {@link NormalizedKeyBTreeValue}. Layout of the bucket is the same as layout of the
+ * buckets of cell B-tree, but entries are ordered by normalized keys, which are compared directly
+ * in the page without deserialization.
+ *
+ * <p>Leaf entry consists of the length of the normalized key, normalized key, length of the
+ * serialized key, serialized key and RID. Non-leaf entry consists of the indexes of the left and
+ * right children, length of the normalized key and normalized key.
+ *
+ * <p>Normalized keys of leaf entries are prefix compressed. The longest common prefix of the keys
+ * is stored once at the end of the page and entries contain only the remaining parts of the keys.
+ * Prefix is recalculated when content of the bucket is rebuilt, and is shortened if a key which
+ * does not start from it is added. Accessors of the bucket accept and return full normalized keys
+ * and full raw entries, so compression is not visible outside of the bucket.
+ */
+public final class NormalizedKeyBTreeBucket<K> extends DurablePage {
+
+  private static final int RID_SIZE = ShortSerializer.SHORT_SIZE + LongSerializer.LONG_SIZE;
+
+  private static final int FREE_POINTER_OFFSET = NEXT_FREE_POSITION;
+  private static final int SIZE_OFFSET = FREE_POINTER_OFFSET + IntegerSerializer.INT_SIZE;
+  private static final int IS_LEAF_OFFSET = SIZE_OFFSET + IntegerSerializer.INT_SIZE;
+  private static final int LEFT_SIBLING_OFFSET = IS_LEAF_OFFSET + ByteSerializer.BYTE_SIZE;
+  private static final int RIGHT_SIBLING_OFFSET = LEFT_SIBLING_OFFSET + LongSerializer.LONG_SIZE;
+  private static final int PREFIX_LENGTH_OFFSET = RIGHT_SIBLING_OFFSET + LongSerializer.LONG_SIZE;
+
+  private static final int POSITIONS_ARRAY_OFFSET =
+      PREFIX_LENGTH_OFFSET + IntegerSerializer.INT_SIZE;
+
+  public NormalizedKeyBTreeBucket(final CacheEntry cacheEntry) {
+    super(cacheEntry);
+  }
+
+  public void init(final boolean isLeaf) {
+    setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
+    setIntValue(PREFIX_LENGTH_OFFSET, 0);
+    setSize(0);
+
+    setByteValue(IS_LEAF_OFFSET, (byte) (isLeaf ? 1 : 0));
+    setLongValue(LEFT_SIBLING_OFFSET, -1);
+    setLongValue(RIGHT_SIBLING_OFFSET, -1);
+  }
+
+  public void switchBucketType() {
+    if (!isEmpty()) {
+      throw new IllegalStateException(
+          "Type of bucket can be changed only bucket if bucket is empty");
+    }
+
+    setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
+    setIntValue(PREFIX_LENGTH_OFFSET, 0);
+    setByteValue(IS_LEAF_OFFSET, (byte) (isLeaf() ? 0 : 1));
+  }
+
+  public boolean isLeaf() {
+    return getByteValue(IS_LEAF_OFFSET) > 0;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public int size() {
+    return getIntValue(SIZE_OFFSET);
+  }
+
+  /**
+   * Performs binary search of the key in the bucket.
+   *
+   * @param upperBound If <code>true</code> key is treated as a prefix which is greater than all the
+   *                   keys which start from it.
+   * @return Index of the entry if key is found, or <code>-(insertion point + 1)</code> otherwise.
+   */
+  public int find(final byte[] key, final boolean upperBound) {
+    final int size = size();
+
+    int keyOffset = 0;
+    final int prefixLength = getPrefixLength();
+    if (prefixLength > 0) {
+      // all entries share the prefix, so if key differs from it there is no need to check entries
+      final int cmp = comparePrefix(prefixLength, key, upperBound);
+      if (cmp < 0) {
+        return -(size + 1);
+      }
+      if (cmp > 0) {
+        return -1;
+      }
+
+      keyOffset = prefixLength;
+    }
+
+    int low = 0;
+    int high = size - 1;
+
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int cmp = compareKeyPart(mid, key, keyOffset, upperBound);
+
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+
+    return -(low + 1);
+  }
+
+  /**
+   * Compares normalized key of the entry with the given key.
+   *
+   * @see #find(byte[], boolean)
+   */
+  public int compareKey(final int index, final byte[] key, final boolean upperBound) {
+    final int prefixLength = getPrefixLength();
+    if (prefixLength > 0) {
+      final int cmp = comparePrefix(prefixLength, key, upperBound);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+
+    return compareKeyPart(index, key, prefixLength, upperBound);
+  }
+
+  public byte[] getNormalizedKey(final int index) {
+    final int keyPosition = getKeyPosition(index);
+    final int keyLength = getIntValue(keyPosition);
+    final int prefixLength = getPrefixLength();
+    if (prefixLength == 0) {
+      return getBinaryValue(keyPosition + IntegerSerializer.INT_SIZE, keyLength);
+    }
+
+    final byte[] key = new byte[prefixLength + keyLength];
+    System.arraycopy(getPrefix(prefixLength), 0, key, 0, prefixLength);
+    System.arraycopy(
+        getBinaryValue(keyPosition + IntegerSerializer.INT_SIZE, keyLength),
+        0,
+        key,
+        prefixLength,
+        keyLength);
+    return key;
+  }
+
+  public K getKey(final int index, final BinarySerializer<K> keySerializer) {
+    assert isLeaf();
+
+    int position = getPointer(index);
+    position += IntegerSerializer.INT_SIZE + getIntValue(position);
+
+    return deserializeFromDirectMemory(keySerializer, position + IntegerSerializer.INT_SIZE);
+  }
+
+  public RID getValue(final int index) {
+    assert isLeaf();
+
+    final int position = getValuePosition(index);
+    return new RecordId(getShortValue(position), getLongValue(position + ShortSerializer.SHORT_SIZE));
+  }
+
+  public void updateValue(final int index, final RID value) {
+    assert isLeaf();
+
+    final int position = getValuePosition(index);
+    setShortValue(position, (short) value.getClusterId());
+    setLongValue(position + ShortSerializer.SHORT_SIZE, value.getClusterPosition());
+  }
+
+  public int getLeft(final int index) {
+    assert !isLeaf();
+
+    return getIntValue(getPointer(index));
+  }
+
+  public int getRight(final int index) {
+    assert !isLeaf();
+
+    return getIntValue(getPointer(index) + IntegerSerializer.INT_SIZE);
+  }
+
+  public boolean addLeafEntry(
+      final int index, final byte[] normalizedKey, final byte[] serializedKey, final RID value) {
+    assert isLeaf();
+
+    final int prefixLength = getPrefixLength();
+    if (isEmpty() || !startsWithPrefix(normalizedKey, prefixLength)) {
+      // prefix has to be recalculated, so content of the whole bucket is rewritten
+      final List<byte[]> rawEntries = getRawEntries(size());
+      rawEntries.add(index, leafRawEntry(normalizedKey, serializedKey, value));
+
+      return rebuild(rawEntries);
+    }
+
+    final int keyLength = normalizedKey.length - prefixLength;
+    final int entrySize = leafEntrySize(keyLength, serializedKey.length);
+    final int position = allocateEntry(index, entrySize);
+    if (position < 0) {
+      return false;
+    }
+
+    int offset = position;
+    offset += setIntValue(offset, keyLength);
+    offset +=
+        setBinaryValue(offset, Arrays.copyOfRange(normalizedKey, prefixLength, normalizedKey.length));
+    offset += setIntValue(offset, serializedKey.length);
+    offset += setBinaryValue(offset, serializedKey);
+    offset += setShortValue(offset, (short) value.getClusterId());
+    setLongValue(offset, value.getClusterPosition());
+
+    return true;
+  }
+
+  public boolean addNonLeafEntry(
+      final int index, final int leftChild, final int rightChild, final byte[] normalizedKey) {
+    assert !isLeaf();
+
+    final int entrySize = 3 * IntegerSerializer.INT_SIZE + normalizedKey.length;
+    final int position = allocateEntry(index, entrySize);
+    if (position < 0) {
+      return false;
+    }
+
+    int offset = position;
+    offset += setIntValue(offset, leftChild);
+    offset += setIntValue(offset, rightChild);
+    offset += setIntValue(offset, normalizedKey.length);
+    setBinaryValue(offset, normalizedKey);
+
+    // keep children of the neighbour entries consistent
+    final int size = size();
+    if (index < size - 1) {
+      setIntValue(getPointer(index + 1), rightChild);
+    }
+    if (index > 0) {
+      setIntValue(getPointer(index - 1) + IntegerSerializer.INT_SIZE, leftChild);
+    }
+
+    return true;
+  }
+
+  public void removeLeafEntry(final int index) {
+    assert isLeaf();
+
+    final int position = getPointer(index);
+    final int entrySize = getEntrySize(position);
+    final int size = size();
+
+    final int freePointer = getFreePointer();
+    if (position > freePointer) {
+      moveData(freePointer, freePointer + entrySize, position - freePointer);
+    }
+    setIntValue(FREE_POINTER_OFFSET, freePointer + entrySize);
+
+    if (index < size - 1) {
+      moveData(
+          POSITIONS_ARRAY_OFFSET + (index + 1) * IntegerSerializer.INT_SIZE,
+          POSITIONS_ARRAY_OFFSET + index * IntegerSerializer.INT_SIZE,
+          (size - index - 1) * IntegerSerializer.INT_SIZE);
+    }
+    setSize(size - 1);
+
+    for (int i = 0; i < size - 1; i++) {
+      final int pointer = getPointer(i);
+      if (pointer < position) {
+        setPointer(i, pointer + entrySize);
+      }
+    }
+  }
+
+  /**
+   * @return Entry in the form in which it would be stored in the bucket without prefix
+   * compression.
+   */
+  public byte[] getRawEntry(final int index) {
+    final int position = getPointer(index);
+    final byte[] entry = getBinaryValue(position, getEntrySize(position));
+
+    final int prefixLength = getPrefixLength();
+    if (prefixLength == 0) {
+      return entry;
+    }
+
+    final byte[] rawEntry = new byte[entry.length + prefixLength];
+    final int keyLength = getIntValue(position);
+    IntegerSerializer.INSTANCE.serializeNative(
+        keyLength + prefixLength, rawEntry, 0);
+    System.arraycopy(getPrefix(prefixLength), 0, rawEntry, IntegerSerializer.INT_SIZE,
+        prefixLength);
+    System.arraycopy(
+        entry,
+        IntegerSerializer.INT_SIZE,
+        rawEntry,
+        IntegerSerializer.INT_SIZE + prefixLength,
+        entry.length - IntegerSerializer.INT_SIZE);
+    return rawEntry;
+  }
+
+  /**
+   * Appends entries returned by {@link #getRawEntry(int)} to the bucket. Bucket has to have enough
+   * free space to contain them.
+   */
+  public void addAll(final List<byte[]> rawEntries) {
+    final List<byte[]> entries = getRawEntries(size());
+    entries.addAll(rawEntries);
+
+    final boolean result = rebuild(entries);
+    assert result;
+  }
+
+  public void shrink(final int newSize) {
+    final boolean result = rebuild(getRawEntries(newSize));
+    assert result;
+  }
+
+  public void setLeftSibling(final long pageIndex) {
+    setLongValue(LEFT_SIBLING_OFFSET, pageIndex);
+  }
+
+  public long getLeftSibling() {
+    return getLongValue(LEFT_SIBLING_OFFSET);
+  }
+
+  public void setRightSibling(final long pageIndex) {
+    setLongValue(RIGHT_SIBLING_OFFSET, pageIndex);
+  }
+
+  public long getRightSibling() {
+    return getLongValue(RIGHT_SIBLING_OFFSET);
+  }
+
+  static int leafEntrySize(final int normalizedKeyLength, final int serializedKeyLength) {
+    return 2 * IntegerSerializer.INT_SIZE + normalizedKeyLength + serializedKeyLength + RID_SIZE;
+  }
+
+  private static byte[] leafRawEntry(
+      final byte[] normalizedKey, final byte[] serializedKey, final RID value) {
+    final byte[] rawEntry = new byte[leafEntrySize(normalizedKey.length, serializedKey.length)];
+
+    int offset = 0;
+    IntegerSerializer.INSTANCE.serializeNative(normalizedKey.length, rawEntry, offset);
+    offset += IntegerSerializer.INT_SIZE;
+    System.arraycopy(normalizedKey, 0, rawEntry, offset, normalizedKey.length);
+    offset += normalizedKey.length;
+    IntegerSerializer.INSTANCE.serializeNative(serializedKey.length, rawEntry, offset);
+    offset += IntegerSerializer.INT_SIZE;
+    System.arraycopy(serializedKey, 0, rawEntry, offset, serializedKey.length);
+    offset += serializedKey.length;
+    ShortSerializer.INSTANCE.serializeNative((short) value.getClusterId(), rawEntry, offset);
+    offset += ShortSerializer.SHORT_SIZE;
+    LongSerializer.INSTANCE.serializeNative(value.getClusterPosition(), rawEntry, offset);
+
+    return rawEntry;
+  }
+
+  /**
+   * Rewrites content of the bucket by the passed in raw entries. Prefix of the normalized keys of
+   * leaf entries is recalculated.
+   *
+   * @return <code>false</code> if entries do not fit into the bucket, in such case content of the
+   * bucket is not changed.
+   */
+  private boolean rebuild(final List<byte[]> rawEntries) {
+    final boolean isLeaf = isLeaf();
+
+    int prefixLength = 0;
+    if (isLeaf && !rawEntries.isEmpty()) {
+      final byte[] first = rawEntries.getFirst();
+      prefixLength = IntegerSerializer.INSTANCE.deserializeNative(first, 0);
+
+      for (int i = 1; i < rawEntries.size() && prefixLength > 0; i++) {
+        final byte[] entry = rawEntries.get(i);
+        final int keyLength = IntegerSerializer.INSTANCE.deserializeNative(entry, 0);
+        final int mismatch =
+            Arrays.mismatch(
+                first,
+                IntegerSerializer.INT_SIZE,
+                IntegerSerializer.INT_SIZE + prefixLength,
+                entry,
+                IntegerSerializer.INT_SIZE,
+                IntegerSerializer.INT_SIZE + keyLength);
+        if (mismatch >= 0) {
+          prefixLength = mismatch;
+        }
+      }
+    }
+
+    int dataSize = prefixLength;
+    for (final byte[] rawEntry : rawEntries) {
+      dataSize += rawEntry.length - prefixLength;
+    }
+
+    if (POSITIONS_ARRAY_OFFSET + rawEntries.size() * IntegerSerializer.INT_SIZE + dataSize
+        > MAX_PAGE_SIZE_BYTES) {
+      return false;
+    }
+
+    int freePointer = MAX_PAGE_SIZE_BYTES - prefixLength;
+    if (prefixLength > 0) {
+      setBinaryValue(
+          freePointer,
+          Arrays.copyOfRange(
+              rawEntries.getFirst(),
+              IntegerSerializer.INT_SIZE,
+              IntegerSerializer.INT_SIZE + prefixLength));
+    }
+    setIntValue(PREFIX_LENGTH_OFFSET, prefixLength);
+
+    for (int i = 0; i < rawEntries.size(); i++) {
+      final byte[] rawEntry = rawEntries.get(i);
+
+      final byte[] entry;
+      if (prefixLength == 0) {
+        entry = rawEntry;
+      } else {
+        entry = new byte[rawEntry.length - prefixLength];
+        IntegerSerializer.INSTANCE.serializeNative(
+            IntegerSerializer.INSTANCE.deserializeNative(rawEntry, 0) - prefixLength, entry, 0);
+        System.arraycopy(
+            rawEntry,
+            IntegerSerializer.INT_SIZE + prefixLength,
+            entry,
+            IntegerSerializer.INT_SIZE,
+            entry.length - IntegerSerializer.INT_SIZE);
+      }
+
+      freePointer -= entry.length;
+      setBinaryValue(freePointer, entry);
+      setPointer(i, freePointer);
+    }
+
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+    setSize(rawEntries.size());
+
+    return true;
+  }
+
+  private List<byte[]> getRawEntries(final int count) {
+    final List<byte[]> rawEntries = new ArrayList<>(count + 1);
+    for (int i = 0; i < count; i++) {
+      rawEntries.add(getRawEntry(i));
+    }
+
+    return rawEntries;
+  }
+
+  int getPrefixLength() {
+    return getIntValue(PREFIX_LENGTH_OFFSET);
+  }
+
+  private byte[] getPrefix(final int prefixLength) {
+    return getBinaryValue(MAX_PAGE_SIZE_BYTES - prefixLength, prefixLength);
+  }
+
+  private boolean startsWithPrefix(final byte[] key, final int prefixLength) {
+    return key.length >= prefixLength
+        && compareBinaryValue(
+        MAX_PAGE_SIZE_BYTES - prefixLength, prefixLength, key, 0, prefixLength) == 0;
+  }
+
+  /**
+   * Compares prefix which is shared by all entries of the bucket with the given key.
+   *
+   * @return <code>0</code> if key starts from the prefix, otherwise the result of the comparison of
+   * any entry of the bucket with the key.
+   */
+  private int comparePrefix(final int prefixLength, final byte[] key, final boolean upperBound) {
+    final int commonLength = Math.min(prefixLength, key.length);
+    final int cmp =
+        compareBinaryValue(
+            MAX_PAGE_SIZE_BYTES - prefixLength, commonLength, key, 0, commonLength);
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    if (key.length < prefixLength) {
+      // all entries start from the key
+      return upperBound ? -1 : 1;
+    }
+
+    return 0;
+  }
+
+  /**
+   * Compares part of the normalized key of the entry which is stored in the entry with the part of
+   * the given key which starts at <code>keyOffset</code>.
+   */
+  private int compareKeyPart(
+      final int index, final byte[] key, final int keyOffset, final boolean upperBound) {
+    final int keyPosition = getKeyPosition(index);
+    final int entryKeyLength = getIntValue(keyPosition);
+    final int keyLength = key.length - keyOffset;
+
+    if (upperBound) {
+      if (entryKeyLength >= keyLength
+          && compareBinaryValue(
+          keyPosition + IntegerSerializer.INT_SIZE, keyLength, key, keyOffset, keyLength)
+          == 0) {
+        return -1;
+      }
+    }
+
+    return compareBinaryValue(
+        keyPosition + IntegerSerializer.INT_SIZE, entryKeyLength, key, keyOffset, keyLength);
+  }
+
+  private int getKeyPosition(final int index) {
+    final int position = getPointer(index);
+    if (isLeaf()) {
+      return position;
+    }
+
+    return position + 2 * IntegerSerializer.INT_SIZE;
+  }
+
+  private int getValuePosition(final int index) {
+    int position = getPointer(index);
+    position += IntegerSerializer.INT_SIZE + getIntValue(position);
+    position += IntegerSerializer.INT_SIZE + getIntValue(position);
+
+    return position;
+  }
+
+  private int getEntrySize(final int position) {
+    if (isLeaf()) {
+      final int normalizedKeyLength = getIntValue(position);
+      final int serializedKeyLength =
+          getIntValue(position + IntegerSerializer.INT_SIZE + normalizedKeyLength);
+      return leafEntrySize(normalizedKeyLength, serializedKeyLength);
+    }
+
+    return 3 * IntegerSerializer.INT_SIZE + getIntValue(position + 2 * IntegerSerializer.INT_SIZE);
+  }
+
+  /**
+   * Reserves space for the entry and inserts pointer to it at the given index.
+   *
+   * @return Position of the entry or <code>-1</code> if there is not enough space in the bucket.
+   */
+  private int allocateEntry(final int index, final int entrySize) {
+    final int size = size();
+    final int freePointer = getFreePointer();
+
+    if (freePointer - entrySize
+        < (size + 1) * IntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET) {
+      return -1;
+    }
+
+    if (index < size) {
+      moveData(
+          POSITIONS_ARRAY_OFFSET + index * IntegerSerializer.INT_SIZE,
+          POSITIONS_ARRAY_OFFSET + (index + 1) * IntegerSerializer.INT_SIZE,
+          (size - index) * IntegerSerializer.INT_SIZE);
+    }
+
+    final int position = freePointer - entrySize;
+    setIntValue(FREE_POINTER_OFFSET, position);
+    setPointer(index, position);
+    setSize(size + 1);
+
+    return position;
+  }
+
+  private int getFreePointer() {
+    return getIntValue(FREE_POINTER_OFFSET);
+  }
+
+  private int getPointer(final int index) {
+    return getIntValue(POSITIONS_ARRAY_OFFSET + index * IntegerSerializer.INT_SIZE);
+  }
+
+  private void setPointer(final int index, final int pointer) {
+    setIntValue(POSITIONS_ARRAY_OFFSET + index * IntegerSerializer.INT_SIZE, pointer);
+  }
+
+  private void setSize(final int size) {
+    setIntValue(SIZE_OFFSET, size);
+  }
+}
@@ -0,0 +1,15 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
+
+import com.jetbrains.youtrack.db.internal.core.exception.DurableComponentException;
+
+public final class NormalizedKeyBTreeException extends DurableComponentException {
+
+  @SuppressWarnings("unused")
+  public NormalizedKeyBTreeException(final NormalizedKeyBTreeException exception) {
+    super(exception);
+  }
+
+  NormalizedKeyBTreeException(final String message, final NormalizedKeyBTreeValue<?> component) {
+    super(message, component);
+  }
+}
@@ -1,15 +1,75 @@
 package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
 
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.exception.BaseException;
+import com.jetbrains.youtrack.db.api.exception.TooBigIndexKeyException;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.BinarySerializer;
+import com.jetbrains.youtrack.db.internal.common.util.RawPair;
 import com.jetbrains.youtrack.db.internal.core.index.CompositeKey;
+import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysGreaterKey;
+import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysLessKey;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValidator;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.CacheEntry;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.AbstractPaginatedStorage;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.atomicoperations.AtomicOperation;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.base.DurableComponent;
+import com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree.normalizers.BinaryComparableKeyNormalizer;
+import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.v3.CellBTreeSingleValueEntryPointV3;
+import com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.v3.CellBTreeSingleValueV3NullBucket;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nonnull;
 
-public class NormalizedKeyBTreeValue<K> extends DurableComponent implements NormalizedKeyBTree<K> {
+/**
+ * B+-tree which keeps keys in the form produced by {@link BinaryComparableKeyNormalizer}. Because
+ * order of normalized keys is the same as order of the original keys, binary search inside of the
+ * buckets compares bytes directly in the page and does not deserialize keys. Serialized keys are
+ * stored in leaf entries only to return them to the caller.
+ *
+ * <p>Structure of the tree and of its files is the same as structure of
+ * {@link com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.v3.CellBTreeSingleValueV3},
+ * the same entry point and null bucket pages are used. Buckets which become empty after deletion
+ * of items are not merged and stay linked with their siblings, they are filled again by the
+ * following insertions.
+ */
+public final class NormalizedKeyBTreeValue<K> extends DurableComponent
+    implements NormalizedKeyBTree<K> {
+
+  private static final int SPLITERATOR_CACHE_SIZE =
+      GlobalConfiguration.INDEX_CURSOR_PREFETCH_SIZE.getValueAsInteger();
+
+  private static final int MAX_PATH_LENGTH =
+      GlobalConfiguration.SBTREE_MAX_DEPTH.getValueAsInteger();
+
+  private static final int ENTRY_POINT_INDEX = 0;
+  private static final long ROOT_INDEX = 1;
+
+  /**
+   * Read when the tree is created, because the limit is calculated from the page size when the
+   * first storage is opened.
+   */
+  private final int maxKeySize = GlobalConfiguration.SBTREE_MAX_KEY_SIZE.getValueAsInteger();
 
   private final String nullFileExtension;
+  private long fileId;
+  private long nullBucketFileId = -1;
+  private int keySize;
+  private BinarySerializer<K> keySerializer;
+  private PropertyType[] keyTypes;
+  private BinaryComparableKeyNormalizer keyNormalizer;
 
   public NormalizedKeyBTreeValue(
-      final String name,
+      @Nonnull final String name,
       final String dataFileExtension,
       final String nullFileExtension,
       final AbstractPaginatedStorage storage) {
@@ -23,11 +83,1214 @@ public class NormalizedKeyBTreeValue<K> extends DurableComponent implements Norm
   }
 
   @Override
-  public byte[] get(final CompositeKey key) {
-    return new byte[0];
+  public void create(
+      final AtomicOperation atomicOperation,
+      final BinarySerializer<K> keySerializer,
+      final PropertyType[] keyTypes,
+      final int keySize) {
+    assert keySerializer != null;
+
+    executeInsideComponentOperation(
+        atomicOperation,
+        operation -> {
+          acquireExclusiveLock();
+          try {
+            this.keyNormalizer = createNormalizer(keyTypes);
+            this.keySize = keySize;
+            this.keyTypes = Arrays.copyOf(keyTypes, keyTypes.length);
+            this.keySerializer = keySerializer;
+
+            fileId = addFile(atomicOperation, getFullName());
+            nullBucketFileId = addFile(atomicOperation, getName() + nullFileExtension);
+
+            try (final CacheEntry entryPointCacheEntry = addPage(atomicOperation, fileId)) {
+              final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+                  new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+              entryPoint.init();
+            }
+
+            try (final CacheEntry rootCacheEntry = addPage(atomicOperation, fileId)) {
+              final NormalizedKeyBTreeBucket<K> rootBucket =
+                  new NormalizedKeyBTreeBucket<>(rootCacheEntry);
+              rootBucket.init(true);
+            }
+
+            try (final CacheEntry nullCacheEntry = addPage(atomicOperation, nullBucketFileId)) {
+              final CellBTreeSingleValueV3NullBucket nullBucket =
+                  new CellBTreeSingleValueV3NullBucket(nullCacheEntry);
+              nullBucket.init();
+            }
+          } finally {
+            releaseExclusiveLock();
+          }
+        });
+  }
+
+  @Override
+  public RID get(K key) {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+        if (key != null) {
+          key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+          final BucketSearchResult bucketSearchResult =
+              findBucket(new NormalizedKey(keyNormalizer.normalize(key), false), atomicOperation);
+          if (bucketSearchResult.itemIndex() < 0) {
+            return null;
+          }
+
+          try (final CacheEntry keyBucketCacheEntry =
+              loadPageForRead(atomicOperation, fileId, bucketSearchResult.pageIndex())) {
+            final NormalizedKeyBTreeBucket<K> keyBucket =
+                new NormalizedKeyBTreeBucket<>(keyBucketCacheEntry);
+            return keyBucket.getValue(bucketSearchResult.itemIndex());
+          }
+        } else {
+          try (final CacheEntry nullBucketCacheEntry =
+              loadPageForRead(atomicOperation, nullBucketFileId, 0)) {
+            final CellBTreeSingleValueV3NullBucket nullBucket =
+                new CellBTreeSingleValueV3NullBucket(nullBucketCacheEntry);
+            return nullBucket.getValue();
+          }
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } catch (final IOException e) {
+      throw BaseException.wrapException(
+          new NormalizedKeyBTreeException(
+              "Error during retrieving  of btree with name " + getName(), this),
+          e);
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public void put(final AtomicOperation atomicOperation, final K key, final RID value) {
+    update(atomicOperation, key, value, null);
+  }
+
+  @Override
+  public boolean validatedPut(
+      final AtomicOperation atomicOperation,
+      final K key,
+      final RID value,
+      final IndexEngineValidator<K, RID> validator) {
+    return update(atomicOperation, key, value, validator);
+  }
+
+  private boolean update(
+      final AtomicOperation atomicOperation,
+      final K k,
+      final RID rid,
+      final IndexEngineValidator<K, RID> validator) {
+    return calculateInsideComponentOperation(
+        atomicOperation,
+        operation -> {
+          acquireExclusiveLock();
+          try {
+            K key = k;
+            RID value = rid;
+
+            if (key != null) {
+              key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+              final byte[] normalizedKey = keyNormalizer.normalize(key);
+              final byte[] serializedKey =
+                  keySerializer.serializeNativeAsWhole(key, (Object[]) keyTypes);
+
+              final int keyLength = normalizedKey.length + serializedKey.length;
+              if (keyLength > maxKeySize) {
+                throw new TooBigIndexKeyException(
+                    "Key size is more than allowed, operation was canceled. Current key size "
+                        + keyLength
+                        + ", allowed  "
+                        + maxKeySize,
+                    getName());
+              }
+
+              UpdateBucketSearchResult bucketSearchResult =
+                  findBucketForUpdate(normalizedKey, atomicOperation);
+
+              CacheEntry keyBucketCacheEntry =
+                  loadPageForWrite(
+                      atomicOperation, fileId, bucketSearchResult.getLastPathItem(), true);
+              NormalizedKeyBTreeBucket<K> keyBucket =
+                  new NormalizedKeyBTreeBucket<>(keyBucketCacheEntry);
+
+              final RID oldValue;
+              if (bucketSearchResult.itemIndex() >= 0) {
+                oldValue = keyBucket.getValue(bucketSearchResult.itemIndex());
+              } else {
+                oldValue = null;
+              }
+
+              if (validator != null) {
+                boolean failure = true; // assuming validation throws by default
+                boolean ignored = false;
+
+                try {
+                  final Object result = validator.validate(key, oldValue, value);
+                  if (result == IndexEngineValidator.IGNORE) {
+                    ignored = true;
+                    failure = false;
+                    return false;
+                  }
+
+                  value = (RID) result;
+                  failure = false;
+                } finally {
+                  if (failure || ignored) {
+                    keyBucketCacheEntry.close();
+                  }
+                }
+              }
+
+              if (bucketSearchResult.itemIndex() >= 0) {
+                keyBucket.updateValue(bucketSearchResult.itemIndex(), value);
+                keyBucketCacheEntry.close();
+                return true;
+              }
+
+              int insertionIndex = -bucketSearchResult.itemIndex() - 1;
+              while (!keyBucket.addLeafEntry(
+                  insertionIndex, normalizedKey, serializedKey, value)) {
+                bucketSearchResult =
+                    splitBucket(
+                        keyBucket,
+                        keyBucketCacheEntry,
+                        bucketSearchResult.path(),
+                        bucketSearchResult.insertionIndexes(),
+                        insertionIndex,
+                        atomicOperation);
+
+                insertionIndex = bucketSearchResult.itemIndex();
+
+                final long pageIndex = bucketSearchResult.getLastPathItem();
+                if (pageIndex != keyBucketCacheEntry.getPageIndex()) {
+                  keyBucketCacheEntry.close();
+
+                  keyBucketCacheEntry = loadPageForWrite(atomicOperation, fileId, pageIndex, true);
+                }
+
+                //noinspection ObjectAllocationInLoop
+                keyBucket = new NormalizedKeyBTreeBucket<>(keyBucketCacheEntry);
+              }
+
+              keyBucketCacheEntry.close();
+              updateSize(1, atomicOperation);
+            } else {
+              int sizeDiff = 0;
+              try (final CacheEntry cacheEntry =
+                  loadPageForWrite(atomicOperation, nullBucketFileId, 0, true)) {
+                final CellBTreeSingleValueV3NullBucket nullBucket =
+                    new CellBTreeSingleValueV3NullBucket(cacheEntry);
+                final RID oldValue = nullBucket.getValue();
+
+                if (validator != null) {
+                  final Object result = validator.validate(null, oldValue, value);
+                  if (result == IndexEngineValidator.IGNORE) {
+                    return false;
+                  }
+                }
+
+                if (oldValue != null) {
+                  sizeDiff = -1;
+                }
+                nullBucket.setValue(value);
+              }
+              sizeDiff++;
+              updateSize(sizeDiff, atomicOperation);
+            }
+            return true;
+          } finally {
+            releaseExclusiveLock();
+          }
+        });
+  }
+
+  @Override
+  public void close() {
+    acquireExclusiveLock();
+    try {
+      readCache.closeFile(fileId, true, writeCache);
+      readCache.closeFile(nullBucketFileId, true, writeCache);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public void delete(final AtomicOperation atomicOperation) {
+    executeInsideComponentOperation(
+        atomicOperation,
+        operation -> {
+          acquireExclusiveLock();
+          try {
+            deleteFile(atomicOperation, fileId);
+            deleteFile(atomicOperation, nullBucketFileId);
+          } finally {
+            releaseExclusiveLock();
+          }
+        });
+  }
+
+  @Override
+  public void load(
+      final String name,
+      final int keySize,
+      final PropertyType[] keyTypes,
+      final BinarySerializer<K> keySerializer) {
+    acquireExclusiveLock();
+    try {
+      final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+      this.keyNormalizer = createNormalizer(keyTypes);
+
+      fileId = openFile(atomicOperation, getFullName());
+      nullBucketFileId = openFile(atomicOperation, name + nullFileExtension);
+
+      this.keySize = keySize;
+      this.keyTypes = keyTypes;
+      this.keySerializer = keySerializer;
+    } catch (final IOException e) {
+      throw BaseException.wrapException(
+          new NormalizedKeyBTreeException("Exception during loading of btree " + name, this), e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public long size() {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+        try (final CacheEntry entryPointCacheEntry =
+            loadPageForRead(atomicOperation, fileId, ENTRY_POINT_INDEX)) {
+          final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+              new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+          return entryPoint.getTreeSize();
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } catch (final IOException e) {
+      throw BaseException.wrapException(
+          new NormalizedKeyBTreeException(
+              "Error during retrieving of size of index " + getName(), this),
+          e);
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public RID remove(final AtomicOperation atomicOperation, final K k) {
+    return calculateInsideComponentOperation(
+        atomicOperation,
+        operation -> {
+          acquireExclusiveLock();
+          try {
+            if (k == null) {
+              return removeNullBucket(atomicOperation);
+            }
+
+            final K key = keySerializer.preprocess(k, (Object[]) keyTypes);
+            final BucketSearchResult bucketSearchResult =
+                findBucket(new NormalizedKey(keyNormalizer.normalize(key), false), atomicOperation);
+            if (bucketSearchResult.itemIndex() < 0) {
+              return null;
+            }
+
+            final RID removedValue;
+            try (final CacheEntry keyBucketCacheEntry =
+                loadPageForWrite(atomicOperation, fileId, bucketSearchResult.pageIndex(), true)) {
+              final NormalizedKeyBTreeBucket<K> keyBucket =
+                  new NormalizedKeyBTreeBucket<>(keyBucketCacheEntry);
+              removedValue = keyBucket.getValue(bucketSearchResult.itemIndex());
+              keyBucket.removeLeafEntry(bucketSearchResult.itemIndex());
+            }
+
+            updateSize(-1, atomicOperation);
+            return removedValue;
+          } finally {
+            releaseExclusiveLock();
+          }
+        });
+  }
+
+  private RID removeNullBucket(final AtomicOperation atomicOperation) throws IOException {
+    final RID removedValue;
+    try (final CacheEntry nullCacheEntry =
+        loadPageForWrite(atomicOperation, nullBucketFileId, 0, true)) {
+      final CellBTreeSingleValueV3NullBucket nullBucket =
+          new CellBTreeSingleValueV3NullBucket(nullCacheEntry);
+      removedValue = nullBucket.getValue();
+
+      if (removedValue != null) {
+        nullBucket.removeValue();
+      }
+    }
+
+    if (removedValue != null) {
+      updateSize(-1, atomicOperation);
+    }
+    return removedValue;
+  }
+
+  @Override
+  public Stream<RawPair<K, RID>> iterateEntriesMinor(
+      final K key, final boolean inclusive, final boolean ascSortOrder) {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final NormalizedKey toKey =
+            toSearchKey(
+                key,
+                inclusive ? PartialSearchMode.HIGHEST_BOUNDARY : PartialSearchMode.LOWEST_BOUNDARY);
+
+        return StreamSupport.stream(
+            new NormalizedKeySpliterator<>(this, null, toKey, false, inclusive, ascSortOrder),
+            false);
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public Stream<RawPair<K, RID>> iterateEntriesMajor(
+      final K key, final boolean inclusive, final boolean ascSortOrder) {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final NormalizedKey fromKey =
+            toSearchKey(
+                key,
+                inclusive ? PartialSearchMode.LOWEST_BOUNDARY : PartialSearchMode.HIGHEST_BOUNDARY);
+
+        return StreamSupport.stream(
+            new NormalizedKeySpliterator<>(this, fromKey, null, inclusive, false, ascSortOrder),
+            false);
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public Stream<RawPair<K, RID>> iterateEntriesBetween(
+      final K keyFrom,
+      final boolean fromInclusive,
+      final K keyTo,
+      final boolean toInclusive,
+      final boolean ascSortOrder) {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final NormalizedKey fromKey =
+            toSearchKey(
+                keyFrom,
+                fromInclusive
+                    ? PartialSearchMode.LOWEST_BOUNDARY
+                    : PartialSearchMode.HIGHEST_BOUNDARY);
+        final NormalizedKey toKey =
+            toSearchKey(
+                keyTo,
+                toInclusive ? PartialSearchMode.HIGHEST_BOUNDARY : PartialSearchMode.LOWEST_BOUNDARY);
+
+        return StreamSupport.stream(
+            new NormalizedKeySpliterator<>(
+                this, fromKey, toKey, fromInclusive, toInclusive, ascSortOrder),
+            false);
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public K firstKey() {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+        final Optional<BucketSearchResult> searchResult = firstItem(atomicOperation);
+        if (searchResult.isEmpty()) {
+          return null;
+        }
+
+        final BucketSearchResult result = searchResult.get();
+        try (final CacheEntry cacheEntry =
+            loadPageForRead(atomicOperation, fileId, result.pageIndex())) {
+          final NormalizedKeyBTreeBucket<K> bucket = new NormalizedKeyBTreeBucket<>(cacheEntry);
+          return bucket.getKey(result.itemIndex(), keySerializer);
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } catch (final IOException e) {
+      throw BaseException.wrapException(
+          new NormalizedKeyBTreeException(
+              "Error during finding first key in btree [" + getName() + "]", this),
+          e);
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public K lastKey() {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+        final Optional<BucketSearchResult> searchResult = lastItem(atomicOperation);
+        if (searchResult.isEmpty()) {
+          return null;
+        }
+
+        final BucketSearchResult result = searchResult.get();
+        try (final CacheEntry cacheEntry =
+            loadPageForRead(atomicOperation, fileId, result.pageIndex())) {
+          final NormalizedKeyBTreeBucket<K> bucket = new NormalizedKeyBTreeBucket<>(cacheEntry);
+          return bucket.getKey(result.itemIndex(), keySerializer);
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } catch (final IOException e) {
+      throw BaseException.wrapException(
+          new NormalizedKeyBTreeException(
+              "Error during finding last key in btree [" + getName() + "]", this),
+          e);
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public Stream<K> keyStream() {
+    return allEntries().map((entry) -> entry.first);
   }
 
   @Override
-  public void put(final CompositeKey key, final byte[] value) {
+  public Stream<RawPair<K, RID>> allEntries() {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        return StreamSupport.stream(
+            new NormalizedKeySpliterator<>(this, null, null, false, false, true), false);
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  /**
+   * Acquires exclusive lock in the active atomic operation running on the current thread for this
+   * B-tree.
+   */
+  @Override
+  public void acquireAtomicExclusiveLock() {
+    atomicOperationsManager.acquireExclusiveLockTillOperationComplete(this);
+  }
+
+  private BinaryComparableKeyNormalizer createNormalizer(final PropertyType[] keyTypes) {
+    try {
+      return new BinaryComparableKeyNormalizer(keyTypes);
+    } catch (final IllegalArgumentException e) {
+      throw BaseException.wrapException(
+          new NormalizedKeyBTreeException(
+              "Keys of btree " + getName() + " can not be normalized", this),
+          e);
+    }
+  }
+
+  /**
+   * Converts key passed by the caller into search key. Keys which contain {@link AlwaysLessKey} or
+   * {@link AlwaysGreaterKey} items and composite keys which contain less items than the tree are
+   * treated as the lowest or the highest key which starts from the passed in items.
+   */
+  private NormalizedKey toSearchKey(K key, final PartialSearchMode partialSearchMode) {
+    if (key == null) {
+      return null;
+    }
+
+    key = keySerializer.preprocess(key, (Object[]) keyTypes);
+    final byte[] normalizedKey = keyNormalizer.normalize(key);
+
+    if (key instanceof CompositeKey compositeKey) {
+      final List<Object> items = compositeKey.getKeys();
+      for (final Object item : items) {
+        if (item instanceof AlwaysGreaterKey) {
+          return new NormalizedKey(normalizedKey, true);
+        }
+        if (item instanceof AlwaysLessKey) {
+          return new NormalizedKey(normalizedKey, false);
+        }
+      }
+
+      if (keySize > 1 && items.size() < keySize) {
+        return new NormalizedKey(
+            normalizedKey, partialSearchMode == PartialSearchMode.HIGHEST_BOUNDARY);
+      }
+    }
+
+    return new NormalizedKey(normalizedKey, false);
+  }
+
+  private void updateSize(final long diffSize, final AtomicOperation atomicOperation)
+      throws IOException {
+    try (final CacheEntry entryPointCacheEntry =
+        loadPageForWrite(atomicOperation, fileId, ENTRY_POINT_INDEX, true)) {
+      final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+          new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+      entryPoint.setTreeSize(entryPoint.getTreeSize() + diffSize);
+    }
+  }
+
+  /**
+   * Finds the leftmost leaf and skips empty leaves using links between siblings.
+   */
+  private Optional<BucketSearchResult> firstItem(final AtomicOperation atomicOperation)
+      throws IOException {
+    long pageIndex = descend(atomicOperation, true);
+
+    while (pageIndex >= 0) {
+      try (final CacheEntry cacheEntry = loadPageForRead(atomicOperation, fileId, pageIndex)) {
+        final NormalizedKeyBTreeBucket<K> bucket = new NormalizedKeyBTreeBucket<>(cacheEntry);
+        if (!bucket.isEmpty()) {
+          return Optional.of(new BucketSearchResult(0, pageIndex));
+        }
+
+        pageIndex = bucket.getRightSibling();
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  /**
+   * Finds the rightmost leaf and skips empty leaves using links between siblings.
+   */
+  private Optional<BucketSearchResult> lastItem(final AtomicOperation atomicOperation)
+      throws IOException {
+    long pageIndex = descend(atomicOperation, false);
+
+    while (pageIndex >= 0) {
+      try (final CacheEntry cacheEntry = loadPageForRead(atomicOperation, fileId, pageIndex)) {
+        final NormalizedKeyBTreeBucket<K> bucket = new NormalizedKeyBTreeBucket<>(cacheEntry);
+        if (!bucket.isEmpty()) {
+          return Optional.of(new BucketSearchResult(bucket.size() - 1, pageIndex));
+        }
+
+        pageIndex = bucket.getLeftSibling();
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  private long descend(final AtomicOperation atomicOperation, final boolean leftmost)
+      throws IOException {
+    long pageIndex = ROOT_INDEX;
+
+    int depth = 0;
+    while (true) {
+      depth++;
+      if (depth > MAX_PATH_LENGTH) {
+        throw new NormalizedKeyBTreeException(
+            "We reached max level of depth of BTree but still found nothing, seems like tree is in"
+                + " corrupted state. You should rebuild index related to given query.",
+            this);
+      }
+
+      try (final CacheEntry cacheEntry = loadPageForRead(atomicOperation, fileId, pageIndex)) {
+        @SuppressWarnings("ObjectAllocationInLoop") final NormalizedKeyBTreeBucket<K> bucket =
+            new NormalizedKeyBTreeBucket<>(cacheEntry);
+        if (bucket.isLeaf()) {
+          return pageIndex;
+        }
+
+        if (leftmost) {
+          pageIndex = bucket.getLeft(0);
+        } else {
+          pageIndex = bucket.getRight(bucket.size() - 1);
+        }
+      }
+    }
+  }
+
+  private UpdateBucketSearchResult splitBucket(
+      final NormalizedKeyBTreeBucket<K> bucketToSplit,
+      final CacheEntry entryToSplit,
+      final LongArrayList path,
+      final IntArrayList itemPointers,
+      final int keyIndex,
+      final AtomicOperation atomicOperation)
+      throws IOException {
+    final boolean splitLeaf = bucketToSplit.isLeaf();
+    final int bucketSize = bucketToSplit.size();
+
+    final int indexToSplit = bucketSize >>> 1;
+
+    final int startRightIndex = splitLeaf ? indexToSplit : indexToSplit + 1;
+    if (startRightIndex == 0) {
+      throw new NormalizedKeyBTreeException("Left part of bucket is empty", this);
+    }
+
+    final byte[] separationKey;
+    if (splitLeaf && keyIndex == indexToSplit) {
+      // new key is inserted at the end of the left bucket and is only known to be less than the
+      // first key of the right bucket, it could be routed to the right by the shorter separator
+      separationKey = bucketToSplit.getNormalizedKey(indexToSplit);
+    } else if (splitLeaf) {
+      separationKey =
+          shortestSeparator(
+              bucketToSplit.getNormalizedKey(indexToSplit - 1),
+              bucketToSplit.getNormalizedKey(indexToSplit));
+    } else {
+      separationKey = bucketToSplit.getNormalizedKey(indexToSplit);
+    }
+    final List<byte[]> rightEntries = new ArrayList<>(indexToSplit);
+
+    for (int i = startRightIndex; i < bucketSize; i++) {
+      rightEntries.add(bucketToSplit.getRawEntry(i));
+    }
+
+    if (rightEntries.isEmpty()) {
+      throw new NormalizedKeyBTreeException("Right part of bucket is empty", this);
+    }
+
+    if (entryToSplit.getPageIndex() != ROOT_INDEX) {
+      return splitNonRootBucket(
+          path,
+          itemPointers,
+          keyIndex,
+          entryToSplit.getPageIndex(),
+          bucketToSplit,
+          splitLeaf,
+          indexToSplit,
+          separationKey,
+          rightEntries,
+          atomicOperation);
+    } else {
+      return splitRootBucket(
+          keyIndex,
+          bucketToSplit,
+          splitLeaf,
+          indexToSplit,
+          separationKey,
+          rightEntries,
+          atomicOperation);
+    }
+  }
+
+  /**
+   * Calculates the shortest separator of the leaf buckets, which is the shortest prefix of the first
+   * key of the right bucket which is still greater than the last key of the left bucket. Because
+   * keys of the leaves are only routed by separators, the separator does not need to be equal to
+   * any key, and shorter separators increase fan-out of the non-leaf buckets.
+   */
+  static byte[] shortestSeparator(final byte[] leftKey, final byte[] rightKey) {
+    assert Arrays.compareUnsigned(leftKey, rightKey) < 0;
+
+    final int mismatch = Arrays.mismatch(leftKey, rightKey);
+    assert mismatch >= 0 && mismatch < rightKey.length;
+
+    return Arrays.copyOf(rightKey, mismatch + 1);
+  }
+
+  private UpdateBucketSearchResult splitNonRootBucket(
+      final LongArrayList path,
+      final IntArrayList itemPointers,
+      final int keyIndex,
+      final long pageIndex,
+      final NormalizedKeyBTreeBucket<K> bucketToSplit,
+      final boolean splitLeaf,
+      final int indexToSplit,
+      final byte[] separationKey,
+      final List<byte[]> rightEntries,
+      final AtomicOperation atomicOperation)
+      throws IOException {
+    final CacheEntry rightBucketEntry = allocateNewPage(atomicOperation);
+    try (rightBucketEntry) {
+      final NormalizedKeyBTreeBucket<K> newRightBucket =
+          new NormalizedKeyBTreeBucket<>(rightBucketEntry);
+      newRightBucket.init(splitLeaf);
+      newRightBucket.addAll(rightEntries);
+
+      bucketToSplit.shrink(indexToSplit);
+
+      if (splitLeaf) {
+        final long rightSiblingPageIndex = bucketToSplit.getRightSibling();
+
+        newRightBucket.setRightSibling(rightSiblingPageIndex);
+        newRightBucket.setLeftSibling(pageIndex);
+
+        bucketToSplit.setRightSibling(rightBucketEntry.getPageIndex());
+
+        if (rightSiblingPageIndex >= 0) {
+          try (final CacheEntry rightSiblingBucketEntry =
+              loadPageForWrite(atomicOperation, fileId, rightSiblingPageIndex, true)) {
+            final NormalizedKeyBTreeBucket<K> rightSiblingBucket =
+                new NormalizedKeyBTreeBucket<>(rightSiblingBucketEntry);
+            rightSiblingBucket.setLeftSibling(rightBucketEntry.getPageIndex());
+          }
+        }
+      }
+
+      long parentIndex = path.getLong(path.size() - 2);
+      CacheEntry parentCacheEntry = loadPageForWrite(atomicOperation, fileId, parentIndex, true);
+      try {
+        NormalizedKeyBTreeBucket<K> parentBucket = new NormalizedKeyBTreeBucket<>(parentCacheEntry);
+        int insertionIndex = itemPointers.getInt(itemPointers.size() - 2);
+        LongArrayList currentPath = new LongArrayList(path.subList(0, path.size() - 1));
+        IntArrayList currentIndex =
+            new IntArrayList(itemPointers.subList(0, itemPointers.size() - 1));
+
+        while (!parentBucket.addNonLeafEntry(
+            insertionIndex, (int) pageIndex, rightBucketEntry.getPageIndex(), separationKey)) {
+          final UpdateBucketSearchResult bucketSearchResult =
+              splitBucket(
+                  parentBucket,
+                  parentCacheEntry,
+                  currentPath,
+                  currentIndex,
+                  insertionIndex,
+                  atomicOperation);
+
+          parentIndex = bucketSearchResult.getLastPathItem();
+          insertionIndex = bucketSearchResult.itemIndex();
+          currentPath = bucketSearchResult.path();
+          currentIndex = bucketSearchResult.insertionIndexes();
+
+          if (parentIndex != parentCacheEntry.getPageIndex()) {
+            parentCacheEntry.close();
+
+            parentCacheEntry = loadPageForWrite(atomicOperation, fileId, parentIndex, true);
+          }
+
+          //noinspection ObjectAllocationInLoop
+          parentBucket = new NormalizedKeyBTreeBucket<>(parentCacheEntry);
+        }
+      } finally {
+        parentCacheEntry.close();
+      }
+    }
+
+    final LongArrayList resultPath = new LongArrayList(path.subList(0, path.size() - 1));
+    final IntArrayList resultItemPointers =
+        new IntArrayList(itemPointers.subList(0, itemPointers.size() - 1));
+
+    if (keyIndex <= indexToSplit) {
+      resultPath.add(pageIndex);
+      resultItemPointers.add(keyIndex);
+
+      return new UpdateBucketSearchResult(resultItemPointers, resultPath, keyIndex);
+    }
+
+    final int parentIndex = resultItemPointers.size() - 1;
+    resultItemPointers.set(parentIndex, resultItemPointers.getInt(parentIndex) + 1);
+    resultPath.add(rightBucketEntry.getPageIndex());
+
+    final int newKeyIndex = splitLeaf ? keyIndex - indexToSplit : keyIndex - indexToSplit - 1;
+    resultItemPointers.add(newKeyIndex);
+    return new UpdateBucketSearchResult(resultItemPointers, resultPath, newKeyIndex);
+  }
+
+  private UpdateBucketSearchResult splitRootBucket(
+      final int keyIndex,
+      final NormalizedKeyBTreeBucket<K> bucketToSplit,
+      final boolean splitLeaf,
+      final int indexToSplit,
+      final byte[] separationKey,
+      final List<byte[]> rightEntries,
+      final AtomicOperation atomicOperation)
+      throws IOException {
+    final List<byte[]> leftEntries = new ArrayList<>(indexToSplit);
+    for (int i = 0; i < indexToSplit; i++) {
+      leftEntries.add(bucketToSplit.getRawEntry(i));
+    }
+
+    final CacheEntry leftBucketEntry = allocateNewPage(atomicOperation);
+    final CacheEntry rightBucketEntry = allocateNewPage(atomicOperation);
+
+    try (leftBucketEntry) {
+      final NormalizedKeyBTreeBucket<K> newLeftBucket =
+          new NormalizedKeyBTreeBucket<>(leftBucketEntry);
+      newLeftBucket.init(splitLeaf);
+      newLeftBucket.addAll(leftEntries);
+
+      if (splitLeaf) {
+        newLeftBucket.setRightSibling(rightBucketEntry.getPageIndex());
+      }
+    }
+
+    try (rightBucketEntry) {
+      final NormalizedKeyBTreeBucket<K> newRightBucket =
+          new NormalizedKeyBTreeBucket<>(rightBucketEntry);
+      newRightBucket.init(splitLeaf);
+      newRightBucket.addAll(rightEntries);
+
+      if (splitLeaf) {
+        newRightBucket.setLeftSibling(leftBucketEntry.getPageIndex());
+      }
+    }
+
+    bucketToSplit.shrink(0);
+    if (splitLeaf) {
+      bucketToSplit.switchBucketType();
+    }
+    bucketToSplit.addNonLeafEntry(
+        0, leftBucketEntry.getPageIndex(), rightBucketEntry.getPageIndex(), separationKey);
+
+    final LongArrayList resultPath = new LongArrayList(8);
+    resultPath.add(ROOT_INDEX);
+
+    final IntArrayList itemPointers = new IntArrayList(8);
+
+    if (keyIndex <= indexToSplit) {
+      itemPointers.add(-1);
+      itemPointers.add(keyIndex);
+
+      resultPath.add(leftBucketEntry.getPageIndex());
+      return new UpdateBucketSearchResult(itemPointers, resultPath, keyIndex);
+    }
+
+    resultPath.add(rightBucketEntry.getPageIndex());
+    itemPointers.add(0);
+
+    final int newKeyIndex = splitLeaf ? keyIndex - indexToSplit : keyIndex - indexToSplit - 1;
+    itemPointers.add(newKeyIndex);
+    return new UpdateBucketSearchResult(itemPointers, resultPath, newKeyIndex);
+  }
+
+  private CacheEntry allocateNewPage(final AtomicOperation atomicOperation) throws IOException {
+    try (final CacheEntry entryPointCacheEntry =
+        loadPageForWrite(atomicOperation, fileId, ENTRY_POINT_INDEX, true)) {
+      final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+          new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+
+      int pageSize = entryPoint.getPagesSize();
+      if (pageSize < getFilledUpTo(atomicOperation, fileId) - 1) {
+        pageSize++;
+        final CacheEntry cacheEntry = loadPageForWrite(atomicOperation, fileId, pageSize, false);
+        entryPoint.setPagesSize(pageSize);
+        return cacheEntry;
+      }
+
+      assert pageSize == getFilledUpTo(atomicOperation, fileId) - 1;
+
+      final CacheEntry cacheEntry = addPage(atomicOperation, fileId);
+      entryPoint.setPagesSize(cacheEntry.getPageIndex());
+      return cacheEntry;
+    }
+  }
+
+  private BucketSearchResult findBucket(
+      final NormalizedKey key, final AtomicOperation atomicOperation) throws IOException {
+    long pageIndex = ROOT_INDEX;
+
+    int depth = 0;
+    while (true) {
+      depth++;
+      if (depth > MAX_PATH_LENGTH) {
+        throw new NormalizedKeyBTreeException(
+            "We reached max level of depth of BTree but still found nothing, seems like tree is in"
+                + " corrupted state. You should rebuild index related to given query.",
+            this);
+      }
+
+      try (final CacheEntry bucketEntry = loadPageForRead(atomicOperation, fileId, pageIndex)) {
+        @SuppressWarnings("ObjectAllocationInLoop") final NormalizedKeyBTreeBucket<K> keyBucket =
+            new NormalizedKeyBTreeBucket<>(bucketEntry);
+        final int index = keyBucket.find(key.bytes(), key.upperBound());
+
+        if (keyBucket.isLeaf()) {
+          return new BucketSearchResult(index, pageIndex);
+        }
+
+        if (index >= 0) {
+          pageIndex = keyBucket.getRight(index);
+        } else {
+          final int insertionIndex = -index - 1;
+          if (insertionIndex >= keyBucket.size()) {
+            pageIndex = keyBucket.getRight(insertionIndex - 1);
+          } else {
+            pageIndex = keyBucket.getLeft(insertionIndex);
+          }
+        }
+      }
+    }
+  }
+
+  private UpdateBucketSearchResult findBucketForUpdate(
+      final byte[] key, final AtomicOperation atomicOperation) throws IOException {
+    long pageIndex = ROOT_INDEX;
+
+    final LongArrayList path = new LongArrayList(8);
+    final IntArrayList itemIndexes = new IntArrayList(8);
+
+    while (true) {
+      if (path.size() > MAX_PATH_LENGTH) {
+        throw new NormalizedKeyBTreeException(
+            "We reached max level of depth of BTree but still found nothing, seems like tree is in"
+                + " corrupted state. You should rebuild index related to given query.",
+            this);
+      }
+
+      path.add(pageIndex);
+      try (final CacheEntry bucketEntry = loadPageForRead(atomicOperation, fileId, pageIndex)) {
+        @SuppressWarnings("ObjectAllocationInLoop") final NormalizedKeyBTreeBucket<K> keyBucket =
+            new NormalizedKeyBTreeBucket<>(bucketEntry);
+        final int index = keyBucket.find(key, false);
+
+        if (keyBucket.isLeaf()) {
+          itemIndexes.add(index);
+          return new UpdateBucketSearchResult(itemIndexes, path, index);
+        }
+
+        if (index >= 0) {
+          pageIndex = keyBucket.getRight(index);
+          itemIndexes.add(index + 1);
+        } else {
+          final int insertionIndex = -index - 1;
+
+          if (insertionIndex >= keyBucket.size()) {
+            pageIndex = keyBucket.getRight(insertionIndex - 1);
+          } else {
+            pageIndex = keyBucket.getLeft(insertionIndex);
+          }
+
+          itemIndexes.add(insertionIndex);
+        }
+      }
+    }
+  }
+
+  void fetchNextCachePortion(final NormalizedKeySpliterator<K> iter) {
+    iter.getDataCache().clear();
+    iter.setCacheIterator(Collections.emptyIterator());
+
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+        if (iter.getPageIndex() > -1) {
+          if (readKeysFromBuckets(atomicOperation, iter)) {
+            return;
+          }
+        }
+
+        // this can only happen if page LSN does not equal to stored LSN or index of current
+        // iterated page equals to -1, so we only started iteration
+        if (iter.getDataCache().isEmpty()) {
+          if (iter.getLastKey() == null) {
+            if (!positionAtStart(atomicOperation, iter)) {
+              return;
+            }
+          } else {
+            final BucketSearchResult bucketSearchResult =
+                findBucket(new NormalizedKey(iter.getLastKey(), false), atomicOperation);
+            iter.setPageIndex((int) bucketSearchResult.pageIndex());
+
+            final int itemIndex = bucketSearchResult.itemIndex();
+            if (iter.isAscSortOrder()) {
+              iter.setItemIndex(itemIndex >= 0 ? itemIndex + 1 : -itemIndex - 1);
+            } else {
+              iter.setItemIndex(itemIndex >= 0 ? itemIndex - 1 : -itemIndex - 2);
+            }
+          }
+
+          iter.setLastLSN(null);
+          readKeysFromBuckets(atomicOperation, iter);
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } catch (final IOException e) {
+      throw BaseException.wrapException(
+          new NormalizedKeyBTreeException("Error during entity iteration", this), e);
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  /**
+   * Sets position of the iterator which did not return any entry yet.
+   *
+   * @return <code>false</code> if tree does not contain any entry.
+   */
+  private boolean positionAtStart(
+      final AtomicOperation atomicOperation, final NormalizedKeySpliterator<K> iter)
+      throws IOException {
+    final NormalizedKey startKey = iter.isAscSortOrder() ? iter.getFromKey() : iter.getToKey();
+    if (startKey == null) {
+      final Optional<BucketSearchResult> bucketSearchResult =
+          iter.isAscSortOrder() ? firstItem(atomicOperation) : lastItem(atomicOperation);
+      if (bucketSearchResult.isEmpty()) {
+        return false;
+      }
+
+      final BucketSearchResult searchResult = bucketSearchResult.get();
+      iter.setPageIndex((int) searchResult.pageIndex());
+      iter.setItemIndex(searchResult.itemIndex());
+      return true;
+    }
+
+    final BucketSearchResult searchResult = findBucket(startKey, atomicOperation);
+    iter.setPageIndex((int) searchResult.pageIndex());
+
+    final int itemIndex = searchResult.itemIndex();
+    if (iter.isAscSortOrder()) {
+      if (itemIndex >= 0) {
+        iter.setItemIndex(iter.isFromKeyInclusive() ? itemIndex : itemIndex + 1);
+      } else {
+        iter.setItemIndex(-itemIndex - 1);
+      }
+    } else {
+      if (itemIndex >= 0) {
+        iter.setItemIndex(iter.isToKeyInclusive() ? itemIndex : itemIndex - 1);
+      } else {
+        iter.setItemIndex(-itemIndex - 2);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Reads entries starting from the current position of the iterator till the end of the range or
+   * till the cache of the iterator is full.
+   *
+   * @return <code>false</code> if page was changed since the previous read and position of the
+   * iterator has to be restored by the last read key.
+   */
+  private boolean readKeysFromBuckets(
+      final AtomicOperation atomicOperation, final NormalizedKeySpliterator<K> iter)
+      throws IOException {
+    final boolean ascSortOrder = iter.isAscSortOrder();
+    final NormalizedKey endKey = ascSortOrder ? iter.getToKey() : iter.getFromKey();
+    final boolean endKeyInclusive =
+        ascSortOrder ? iter.isToKeyInclusive() : iter.isFromKeyInclusive();
+
+    CacheEntry cacheEntry = loadPageForRead(atomicOperation, fileId, iter.getPageIndex());
+    try {
+      NormalizedKeyBTreeBucket<K> bucket = new NormalizedKeyBTreeBucket<>(cacheEntry);
+      if (iter.getLastLSN() != null && !bucket.getLsn().equals(iter.getLastLSN())) {
+        return false;
+      }
+
+      while (true) {
+        int bucketSize = bucket.size();
+        if (ascSortOrder ? iter.getItemIndex() >= bucketSize : iter.getItemIndex() < 0) {
+          final long nextPageIndex =
+              ascSortOrder ? bucket.getRightSibling() : bucket.getLeftSibling();
+          iter.setPageIndex((int) nextPageIndex);
+
+          if (nextPageIndex < 0) {
+            return true;
+          }
+
+          cacheEntry.close();
+
+          cacheEntry = loadPageForRead(atomicOperation, fileId, nextPageIndex);
+          //noinspection ObjectAllocationInLoop
+          bucket = new NormalizedKeyBTreeBucket<>(cacheEntry);
+
+          bucketSize = bucket.size();
+          iter.setItemIndex(ascSortOrder ? 0 : bucketSize - 1);
+          continue;
+        }
+
+        iter.setLastLSN(bucket.getLsn());
+
+        final int step = ascSortOrder ? 1 : -1;
+        for (;
+            iter.getItemIndex() >= 0
+                && iter.getItemIndex() < bucketSize
+                && iter.getDataCache().size() < SPLITERATOR_CACHE_SIZE;
+            iter.setItemIndex(iter.getItemIndex() + step)) {
+          final int itemIndex = iter.getItemIndex();
+
+          if (endKey != null) {
+            int cmp = bucket.compareKey(itemIndex, endKey.bytes(), endKey.upperBound());
+            if (!ascSortOrder) {
+              cmp = -cmp;
+            }
+
+            if (endKeyInclusive ? cmp > 0 : cmp >= 0) {
+              return true;
+            }
+          }
+
+          //noinspection ObjectAllocationInLoop
+          iter.getDataCache()
+              .add(new RawPair<>(bucket.getKey(itemIndex, keySerializer), bucket.getValue(itemIndex)));
+          iter.setLastKey(bucket.getNormalizedKey(itemIndex));
+        }
+
+        if (iter.getDataCache().size() >= SPLITERATOR_CACHE_SIZE) {
+          return true;
+        }
+      }
+    } finally {
+      cacheEntry.close();
+    }
+  }
+
+  private record BucketSearchResult(int itemIndex, long pageIndex) {
+
+  }
+
+  private record UpdateBucketSearchResult(
+      IntArrayList insertionIndexes, LongArrayList path, int itemIndex) {
+
+    long getLastPathItem() {
+      return path.getLong(path.size() - 1);
+    }
+  }
+
+  /**
+   * Indicates search behavior in case of {@link CompositeKey} keys that have less amount of
+   * internal keys are used, whether lowest or highest partially matched key should be used.
+   */
+  private enum PartialSearchMode {
+    /**
+     * The biggest partially matched key will be used as search result.
+     */
+    HIGHEST_BOUNDARY,
+
+    /**
+     * The smallest partially matched key will be used as search result.
+     */
+    LOWEST_BOUNDARY
   }
 }
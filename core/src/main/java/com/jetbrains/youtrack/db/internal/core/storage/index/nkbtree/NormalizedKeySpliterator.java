@@ -0,0 +1,166 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
+
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.common.comparator.DefaultComparator;
+import com.jetbrains.youtrack.db.internal.common.util.RawPair;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.LogSequenceNumber;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Iterates over entries of {@link NormalizedKeyBTreeValue} in ascending or descending order. Entries
+ * are read by portions, so tree locks are not held between calls of {@link #tryAdvance(Consumer)}.
+ */
+final class NormalizedKeySpliterator<K> implements Spliterator<RawPair<K, RID>> {
+
+  private final NormalizedKeyBTreeValue<K> btree;
+
+  private final NormalizedKey fromKey;
+  private final NormalizedKey toKey;
+  private final boolean fromKeyInclusive;
+  private final boolean toKeyInclusive;
+  private final boolean ascSortOrder;
+
+  private int pageIndex = -1;
+  private int itemIndex = -1;
+
+  private LogSequenceNumber lastLSN = null;
+
+  /**
+   * Normalized key of the last entry which was put in the cache, used to find position of the
+   * iteration if tree was changed between reads of the portions.
+   */
+  private byte[] lastKey;
+
+  private final List<RawPair<K, RID>> dataCache = new ArrayList<>();
+  private Iterator<RawPair<K, RID>> cacheIterator = Collections.emptyIterator();
+
+  NormalizedKeySpliterator(
+      final NormalizedKeyBTreeValue<K> btree,
+      final NormalizedKey fromKey,
+      final NormalizedKey toKey,
+      final boolean fromKeyInclusive,
+      final boolean toKeyInclusive,
+      final boolean ascSortOrder) {
+    this.btree = btree;
+    this.fromKey = fromKey;
+    this.toKey = toKey;
+    this.fromKeyInclusive = fromKeyInclusive;
+    this.toKeyInclusive = toKeyInclusive;
+    this.ascSortOrder = ascSortOrder;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super RawPair<K, RID>> action) {
+    if (cacheIterator == null) {
+      return false;
+    }
+
+    if (cacheIterator.hasNext()) {
+      action.accept(cacheIterator.next());
+      return true;
+    }
+
+    btree.fetchNextCachePortion(this);
+
+    cacheIterator = dataCache.iterator();
+
+    if (cacheIterator.hasNext()) {
+      action.accept(cacheIterator.next());
+      return true;
+    }
+
+    cacheIterator = null;
+
+    return false;
+  }
+
+  @Override
+  public Spliterator<RawPair<K, RID>> trySplit() {
+    return null;
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return SORTED | NONNULL | ORDERED;
+  }
+
+  @Override
+  public Comparator<? super RawPair<K, RID>> getComparator() {
+    if (ascSortOrder) {
+      return (pairOne, pairTwo) -> DefaultComparator.INSTANCE.compare(pairOne.first, pairTwo.first);
+    }
+
+    return (pairOne, pairTwo) -> -DefaultComparator.INSTANCE.compare(pairOne.first, pairTwo.first);
+  }
+
+  NormalizedKey getFromKey() {
+    return fromKey;
+  }
+
+  NormalizedKey getToKey() {
+    return toKey;
+  }
+
+  boolean isFromKeyInclusive() {
+    return fromKeyInclusive;
+  }
+
+  boolean isToKeyInclusive() {
+    return toKeyInclusive;
+  }
+
+  boolean isAscSortOrder() {
+    return ascSortOrder;
+  }
+
+  int getItemIndex() {
+    return itemIndex;
+  }
+
+  void setItemIndex(int itemIndex) {
+    this.itemIndex = itemIndex;
+  }
+
+  int getPageIndex() {
+    return pageIndex;
+  }
+
+  void setPageIndex(int pageIndex) {
+    this.pageIndex = pageIndex;
+  }
+
+  byte[] getLastKey() {
+    return lastKey;
+  }
+
+  void setLastKey(byte[] lastKey) {
+    this.lastKey = lastKey;
+  }
+
+  List<RawPair<K, RID>> getDataCache() {
+    return dataCache;
+  }
+
+  LogSequenceNumber getLastLSN() {
+    return lastLSN;
+  }
+
+  void setLastLSN(LogSequenceNumber lastLSN) {
+    this.lastLSN = lastLSN;
+  }
+
+  void setCacheIterator(Iterator<RawPair<K, RID>> cacheIterator) {
+    this.cacheIterator = cacheIterator;
+  }
+}
@@ -0,0 +1,284 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree.normalizers;
+
+import com.jetbrains.youtrack.db.api.record.Identifiable;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.core.index.CompositeKey;
+import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysGreaterKey;
+import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysLessKey;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converts index keys into byte arrays which can be compared byte by byte as unsigned values.
+ * Unlike {@link KeyNormalizer}, which uses locale collation for strings and approximates decimals,
+ * order of the produced arrays is the same as order of the keys defined by
+ * {@link com.jetbrains.youtrack.db.internal.common.comparator.DefaultComparator} and equal keys
+ * produce equal arrays, so normalized keys can be stored in index instead of the keys itself.
+ *
+ * <p>Every item of the key is prefixed by a byte which is <code>0</code> for <code>null</code>
+ * values and <code>1</code> otherwise, so <code>null</code> values precede all other values.
+ * Variable length items are terminated, so normalized key of the first items of the composite key
+ * is a prefix of normalized key of the full composite key.
+ */
+public final class BinaryComparableKeyNormalizer {
+
+  private static final Set<PropertyType> SUPPORTED_TYPES =
+      EnumSet.of(
+          PropertyType.BOOLEAN,
+          PropertyType.BYTE,
+          PropertyType.SHORT,
+          PropertyType.INTEGER,
+          PropertyType.LONG,
+          PropertyType.FLOAT,
+          PropertyType.DOUBLE,
+          PropertyType.DECIMAL,
+          PropertyType.STRING,
+          PropertyType.DATE,
+          PropertyType.DATETIME,
+          PropertyType.BINARY,
+          PropertyType.LINK);
+
+  private static final byte NULL_ITEM = 0;
+  private static final byte NOT_NULL_ITEM = 1;
+
+  private static final byte NEGATIVE_DECIMAL = 0;
+  private static final byte ZERO_DECIMAL = 1;
+  private static final byte POSITIVE_DECIMAL = 2;
+
+  private final PropertyType[] keyTypes;
+
+  public BinaryComparableKeyNormalizer(final PropertyType[] keyTypes) {
+    if (keyTypes == null || keyTypes.length == 0) {
+      throw new IllegalArgumentException("Types of the key items are not specified");
+    }
+
+    for (final PropertyType keyType : keyTypes) {
+      if (!isSupported(keyType)) {
+        throw new IllegalArgumentException(
+            "Type " + keyType + " is not supported by normalized keys");
+      }
+    }
+
+    this.keyTypes = Arrays.copyOf(keyTypes, keyTypes.length);
+  }
+
+  public static boolean isSupported(final PropertyType type) {
+    return type != null && SUPPORTED_TYPES.contains(type);
+  }
+
+  /**
+   * Normalizes passed in key. If key is {@link CompositeKey} which contains {@link AlwaysLessKey} or
+   * {@link AlwaysGreaterKey} items, only items which precede them are normalized.
+   */
+  public byte[] normalize(final Object key) {
+    final Output output = new Output();
+
+    if (key instanceof CompositeKey compositeKey) {
+      final List<Object> items = compositeKey.getKeys();
+      if (items.size() > keyTypes.length) {
+        throw new IllegalArgumentException(
+            "Key " + key + " contains more items than expected " + keyTypes.length);
+      }
+
+      for (int i = 0; i < items.size(); i++) {
+        final Object item = items.get(i);
+        if (item instanceof AlwaysLessKey || item instanceof AlwaysGreaterKey) {
+          break;
+        }
+
+        writeItem(item, keyTypes[i], output);
+      }
+    } else {
+      writeItem(key, keyTypes[0], output);
+    }
+
+    return output.toByteArray();
+  }
+
+  private static void writeItem(final Object item, final PropertyType type, final Output output) {
+    if (item == null) {
+      output.write(NULL_ITEM);
+      return;
+    }
+
+    output.write(NOT_NULL_ITEM);
+    switch (type) {
+      case BOOLEAN -> output.write((Boolean) item ? 1 : 0);
+      case BYTE -> output.write(
+          (int) integralValue(item, type, Byte.MIN_VALUE, Byte.MAX_VALUE) ^ 0x80);
+      case SHORT -> output.writeShort(
+          (int) integralValue(item, type, Short.MIN_VALUE, Short.MAX_VALUE) ^ 0x8000);
+      case INTEGER -> output.writeInt(
+          (int) integralValue(item, type, Integer.MIN_VALUE, Integer.MAX_VALUE)
+              ^ Integer.MIN_VALUE);
+      case LONG -> output.writeLong(
+          integralValue(item, type, Long.MIN_VALUE, Long.MAX_VALUE) ^ Long.MIN_VALUE);
+      case DATE, DATETIME -> output.writeLong(((Date) item).getTime() ^ Long.MIN_VALUE);
+      case FLOAT -> {
+        final float value = ((Number) item).floatValue();
+        if (item instanceof Double && !Double.isNaN((Double) item) && value != (Double) item) {
+          throw notRepresentable(item, type, null);
+        }
+
+        final int bits = Float.floatToIntBits(value);
+        // flip all bits of negative values and only sign bit of positive ones
+        output.writeInt(bits ^ ((bits >> 31) | Integer.MIN_VALUE));
+      }
+      case DOUBLE -> {
+        final long bits = Double.doubleToLongBits(((Number) item).doubleValue());
+        output.writeLong(bits ^ ((bits >> 63) | Long.MIN_VALUE));
+      }
+      case DECIMAL -> writeDecimal(toDecimal(item), output);
+      case STRING -> {
+        final String value = item.toString();
+        for (int i = 0; i < value.length(); i++) {
+          final char c = value.charAt(i);
+          output.writeEscaped(c >>> 8);
+          output.writeEscaped(c & 0xFF);
+        }
+        output.writeTerminator();
+      }
+      case BINARY -> {
+        for (final byte b : (byte[]) item) {
+          output.writeEscaped(b & 0xFF);
+        }
+        output.writeTerminator();
+      }
+      case LINK -> {
+        final RID rid = ((Identifiable) item).getIdentity();
+        output.writeInt(rid.getClusterId() ^ Integer.MIN_VALUE);
+        output.writeLong(rid.getClusterPosition() ^ Long.MIN_VALUE);
+      }
+      default -> throw new IllegalArgumentException(
+          "Type " + type + " is not supported by normalized keys");
+    }
+  }
+
+  /**
+   * Returns value of the item of the integral type. Values which do not fit into the type or have
+   * fractional part are rejected, because truncated value would match a different key.
+   */
+  private static long integralValue(
+      final Object item, final PropertyType type, final long min, final long max) {
+    final long value;
+    if (item instanceof Long
+        || item instanceof Integer
+        || item instanceof Short
+        || item instanceof Byte) {
+      value = ((Number) item).longValue();
+    } else {
+      try {
+        value = toDecimal(item).longValueExact();
+      } catch (ArithmeticException | NumberFormatException e) {
+        throw notRepresentable(item, type, e);
+      }
+    }
+
+    if (value < min || value > max) {
+      throw notRepresentable(item, type, null);
+    }
+    return value;
+  }
+
+  private static IllegalArgumentException notRepresentable(
+      final Object item, final PropertyType type, final Exception cause) {
+    return new IllegalArgumentException(
+        "Key item " + item + " can not be presented as " + type + " without loss of precision",
+        cause);
+  }
+
+  private static BigDecimal toDecimal(final Object item) {
+    if (item instanceof BigDecimal decimal) {
+      return decimal;
+    }
+
+    return new BigDecimal(item.toString());
+  }
+
+  /**
+   * Decimal is presented as <code>0.d1d2...dn * 10^e</code>, where <code>d1</code> is not zero and
+   * <code>dn</code> is the last non-zero digit. Exponent is written first and then digits are
+   * written one byte per digit followed by terminator. All the bytes of negative values are
+   * inverted, so values with bigger magnitude go first.
+   */
+  private static void writeDecimal(final BigDecimal value, final Output output) {
+    final int signum = value.signum();
+    if (signum == 0) {
+      output.write(ZERO_DECIMAL);
+      return;
+    }
+
+    final BigDecimal stripped = value.stripTrailingZeros();
+    final String digits = stripped.unscaledValue().abs().toString();
+    final long exponent = (long) digits.length() - stripped.scale();
+
+    final int mask = signum < 0 ? 0xFF : 0;
+    output.write(signum < 0 ? NEGATIVE_DECIMAL : POSITIVE_DECIMAL);
+
+    final long encodedExponent = exponent ^ Long.MIN_VALUE;
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      output.write((int) (encodedExponent >>> shift) ^ mask);
+    }
+
+    for (int i = 0; i < digits.length(); i++) {
+      output.write((digits.charAt(i) - '0' + 1) ^ mask);
+    }
+    output.write(mask);
+  }
+
+  private static final class Output {
+
+    private byte[] buffer = new byte[16];
+    private int size;
+
+    void write(final int value) {
+      if (size == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length << 1);
+      }
+
+      buffer[size++] = (byte) value;
+    }
+
+    void writeShort(final int value) {
+      write(value >>> 8);
+      write(value);
+    }
+
+    void writeInt(final int value) {
+      write(value >>> 24);
+      write(value >>> 16);
+      write(value >>> 8);
+      write(value);
+    }
+
+    void writeLong(final long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    /**
+     * Zero bytes are escaped by the following <code>0xFF</code> byte, so they are greater than
+     * terminator which is written by {@link #writeTerminator()}.
+     */
+    void writeEscaped(final int value) {
+      write(value);
+      if (value == 0) {
+        write(0xFF);
+      }
+    }
+
+    void writeTerminator() {
+      write(0);
+      write(0);
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, size);
+    }
+  }
+}
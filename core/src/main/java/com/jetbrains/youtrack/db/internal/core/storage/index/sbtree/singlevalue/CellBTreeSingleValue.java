@@ -4,10 +4,12 @@ import com.jetbrains.youtrack.db.api.record.RID;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
 import com.jetbrains.youtrack.db.internal.common.serialization.types.BinarySerializer;
 import com.jetbrains.youtrack.db.internal.common.util.RawPair;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexBulkLoader;
 import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValidator;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.atomicoperations.AtomicOperation;
 import java.io.IOException;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 public interface CellBTreeSingleValue<K> {
 
@@ -57,4 +59,29 @@ public interface CellBTreeSingleValue<K> {
       K keyFrom, boolean fromInclusive, K keyTo, boolean toInclusive, boolean ascSortOrder);
 
   void acquireAtomicExclusiveLock();
+
+  /**
+   * Creates loader which fills empty tree by the given entries without insertion of them one by
+   * one. Entries with equal keys are resolved by the validator the same way as by
+   * {@link #validatedPut(AtomicOperation, Object, RID, IndexEngineValidator)}, if validator is
+   * <code>null</code> the last entry wins as in case of {@link #put(AtomicOperation, Object, RID)}.
+   *
+   * @param fillFactor Percent of page space which is filled by entries, the rest is left for the
+   *                   following insertions.
+   * @param validator  Validator of entries with equal keys, may be <code>null</code>.
+   * @return Loader or <code>null</code> if bulk load is not supported by the tree.
+   */
+  @Nullable
+  default IndexBulkLoader<K> createBulkLoader(
+      int fillFactor, IndexEngineValidator<K, RID> validator) {
+    return null;
+  }
+
+  /**
+   * @return <code>true</code> if the bulk load was started, but not completed, for example because
+   * of a crash, so the tree does not contain all entries.
+   */
+  default boolean isBulkLoadInterrupted() {
+    return false;
+  }
 }
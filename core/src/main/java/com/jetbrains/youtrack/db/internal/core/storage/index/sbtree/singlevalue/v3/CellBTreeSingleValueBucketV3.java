@@ -359,6 +359,13 @@ public final class CellBTreeSingleValueBucketV3<K> extends DurablePage {
     return getByteValue(IS_LEAF_OFFSET) > 0;
   }
 
+  /**
+   * @return Amount of bytes which are still available for new entries and their pointers.
+   */
+  public int getFreeSpace() {
+    return getFreePointer() - getSize() * IntegerSerializer.INT_SIZE - POSITIONS_ARRAY_OFFSET;
+  }
+
   public void addAll(final List<byte[]> rawEntries, final BinarySerializer<K> keySerializer) {
     final int currentSize = size();
     for (int i = 0; i < rawEntries.size(); i++) {
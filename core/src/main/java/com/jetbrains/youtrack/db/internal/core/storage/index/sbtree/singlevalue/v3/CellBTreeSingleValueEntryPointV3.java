@@ -13,6 +13,7 @@ public final class CellBTreeSingleValueEntryPointV3<K> extends DurablePage {
   private static final int TREE_SIZE_OFFSET = KEY_SIZE_OFFSET + IntegerSerializer.INT_SIZE;
   private static final int PAGES_SIZE_OFFSET = TREE_SIZE_OFFSET + LongSerializer.LONG_SIZE;
   private static final int FREE_LIST_HEAD_OFFSET = PAGES_SIZE_OFFSET + IntegerSerializer.INT_SIZE;
+  private static final int BULK_LOAD_OFFSET = FREE_LIST_HEAD_OFFSET + IntegerSerializer.INT_SIZE;
 
   public CellBTreeSingleValueEntryPointV3(final CacheEntry cacheEntry) {
     super(cacheEntry);
@@ -22,6 +23,7 @@ public final class CellBTreeSingleValueEntryPointV3<K> extends DurablePage {
     setLongValue(TREE_SIZE_OFFSET, 0);
     setIntValue(PAGES_SIZE_OFFSET, 1);
     setIntValue(FREE_LIST_HEAD_OFFSET, -1);
+    setByteValue(BULK_LOAD_OFFSET, (byte) 0);
   }
 
   public void setTreeSize(final long size) {
@@ -55,4 +57,16 @@ public final class CellBTreeSingleValueEntryPointV3<K> extends DurablePage {
   public void setFreeListHead(int freeListHead) {
     setIntValue(FREE_LIST_HEAD_OFFSET, freeListHead);
   }
+
+  /**
+   * Set while the tree is filled by the bulk load, which is performed by several atomic
+   * operations. Absent in the previous versions, so 0 is considered as not set.
+   */
+  public void setBulkLoad(final boolean bulkLoad) {
+    setByteValue(BULK_LOAD_OFFSET, bulkLoad ? (byte) 1 : (byte) 0);
+  }
+
+  public boolean isBulkLoad() {
+    return getByteValue(BULK_LOAD_OFFSET) != 0;
+  }
 }
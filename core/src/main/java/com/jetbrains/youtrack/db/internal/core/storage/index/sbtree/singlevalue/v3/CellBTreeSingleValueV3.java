@@ -26,7 +26,9 @@ import com.jetbrains.youtrack.db.api.exception.TooBigIndexKeyException;
 import com.jetbrains.youtrack.db.api.record.RID;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
 import com.jetbrains.youtrack.db.internal.common.comparator.DefaultComparator;
+import com.jetbrains.youtrack.db.internal.common.function.TxConsumer;
 import com.jetbrains.youtrack.db.internal.common.serialization.types.BinarySerializer;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.IntegerSerializer;
 import com.jetbrains.youtrack.db.internal.common.serialization.types.LongSerializer;
 import com.jetbrains.youtrack.db.internal.common.serialization.types.ShortSerializer;
 import com.jetbrains.youtrack.db.internal.common.util.RawPair;
@@ -34,7 +36,9 @@ import com.jetbrains.youtrack.db.internal.core.id.RecordId;
 import com.jetbrains.youtrack.db.internal.core.index.CompositeKey;
 import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysGreaterKey;
 import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysLessKey;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexBulkLoader;
 import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValidator;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEntriesSorter;
 import com.jetbrains.youtrack.db.internal.core.storage.cache.CacheEntry;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.AbstractPaginatedStorage;
 import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.atomicoperations.AtomicOperation;
@@ -50,6 +54,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -99,6 +104,11 @@ public final class CellBTreeSingleValueV3<K> extends DurableComponent
   private static final int MAX_PATH_LENGTH =
       GlobalConfiguration.SBTREE_MAX_DEPTH.getValueAsInteger();
 
+  /**
+   * Maximum amount of pages which are added by single atomic operation during bulk load.
+   */
+  private static final int BULK_LOAD_BATCH_SIZE = 1024;
+
   private static final int ENTRY_POINT_INDEX = 0;
   private static final long ROOT_INDEX = 1;
   final Comparator<? super K> comparator = DefaultComparator.INSTANCE;
@@ -1099,6 +1109,56 @@ public final class CellBTreeSingleValueV3<K> extends DurableComponent
     }
   }
 
+  private boolean isEmpty() throws IOException {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+        try (final CacheEntry entryPointCacheEntry =
+            loadPageForRead(atomicOperation, fileId, ENTRY_POINT_INDEX)) {
+          final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+              new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+          return entryPoint.getTreeSize() == 0
+              && entryPoint.getPagesSize() == ROOT_INDEX
+              && getFilledUpTo(atomicOperation, fileId) == ROOT_INDEX + 1;
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
+  @Override
+  public boolean isBulkLoadInterrupted() {
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final AtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+
+        try (final CacheEntry entryPointCacheEntry =
+            loadPageForRead(atomicOperation, fileId, ENTRY_POINT_INDEX)) {
+          final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+              new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+          return entryPoint.isBulkLoad();
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } catch (final IOException e) {
+      throw BaseException.wrapException(
+          new CellBTreeSingleValueV3Exception(
+              "Error during reading of state of index " + getName(), this),
+          e);
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+  }
+
   /**
    * Acquires exclusive lock in the active atomic operation running on the current thread for this
    * SB-tree.
@@ -1107,6 +1167,461 @@ public final class CellBTreeSingleValueV3<K> extends DurableComponent
     atomicOperationsManager.acquireExclusiveLockTillOperationComplete(this);
   }
 
+  /**
+   * Keys are preprocessed and sorted by {@link IndexEntriesSorter}, then tree is filled bottom-up.
+   * Leaf pages are appended to the file one after another and filled up to the fill factor, then
+   * every level of non-leaf pages is built on top of the previous one till single page remains,
+   * content of this page is copied to the root. No page is split, so every page is written only
+   * once. Pages are written by the sequence of atomic operations each of which contains limited
+   * amount of pages, tree is in inconsistent state till the end of the load. Entry point of the
+   * tree is marked by the first operation and unmarked by the last one, so the load interrupted by
+   * a crash is reported by {@link #isBulkLoadInterrupted()}.
+   */
+  @Override
+  public IndexBulkLoader<K> createBulkLoader(
+      final int fillFactor, final IndexEngineValidator<K, RID> validator) {
+    if (fillFactor <= 0 || fillFactor > 100) {
+      throw new IllegalArgumentException("Invalid fill factor " + fillFactor);
+    }
+
+    final IndexEntriesSorter<K> sorter =
+        new IndexEntriesSorter<>(
+            keySerializer,
+            keyTypes,
+            GlobalConfiguration.INDEX_BULK_LOAD_SORT_BUFFER_SIZE.getValueAsInteger());
+
+    return new IndexBulkLoader<>() {
+      @Override
+      public void add(final K key, final RID value) throws IOException {
+        if (key == null) {
+          sorter.add(null, value);
+        } else {
+          sorter.add(keySerializer.preprocess(key, (Object[]) keyTypes), value);
+        }
+      }
+
+      @Override
+      public void load() throws IOException {
+        bulkLoad(sorter.sortedEntries(), fillFactor, validator);
+      }
+
+      @Override
+      public void close() throws IOException {
+        sorter.close();
+      }
+    };
+  }
+
+  private void bulkLoad(
+      final Iterator<RawPair<K, RID>> sortedEntries,
+      final int fillFactor,
+      final IndexEngineValidator<K, RID> validator)
+      throws IOException {
+    if (atomicOperationsManager.getCurrentOperation() != null) {
+      throw new CellBTreeSingleValueV3Exception(
+          "Bulk load can not be performed inside of atomic operation", this);
+    }
+
+    // failure inside of atomic operation is treated as an internal error of the storage
+    if (!isEmpty()) {
+      throw new CellBTreeSingleValueV3Exception(
+          "Bulk load can be performed only for empty tree", this);
+    }
+
+    final BulkLoadState state = new BulkLoadState(sortedEntries, fillFactor, validator);
+    executeBulkLoadStep(state, state::start);
+
+    while (!state.leavesLoaded) {
+      executeBulkLoadStep(state, state::loadLeaves);
+    }
+
+    while (state.levelFirstPage != state.levelLastPage) {
+      executeBulkLoadStep(state, state::buildNonLeafLevel);
+    }
+
+    executeBulkLoadStep(state, state::complete);
+  }
+
+  /**
+   * Lock of the tree is released between the steps, so every step checks that the tree was not
+   * changed by the other thread, otherwise pages of the load would be mixed with the pages of
+   * this change.
+   */
+  private void executeBulkLoadStep(final BulkLoadState state, final TxConsumer step)
+      throws IOException {
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null,
+        atomicOperation ->
+            executeInsideComponentOperation(
+                atomicOperation,
+                operation -> {
+                  acquireExclusiveLock();
+                  try {
+                    state.checkNotModified(operation);
+                    step.accept(operation);
+                    state.filledUpTo = getFilledUpTo(operation, fileId);
+                  } finally {
+                    releaseExclusiveLock();
+                  }
+                }));
+  }
+
+  /**
+   * State of the bulk load which is preserved between atomic operations.
+   */
+  private final class BulkLoadState {
+
+    private final Iterator<RawPair<K, RID>> entries;
+    private final IndexEngineValidator<K, RID> validator;
+    private final int fillFactor;
+
+    private K pendingKey;
+    private RID pendingValue;
+    private RID nullValue;
+    private long treeSize;
+
+    private boolean leavesLoaded;
+    private long currentLeaf = -1;
+    private int reservedSpace = -1;
+
+    /**
+     * Pages of the last built level, they are always placed one after another.
+     */
+    private long levelFirstPage = -1;
+    private long levelLastPage = -1;
+
+    private long nextChild = -1;
+    private long pendingChild = -1;
+    private long currentParent = -1;
+    private long parentFirstPage = -1;
+    private long parentLastPage = -1;
+
+    /**
+     * Size of the file at the end of the last step.
+     */
+    private long filledUpTo = -1;
+
+    private BulkLoadState(
+        final Iterator<RawPair<K, RID>> entries,
+        final int fillFactor,
+        final IndexEngineValidator<K, RID> validator) {
+      this.entries = entries;
+      this.fillFactor = fillFactor;
+      this.validator = validator;
+    }
+
+    private void start(final AtomicOperation atomicOperation) throws IOException {
+      try (final CacheEntry entryPointCacheEntry =
+          loadPageForRead(atomicOperation, fileId, ENTRY_POINT_INDEX)) {
+        final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+            new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+        if (entryPoint.getTreeSize() > 0
+            || entryPoint.getPagesSize() != ROOT_INDEX
+            || getFilledUpTo(atomicOperation, fileId) != ROOT_INDEX + 1) {
+          throw new CellBTreeSingleValueV3Exception(
+              "Bulk load can be performed only for empty tree", CellBTreeSingleValueV3.this);
+        }
+      }
+
+      try (final CacheEntry entryPointCacheEntry =
+          loadPageForWrite(atomicOperation, fileId, ENTRY_POINT_INDEX, true)) {
+        new CellBTreeSingleValueEntryPointV3<K>(entryPointCacheEntry).setBulkLoad(true);
+      }
+    }
+
+    private void checkNotModified(final AtomicOperation atomicOperation) throws IOException {
+      if (filledUpTo < 0) {
+        return;
+      }
+
+      try (final CacheEntry entryPointCacheEntry =
+          loadPageForRead(atomicOperation, fileId, ENTRY_POINT_INDEX)) {
+        final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+            new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+        if (entryPoint.getTreeSize() > 0
+            || entryPoint.getPagesSize() != ROOT_INDEX
+            || getFilledUpTo(atomicOperation, fileId) != filledUpTo) {
+          throw new CellBTreeSingleValueV3Exception(
+              "Tree was changed concurrently with bulk load", CellBTreeSingleValueV3.this);
+        }
+      }
+    }
+
+    private void loadLeaves(final AtomicOperation atomicOperation) throws IOException {
+      int pages = 0;
+      while (pages < BULK_LOAD_BATCH_SIZE && entries.hasNext()) {
+        final RawPair<K, RID> entry = entries.next();
+        final RID value = entry.second;
+
+        if (entry.first == null) {
+          nullValue = resolveValue(null, nullValue, value);
+          continue;
+        }
+
+        final K key = entry.first;
+        if (pendingKey != null) {
+          final int compareResult = comparator.compare(pendingKey, key);
+          if (compareResult == 0) {
+            pendingValue = resolveValue(key, pendingValue, value);
+            continue;
+          }
+
+          if (compareResult > 0) {
+            throw new CellBTreeSingleValueV3Exception(
+                "Entries are not sorted in ascending order, key "
+                    + key
+                    + " follows key "
+                    + pendingKey,
+                CellBTreeSingleValueV3.this);
+          }
+
+          if (pendingValue != null) {
+            pages += appendLeafEntry(atomicOperation, pendingKey, pendingValue);
+          }
+        }
+
+        pendingKey = key;
+        pendingValue = resolveValue(key, null, value);
+      }
+
+      if (!entries.hasNext()) {
+        if (pendingValue != null) {
+          appendLeafEntry(atomicOperation, pendingKey, pendingValue);
+        }
+
+        leavesLoaded = true;
+        levelLastPage = currentLeaf;
+        nextChild = levelFirstPage + 1;
+        pendingChild = levelFirstPage;
+      }
+    }
+
+    private RID resolveValue(final K key, final RID oldValue, final RID newValue) {
+      if (validator == null) {
+        return newValue;
+      }
+
+      final Object result = validator.validate(key, oldValue, newValue);
+      if (result == IndexEngineValidator.IGNORE) {
+        return oldValue;
+      }
+
+      return (RID) result;
+    }
+
+    /**
+     * @return Amount of pages which were added to the file.
+     */
+    private int appendLeafEntry(final AtomicOperation atomicOperation, final K key, final RID value)
+        throws IOException {
+      final byte[] serializedKey = keySerializer.serializeNativeAsWhole(key, (Object[]) keyTypes);
+      if (serializedKey.length > MAX_KEY_SIZE) {
+        throw new TooBigIndexKeyException(
+            "Key size is more than allowed, operation was canceled. Current key size "
+                + serializedKey.length
+                + ", allowed  "
+                + MAX_KEY_SIZE,
+            getName());
+      }
+
+      final byte[] serializedValue =
+          new byte[ShortSerializer.SHORT_SIZE + LongSerializer.LONG_SIZE];
+      ShortSerializer.INSTANCE.serializeNative((short) value.getClusterId(), serializedValue, 0);
+      LongSerializer.INSTANCE.serializeNative(
+          value.getClusterPosition(), serializedValue, ShortSerializer.SHORT_SIZE);
+
+      treeSize++;
+
+      final int entrySize =
+          serializedKey.length + serializedValue.length + IntegerSerializer.INT_SIZE;
+      if (currentLeaf >= 0) {
+        try (final CacheEntry cacheEntry =
+            loadPageForWrite(atomicOperation, fileId, currentLeaf, true)) {
+          final CellBTreeSingleValueBucketV3<K> bucket =
+              new CellBTreeSingleValueBucketV3<>(cacheEntry);
+          if (bucket.getFreeSpace() - entrySize >= reservedSpace
+              && bucket.addLeafEntry(bucket.size(), serializedKey, serializedValue)) {
+            return 0;
+          }
+        }
+      }
+
+      final long leftSibling = currentLeaf;
+      try (final CacheEntry cacheEntry = addPage(atomicOperation, fileId)) {
+        final CellBTreeSingleValueBucketV3<K> bucket =
+            new CellBTreeSingleValueBucketV3<>(cacheEntry);
+        bucket.init(true);
+
+        if (reservedSpace < 0) {
+          reservedSpace = bucket.getFreeSpace() * (100 - fillFactor) / 100;
+        }
+
+        bucket.setLeftSibling(leftSibling);
+        if (!bucket.addLeafEntry(0, serializedKey, serializedValue)) {
+          throw new CellBTreeSingleValueV3Exception(
+              "Entry does not fit into the empty page", CellBTreeSingleValueV3.this);
+        }
+
+        currentLeaf = cacheEntry.getPageIndex();
+      }
+
+      if (leftSibling >= 0) {
+        try (final CacheEntry cacheEntry =
+            loadPageForWrite(atomicOperation, fileId, leftSibling, true)) {
+          final CellBTreeSingleValueBucketV3<K> bucket =
+              new CellBTreeSingleValueBucketV3<>(cacheEntry);
+          bucket.setRightSibling(currentLeaf);
+        }
+      } else {
+        levelFirstPage = currentLeaf;
+      }
+
+      return 1;
+    }
+
+    /**
+     * Adds pages which refer to the pages of the last built level. Page is closed once it is filled
+     * up to the fill factor, unless the last child is left which would form the page with single
+     * child, in such case child is added to the page anyway and if there is no space at all
+     * previous child is moved to the new page too.
+     */
+    private void buildNonLeafLevel(final AtomicOperation atomicOperation) throws IOException {
+      int children = 0;
+      while (children < BULK_LOAD_BATCH_SIZE && nextChild <= levelLastPage) {
+        final long child = nextChild;
+        nextChild++;
+        children++;
+
+        final byte[] separationKey = lowestKey(atomicOperation, child);
+        final boolean lastChild = child == levelLastPage;
+
+        if (currentParent >= 0) {
+          try (final CacheEntry cacheEntry =
+              loadPageForWrite(atomicOperation, fileId, currentParent, true)) {
+            final CellBTreeSingleValueBucketV3<K> bucket =
+                new CellBTreeSingleValueBucketV3<>(cacheEntry);
+            final int entrySize = separationKey.length + 3 * IntegerSerializer.INT_SIZE;
+
+            if (lastChild || bucket.getFreeSpace() - entrySize >= reservedSpace) {
+              if (bucket.addNonLeafEntry(
+                  bucket.size(), (int) pendingChild, (int) child, separationKey)) {
+                pendingChild = child;
+                continue;
+              }
+
+              if (bucket.size() < 2) {
+                throw new CellBTreeSingleValueV3Exception(
+                    "Entry does not fit into the page", CellBTreeSingleValueV3.this);
+              }
+
+              // the right-most child of the page becomes the left-most child of the new page
+              bucket.shrink(bucket.size() - 1, keySerializer);
+            } else {
+              currentParent = -1;
+              pendingChild = child;
+              continue;
+            }
+          }
+        }
+
+        try (final CacheEntry cacheEntry = addPage(atomicOperation, fileId)) {
+          final CellBTreeSingleValueBucketV3<K> bucket =
+              new CellBTreeSingleValueBucketV3<>(cacheEntry);
+          bucket.init(false);
+
+          if (!bucket.addNonLeafEntry(0, (int) pendingChild, (int) child, separationKey)) {
+            throw new CellBTreeSingleValueV3Exception(
+                "Entry does not fit into the empty page", CellBTreeSingleValueV3.this);
+          }
+
+          currentParent = cacheEntry.getPageIndex();
+        }
+
+        if (parentFirstPage < 0) {
+          parentFirstPage = currentParent;
+        }
+        parentLastPage = currentParent;
+        pendingChild = child;
+      }
+
+      if (nextChild > levelLastPage) {
+        levelFirstPage = parentFirstPage;
+        levelLastPage = parentLastPage;
+
+        nextChild = levelFirstPage + 1;
+        pendingChild = levelFirstPage;
+        currentParent = -1;
+        parentFirstPage = -1;
+        parentLastPage = -1;
+      }
+    }
+
+    private byte[] lowestKey(final AtomicOperation atomicOperation, long pageIndex)
+        throws IOException {
+      while (true) {
+        try (final CacheEntry cacheEntry = loadPageForRead(atomicOperation, fileId, pageIndex)) {
+          @SuppressWarnings("ObjectAllocationInLoop") final CellBTreeSingleValueBucketV3<K> bucket =
+              new CellBTreeSingleValueBucketV3<>(cacheEntry);
+          if (bucket.isLeaf()) {
+            return bucket.getRawKey(0, keySerializer);
+          }
+
+          pageIndex = bucket.getLeft(0);
+        }
+      }
+    }
+
+    private void complete(final AtomicOperation atomicOperation) throws IOException {
+      if (levelFirstPage >= 0) {
+        final List<byte[]> rawEntries;
+        final boolean isLeaf;
+        try (final CacheEntry cacheEntry =
+            loadPageForRead(atomicOperation, fileId, levelFirstPage)) {
+          final CellBTreeSingleValueBucketV3<K> bucket =
+              new CellBTreeSingleValueBucketV3<>(cacheEntry);
+          isLeaf = bucket.isLeaf();
+
+          final int size = bucket.size();
+          rawEntries = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            rawEntries.add(bucket.getRawEntry(i, keySerializer));
+          }
+        }
+
+        try (final CacheEntry rootCacheEntry =
+            loadPageForWrite(atomicOperation, fileId, ROOT_INDEX, true)) {
+          final CellBTreeSingleValueBucketV3<K> rootBucket =
+              new CellBTreeSingleValueBucketV3<>(rootCacheEntry);
+          if (!isLeaf) {
+            rootBucket.switchBucketType();
+          }
+          rootBucket.addAll(rawEntries, keySerializer);
+        }
+
+        addToFreeList(atomicOperation, (int) levelFirstPage);
+      }
+
+      if (nullValue != null) {
+        try (final CacheEntry cacheEntry =
+            loadPageForWrite(atomicOperation, nullBucketFileId, 0, true)) {
+          final CellBTreeSingleValueV3NullBucket nullBucket =
+              new CellBTreeSingleValueV3NullBucket(cacheEntry);
+          nullBucket.setValue(nullValue);
+        }
+        treeSize++;
+      }
+
+      try (final CacheEntry entryPointCacheEntry =
+          loadPageForWrite(atomicOperation, fileId, ENTRY_POINT_INDEX, true)) {
+        final CellBTreeSingleValueEntryPointV3<K> entryPoint =
+            new CellBTreeSingleValueEntryPointV3<>(entryPointCacheEntry);
+        entryPoint.setTreeSize(treeSize);
+        entryPoint.setPagesSize((int) (getFilledUpTo(atomicOperation, fileId) - 1));
+        entryPoint.setBulkLoad(false);
+      }
+    }
+  }
+
   private void updateSize(final long diffSize, final AtomicOperation atomicOperation)
       throws IOException {
     try (final CacheEntry entryPointCacheEntry =
@@ -561,6 +561,26 @@ public final class DirectMemoryOnlyDiskCache extends AbstractWriteCache
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public long getPagesStamp(final long fileId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CachePointer[] loadPages(
+      final long fileId,
+      final long startPageIndex,
+      final int pageCount,
+      final boolean verifyChecksums) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CachePointer acceptLoadedPage(
+      final long fileId, final long pageIndex, final CachePointer pointer, final long stamp) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public long getExclusiveWriteCachePagesSize() {
     return 0;
@@ -0,0 +1,142 @@
+package com.jetbrains.youtrack.db.internal.enterprise.channel.binary;
+
+import com.jetbrains.youtrack.db.internal.common.exception.InvalidBinaryChunkException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * LZ4 compression of the messages of a single binary connection. Compression is requested by the
+ * client with {@link ChannelBinaryProtocol#ENCODING_LZ4} encoding during handshake, then the server
+ * sends responses with {@link ChannelBinaryProtocol#RESPONSE_STATUS_OK_COMPRESSED} status if the
+ * content of the response is compressed.
+ *
+ * <p>Compressed content is framed as the size of the original content followed by the size of the
+ * compressed content and the compressed bytes. Buffers are kept between messages, so the same
+ * instance should not be used by several connections, and messages of the connection should be
+ * processed under the lock of the channel.
+ */
+public final class ChannelBinaryCompression {
+
+  private static final LZ4Factory LZ_4_FACTORY = LZ4Factory.fastestInstance();
+
+  private final LZ4Compressor compressor = LZ_4_FACTORY.fastCompressor();
+  private final LZ4FastDecompressor decompressor = LZ_4_FACTORY.fastDecompressor();
+
+  private final int threshold;
+  private final int maxContentSize;
+
+  private final MessageBuffer message = new MessageBuffer();
+  private final DataOutputStream messageOut = new DataOutputStream(message);
+
+  private byte[] compressed = new byte[0];
+  private int compressedSize = -1;
+
+  private byte[] decompressed = new byte[0];
+
+  /**
+   * @param threshold      Minimal size of the content in bytes which is compressed.
+   * @param maxContentSize Maximum size of the decompressed content in bytes.
+   */
+  public ChannelBinaryCompression(final int threshold, final int maxContentSize) {
+    this.threshold = threshold;
+    this.maxContentSize = maxContentSize;
+  }
+
+  /**
+   * Starts a new message, content of the message should be written to the returned stream.
+   */
+  public DataOutputStream beginMessage() {
+    message.reset();
+    compressedSize = -1;
+    return messageOut;
+  }
+
+  /**
+   * Compresses content of the message if it is big enough and compression reduces its size.
+   * Content bigger than the maximum size is not compressed, because it could not be decompressed
+   * by the other side.
+   *
+   * @return <code>true</code> if content of the message is compressed.
+   */
+  public boolean endMessage() {
+    final int size = message.size();
+    if (size < threshold || size > maxContentSize) {
+      return false;
+    }
+
+    final int maxCompressedSize = compressor.maxCompressedLength(size);
+    if (compressed.length < maxCompressedSize) {
+      compressed = new byte[maxCompressedSize];
+    }
+
+    final int length =
+        compressor.compress(message.getBuffer(), 0, size, compressed, 0, maxCompressedSize);
+    if (length >= size) {
+      return false;
+    }
+
+    compressedSize = length;
+    return true;
+  }
+
+  /**
+   * Writes content of the message ended by {@link #endMessage()}, framed if it was compressed.
+   */
+  public void writeMessage(final DataOutputStream out) throws IOException {
+    if (compressedSize >= 0) {
+      out.writeInt(message.size());
+      out.writeInt(compressedSize);
+      out.write(compressed, 0, compressedSize);
+    } else {
+      out.write(message.getBuffer(), 0, message.size());
+    }
+  }
+
+  /**
+   * Reads compressed content of the message from the channel.
+   *
+   * @return Stream from which decompressed content of the message is read.
+   */
+  public DataInputStream readMessage(final DataInputStream in) throws IOException {
+    final int size = in.readInt();
+    final int length = in.readInt();
+    // content is compressed only if compression reduces its size
+    if (size < 0 || length < 0 || length > size || size > maxContentSize) {
+      throw new InvalidBinaryChunkException(
+          "Invalid size of compressed message (" + length + " -> " + size + " bytes)");
+    }
+
+    if (compressed.length < length) {
+      compressed = new byte[length];
+    }
+    in.readFully(compressed, 0, length);
+
+    if (decompressed.length < size) {
+      decompressed = new byte[size];
+    }
+
+    try {
+      if (decompressor.decompress(compressed, 0, decompressed, 0, size) != length) {
+        throw new InvalidBinaryChunkException("Compressed message is corrupted");
+      }
+    } catch (LZ4Exception e) {
+      throw new InvalidBinaryChunkException("Compressed message is corrupted", e);
+    }
+
+    return new DataInputStream(new ByteArrayInputStream(decompressed, 0, size));
+  }
+
+  private static final class MessageBuffer extends ByteArrayOutputStream {
+
+    private byte[] getBuffer() {
+      return buf;
+    }
+  }
+}
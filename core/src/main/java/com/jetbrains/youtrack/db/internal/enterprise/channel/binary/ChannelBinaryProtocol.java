@@ -112,11 +112,13 @@ public class ChannelBinaryProtocol {
 
   public static final byte REQUEST_RECORD_EXISTS = 124;
   public static final byte REQUEST_SEND_TRANSACTION_STATE = 125;
+  public static final byte REQUEST_RECORDS_LOAD = 126;
 
   // INCOMING
   public static final byte RESPONSE_STATUS_OK = 0;
   public static final byte RESPONSE_STATUS_ERROR = 1;
   public static final byte PUSH_DATA = 3;
+  public static final byte RESPONSE_STATUS_OK_COMPRESSED = 4;
 
   // CONSTANTS
   public static final short RECORD_NULL = -2;
@@ -142,8 +144,9 @@ public class ChannelBinaryProtocol {
       36; // ABILITY TO CREATE DATABASE FROM INCREMENTAL BACKUP
   public static final int PROTOCOL_VERSION_37 = 37;
   public static final int PROTOCOL_VERSION_38 = 38;
+  public static final int PROTOCOL_VERSION_39 = 39; // LOAD OF SEVERAL RECORDS BY A SINGLE REQUEST
 
-  public static final int CURRENT_PROTOCOL_VERSION = PROTOCOL_VERSION_38;
+  public static final int CURRENT_PROTOCOL_VERSION = PROTOCOL_VERSION_39;
   public static final int OLDEST_SUPPORTED_PROTOCOL_VERSION = PROTOCOL_VERSION_26;
 
   // This are specific messages inside the subscribe message
@@ -169,6 +172,8 @@ public class ChannelBinaryProtocol {
 
   // Default encoding, in future will be possible to have other encodings
   public static final byte ENCODING_DEFAULT = 0;
+  // Client accepts responses compressed by LZ4
+  public static final byte ENCODING_LZ4 = 1;
 
   // Error encoding
   public static final byte ERROR_MESSAGE_JAVA = 0;
@@ -0,0 +1,169 @@
+package com.jetbrains.youtrack.db.internal.core.cache;
+
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.config.YouTrackDBConfig;
+import com.jetbrains.youtrack.db.api.record.Entity;
+import com.jetbrains.youtrack.db.internal.DbTestBase;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.db.YouTrackDBConfigBuilderImpl;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.storage.RawBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SharedRecordCacheTest extends DbTestBase {
+
+  @Override
+  protected YouTrackDBConfig createConfig(YouTrackDBConfigBuilderImpl builder) {
+    builder.addGlobalConfigurationParameter(GlobalConfiguration.CACHE_SHARED_RECORD_SIZE, 1);
+    return builder.build();
+  }
+
+  @Test
+  public void testPutAndInvalidate() {
+    SharedRecordCache cache = new SharedRecordCache(1024 * 1024);
+    RecordId rid = new RecordId(10, 42);
+
+    Assert.assertNull(cache.get(rid));
+
+    long stamp = cache.stamp(rid);
+    cache.put(rid, new RawBuffer(new byte[]{1, 2, 3}, 5, (byte) 'd'), stamp);
+
+    RawBuffer cached = cache.get(new RecordId(10, 42));
+    Assert.assertNotNull(cached);
+    Assert.assertArrayEquals(new byte[]{1, 2, 3}, cached.buffer);
+    Assert.assertEquals(5, cached.version);
+    Assert.assertEquals((byte) 'd', cached.recordType);
+
+    // content returned to the callers is a copy
+    cached.buffer[0] = 42;
+    Assert.assertEquals(1, cache.get(rid).buffer[0]);
+
+    cache.invalidate(rid);
+    Assert.assertNull(cache.get(rid));
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertEquals(2, cache.getHits());
+    Assert.assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void testStaleContentIsNotCached() {
+    SharedRecordCache cache = new SharedRecordCache(1024 * 1024);
+    RecordId rid = new RecordId(10, 42);
+
+    long stamp = cache.stamp(rid);
+    // record is changed while the old content is read from the storage
+    cache.invalidate(rid);
+    cache.put(rid, new RawBuffer(new byte[]{1, 2, 3}, 5, (byte) 'd'), stamp);
+    Assert.assertNull(cache.get(rid));
+
+    stamp = cache.stamp(rid);
+    cache.clear();
+    cache.put(rid, new RawBuffer(new byte[]{1, 2, 3}, 5, (byte) 'd'), stamp);
+    Assert.assertNull(cache.get(rid));
+  }
+
+  @Test
+  public void testContentIsNotCachedWhileChangeIsMadeVisible() {
+    SharedRecordCache cache = new SharedRecordCache(1024 * 1024);
+    RecordId rid = new RecordId(10, 42);
+    cache.put(rid, new RawBuffer(new byte[]{1}, 1, (byte) 'd'), cache.stamp(rid));
+
+    long stampBefore = cache.stamp(rid);
+    cache.beginInvalidation(rid);
+    Assert.assertNull(cache.get(rid));
+
+    // old content is read by readers which started before or during the commit
+    long stampDuring = cache.stamp(rid);
+    cache.put(rid, new RawBuffer(new byte[]{1}, 1, (byte) 'd'), stampBefore);
+    cache.put(rid, new RawBuffer(new byte[]{1}, 1, (byte) 'd'), stampDuring);
+    Assert.assertNull(cache.get(rid));
+
+    cache.endInvalidation(rid);
+    cache.put(rid, new RawBuffer(new byte[]{1}, 1, (byte) 'd'), stampDuring);
+    Assert.assertNull(cache.get(rid));
+
+    cache.put(rid, new RawBuffer(new byte[]{2}, 2, (byte) 'd'), cache.stamp(rid));
+    Assert.assertEquals(2, cache.get(rid).version);
+  }
+
+  @Test
+  public void testInvalidateCluster() {
+    SharedRecordCache cache = new SharedRecordCache(1024 * 1024);
+    RecordId dropped = new RecordId(10, 42);
+    RecordId kept = new RecordId(11, 42);
+    cache.put(dropped, new RawBuffer(new byte[]{1}, 1, (byte) 'd'), cache.stamp(dropped));
+    cache.put(kept, new RawBuffer(new byte[]{1}, 1, (byte) 'd'), cache.stamp(kept));
+
+    long stamp = cache.stamp(new RecordId(10, 43));
+    cache.invalidateCluster(10);
+    Assert.assertNull(cache.get(dropped));
+    Assert.assertNotNull(cache.get(kept));
+
+    cache.put(new RecordId(10, 43), new RawBuffer(new byte[]{1}, 1, (byte) 'd'), stamp);
+    Assert.assertNull(cache.get(new RecordId(10, 43)));
+  }
+
+  @Test
+  public void testSizeIsBounded() {
+    SharedRecordCache cache = new SharedRecordCache(64 * 1024);
+
+    for (int i = 0; i < 10_000; i++) {
+      RecordId rid = new RecordId(10, i);
+      // popular records are requested several times
+      int requests = i % 10 == 0 ? 3 : 1;
+      for (int n = 0; n < requests; n++) {
+        if (cache.get(rid) == null) {
+          cache.put(rid, new RawBuffer(new byte[512], 1, (byte) 'd'), cache.stamp(rid));
+        }
+      }
+    }
+
+    Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+    Assert.assertTrue(cache.getEntries() > 0);
+    Assert.assertTrue(cache.getEvictions() > 0);
+  }
+
+  @Test
+  public void testCommitInvalidatesRecords() {
+    SharedRecordCache cache = db.getSharedContext().getRecordCache();
+    Assert.assertNotNull(cache);
+
+    db.begin();
+    Entity entity = db.newEntity();
+    entity.setProperty("name", "foo");
+    entity.save();
+    db.commit();
+
+    RecordId rid = (RecordId) entity.getIdentity();
+
+    DatabaseSessionInternal other = openDatabase();
+    try {
+      other.begin();
+      Assert.assertEquals("foo", other.<Entity>load(rid).getProperty("name"));
+      other.commit();
+      Assert.assertNotNull(cache.get(rid));
+
+      db.activateOnCurrentThread();
+      db.begin();
+      entity = db.bindToSession(entity);
+      entity.setProperty("name", "bar");
+      entity.save();
+      db.commit();
+      Assert.assertNull(cache.get(rid));
+
+      other.activateOnCurrentThread();
+      other.begin();
+      Assert.assertEquals("bar", other.<Entity>load(rid).getProperty("name"));
+      other.commit();
+
+      RawBuffer cached = cache.get(rid);
+      Assert.assertNotNull(cached);
+      Assert.assertEquals(entity.getVersion(), cached.version);
+    } finally {
+      other.activateOnCurrentThread();
+      other.close();
+      db.activateOnCurrentThread();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package com.jetbrains.youtrack.db.internal.core.index;
+
+import com.jetbrains.youtrack.db.api.exception.RecordDuplicatedException;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.api.schema.SchemaClass;
+import com.jetbrains.youtrack.db.internal.DbTestBase;
+import com.jetbrains.youtrack.db.internal.common.listener.ProgressListener;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OnlineIndexBuildTest extends DbTestBase {
+
+  private static final String CLASS_NAME = "OnlineIndexBuild";
+  private static final String PROPERTY_NAME = "value";
+  private static final String INDEX_NAME = "OnlineIndexBuildIndex";
+  private static final int RECORDS = 1_000;
+
+  @Test
+  public void testCreateWithConcurrentChanges() throws Exception {
+    final SchemaClass clazz = createAndFillClass();
+
+    final AtomicBoolean rebuilding = new AtomicBoolean();
+    clazz.createIndex(
+        db,
+        INDEX_NAME,
+        SchemaClass.INDEX_TYPE.NOTUNIQUE.name(),
+        new ConcurrentChangesListener(rebuilding),
+        Map.of("online", true),
+        new String[] {PROPERTY_NAME});
+
+    Assert.assertTrue(rebuilding.get());
+    assertIndexContent();
+  }
+
+  @Test
+  public void testRebuildWithConcurrentChanges() throws Exception {
+    final SchemaClass clazz = createAndFillClass();
+
+    clazz.createIndex(
+        db,
+        INDEX_NAME,
+        SchemaClass.INDEX_TYPE.UNIQUE.name(),
+        null,
+        Map.of("online", true),
+        new String[] {PROPERTY_NAME});
+
+    final AtomicBoolean rebuilding = new AtomicBoolean();
+    db.getMetadata()
+        .getIndexManagerInternal()
+        .getIndex(db, INDEX_NAME)
+        .rebuild(db, new ConcurrentChangesListener(rebuilding));
+
+    Assert.assertTrue(rebuilding.get());
+    assertIndexContent();
+  }
+
+  @Test
+  public void testUniqueBuildFailsOnConcurrentDuplicate() {
+    final SchemaClass clazz = createAndFillClass();
+
+    // uniqueness is not checked by commits during the build, duplicate is found on merge
+    try {
+      clazz.createIndex(
+          db,
+          INDEX_NAME,
+          SchemaClass.INDEX_TYPE.UNIQUE.name(),
+          new DuplicateKeyListener(),
+          Map.of("online", true),
+          new String[] {PROPERTY_NAME});
+      Assert.fail();
+    } catch (RecordDuplicatedException e) {
+      // expected
+    }
+
+    Assert.assertNull(db.getMetadata().getIndexManagerInternal().getIndex(db, INDEX_NAME));
+  }
+
+  private SchemaClass createAndFillClass() {
+    final SchemaClass clazz = db.getMetadata().getSchema().createClass(CLASS_NAME);
+    clazz.createProperty(db, PROPERTY_NAME, PropertyType.INTEGER);
+
+    db.begin();
+    for (int i = 0; i < RECORDS; i++) {
+      final EntityImpl entity = new EntityImpl(CLASS_NAME);
+      entity.field(PROPERTY_NAME, i);
+      entity.save();
+    }
+    db.commit();
+
+    return clazz;
+  }
+
+  private void assertIndexContent() {
+    final IndexInternal index =
+        db.getMetadata().getIndexManagerInternal().getIndex(db, INDEX_NAME).getInternal();
+    Assert.assertFalse(index.isRebuilding());
+    Assert.assertNull(index.getBuildLog());
+
+    final Map<Integer, RID> records = new HashMap<>();
+    db.executeInTx(
+        () ->
+            db.browseClass(CLASS_NAME)
+                .forEachRemaining(
+                    entity -> records.put(entity.field(PROPERTY_NAME), entity.getIdentity())));
+
+    Assert.assertEquals(RECORDS, records.size());
+    Assert.assertEquals(records.size(), index.size(db));
+    for (final Map.Entry<Integer, RID> entry : records.entrySet()) {
+      try (var rids = index.getRids(db, entry.getKey())) {
+        Assert.assertEquals(List.of(entry.getValue()), rids.collect(Collectors.toList()));
+      }
+    }
+  }
+
+  /**
+   * Commits the transaction in the other session and waits till it is completed.
+   */
+  private void inOtherSession(final Consumer<DatabaseSessionInternal> transaction) {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor
+          .submit(
+              () -> {
+                try (DatabaseSessionInternal session = openDatabase()) {
+                  session.executeInTx(() -> transaction.accept(session));
+                }
+              })
+          .get();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Adds record with the key which is already indexed once the index is visible to the
+   * transactions but is not filled yet.
+   */
+  private final class DuplicateKeyListener implements ProgressListener {
+
+    @Override
+    public void onBegin(Object iTask, long iTotal, Object iMetadata) {
+      inOtherSession(
+          session -> {
+            final EntityImpl entity = new EntityImpl(CLASS_NAME);
+            entity.field(PROPERTY_NAME, RECORDS / 2);
+            entity.save();
+          });
+    }
+
+    @Override
+    public boolean onProgress(Object iTask, long iCounter, float iPercent) {
+      return true;
+    }
+
+    @Override
+    public void onCompletition(DatabaseSessionInternal session, Object iTask,
+        boolean iSucceed) {
+    }
+  }
+
+  /**
+   * Changes records from the other session once the index is visible to the transactions but is
+   * not filled yet.
+   */
+  private final class ConcurrentChangesListener implements ProgressListener {
+
+    private final AtomicBoolean rebuilding;
+
+    private ConcurrentChangesListener(AtomicBoolean rebuilding) {
+      this.rebuilding = rebuilding;
+    }
+
+    @Override
+    public void onBegin(Object iTask, long iTotal, Object iMetadata) {
+      rebuilding.set(((Index) iTask).isRebuilding());
+
+      inOtherSession(
+          session -> {
+            session.command(
+                    "update " + CLASS_NAME + " set " + PROPERTY_NAME + " = "
+                        + PROPERTY_NAME + " + " + RECORDS + " where " + PROPERTY_NAME
+                        + " < 100")
+                .close();
+            session.command(
+                    "delete from " + CLASS_NAME + " where " + PROPERTY_NAME
+                        + " between 100 and 199")
+                .close();
+            for (int i = 0; i < 100; i++) {
+              final EntityImpl entity = new EntityImpl(CLASS_NAME);
+              entity.field(PROPERTY_NAME, 2 * RECORDS + i);
+              entity.save();
+            }
+          });
+    }
+
+    @Override
+    public boolean onProgress(Object iTask, long iCounter, float iPercent) {
+      return true;
+    }
+
+    @Override
+    public void onCompletition(DatabaseSessionInternal session, Object iTask,
+        boolean iSucceed) {
+    }
+  }
+}
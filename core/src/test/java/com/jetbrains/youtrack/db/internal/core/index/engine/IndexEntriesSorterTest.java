@@ -0,0 +1,88 @@
+package com.jetbrains.youtrack.db.internal.core.index.engine;
+
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.IntegerSerializer;
+import com.jetbrains.youtrack.db.internal.common.util.RawPair;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IndexEntriesSorterTest {
+
+  @Test
+  public void testSortInMemory() throws IOException {
+    assertSorted(10_000, 100_000);
+  }
+
+  @Test
+  public void testSortWithSpilledRuns() throws IOException {
+    assertSorted(10_000, 128);
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    try (final IndexEntriesSorter<Integer> sorter =
+        new IndexEntriesSorter<>(IntegerSerializer.INSTANCE, null, 16)) {
+      Assert.assertFalse(sorter.sortedEntries().hasNext());
+    }
+  }
+
+  private static void assertSorted(final int entries, final int bufferSize) throws IOException {
+    final long seed = System.nanoTime();
+    System.out.println("IndexEntriesSorterTest seed : " + seed);
+    final Random random = new Random(seed);
+
+    final List<Integer> keys = new ArrayList<>();
+    for (int i = 0; i < entries; i++) {
+      // keep some duplicates and null keys to check ordering by values and nulls
+      keys.add(random.nextInt(20) == 0 ? null : random.nextInt(entries / 2));
+    }
+
+    try (final IndexEntriesSorter<Integer> sorter =
+        new IndexEntriesSorter<>(IntegerSerializer.INSTANCE, null, bufferSize)) {
+      final List<Integer> positions = new ArrayList<>();
+      for (int i = 0; i < keys.size(); i++) {
+        positions.add(i);
+      }
+      Collections.shuffle(positions, random);
+
+      for (final int position : positions) {
+        sorter.add(keys.get(position), new RecordId(1, position));
+      }
+
+      final Iterator<RawPair<Integer, RID>> iterator = sorter.sortedEntries();
+      RawPair<Integer, RID> previous = null;
+      int count = 0;
+      while (iterator.hasNext()) {
+        final RawPair<Integer, RID> entry = iterator.next();
+        Assert.assertEquals(keys.get((int) entry.second.getClusterPosition()), entry.first);
+
+        if (previous != null) {
+          if (previous.first == null) {
+            if (entry.first == null) {
+              Assert.assertTrue(previous.second.compareTo(entry.second) < 0);
+            }
+          } else {
+            Assert.assertNotNull(entry.first);
+            final int result = previous.first.compareTo(entry.first);
+            Assert.assertTrue(result <= 0);
+            if (result == 0) {
+              Assert.assertTrue(previous.second.compareTo(entry.second) < 0);
+            }
+          }
+        }
+
+        previous = entry;
+        count++;
+      }
+
+      Assert.assertEquals(entries, count);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.jetbrains.youtrack.db.internal.core.metadata.schema.clusterselection;
+
+import com.jetbrains.youtrack.db.api.record.Entity;
+import com.jetbrains.youtrack.db.api.schema.SchemaClass;
+import com.jetbrains.youtrack.db.internal.DbTestBase;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AffinityClusterSelectionStrategyTest extends DbTestBase {
+
+  @Test
+  public void testWriterUsesOwnCluster() {
+    SchemaClass clazz = db.getMetadata().getSchema().createClass("AffinityOwnCluster", 4, null);
+    clazz.setClusterSelection(db, AffinityClusterSelectionStrategy.NAME);
+
+    int clusterId = -1;
+    for (int i = 0; i < 10; i++) {
+      db.begin();
+      Entity entity = db.newEntity("AffinityOwnCluster");
+      entity.setProperty("value", i);
+      entity.save();
+      db.commit();
+
+      if (clusterId < 0) {
+        clusterId = entity.getIdentity().getClusterId();
+      }
+      Assert.assertEquals(clusterId, entity.getIdentity().getClusterId());
+    }
+  }
+
+  @Test
+  public void testSessionKeepsClusterWhenServedByNewThreads() throws Exception {
+    SchemaClass clazz = db.getMetadata().getSchema().createClass("AffinityNewThreads", 4, null);
+    clazz.setClusterSelection(db, AffinityClusterSelectionStrategy.NAME);
+
+    Set<Integer> clusterIds = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      // thread-per-request model, every insert is done by a new thread
+      int value = i;
+      Thread thread =
+          new Thread(
+              () -> {
+                db.activateOnCurrentThread();
+                db.begin();
+                Entity entity = db.newEntity("AffinityNewThreads");
+                entity.setProperty("value", value);
+                entity.save();
+                db.commit();
+                synchronized (clusterIds) {
+                  clusterIds.add(entity.getIdentity().getClusterId());
+                }
+              });
+      thread.start();
+      thread.join();
+    }
+
+    db.activateOnCurrentThread();
+    Assert.assertEquals(1, clusterIds.size());
+  }
+
+  @Test
+  public void testClustersAreAddedForConcurrentWriters() throws Exception {
+    SchemaClass clazz = db.getMetadata().getSchema().createClass("AffinityGrowing", 1, null);
+    clazz.setClusterSelection(db, AffinityClusterSelectionStrategy.NAME);
+
+    int writers = 4;
+    long deadline = System.currentTimeMillis() + 30_000;
+    ExecutorService executor = Executors.newFixedThreadPool(writers);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int n = 0; n < writers; n++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  try (DatabaseSessionInternal session = openDatabase()) {
+                    while (System.currentTimeMillis() < deadline
+                        && session.getClass("AffinityGrowing").getClusterIds().length < writers) {
+                      session.begin();
+                      Entity entity = session.newEntity("AffinityGrowing");
+                      entity.setProperty("value", 1);
+                      entity.save();
+                      session.commit();
+                    }
+                  }
+                  return null;
+                }));
+      }
+
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    db.activateOnCurrentThread();
+    Assert.assertEquals(writers, db.getClass("AffinityGrowing").getClusterIds().length);
+  }
+}
@@ -0,0 +1,183 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor;
+
+import com.jetbrains.youtrack.db.api.record.Entity;
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.api.schema.SchemaClass;
+import com.jetbrains.youtrack.db.internal.DbTestBase;
+import com.jetbrains.youtrack.db.internal.core.command.BasicCommandContext;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
+import com.jetbrains.youtrack.db.internal.core.record.impl.EntityInternalUtils;
+import com.jetbrains.youtrack.db.internal.core.sql.SQLEngine;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.BinaryFilter.Match;
+import com.jetbrains.youtrack.db.internal.core.sql.parser.SQLWhereClause;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryFilterTest extends DbTestBase {
+
+  @Test
+  public void testSerializedContentIsMatched() {
+    SchemaClass clazz = db.getMetadata().getSchema().createClass("BinaryFilter");
+    clazz.createProperty(db, "name", PropertyType.STRING);
+    clazz.createProperty(db, "age", PropertyType.INTEGER);
+    clazz.createProperty(db, "score", PropertyType.DOUBLE);
+    clazz.createProperty(db, "nick", PropertyType.STRING).setCollate(db, "ci");
+
+    db.begin();
+    Entity entity = db.newEntity("BinaryFilter");
+    entity.setProperty("name", "foo");
+    entity.setProperty("age", 30);
+    entity.setProperty("score", 1.5d);
+    entity.setProperty("nick", "Foo");
+    entity.save();
+    db.commit();
+
+    DatabaseSessionInternal session = openDatabase();
+    try {
+      session.begin();
+      EntityImpl loaded = session.load(entity.getIdentity());
+      ResultInternal result = new ResultInternal(session, loaded);
+
+      assertMatch(session, result, "age = 30", Match.TRUE);
+      assertMatch(session, result, "age = 31", Match.FALSE);
+      assertMatch(session, result, "age > 20 and age <= 30", Match.TRUE);
+      assertMatch(session, result, "age between 31 and 40", Match.FALSE);
+      assertMatch(session, result, "age in [1, 30]", Match.TRUE);
+      assertMatch(session, result, "name in ['bar', 'baz']", Match.FALSE);
+      assertMatch(session, result, "name < 'goo'", Match.TRUE);
+      assertMatch(session, result, "score > 1", Match.TRUE);
+      assertMatch(session, result, "nick = 'foo'", Match.TRUE);
+      assertMatch(session, result, "age is null", Match.FALSE);
+      assertMatch(session, result, "not (age = 30)", Match.FALSE);
+      assertMatch(session, result, "age = 31 or name.length() = 3", Match.UNKNOWN);
+      assertMatch(session, result, "age = 30 or name.length() = 3", Match.TRUE);
+      assertMatch(session, result, "age = 31 and name.length() = 3", Match.FALSE);
+      assertMatch(session, result, "missing is null", Match.UNKNOWN);
+      assertMatch(session, result, "age = '30'", Match.UNKNOWN);
+
+      // none of the properties was deserialized
+      Assert.assertNotNull(EntityInternalUtils.getPristineSource(loaded));
+
+      // deserialized entities are checked by the regular evaluation
+      Assert.assertEquals("foo", loaded.getProperty("name"));
+      assertMatch(session, result, "age = 30", Match.UNKNOWN);
+      session.commit();
+    } finally {
+      session.close();
+      db.activateOnCurrentThread();
+    }
+  }
+
+  @Test
+  public void testQueryResults() {
+    SchemaClass clazz = db.getMetadata().getSchema().createClass("BinaryFilterQuery");
+    clazz.createProperty(db, "name", PropertyType.STRING);
+    clazz.createProperty(db, "value", PropertyType.INTEGER);
+
+    db.begin();
+    for (int i = 0; i < 100; i++) {
+      Entity entity = db.newEntity("BinaryFilterQuery");
+      entity.setProperty("name", "name" + (i % 10));
+      entity.setProperty("value", i);
+      entity.save();
+    }
+    db.commit();
+
+    DatabaseSessionInternal session = openDatabase();
+    try {
+      Assert.assertEquals(
+          7,
+          session.query(
+                  "select from BinaryFilterQuery where value >= 50 and name = 'name3'"
+                      + " or value in [1, 2]")
+              .stream()
+              .count());
+      Assert.assertEquals(
+          11,
+          session.query("select from BinaryFilterQuery where value between 10 and 20").stream()
+              .count());
+      Assert.assertEquals(
+          90,
+          session.query("select from BinaryFilterQuery where not (name = ?)", "name0").stream()
+              .count());
+    } finally {
+      session.close();
+      db.activateOnCurrentThread();
+    }
+  }
+
+  @Test
+  public void testCollateGivesSameResultAsRegularEvaluation() {
+    SchemaClass clazz = db.getMetadata().getSchema().createClass("BinaryFilterCollate");
+    clazz.createProperty(db, "nick", PropertyType.STRING).setCollate(db, "ci");
+
+    db.begin();
+    Entity entity = db.newEntity("BinaryFilterCollate");
+    entity.setProperty("nick", "Foo");
+    entity.save();
+    db.commit();
+
+    String[] predicates = {
+        "nick = 'foo'",
+        "nick = 'FOO'",
+        "nick > 'f'",
+        "nick < 'goo'",
+        "nick in ['foo']",
+        "nick in ['Foo']",
+        "nick in ['bar', 'FOO']",
+        "nick between 'a' and 'foo'",
+        "nick between 'foo' and 'z'",
+        "nick between 'Fa' and 'Fz'"
+    };
+
+    DatabaseSessionInternal session = openDatabase();
+    try {
+      session.begin();
+      EntityImpl loaded = session.load(entity.getIdentity());
+      ResultInternal result = new ResultInternal(session, loaded);
+
+      // binary evaluation is possible only till the entity is deserialized
+      Match[] matches = new Match[predicates.length];
+      for (int i = 0; i < predicates.length; i++) {
+        BinaryFilter filter = compile(session, predicates[i]);
+        matches[i] = filter == null ? Match.UNKNOWN : filter.matches(result, context(session));
+      }
+
+      for (int i = 0; i < predicates.length; i++) {
+        if (matches[i] == Match.UNKNOWN) {
+          continue;
+        }
+        SQLWhereClause whereClause = new SQLWhereClause(-1);
+        whereClause.setBaseExpression(SQLEngine.parsePredicate(predicates[i]));
+        Assert.assertEquals(
+            predicates[i],
+            whereClause.matchesFilters(result, context(session)),
+            matches[i] == Match.TRUE);
+      }
+      session.commit();
+    } finally {
+      session.close();
+      db.activateOnCurrentThread();
+    }
+  }
+
+  private static void assertMatch(
+      DatabaseSessionInternal session, ResultInternal result, String predicate, Match expected) {
+    BinaryFilter filter = compile(session, predicate);
+    Match match = filter == null ? Match.UNKNOWN : filter.matches(result, context(session));
+    Assert.assertEquals(predicate, expected, match);
+  }
+
+  private static BinaryFilter compile(DatabaseSessionInternal session, String predicate) {
+    SQLWhereClause whereClause = new SQLWhereClause(-1);
+    whereClause.setBaseExpression(SQLEngine.parsePredicate(predicate));
+    return BinaryFilter.compile(whereClause, context(session));
+  }
+
+  private static BasicCommandContext context(DatabaseSessionInternal session) {
+    BasicCommandContext ctx = new BasicCommandContext();
+    ctx.setDatabase(session);
+    return ctx;
+  }
+}
@@ -1,11 +1,14 @@
 package com.jetbrains.youtrack.db.internal.core.sql.executor;
 
+import com.jetbrains.youtrack.db.api.exception.RecordDuplicatedException;
 import com.jetbrains.youtrack.db.api.query.Result;
 import com.jetbrains.youtrack.db.api.query.ResultSet;
 import com.jetbrains.youtrack.db.internal.BaseMemoryInternalDatabase;
 import com.jetbrains.youtrack.db.internal.core.index.Index;
+import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
 import com.jetbrains.youtrack.db.api.schema.SchemaClass;
+import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -66,4 +69,90 @@ public class CreateIndexStatementExecutionTest extends BaseMemoryInternalDatabas
     Assert.assertFalse(result.hasNext());
     result.close();
   }
+
+  @Test
+  public void testNormalizedKeyEngine() {
+    String className = "testNormalizedKeyEngine";
+    SchemaClass clazz = db.getMetadata().getSchema().createClass(className);
+    clazz.createProperty(db, "name", PropertyType.STRING);
+    clazz.createProperty(db, "age", PropertyType.INTEGER);
+
+    db.command(
+            "create index "
+                + className
+                + ".name on "
+                + className
+                + " (name) unique engine NKBTREE")
+        .close();
+    db.command(
+            "create index "
+                + className
+                + ".age on "
+                + className
+                + " (age) notunique engine NKBTREE")
+        .close();
+
+    Index nameIdx = db.getMetadata().getIndexManagerInternal().getIndex(db, className + ".name");
+    Assert.assertNotNull(nameIdx);
+    Assert.assertTrue(nameIdx.isUnique());
+    Assert.assertEquals("NKBTREE", nameIdx.getAlgorithm());
+    Index ageIdx = db.getMetadata().getIndexManagerInternal().getIndex(db, className + ".age");
+    Assert.assertNotNull(ageIdx);
+    Assert.assertEquals("NKBTREE", ageIdx.getAlgorithm());
+
+    for (int i = 0; i < 100; i++) {
+      db.begin();
+      EntityImpl doc = db.newInstance(className);
+      doc.setProperty("name", "name" + i);
+      doc.setProperty("age", i % 10);
+      doc.save();
+      db.commit();
+    }
+
+    try (ResultSet result =
+        db.query("select from " + className + " where name = ?", "name42")) {
+      Assert.assertTrue(result.hasNext());
+      Assert.assertEquals(42 % 10, (int) result.next().<Integer>getProperty("age"));
+      Assert.assertFalse(result.hasNext());
+    }
+
+    try (ResultSet result = db.query("select from " + className + " where age = 3")) {
+      Assert.assertEquals(10, result.stream().count());
+    }
+
+    try (ResultSet result =
+        db.query("select from " + className + " where age > 7 order by age desc")) {
+      int previous = Integer.MAX_VALUE;
+      int count = 0;
+      while (result.hasNext()) {
+        int age = result.next().getProperty("age");
+        Assert.assertTrue(age > 7);
+        Assert.assertTrue(age <= previous);
+        previous = age;
+        count++;
+      }
+      Assert.assertEquals(20, count);
+    }
+
+    try (ResultSet result =
+        db.query(
+            "select from "
+                + className
+                + " where name >= 'name10' and name < 'name13' order by name")) {
+      Assert.assertEquals(
+          List.of("name10", "name11", "name12"),
+          result.stream().map(r -> r.<String>getProperty("name")).toList());
+    }
+
+    db.begin();
+    EntityImpl duplicate = db.newInstance(className);
+    duplicate.setProperty("name", "name42");
+    duplicate.save();
+    try {
+      db.commit();
+      Assert.fail();
+    } catch (RecordDuplicatedException e) {
+      // expected
+    }
+  }
 }
@@ -29,12 +29,15 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 import org.junit.Assert;
@@ -4288,8 +4291,10 @@ public class SelectStatementExecutionTest extends DbTestBase {
   @Test
   public void testHeapLimitForOrderBy() {
     Long oldValue = GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
+    Boolean oldSpill = GlobalConfiguration.QUERY_SPILL_ENABLED.getValueAsBoolean();
     try {
       GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(3);
+      GlobalConfiguration.QUERY_SPILL_ENABLED.setValue(false);
 
       String className = "testHeapLimitForOrderBy";
 
@@ -4311,6 +4316,294 @@ public class SelectStatementExecutionTest extends DbTestBase {
       }
     } finally {
       GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(oldValue);
+      GlobalConfiguration.QUERY_SPILL_ENABLED.setValue(oldSpill);
+    }
+  }
+
+  @Test
+  public void testSpillForOrderBy() {
+    Long oldValue = GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
+    Integer oldMergeFactor = GlobalConfiguration.QUERY_SPILL_MERGE_FACTOR.getValueAsInteger();
+    try {
+      GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(3);
+      GlobalConfiguration.QUERY_SPILL_MERGE_FACTOR.setValue(2);
+
+      String className = "testSpillForOrderBy";
+      db.createClassIfNotExist(className);
+
+      List<Integer> values = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        values.add(i);
+      }
+      Collections.shuffle(values, new Random(42));
+
+      db.begin();
+      for (int value : values) {
+        db.command("INSERT INTO " + className + " set val = ?, name = ?", value, "n" + value)
+            .close();
+      }
+      db.commit();
+
+      try (ResultSet result = db.query("select from " + className + " ORDER BY val DESC")) {
+        for (int i = 49; i >= 0; i--) {
+          Assert.assertTrue(result.hasNext());
+          Result item = result.next();
+          Assert.assertTrue(item.isEntity());
+          Assert.assertEquals(i, (int) item.getProperty("val"));
+          Assert.assertEquals("n" + i, item.getProperty("name"));
+        }
+        Assert.assertFalse(result.hasNext());
+      }
+
+      try (ResultSet result =
+          db.query("select val, name from " + className + " ORDER BY val SKIP 5 LIMIT 10")) {
+        for (int i = 5; i < 15; i++) {
+          Assert.assertTrue(result.hasNext());
+          Result item = result.next();
+          Assert.assertFalse(item.isEntity());
+          Assert.assertEquals(i, (int) item.getProperty("val"));
+          Assert.assertEquals("n" + i, item.getProperty("name"));
+        }
+        Assert.assertFalse(result.hasNext());
+      }
+    } finally {
+      GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(oldValue);
+      GlobalConfiguration.QUERY_SPILL_MERGE_FACTOR.setValue(oldMergeFactor);
+    }
+  }
+
+  @Test
+  public void testSpillForGroupBy() {
+    Long oldValue = GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
+    Integer oldPartitions = GlobalConfiguration.QUERY_SPILL_PARTITIONS.getValueAsInteger();
+    try {
+      GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(4);
+      GlobalConfiguration.QUERY_SPILL_PARTITIONS.setValue(3);
+
+      String className = "testSpillForGroupBy";
+      db.createClassIfNotExist(className);
+
+      db.begin();
+      for (int i = 0; i < 200; i++) {
+        db.command("INSERT INTO " + className + " set type = ?, val = ?", "t" + (i % 37), i)
+            .close();
+      }
+      db.commit();
+
+      // all aggregate functions support partial aggregation
+      try (ResultSet result =
+          db.query(
+              "select type, count(*) as cnt, sum(val) as total, min(val) as minVal, max(val) as"
+                  + " maxVal, avg(val) as average from "
+                  + className
+                  + " group by type")) {
+        Map<String, Result> groups = new HashMap<>();
+        while (result.hasNext()) {
+          Result item = result.next();
+          Assert.assertNull(groups.put(item.getProperty("type"), item));
+        }
+        Assert.assertEquals(37, groups.size());
+
+        for (int t = 0; t < 37; t++) {
+          Result item = groups.get("t" + t);
+          Assert.assertNotNull(item);
+
+          long count = 0;
+          int total = 0;
+          for (int i = t; i < 200; i += 37) {
+            count++;
+            total += i;
+          }
+          Assert.assertEquals(count, (long) item.getProperty("cnt"));
+          Assert.assertEquals(total, ((Number) item.getProperty("total")).intValue());
+          Assert.assertEquals(t, ((Number) item.getProperty("minVal")).intValue());
+          Assert.assertEquals(t + 37 * (count - 1), ((Number) item.getProperty("maxVal")).intValue());
+          Assert.assertEquals(total / count, ((Number) item.getProperty("average")).intValue());
+        }
+      }
+
+      // list() can not be partially aggregated, so records themselves are spilled
+      try (ResultSet result =
+          db.query(
+              "select type, list(val) as vals from " + className + " group by type")) {
+        Map<String, List<Integer>> groups = new HashMap<>();
+        while (result.hasNext()) {
+          Result item = result.next();
+          Assert.assertNull(groups.put(item.getProperty("type"), item.getProperty("vals")));
+        }
+        Assert.assertEquals(37, groups.size());
+
+        for (int t = 0; t < 37; t++) {
+          List<Integer> vals = new ArrayList<>(groups.get("t" + t));
+          Collections.sort(vals);
+          List<Integer> expected = new ArrayList<>();
+          for (int i = t; i < 200; i += 37) {
+            expected.add(i);
+          }
+          Assert.assertEquals(expected, vals);
+        }
+      }
+    } finally {
+      GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(oldValue);
+      GlobalConfiguration.QUERY_SPILL_PARTITIONS.setValue(oldPartitions);
+    }
+  }
+
+  @Test
+  public void testSpillForDistinct() {
+    Long oldValue = GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
+    Integer oldPartitions = GlobalConfiguration.QUERY_SPILL_PARTITIONS.getValueAsInteger();
+    try {
+      GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(4);
+      GlobalConfiguration.QUERY_SPILL_PARTITIONS.setValue(2);
+
+      String className = "testSpillForDistinct";
+      db.createClassIfNotExist(className);
+
+      db.begin();
+      for (int i = 0; i < 200; i++) {
+        db.command(
+                "INSERT INTO " + className + " set type = ?, sub = ?, val = ?",
+                "t" + (i % 37),
+                i % 2,
+                i)
+            .close();
+      }
+      db.commit();
+
+      // first occurrences are returned in the order of the input
+      try (ResultSet result =
+          db.query("select distinct type from " + className + " order by val")) {
+        for (int t = 0; t < 37; t++) {
+          Assert.assertTrue(result.hasNext());
+          Assert.assertEquals("t" + t, result.next().getProperty("type"));
+        }
+        Assert.assertFalse(result.hasNext());
+        Assert.assertTrue(
+            result.getExecutionPlan().get().prettyPrint(0, 2).contains("spilled to disk"));
+      }
+
+      try (ResultSet result = db.query("select distinct type, sub from " + className)) {
+        Set<String> items = new HashSet<>();
+        while (result.hasNext()) {
+          Result item = result.next();
+          Assert.assertTrue(items.add(item.getProperty("type") + "-" + item.getProperty("sub")));
+        }
+        Assert.assertEquals(74, items.size());
+      }
+    } finally {
+      GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(oldValue);
+      GlobalConfiguration.QUERY_SPILL_PARTITIONS.setValue(oldPartitions);
+    }
+  }
+
+  @Test
+  public void testParallelClassScan() {
+    Long oldMinimum = GlobalConfiguration.QUERY_PARALLEL_MINIMUM_RECORDS.getValueAsLong();
+    Integer oldDegree = GlobalConfiguration.QUERY_PARALLEL_DEGREE.getValueAsInteger();
+    Integer oldQueueSize = GlobalConfiguration.QUERY_PARALLEL_RESULT_QUEUE_SIZE.getValueAsInteger();
+    try {
+      GlobalConfiguration.QUERY_PARALLEL_MINIMUM_RECORDS.setValue(0);
+      GlobalConfiguration.QUERY_PARALLEL_DEGREE.setValue(3);
+      GlobalConfiguration.QUERY_PARALLEL_RESULT_QUEUE_SIZE.setValue(4);
+
+      String className = "testParallelClassScan";
+      SchemaClass clazz = db.getMetadata().getSchema().createClass(className);
+      for (int i = 0; i < 4; i++) {
+        clazz.addCluster(db, className + "_extra_" + i);
+      }
+
+      db.begin();
+      for (int i = 0; i < 300; i++) {
+        db.command("INSERT INTO " + className + " set val = ?, name = ?", i, "n" + i).close();
+      }
+      db.commit();
+
+      try (ResultSet result =
+          db.query("select from " + className + " where val % 3 = 0 parallel")) {
+        printExecutionPlan(result);
+        String plan = result.getExecutionPlan().get().prettyPrint(0, 2);
+        Assert.assertTrue(plan.contains("multi-threaded"));
+        Assert.assertFalse(plan.contains("FILTER ITEMS WHERE"));
+
+        List<Integer> values = new ArrayList<>();
+        while (result.hasNext()) {
+          Result item = result.next();
+          Assert.assertTrue(item.isEntity());
+          int val = item.getProperty("val");
+          Assert.assertEquals("n" + val, item.getProperty("name"));
+          values.add(val);
+        }
+        Collections.sort(values);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 300; i += 3) {
+          expected.add(i);
+        }
+        Assert.assertEquals(expected, values);
+      }
+
+      try (ResultSet result =
+          db.query("select val, name from " + className + " where val < 100 parallel")) {
+        int count = 0;
+        while (result.hasNext()) {
+          Result item = result.next();
+          Assert.assertFalse(item.isEntity());
+          Assert.assertEquals("n" + item.getProperty("val"), item.getProperty("name"));
+          count++;
+        }
+        Assert.assertEquals(100, count);
+      }
+
+      try (ResultSet result =
+          db.query("select from " + className + " where val >= 0 limit 5 parallel")) {
+        Assert.assertEquals(5, result.stream().count());
+      }
+
+      // falls back to the sequential scan inside of transaction
+      db.begin();
+      try (ResultSet result =
+          db.query("select count(*) as count from " + className + " where val < 10 parallel")) {
+        Assert.assertEquals(10L, (long) result.next().getProperty("count"));
+      }
+      db.commit();
+    } finally {
+      GlobalConfiguration.QUERY_PARALLEL_MINIMUM_RECORDS.setValue(oldMinimum);
+      GlobalConfiguration.QUERY_PARALLEL_DEGREE.setValue(oldDegree);
+      GlobalConfiguration.QUERY_PARALLEL_RESULT_QUEUE_SIZE.setValue(oldQueueSize);
+    }
+  }
+
+  @Test
+  public void testParallelSubPlans() {
+    String className = "testParallelSubPlans";
+    SchemaClass clazz = db.getMetadata().getSchema().createClass(className);
+    clazz.createProperty(db, "a", PropertyType.INTEGER);
+    clazz.createProperty(db, "b", PropertyType.INTEGER);
+    clazz.createIndex(db, className + ".a", SchemaClass.INDEX_TYPE.NOTUNIQUE, "a");
+    clazz.createIndex(db, className + ".b", SchemaClass.INDEX_TYPE.NOTUNIQUE, "b");
+
+    db.begin();
+    for (int i = 0; i < 100; i++) {
+      db.command("INSERT INTO " + className + " set a = ?, b = ?", i % 10, i % 7).close();
+    }
+    db.commit();
+
+    try (ResultSet result =
+        db.query("select from " + className + " where a = 1 or b = 2 parallel")) {
+      printExecutionPlan(result);
+      Assert.assertTrue(
+          result.getExecutionPlan().get().prettyPrint(0, 2).contains("PARALLEL (multi-threaded)"));
+
+      int count = 0;
+      while (result.hasNext()) {
+        Result item = result.next();
+        Assert.assertTrue(
+            (int) item.getProperty("a") == 1 || (int) item.getProperty("b") == 2);
+        count++;
+      }
+      // 10 records with a = 1, 14 records with b = 2 and one of them matches both
+      Assert.assertEquals(23, count);
     }
   }
 
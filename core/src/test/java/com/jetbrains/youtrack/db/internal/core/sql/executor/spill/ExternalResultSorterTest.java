@@ -0,0 +1,113 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor.spill;
+
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.query.Result;
+import com.jetbrains.youtrack.db.internal.DbTestBase;
+import com.jetbrains.youtrack.db.internal.core.command.BasicCommandContext;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.ResultInternal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExternalResultSorterTest extends DbTestBase {
+
+  private static final Comparator<Result> BY_KEY =
+      Comparator.comparing(r -> r.<Integer>getProperty("key"));
+
+  @Test
+  public void testInMemory() {
+    var sorter = new ExternalResultSorter(BY_KEY, 100, null, db);
+    var expected = fill(sorter, 50);
+
+    Assert.assertFalse(sorter.isSpilled());
+    assertSorted(sorter, expected, 50);
+  }
+
+  @Test
+  public void testSpilled() {
+    var sorter = new ExternalResultSorter(BY_KEY, 7, null, db);
+    var expected = fill(sorter, 100);
+
+    Assert.assertTrue(sorter.isSpilled());
+    Assert.assertEquals(14, sorter.getRunsCount());
+    assertSorted(sorter, expected, 100);
+  }
+
+  @Test
+  public void testSpilledSeveralMergePasses() {
+    var oldMergeFactor = GlobalConfiguration.QUERY_SPILL_MERGE_FACTOR.getValueAsInteger();
+    try {
+      GlobalConfiguration.QUERY_SPILL_MERGE_FACTOR.setValue(3);
+
+      var sorter = new ExternalResultSorter(BY_KEY, 5, null, db);
+      var expected = fill(sorter, 101);
+
+      Assert.assertEquals(20, sorter.getRunsCount());
+      assertSorted(sorter, expected, 101);
+    } finally {
+      GlobalConfiguration.QUERY_SPILL_MERGE_FACTOR.setValue(oldMergeFactor);
+    }
+  }
+
+  @Test
+  public void testSpilledMaxResults() {
+    var sorter = new ExternalResultSorter(BY_KEY, 4, 10, db);
+    var expected = fill(sorter, 60);
+
+    Assert.assertTrue(sorter.isSpilled());
+    assertSorted(sorter, expected, 10);
+  }
+
+  private List<Integer> fill(ExternalResultSorter sorter, int count) {
+    var keys = new ArrayList<Integer>();
+    for (var i = 0; i < count; i++) {
+      keys.add(i / 2);
+    }
+    Collections.shuffle(keys, new Random(7));
+
+    var index = 0;
+    for (var key : keys) {
+      var item = new ResultInternal(db);
+      item.setProperty("key", key);
+      item.setProperty("index", index++);
+      item.setMetadata("meta", "m" + key);
+      sorter.add(item);
+    }
+
+    Collections.sort(keys);
+    return keys;
+  }
+
+  private void assertSorted(ExternalResultSorter sorter, List<Integer> expected, int limit) {
+    var ctx = new BasicCommandContext();
+    ctx.setDatabase(db);
+
+    var stream = sorter.sortedStream();
+    try {
+      var prevIndex = -1;
+      var prevKey = -1;
+      for (var i = 0; i < limit; i++) {
+        Assert.assertTrue(stream.hasNext(ctx));
+        var item = stream.next(ctx);
+        int key = item.getProperty("key");
+        int index = item.getProperty("index");
+
+        Assert.assertEquals((int) expected.get(i), key);
+        Assert.assertEquals("m" + key, item.getMetadata("meta"));
+        if (key == prevKey) {
+          // sort is stable
+          Assert.assertTrue(index > prevIndex);
+        }
+        prevKey = key;
+        prevIndex = index;
+      }
+      Assert.assertFalse(stream.hasNext(ctx));
+    } finally {
+      stream.close(ctx);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.jetbrains.youtrack.db.internal.core.sql.executor.spill;
+
+import com.jetbrains.youtrack.db.internal.DbTestBase;
+import com.jetbrains.youtrack.db.internal.core.sql.executor.ResultInternal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResultFingerprintTest extends DbTestBase {
+
+  @Test
+  public void testSetIsOrderIndependent() {
+    Set<Object> first = new LinkedHashSet<>(List.of("a", "b", "c"));
+    Set<Object> second = new LinkedHashSet<>(List.of("c", "a", "b"));
+
+    Assert.assertEquals(fingerprint("tags", first), fingerprint("tags", second));
+    Assert.assertNotEquals(
+        fingerprint("tags", first), fingerprint("tags", new LinkedHashSet<>(List.of("a", "b"))));
+  }
+
+  @Test
+  public void testMapIsOrderIndependent() {
+    Map<String, Object> first = new LinkedHashMap<>();
+    first.put("x", 1);
+    first.put("y", Set.of("a", "b"));
+    Map<String, Object> second = new LinkedHashMap<>();
+    second.put("y", new LinkedHashSet<>(List.of("b", "a")));
+    second.put("x", 1);
+
+    Assert.assertEquals(fingerprint("attrs", first), fingerprint("attrs", second));
+
+    second.put("x", 2);
+    Assert.assertNotEquals(fingerprint("attrs", first), fingerprint("attrs", second));
+  }
+
+  @Test
+  public void testListIsOrderDependent() {
+    List<Object> first = new ArrayList<>(List.of("a", "b"));
+    List<Object> second = new ArrayList<>(List.of("b", "a"));
+
+    Assert.assertNotEquals(fingerprint("items", first), fingerprint("items", second));
+    Assert.assertEquals(
+        fingerprint("items", first), fingerprint("items", new ArrayList<>(List.of("a", "b"))));
+  }
+
+  private ResultFingerprint fingerprint(String name, Object value) {
+    var result = new ResultInternal(db);
+    result.setProperty(name, value);
+    var fingerprint = ResultFingerprint.of(result);
+    Assert.assertNotNull(fingerprint);
+    return fingerprint;
+  }
+}
@@ -4,6 +4,7 @@ import com.jetbrains.youtrack.db.api.schema.PropertyType;
 import com.jetbrains.youtrack.db.api.schema.SchemaClass;
 import com.jetbrains.youtrack.db.api.schema.SchemaProperty;
 import com.jetbrains.youtrack.db.internal.BaseMemoryInternalDatabase;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -30,17 +31,22 @@ public class ExecutionPlanCacheTest extends BaseMemoryInternalDatabase {
     cache = ExecutionPlanCache.instance(db);
     Assert.assertTrue(cache.contains(stm));
 
-    SchemaClass clazz = db.getMetadata().getSchema().createClass(testName);
+    // a new subclass changes the set of clusters of the class
+    SchemaClass clazz =
+        db.getMetadata()
+            .getSchema()
+            .createClass(testName, db.getMetadata().getSchema().getClass("OUser"));
     Assert.assertFalse(cache.contains(stm));
 
     Thread.sleep(2);
 
     // schema changes 2
+    stm = "SELECT FROM " + testName;
     db.query(stm).close();
     cache = ExecutionPlanCache.instance(db);
     Assert.assertTrue(cache.contains(stm));
 
-    SchemaProperty prop = clazz.createProperty(db, "name", PropertyType.STRING);
+    SchemaProperty prop = clazz.createProperty(db, "testName", PropertyType.STRING);
     Assert.assertFalse(cache.contains(stm));
 
     Thread.sleep(2);
@@ -53,4 +59,123 @@ public class ExecutionPlanCacheTest extends BaseMemoryInternalDatabase {
     prop.createIndex(db, SchemaClass.INDEX_TYPE.NOTUNIQUE);
     Assert.assertFalse(cache.contains(stm));
   }
+
+  @Test
+  public void testSelectiveInvalidation() throws InterruptedException {
+    String testName = "testSelectiveInvalidation";
+    SchemaClass clazz = db.getMetadata().getSchema().createClass(testName);
+    SchemaClass other = db.getMetadata().getSchema().createClass(testName + "Other");
+
+    ExecutionPlanCache cache = ExecutionPlanCache.instance(db);
+    String stm = "SELECT FROM " + testName + " WHERE name = 'foo'";
+    String otherStm = "SELECT FROM " + testName + "Other";
+
+    Thread.sleep(2);
+    db.query(stm).close();
+    db.query(otherStm).close();
+    Assert.assertTrue(cache.contains(stm));
+    Assert.assertTrue(cache.contains(otherStm));
+
+    // changes of unrelated class keep the plan
+    other.createProperty(db, "name", PropertyType.STRING);
+    Assert.assertTrue(cache.contains(stm));
+    Assert.assertFalse(cache.contains(otherStm));
+
+    // new subclass changes polymorphic clusters of the class
+    db.getMetadata().getSchema().createClass(testName + "Sub", clazz);
+    Assert.assertFalse(cache.contains(stm));
+
+    Thread.sleep(2);
+    db.query(stm).close();
+    Assert.assertTrue(cache.contains(stm));
+
+    SchemaProperty prop = clazz.createProperty(db, "name", PropertyType.STRING);
+    Assert.assertFalse(cache.contains(stm));
+
+    Thread.sleep(2);
+    db.query(stm).close();
+    db.query(otherStm).close();
+    Assert.assertTrue(cache.contains(stm));
+    Assert.assertTrue(cache.contains(otherStm));
+
+    prop.createIndex(db, SchemaClass.INDEX_TYPE.NOTUNIQUE);
+    Assert.assertFalse(cache.contains(stm));
+    Assert.assertTrue(cache.contains(otherStm));
+
+    long hits = cache.getHits();
+    db.query(otherStm).close();
+    Assert.assertEquals(hits + 1, cache.getHits());
+  }
+
+  @Test
+  public void testSubclassIndexInvalidatesPlanOfSuperclass() throws InterruptedException {
+    String testName = "testSubclassIndexInvalidation";
+    SchemaClass clazz = db.getMetadata().getSchema().createClass(testName);
+    SchemaClass subclass = db.getMetadata().getSchema().createClass(testName + "Sub", clazz);
+    SchemaProperty prop = subclass.createProperty(db, "name", PropertyType.STRING);
+
+    ExecutionPlanCache cache = ExecutionPlanCache.instance(db);
+    String stm = "SELECT FROM " + testName + " WHERE name = 'foo'";
+
+    Thread.sleep(2);
+    db.query(stm).close();
+    Assert.assertTrue(cache.contains(stm));
+
+    String indexName = prop.createIndex(db, SchemaClass.INDEX_TYPE.NOTUNIQUE);
+    Assert.assertFalse(cache.contains(stm));
+
+    Thread.sleep(2);
+    db.query(stm).close();
+    Assert.assertTrue(cache.contains(stm));
+
+    db.command("DROP INDEX `" + indexName + "`").close();
+    Assert.assertFalse(cache.contains(stm));
+
+    Thread.sleep(2);
+    db.query(stm).close();
+    Assert.assertTrue(cache.contains(stm));
+  }
+
+  @Test
+  public void testDependenciesAreCollectedFromParsedStatement() throws InterruptedException {
+    String testName = "testParsedDependencies";
+    SchemaClass clazz = db.getMetadata().getSchema().createClass(testName);
+    SchemaClass field = db.getMetadata().getSchema().createClass(testName + "Field");
+
+    ExecutionPlanCache cache = ExecutionPlanCache.instance(db);
+    // name of the property is the same as the name of a class, but the query does not read it
+    String stm = "SELECT FROM " + testName + " WHERE " + testName + "Field = 'foo'";
+
+    Thread.sleep(2);
+    db.query(stm).close();
+    Assert.assertTrue(cache.contains(stm));
+
+    field.createProperty(db, "name", PropertyType.STRING);
+    Assert.assertTrue(cache.contains(stm));
+
+    clazz.createProperty(db, "name", PropertyType.STRING);
+    Assert.assertFalse(cache.contains(stm));
+  }
+
+  @Test
+  public void testDependenciesOfSubQueries() {
+    Assert.assertEquals(
+        Set.of("Foo", "Bar", "Baz", "idx", "qux"),
+        ExecutionPlanCache.dependencies(
+            StatementCache.get(
+                "SELECT (SELECT count(*) FROM Baz) AS cnt FROM (SELECT FROM Foo) LET $a ="
+                    + " (SELECT FROM index:idx) WHERE name IN (SELECT name FROM Bar) AND Other ="
+                    + " (SELECT FROM cluster:qux)",
+                null)));
+
+    Assert.assertEquals(
+        Set.of("E", "V"),
+        ExecutionPlanCache.dependencies(
+            StatementCache.get("DELETE EDGE WHERE out IN (SELECT FROM V)", null)));
+
+    // target is known only at execution time
+    Assert.assertNull(
+        ExecutionPlanCache.dependencies(
+            StatementCache.get("SELECT FROM (SELECT FROM Foo) WHERE x IN (SELECT FROM ?)", null)));
+  }
 }
@@ -1,5 +1,10 @@
 package com.jetbrains.youtrack.db.internal.core.sql.parser;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -23,4 +28,32 @@ public class StatementCacheTest {
     Assert.assertTrue(cache.contains("select from foo"));
     Assert.assertFalse(cache.contains("select from baz"));
   }
+
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    StatementCache cache = new StatementCache(8);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 1_000; i++) {
+                    String statement = "SELECT FROM foo" + (i % 16);
+                    Assert.assertEquals(statement, cache.get(statement).toString());
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertTrue(cache.getSize() <= 8);
+    Assert.assertEquals(4_000, cache.getHits() + cache.getMisses());
+    Assert.assertTrue(cache.getEvictions() > 0);
+  }
 }
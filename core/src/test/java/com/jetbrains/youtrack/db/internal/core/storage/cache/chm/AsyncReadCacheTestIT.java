@@ -439,6 +439,26 @@ public class AsyncReadCacheTestIT {
       return cachePointer;
     }
 
+    @Override
+    public long getPagesStamp(final long fileId) {
+      return 0;
+    }
+
+    @Override
+    public CachePointer[] loadPages(
+        final long fileId,
+        final long startPageIndex,
+        final int pageCount,
+        final boolean verifyChecksums) {
+      return new CachePointer[0];
+    }
+
+    @Override
+    public CachePointer acceptLoadedPage(
+        final long fileId, final long pageIndex, final CachePointer pointer, final long stamp) {
+      return pointer;
+    }
+
     @Override
     public void flush(final long fileId) {
     }
@@ -0,0 +1,87 @@
+package com.jetbrains.youtrack.db.internal.core.storage.cache.chm;
+
+import com.jetbrains.youtrack.db.api.DatabaseType;
+import com.jetbrains.youtrack.db.api.query.Result;
+import com.jetbrains.youtrack.db.api.query.ResultSet;
+import com.jetbrains.youtrack.db.api.record.Entity;
+import com.jetbrains.youtrack.db.internal.DbTestBase;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.AbstractPaginatedStorage;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadAheadTest extends DbTestBase {
+
+  private static final int RECORDS = 20_000;
+
+  @Override
+  protected DatabaseType calculateDbType() {
+    return DatabaseType.PLOCAL;
+  }
+
+  @Test
+  public void testSequentialScanAfterReopen() {
+    db.getMetadata().getSchema().createClass("ReadAhead", 1, null);
+
+    db.begin();
+    for (int i = 0; i < RECORDS; i++) {
+      Entity entity = db.newEntity("ReadAhead");
+      entity.setProperty("value", i);
+      entity.setProperty("payload", "payload of the record " + i);
+      entity.save();
+
+      if (i % 1_000 == 999) {
+        db.commit();
+        db.begin();
+      }
+    }
+    db.commit();
+
+    // pages are read from the disk after the storage is opened once again
+    reopenContext();
+    assertScan(0);
+
+    db.begin();
+    db.command("update ReadAhead set value = value + 1 where value % 100 = 0").close();
+    db.commit();
+
+    reopenContext();
+    assertScan(1);
+  }
+
+  private void assertScan(int delta) {
+    // records saved in a single transaction do not get increasing rids, so values are compared
+    // regardless of the order of the records
+    final Map<Integer, Integer> counts = new HashMap<>();
+    try (ResultSet resultSet = db.query("select value from ReadAhead")) {
+      while (resultSet.hasNext()) {
+        Result result = resultSet.next();
+        counts.merge(result.getProperty("value"), 1, Integer::sum);
+      }
+    }
+
+    final Map<Integer, Integer> expectedCounts = new HashMap<>();
+    for (int i = 0; i < RECORDS; i++) {
+      expectedCounts.merge(i % 100 == 0 ? i + delta : i, 1, Integer::sum);
+    }
+
+    Assert.assertEquals(expectedCounts, counts);
+
+    // cluster was scanned just after the storage was opened, so its pages have to be read ahead
+    final AsyncReadCache readCache =
+        (AsyncReadCache) ((AbstractPaginatedStorage) db.getStorage()).getReadCache();
+    Assert.assertTrue(readCache.readAheadPages() > 0);
+  }
+
+  private void reopenContext() {
+    db.close();
+    pool.close();
+    context.close();
+
+    context = createContext();
+    pool = context.cachedPool(databaseName, adminUser, adminPassword);
+    db = (DatabaseSessionInternal) context.open(databaseName, adminUser, adminPassword);
+  }
+}
@@ -1,6 +1,8 @@
 package com.jetbrains.youtrack.db.internal.core.storage.cache.chm;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.jetbrains.youtrack.db.internal.common.directmemory.ByteBufferPool;
@@ -665,6 +667,48 @@ public class WTinyLFUPolicyTest {
     clearPointers(wTinyLFU);
   }
 
+  @Test
+  public void testPrefetchDoesNotIncrementFrequency() {
+    DirectMemoryAllocator memoryAllocator = new DirectMemoryAllocator();
+    ByteBufferPool pool = new ByteBufferPool(1, memoryAllocator, 0);
+
+    ConcurrentHashMap<PageKey, CacheEntry> data = new ConcurrentHashMap<>();
+    Admittor admittor = mock(Admittor.class);
+
+    AtomicInteger cacheSize = new AtomicInteger();
+    WTinyLFUPolicy wTinyLFU = new WTinyLFUPolicy(data, admittor, cacheSize);
+    wTinyLFU.setMaxSize(15);
+
+    CacheEntry[] cacheEntries = new CacheEntry[2];
+    CachePointer[] cachePointers = new CachePointer[2];
+
+    generateEntries(cacheEntries, cachePointers, pool);
+
+    cacheSize.incrementAndGet();
+    data.put(new PageKey(1, 0), cacheEntries[0]);
+    wTinyLFU.onAdd(cacheEntries[0]);
+
+    cacheSize.incrementAndGet();
+    data.put(new PageKey(1, 1), cacheEntries[1]);
+    wTinyLFU.onPrefetch(cacheEntries[1]);
+
+    final int prefetchedHash = cacheEntries[1].getPageKey().hashCode();
+    verify(admittor).increment(cacheEntries[0].getPageKey().hashCode());
+    verify(admittor, never()).increment(prefetchedHash);
+
+    Assert.assertArrayEquals(
+        new CacheEntry[]{cacheEntries[1], cacheEntries[0]}, toArray(wTinyLFU.eden()));
+
+    // frequency of prefetched page is incremented only once page is accessed
+    wTinyLFU.onAccess(cacheEntries[1]);
+    verify(admittor).increment(prefetchedHash);
+
+    wTinyLFU.assertSize();
+    wTinyLFU.assertConsistency();
+
+    clearPointers(wTinyLFU);
+  }
+
   private static CacheEntry[] toArray(Iterator<CacheEntry> iterator) {
     final List<CacheEntry> entries = new ArrayList<>();
     while (iterator.hasNext()) {
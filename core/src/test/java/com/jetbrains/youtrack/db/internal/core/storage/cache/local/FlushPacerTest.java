@@ -0,0 +1,83 @@
+package com.jetbrains.youtrack.db.internal.core.storage.cache.local;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FlushPacerTest {
+
+  private static final long MS = 1_000_000;
+  private static final int MAX_PAGES = 8 * 1024;
+
+  @Test
+  public void testNothingIsFlushedWithoutDirtyPages() {
+    final FlushPacer pacer = new FlushPacer(MAX_PAGES);
+
+    Assert.assertEquals(0, pacer.pagesToFlush(0, 1024, 4096, 0));
+    Assert.assertEquals(0, pacer.pagesToFlush(25 * MS, 2048, 4096, 0));
+    Assert.assertFalse(pacer.isBehind());
+  }
+
+  @Test
+  public void testFlushAsFastAsPossibleIfWalLimitIsReached() {
+    final FlushPacer pacer = new FlushPacer(MAX_PAGES);
+
+    pacer.pagesToFlush(0, 1024, 4096, 100);
+    Assert.assertEquals(MAX_PAGES, pacer.pagesToFlush(25 * MS, 4096, 4096, 100));
+    Assert.assertTrue(pacer.isBehind());
+  }
+
+  @Test
+  public void testFlushAsFastAsPossibleIfWalDoesNotGrow() {
+    final FlushPacer pacer = new FlushPacer(MAX_PAGES);
+
+    pacer.pagesToFlush(0, 1024, -1, 100);
+    Assert.assertEquals(MAX_PAGES, pacer.pagesToFlush(25 * MS, 1024, -1, 100));
+    Assert.assertTrue(pacer.isBehind());
+  }
+
+  @Test
+  public void testFlushIsFasterUnderHigherWalPressure() {
+    final long walSizeLimit = 1024L * 1024 * 1024;
+
+    final int lowPressurePages = flushedPages(walSizeLimit / 8, walSizeLimit);
+    final int highPressurePages = flushedPages(walSizeLimit / 8 * 7, walSizeLimit);
+
+    Assert.assertTrue(lowPressurePages > 0);
+    Assert.assertTrue(highPressurePages > lowPressurePages);
+    Assert.assertTrue(highPressurePages < 10 * MAX_PAGES);
+  }
+
+  @Test
+  public void testFlushIsLimitedByWriteBandwidth() {
+    final FlushPacer pacer = new FlushPacer(MAX_PAGES);
+    // 1000 pages per second
+    pacer.pagesFlushed(100, 100 * MS);
+
+    final long walSizeLimit = 1024L * 1024 * 1024;
+    long walSize = walSizeLimit / 8 * 7;
+    int pages = 0;
+    for (int i = 0; i <= 40; i++) {
+      pages += pacer.pagesToFlush(i * 25 * MS, walSize, walSizeLimit, 1_000_000);
+      walSize += 1024 * 1024;
+    }
+
+    // one second of flush with half of the bandwidth
+    Assert.assertTrue(pages <= 500);
+    Assert.assertFalse(pacer.isBehind());
+  }
+
+  /**
+   * @return Amount of pages flushed during one second while the WAL grows by 1 MB every 25 ms.
+   */
+  private static int flushedPages(long walSize, final long walSizeLimit) {
+    final FlushPacer pacer = new FlushPacer(MAX_PAGES);
+
+    int pages = 0;
+    for (int i = 0; i <= 40; i++) {
+      pages += pacer.pagesToFlush(i * 25 * MS, walSize, walSizeLimit, 10_000);
+      walSize += 1024 * 1024;
+    }
+
+    return pages;
+  }
+}
@@ -291,4 +291,56 @@ public class AsyncFileTest {
     file.close();
     Assert.assertFalse(file.isOpen());
   }
+
+  @Test
+  public void testDirectIOWriteRead() throws Exception {
+    // falls back to the IO through the page cache if direct IO is not supported
+    AsyncFile file =
+        new AsyncFile(buildDirectoryPath, 1024, false, Executors.newCachedThreadPool(), true);
+    file.create();
+
+    final long position1 = file.allocateSpace(1024);
+    final long position2 = file.allocateSpace(4 * 1024);
+    final long position3 = file.allocateSpace(8 * 1024);
+
+    final byte[] data1 = new byte[1024];
+    final byte[] data2 = new byte[4 * 1024];
+    final byte[] data3 = new byte[8 * 1024];
+
+    final Random random = new Random();
+
+    random.nextBytes(data1);
+    random.nextBytes(data2);
+    random.nextBytes(data3);
+
+    final List<RawPairLongObject<ByteBuffer>> buffers = new ArrayList<>();
+
+    buffers.add(new RawPairLongObject<>(position1, ByteBuffer.wrap(data1)));
+    buffers.add(
+        new RawPairLongObject<>(
+            position2, ByteBuffer.allocateDirect(data2.length).put(data2).flip()));
+
+    final IOResult result = file.write(buffers);
+    result.await();
+
+    file.write(position3, ByteBuffer.wrap(data3));
+    file.close();
+    file.open();
+
+    final ByteBuffer result1 = ByteBuffer.allocate(1024);
+    file.read(position1, result1, true);
+    Assert.assertArrayEquals(data1, result1.array());
+
+    final ByteBuffer result2 = ByteBuffer.allocate(4 * 1024);
+    final ByteBuffer result3 = ByteBuffer.allocateDirect(8 * 1024);
+    file.read(position2, List.of(result2, result3), true);
+
+    final byte[] content3 = new byte[8 * 1024];
+    result3.get(0, content3);
+
+    Assert.assertArrayEquals(data2, result2.array());
+    Assert.assertArrayEquals(data3, content3);
+
+    file.close();
+  }
 }
@@ -0,0 +1,136 @@
+package com.jetbrains.youtrack.db.internal.core.storage.impl.local;
+
+import com.jetbrains.youtrack.db.api.record.Entity;
+import com.jetbrains.youtrack.db.api.schema.SchemaClass;
+import com.jetbrains.youtrack.db.internal.DbTestBase;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.storage.StorageCluster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CommitClusterLockTest extends DbTestBase {
+
+  @Test
+  public void testNewRecordsAvoidLockedClusters() throws Exception {
+    SchemaClass clazz = db.getMetadata().getSchema().createClass("LockedClusters");
+    int[] clusterIds = clazz.getClusterIds();
+    Assert.assertTrue(clusterIds.length > 1);
+
+    AbstractPaginatedStorage storage = (AbstractPaginatedStorage) db.getStorage();
+    List<StorageCluster> busyClusters = new ArrayList<>();
+    for (StorageCluster cluster : storage.getClusterInstances()) {
+      // all clusters of the class except the last one are locked by another transaction
+      for (int i = 0; i < clusterIds.length - 1; i++) {
+        if (cluster.getId() == clusterIds[i]) {
+          busyClusters.add(cluster);
+        }
+      }
+    }
+
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> lockHolder =
+          executor.submit(
+              () -> {
+                storage
+                    .getAtomicOperationsManager()
+                    .executeInsideAtomicOperation(
+                        null,
+                        atomicOperation -> {
+                          for (StorageCluster cluster : busyClusters) {
+                            cluster.acquireAtomicExclusiveLock();
+                          }
+                          locked.countDown();
+                          release.await();
+                        });
+                return null;
+              });
+      Assert.assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+      for (int i = 0; i < clusterIds.length; i++) {
+        db.begin();
+        Entity entity = db.newEntity("LockedClusters");
+        entity.setProperty("value", i);
+        entity.save();
+        db.commit();
+
+        Assert.assertEquals(
+            clusterIds[clusterIds.length - 1], entity.getIdentity().getClusterId());
+      }
+
+      release.countDown();
+      lockHolder.get(10, TimeUnit.SECONDS);
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(clusterIds.length, db.countClass("LockedClusters"));
+  }
+
+  @Test
+  public void testExplicitClusterIsKept() throws Exception {
+    SchemaClass clazz = db.getMetadata().getSchema().createClass("ExplicitCluster");
+    int[] clusterIds = clazz.getClusterIds();
+    Assert.assertTrue(clusterIds.length > 1);
+    int requestedClusterId = clusterIds[0];
+
+    AbstractPaginatedStorage storage = (AbstractPaginatedStorage) db.getStorage();
+    StorageCluster busyCluster = null;
+    for (StorageCluster cluster : storage.getClusterInstances()) {
+      if (cluster.getId() == requestedClusterId) {
+        busyCluster = cluster;
+      }
+    }
+    Assert.assertNotNull(busyCluster);
+    StorageCluster lockedCluster = busyCluster;
+
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    try {
+      Future<?> lockHolder =
+          executor.submit(
+              () -> {
+                storage
+                    .getAtomicOperationsManager()
+                    .executeInsideAtomicOperation(
+                        null,
+                        atomicOperation -> {
+                          lockedCluster.acquireAtomicExclusiveLock();
+                          locked.countDown();
+                          release.await();
+                        });
+                return null;
+              });
+      Assert.assertTrue(locked.await(10, TimeUnit.SECONDS));
+      // commit waits for the lock of the requested cluster instead of using another one
+      executor.schedule(release::countDown, 500, TimeUnit.MILLISECONDS);
+
+      db.begin();
+      Entity byName = db.newEntity("ExplicitCluster");
+      db.save(byName, db.getClusterNameById(requestedClusterId));
+      Entity byId = db.newEntity("ExplicitCluster");
+      ((RecordId) byId.getIdentity()).setClusterId(requestedClusterId);
+      byId.save();
+      db.commit();
+
+      Assert.assertEquals(requestedClusterId, byName.getIdentity().getClusterId());
+      Assert.assertEquals(requestedClusterId, byId.getIdentity().getClusterId());
+      lockHolder.get(10, TimeUnit.SECONDS);
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package com.jetbrains.youtrack.db.internal.core.storage.impl.local;
+
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.LogSequenceNumber;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.UpdatePageRecord;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PageChangesRestoreTest {
+
+  private static final int FILE_ID = 3;
+
+  @Test
+  public void testChangesOfPageAreAppliedInOrder() throws Exception {
+    final Map<Long, List<Long>> appliedChanges = new ConcurrentHashMap<>();
+
+    try (final PageChangesRestore restore =
+        new PageChangesRestore(
+            "pageChangesRestoreTest",
+            4,
+            record ->
+                appliedChanges
+                    .computeIfAbsent(
+                        record.getPageIndex(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(record.getOperationUnitId()))) {
+      long operationUnitId = 0;
+      for (int batch = 0; batch < 10; batch++) {
+        for (int i = 0; i < 100; i++) {
+          for (long pageIndex = 0; pageIndex < 16; pageIndex++) {
+            restore.add(FILE_ID, updatePageRecord(pageIndex, operationUnitId++));
+          }
+        }
+
+        restore.apply();
+      }
+    }
+
+    Assert.assertEquals(16, appliedChanges.size());
+    for (final List<Long> changes : appliedChanges.values()) {
+      Assert.assertEquals(1_000, changes.size());
+      for (int i = 1; i < changes.size(); i++) {
+        Assert.assertTrue(changes.get(i - 1) < changes.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testErrorIsPropagatedAndChangesAreDiscarded() throws Exception {
+    final AtomicInteger appliedChanges = new AtomicInteger();
+
+    try (final PageChangesRestore restore =
+        new PageChangesRestore(
+            "pageChangesRestoreTest",
+            4,
+            record -> {
+              if (record.getPageIndex() == 7) {
+                throw new IOException("Page can not be restored");
+              }
+              appliedChanges.incrementAndGet();
+            })) {
+      for (long pageIndex = 0; pageIndex < 16; pageIndex++) {
+        restore.add(FILE_ID, updatePageRecord(pageIndex, pageIndex));
+      }
+
+      try {
+        restore.apply();
+        Assert.fail();
+      } catch (IOException e) {
+        // expected
+      }
+
+      final int applied = appliedChanges.get();
+      Assert.assertTrue(applied < 16);
+
+      // changes which were not applied because of the error are not applied again
+      restore.apply();
+      Assert.assertEquals(applied, appliedChanges.get());
+      Assert.assertNull(restore.getAppliedLsn());
+    }
+  }
+
+  @Test
+  public void testCompleteUnitsAreAppliedWhenRestoreIsStoppedInTheMiddleOfUnit() throws Exception {
+    final Map<Long, List<Long>> appliedChanges = new ConcurrentHashMap<>();
+
+    try (final PageChangesRestore restore =
+        new PageChangesRestore(
+            "pageChangesRestoreTest",
+            4,
+            record ->
+                appliedChanges
+                    .computeIfAbsent(
+                        record.getOperationUnitId(),
+                        k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(record.getPageIndex()))) {
+      for (long unit = 0; unit < 3; unit++) {
+        for (long pageIndex = 0; pageIndex < 16; pageIndex++) {
+          restore.add(FILE_ID, updatePageRecord(pageIndex, unit));
+        }
+        restore.completeUnit(new LogSequenceNumber(1, (int) unit));
+      }
+
+      // restore is stopped by exception before the end of the unit was read
+      for (long pageIndex = 0; pageIndex < 8; pageIndex++) {
+        restore.add(FILE_ID, updatePageRecord(pageIndex, 3));
+      }
+      restore.discardIncompleteUnit();
+      restore.apply();
+
+      Assert.assertEquals(new LogSequenceNumber(1, 2), restore.getAppliedLsn());
+    }
+
+    Assert.assertEquals(3, appliedChanges.size());
+    for (long unit = 0; unit < 3; unit++) {
+      Assert.assertEquals(16, appliedChanges.get(unit).size());
+    }
+  }
+
+  @Test
+  public void testRestoreIsStoppedAtUnitOfFailedChange() throws Exception {
+    final List<Long> appliedUnits = Collections.synchronizedList(new ArrayList<>());
+
+    try (final PageChangesRestore restore =
+        new PageChangesRestore(
+            "pageChangesRestoreTest",
+            1,
+            record -> {
+              if (record.getOperationUnitId() == 2 && record.getPageIndex() == 7) {
+                throw new IllegalStateException("Page can not be restored");
+              }
+              appliedUnits.add(record.getOperationUnitId());
+            })) {
+      for (long unit = 0; unit < 5; unit++) {
+        for (long pageIndex = 0; pageIndex < 16; pageIndex++) {
+          restore.add(FILE_ID, updatePageRecord(pageIndex, unit));
+        }
+        restore.completeUnit(new LogSequenceNumber(1, (int) unit));
+      }
+
+      try {
+        restore.apply();
+        Assert.fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+
+      Assert.assertEquals(new LogSequenceNumber(1, 1), restore.getAppliedLsn());
+    }
+
+    // only changes which precede the failed one are applied
+    Assert.assertEquals(2 * 16 + 7, appliedUnits.size());
+    for (final long unit : appliedUnits) {
+      Assert.assertTrue(unit <= 2);
+    }
+  }
+
+  @Test
+  public void testAppliedLsnPointsToUnitPrecedingFailedOne() throws Exception {
+    try (final PageChangesRestore restore =
+        new PageChangesRestore(
+            "pageChangesRestoreTest",
+            4,
+            record -> {
+              if (record.getOperationUnitId() == 3 && record.getPageIndex() == 5) {
+                throw new IOException("Page can not be restored");
+              }
+            })) {
+      for (long unit = 0; unit < 10; unit++) {
+        for (long pageIndex = 0; pageIndex < 16; pageIndex++) {
+          restore.add(FILE_ID, updatePageRecord(pageIndex, unit));
+        }
+        restore.completeUnit(new LogSequenceNumber(1, (int) unit));
+      }
+
+      try {
+        restore.apply();
+        Assert.fail();
+      } catch (IOException e) {
+        // expected
+      }
+
+      // all partitions stopped at the start of the failed unit
+      Assert.assertEquals(new LogSequenceNumber(1, 2), restore.getAppliedLsn());
+
+      // restore is continued from the unit which follows the last applied one
+      restore.add(FILE_ID, updatePageRecord(0, 11));
+      restore.completeUnit(new LogSequenceNumber(1, 11));
+      restore.apply();
+      Assert.assertEquals(new LogSequenceNumber(1, 11), restore.getAppliedLsn());
+    }
+  }
+
+  private static UpdatePageRecord updatePageRecord(
+      final long pageIndex, final long operationUnitId) {
+    return new UpdatePageRecord(pageIndex, FILE_ID, operationUnitId, null, null);
+  }
+}
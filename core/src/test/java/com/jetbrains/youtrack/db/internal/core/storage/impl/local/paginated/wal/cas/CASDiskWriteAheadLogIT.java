@@ -26,6 +26,10 @@ import java.util.NavigableMap;
 import java.util.Random;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import org.junit.Assert;
 import org.junit.Before;
@@ -4797,6 +4801,72 @@ public class CASDiskWriteAheadLogIT {
     }
   }
 
+  @Test
+  public void testWhenFlushedGroupsConcurrentRequests() throws Exception {
+    final long seed = System.nanoTime();
+    final Random random = new Random(seed);
+
+    // periodic sync would not happen during the test
+    final CASDiskWriteAheadLog wal =
+        new CASDiskWriteAheadLog(
+            "walTest",
+            testDirectory,
+            testDirectory,
+            100,
+            64,
+            null,
+            null,
+            Integer.MAX_VALUE,
+            Integer.MAX_VALUE,
+            20,
+            true,
+            Locale.US,
+            -1,
+            Integer.MAX_VALUE,
+            false,
+            false,
+            false,
+            10);
+    try {
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (int n = 0; n < 8; n++) {
+          final int threadSeed = random.nextInt();
+          futures.add(
+              executor.submit(
+                  () -> {
+                    final Random threadRandom = new Random(threadSeed);
+                    for (int i = 0; i < 100; i++) {
+                      final LogSequenceNumber lsn =
+                          wal.log(new TestRecord(threadRandom, wal.pageSize(), 1));
+                      final LogSequenceNumber flushedLsn =
+                          wal.whenFlushed(lsn).get(10, TimeUnit.SECONDS);
+
+                      Assert.assertTrue(flushedLsn.compareTo(lsn) >= 0);
+                      Assert.assertTrue(wal.getFlushedLsn().compareTo(lsn) >= 0);
+                    }
+                    return null;
+                  }));
+        }
+
+        for (final Future<Void> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      final LogSequenceNumber end = wal.end();
+      Assert.assertTrue(wal.whenFlushed(end).get(10, TimeUnit.SECONDS).compareTo(end) >= 0);
+    } catch (Exception | Error e) {
+      System.out.println("testWhenFlushedGroupsConcurrentRequests : " + seed);
+      throw e;
+    } finally {
+      wal.close();
+    }
+  }
+
   private static LogSequenceNumber chooseRandomRecord(
       Random random, NavigableMap<LogSequenceNumber, ? extends WriteableWALRecord> records) {
     if (records.isEmpty()) {
@@ -0,0 +1,386 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.hashindex.local.cache;
+
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.internal.common.collection.closabledictionary.ClosableLinkedContainer;
+import com.jetbrains.youtrack.db.internal.common.directmemory.ByteBufferPool;
+import com.jetbrains.youtrack.db.internal.common.io.FileUtils;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.StringSerializer;
+import com.jetbrains.youtrack.db.internal.common.types.ModifiableBoolean;
+import com.jetbrains.youtrack.db.internal.core.storage.ChecksumMode;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.CachePointer;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.PageDataVerificationError;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.local.WOWCache;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.local.doublewritelog.DoubleWriteLogNoOP;
+import com.jetbrains.youtrack.db.internal.core.storage.fs.AsyncFile;
+import com.jetbrains.youtrack.db.internal.core.storage.fs.File;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.base.DurablePage;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.wal.cas.CASDiskWriteAheadLog;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests of the LZ4 compression of the pages of the files selected by
+ * {@link GlobalConfiguration#DISK_CACHE_PAGE_COMPRESSION_FILES}.
+ */
+public class WOWCachePageCompressionTestIT {
+
+  private static final int pageSize = 8 * 1024;
+  private static final int dataSize = pageSize - DurablePage.NEXT_FREE_POSITION;
+
+  private static final String compressedFileName = "compressionTest.pcl";
+  private static final String plainFileName = "compressionTest.tst";
+
+  private static final ByteBufferPool bufferPool = new ByteBufferPool(pageSize);
+  private static Path storagePath;
+  private static String storageName;
+
+  private final ClosableLinkedContainer<Long, File> files = new ClosableLinkedContainer<>(1024);
+
+  private CASDiskWriteAheadLog writeAheadLog;
+  private WOWCache wowCache;
+
+  @BeforeClass
+  public static void beforeClass() {
+    GlobalConfiguration.STORAGE_EXCLUSIVE_FILE_ACCESS.setValue(Boolean.FALSE);
+    GlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+
+    storageName = "WOWCachePageCompressionTest";
+    storagePath = Paths.get(buildDirectory).resolve(storageName);
+  }
+
+  @Before
+  public void beforeMethod() throws Exception {
+    FileUtils.deleteRecursively(storagePath.toFile());
+    Files.createDirectories(storagePath);
+
+    writeAheadLog =
+        new CASDiskWriteAheadLog(
+            storageName,
+            storagePath,
+            storagePath,
+            12_000,
+            128,
+            null,
+            null,
+            Integer.MAX_VALUE,
+            Integer.MAX_VALUE,
+            25,
+            true,
+            Locale.US,
+            -1,
+            1000,
+            false,
+            false,
+            true,
+            10);
+  }
+
+  @After
+  public void afterMethod() throws IOException {
+    if (wowCache != null) {
+      wowCache.delete();
+      wowCache = null;
+    }
+
+    writeAheadLog.delete();
+    FileUtils.deleteRecursively(storagePath.toFile());
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    bufferPool.clear();
+
+    GlobalConfiguration.STORAGE_EXCLUSIVE_FILE_ACCESS.setValue(Boolean.TRUE);
+    GlobalConfiguration.FILE_LOCK.setValue(Boolean.TRUE);
+  }
+
+  @Test
+  public void testCompressedPagesAfterReopen() throws Exception {
+    openCache(ChecksumMode.StoreAndVerify, ".pcl");
+
+    final long compressedFileId = wowCache.addFile(compressedFileName);
+    final long plainFileId = wowCache.addFile(plainFileName);
+
+    final byte[][] pageData = new byte[100][];
+    for (int i = 0; i < pageData.length; i++) {
+      pageData[i] = compressibleData(i);
+    }
+
+    writePages(compressedFileId, pageData);
+    writePages(plainFileId, pageData);
+    wowCache.flush();
+
+    final String compressedNativeName = wowCache.nativeFileNameById(compressedFileId);
+    final String plainNativeName = wowCache.nativeFileNameById(plainFileId);
+
+    // only files which match the configured suffix are compressed
+    for (int i = 0; i < pageData.length; i++) {
+      Assert.assertEquals(
+          WOWCache.MAGIC_NUMBER_WITH_CHECKSUM_COMPRESSED, storedMagicNumber(compressedNativeName, i));
+      Assert.assertEquals(WOWCache.MAGIC_NUMBER_WITH_CHECKSUM, storedMagicNumber(plainNativeName, i));
+    }
+
+    reopenCache(ChecksumMode.StoreAndThrow, ".pcl");
+
+    assertPages(wowCache.loadFile(compressedFileName), pageData);
+    assertPages(wowCache.loadFile(plainFileName), pageData);
+
+    // pages are read by batches too
+    final CachePointer[] pointers = wowCache.loadPages(wowCache.fileIdByName(compressedFileName),
+        10, 8, true);
+    Assert.assertEquals(8, pointers.length);
+    for (int i = 0; i < pointers.length; i++) {
+      assertPage(pointers[i], pageData[i + 10]);
+      pointers[i].decrementReadersReferrer();
+    }
+
+    // compressed pages are read once compression is switched off
+    reopenCache(ChecksumMode.StoreAndThrow, null);
+    assertPages(wowCache.loadFile(compressedFileName), pageData);
+  }
+
+  @Test
+  public void testFileWithCompressedAndPlainPages() throws Exception {
+    openCache(ChecksumMode.StoreAndVerify, ".pcl");
+
+    final long fileId = wowCache.addFile(compressedFileName);
+    final Random random = new Random(42);
+
+    // content which does not fit into less amount of disk blocks is stored as is
+    final byte[][] pageData = new byte[40][];
+    for (int i = 0; i < pageData.length; i++) {
+      if (i % 2 == 0) {
+        pageData[i] = compressibleData(i);
+      } else {
+        pageData[i] = new byte[dataSize];
+        random.nextBytes(pageData[i]);
+      }
+    }
+
+    writePages(fileId, pageData);
+    wowCache.flush();
+
+    final String nativeFileName = wowCache.nativeFileNameById(fileId);
+    for (int i = 0; i < pageData.length; i++) {
+      Assert.assertEquals(
+          i % 2 == 0
+              ? WOWCache.MAGIC_NUMBER_WITH_CHECKSUM_COMPRESSED
+              : WOWCache.MAGIC_NUMBER_WITH_CHECKSUM,
+          storedMagicNumber(nativeFileName, i));
+    }
+
+    // pages written without compression are overwritten by compressed ones and vice versa
+    reopenCache(ChecksumMode.StoreAndThrow, null);
+    final long plainFileId = wowCache.loadFile(compressedFileName);
+    final byte[][] updatedData = pageData.clone();
+    for (int i = 0; i < 10; i++) {
+      updatedData[i] = compressibleData(i + 1_000);
+    }
+    writePages(plainFileId, updatedData);
+    wowCache.flush();
+
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(WOWCache.MAGIC_NUMBER_WITH_CHECKSUM, storedMagicNumber(nativeFileName, i));
+    }
+
+    reopenCache(ChecksumMode.StoreAndThrow, ".pcl");
+    final long compressedFileId = wowCache.loadFile(compressedFileName);
+    assertPages(compressedFileId, updatedData);
+
+    for (int i = 1; i < 10; i += 2) {
+      updatedData[i] = compressibleData(i + 2_000);
+    }
+    writePages(compressedFileId, updatedData);
+    wowCache.flush();
+
+    for (int i = 1; i < 10; i += 2) {
+      Assert.assertEquals(
+          WOWCache.MAGIC_NUMBER_WITH_CHECKSUM_COMPRESSED, storedMagicNumber(nativeFileName, i));
+    }
+
+    reopenCache(ChecksumMode.StoreAndThrow, ".pcl");
+    assertPages(wowCache.loadFile(compressedFileName), updatedData);
+  }
+
+  @Test
+  public void testCheckStoredCompressedPages() throws Exception {
+    openCache(ChecksumMode.StoreAndVerify, ".pcl");
+
+    final long fileId = wowCache.addFile(compressedFileName);
+    final byte[][] pageData = new byte[20][];
+    for (int i = 0; i < pageData.length; i++) {
+      pageData[i] = compressibleData(i);
+    }
+
+    writePages(fileId, pageData);
+    wowCache.flush();
+
+    Assert.assertEquals(0, wowCache.checkStoredPages(null).length);
+
+    // content of the page is changed after compression
+    final String nativeFileName = wowCache.nativeFileNameById(fileId);
+    wowCache.close();
+    wowCache = null;
+
+    final File file =
+        new AsyncFile(
+            storagePath.resolve(nativeFileName), pageSize, false, Executors.newCachedThreadPool());
+    file.open();
+    final ByteBuffer compressedSize = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder());
+    file.read(3L * pageSize + 12, compressedSize, true);
+    // overwrite the tail of the compressed content
+    final int lastByte = compressedSize.getInt(0) + 15;
+    file.write(
+        3L * pageSize + lastByte - 8,
+        ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}).order(ByteOrder.nativeOrder()));
+    file.close();
+
+    openCache(ChecksumMode.StoreAndVerify, ".pcl");
+    wowCache.loadFile(compressedFileName);
+
+    Assert.assertArrayEquals(
+        new PageDataVerificationError[]{
+            new PageDataVerificationError(false, true, 3, compressedFileName)},
+        wowCache.checkStoredPages(null));
+  }
+
+  @Test
+  public void testCompressedPagesWithoutChecksum() throws Exception {
+    openCache(ChecksumMode.Off, ".pcl");
+
+    final long fileId = wowCache.addFile(compressedFileName);
+    final byte[][] pageData = new byte[50][];
+    for (int i = 0; i < pageData.length; i++) {
+      pageData[i] = compressibleData(i);
+    }
+
+    writePages(fileId, pageData);
+    wowCache.flush();
+
+    final String nativeFileName = wowCache.nativeFileNameById(fileId);
+    for (int i = 0; i < pageData.length; i++) {
+      Assert.assertEquals(
+          WOWCache.MAGIC_NUMBER_WITHOUT_CHECKSUM_COMPRESSED, storedMagicNumber(nativeFileName, i));
+    }
+
+    // pages are restored whether checksums are verified or not
+    reopenCache(ChecksumMode.Off, ".pcl");
+    final long reopenedFileId = wowCache.loadFile(compressedFileName);
+    assertPages(reopenedFileId, pageData);
+
+    reopenCache(ChecksumMode.StoreAndThrow, ".pcl");
+    assertPages(wowCache.loadFile(compressedFileName), pageData);
+    Assert.assertEquals(0, wowCache.checkStoredPages(null).length);
+  }
+
+  private void openCache(final ChecksumMode checksumMode, final String compressedFiles)
+      throws Exception {
+    wowCache =
+        new WOWCache(
+            pageSize,
+            false,
+            bufferPool,
+            writeAheadLog,
+            new DoubleWriteLogNoOP(),
+            10,
+            10,
+            100,
+            storagePath,
+            storageName,
+            StringSerializer.INSTANCE,
+            files,
+            1,
+            checksumMode,
+            null,
+            null,
+            false,
+            Executors.newCachedThreadPool(),
+            compressedFiles,
+            false,
+            false);
+    wowCache.loadRegisteredFiles();
+  }
+
+  private void reopenCache(final ChecksumMode checksumMode, final String compressedFiles)
+      throws Exception {
+    wowCache.close();
+    openCache(checksumMode, compressedFiles);
+  }
+
+  private void writePages(final long fileId, final byte[][] pageData) throws IOException {
+    for (int i = 0; i < pageData.length; i++) {
+      while (wowCache.getFilledUpTo(fileId) <= i) {
+        wowCache.allocateNewPage(fileId);
+      }
+
+      final CachePointer cachePointer = wowCache.load(fileId, i, new ModifiableBoolean(), false);
+      cachePointer.acquireExclusiveLock();
+
+      final ByteBuffer buffer = cachePointer.getBuffer();
+      assert buffer != null;
+      buffer.put(DurablePage.NEXT_FREE_POSITION, pageData[i]);
+      cachePointer.releaseExclusiveLock();
+
+      wowCache.store(fileId, i, cachePointer);
+      cachePointer.decrementReadersReferrer();
+    }
+  }
+
+  private void assertPages(final long fileId, final byte[][] pageData) throws IOException {
+    for (int i = 0; i < pageData.length; i++) {
+      final CachePointer cachePointer = wowCache.load(fileId, i, new ModifiableBoolean(), true);
+      assertPage(cachePointer, pageData[i]);
+      cachePointer.decrementReadersReferrer();
+    }
+  }
+
+  private static void assertPage(final CachePointer cachePointer, final byte[] data) {
+    final ByteBuffer buffer = cachePointer.getBuffer();
+    assert buffer != null;
+
+    final byte[] content = new byte[dataSize];
+    buffer.get(DurablePage.NEXT_FREE_POSITION, content);
+    Assert.assertArrayEquals(data, content);
+  }
+
+  private static long storedMagicNumber(final String nativeFileName, final int pageIndex)
+      throws IOException {
+    final File fileClassic =
+        new AsyncFile(
+            storagePath.resolve(nativeFileName), pageSize, false, Executors.newCachedThreadPool());
+    fileClassic.open();
+    try {
+      final ByteBuffer magicNumber = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+      fileClassic.read((long) pageIndex * pageSize, magicNumber, true);
+      return magicNumber.getLong(0);
+    } finally {
+      fileClassic.close();
+    }
+  }
+
+  /**
+   * @return Content of the page which looks like serialized records, so it is well compressed.
+   */
+  private static byte[] compressibleData(final int seed) {
+    final byte[] data = new byte[dataSize];
+    final byte[] record = ("{\"name\":\"name" + seed + "\",\"value\":" + seed + "}").getBytes();
+    for (int i = 0; i < dataSize / 2; i += record.length) {
+      System.arraycopy(record, 0, data, i, Math.min(record.length, dataSize / 2 - i));
+    }
+    return data;
+  }
+}
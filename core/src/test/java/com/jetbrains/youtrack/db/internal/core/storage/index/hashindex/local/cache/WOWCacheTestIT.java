@@ -225,6 +225,175 @@ public class WOWCacheTestIT {
     }
   }
 
+  @Test
+  public void testLoadPages() throws IOException {
+    Random random = new Random();
+
+    byte[][] pageData = new byte[20][];
+    long fileId = wowCache.addFile(fileName);
+
+    for (int i = 0; i < pageData.length; i++) {
+      byte[] data = new byte[8];
+      random.nextBytes(data);
+
+      pageData[i] = data;
+
+      final int pageIndex = wowCache.allocateNewPage(fileId);
+      Assert.assertEquals(i, pageIndex);
+      final CachePointer cachePointer = wowCache.load(fileId, i, new ModifiableBoolean(), false);
+      cachePointer.acquireExclusiveLock();
+
+      ByteBuffer buffer = cachePointer.getBuffer();
+      assert buffer != null;
+
+      buffer.put(DurablePage.NEXT_FREE_POSITION, data);
+      cachePointer.releaseExclusiveLock();
+
+      wowCache.store(fileId, i, cachePointer);
+      cachePointer.decrementReadersReferrer();
+    }
+
+    wowCache.flush();
+
+    CachePointer[] pointers = wowCache.loadPages(fileId, 2, 8, true);
+    Assert.assertEquals(8, pointers.length);
+    for (int i = 0; i < pointers.length; i++) {
+      Assert.assertEquals(i + 2, pointers[i].getPageIndex());
+
+      byte[] data = new byte[8];
+      ByteBuffer buffer = pointers[i].getBuffer();
+      assert buffer != null;
+      buffer.get(DurablePage.NEXT_FREE_POSITION, data);
+      pointers[i].decrementReadersReferrer();
+
+      Assert.assertArrayEquals(pageData[i + 2], data);
+    }
+
+    // pages are not read past the end of the file
+    pointers = wowCache.loadPages(fileId, 16, 8, true);
+    Assert.assertEquals(4, pointers.length);
+    for (CachePointer pointer : pointers) {
+      pointer.decrementReadersReferrer();
+    }
+
+    final long stamp = wowCache.getPagesStamp(fileId);
+    pointers = wowCache.loadPages(fileId, 10, 4, true);
+    Assert.assertEquals(4, pointers.length);
+    Assert.assertSame(
+        pointers[0], wowCache.acceptLoadedPage(fileId, 10, pointers[0], stamp));
+
+    // page changed after it was loaded is taken from the write cache
+    final CachePointer changedPointer =
+        wowCache.load(fileId, 12, new ModifiableBoolean(), false);
+    wowCache.store(fileId, 12, changedPointer);
+    Assert.assertNotEquals(stamp, wowCache.getPagesStamp(fileId));
+
+    final CachePointer acceptedPointer =
+        wowCache.acceptLoadedPage(fileId, 12, pointers[2], stamp);
+    Assert.assertSame(changedPointer, acceptedPointer);
+    acceptedPointer.decrementReadersReferrer();
+    Assert.assertNull(wowCache.acceptLoadedPage(fileId, 11, pointers[1], stamp));
+
+    for (CachePointer pointer : pointers) {
+      pointer.decrementReadersReferrer();
+    }
+    changedPointer.decrementReadersReferrer();
+
+    // pages are read only till the page held by write cache
+    pointers = wowCache.loadPages(fileId, 10, 4, true);
+    Assert.assertEquals(2, pointers.length);
+    for (CachePointer pointer : pointers) {
+      pointer.decrementReadersReferrer();
+    }
+  }
+
+  @Test
+  public void testLoadMappedReadOnly() throws Exception {
+    Random random = new Random();
+
+    byte[][] pageData = new byte[20][];
+    long fileId = wowCache.addFile(fileName);
+
+    for (int i = 0; i < pageData.length; i++) {
+      byte[] data = new byte[8];
+      random.nextBytes(data);
+
+      pageData[i] = data;
+
+      final int pageIndex = wowCache.allocateNewPage(fileId);
+      Assert.assertEquals(i, pageIndex);
+      final CachePointer cachePointer = wowCache.load(fileId, i, new ModifiableBoolean(), false);
+      cachePointer.acquireExclusiveLock();
+
+      ByteBuffer buffer = cachePointer.getBuffer();
+      assert buffer != null;
+
+      buffer.put(DurablePage.NEXT_FREE_POSITION, data);
+      cachePointer.releaseExclusiveLock();
+
+      wowCache.store(fileId, i, cachePointer);
+      cachePointer.decrementReadersReferrer();
+    }
+
+    wowCache.close();
+
+    wowCache =
+        new WOWCache(
+            pageSize,
+            false,
+            bufferPool,
+            writeAheadLog,
+            new DoubleWriteLogNoOP(),
+            10,
+            10,
+            100,
+            storagePath,
+            storageName,
+            StringSerializer.INSTANCE,
+            files,
+            1,
+            ChecksumMode.StoreAndVerify,
+            null,
+            null,
+            false,
+            Executors.newCachedThreadPool(),
+            null,
+            false,
+            true);
+    wowCache.loadRegisteredFiles();
+    fileId = wowCache.loadFile(fileName);
+
+    for (int i = 0; i < pageData.length; i++) {
+      final CachePointer cachePointer = wowCache.load(fileId, i, new ModifiableBoolean(), true);
+      byte[] data = new byte[8];
+      ByteBuffer buffer = cachePointer.getBuffer();
+      assert buffer != null;
+      buffer.get(DurablePage.NEXT_FREE_POSITION, data);
+
+      // mapped memory is protected from writes, so writes are rejected before they reach it
+      Assert.assertTrue(buffer.isReadOnly());
+      try {
+        cachePointer.acquireExclusiveLock();
+        Assert.fail();
+      } catch (StorageException e) {
+        // expected
+      }
+      cachePointer.decrementReadersReferrer();
+
+      Assert.assertArrayEquals(pageData[i], data);
+    }
+
+    Assert.assertNull(wowCache.load(fileId, pageData.length, new ModifiableBoolean(), true));
+    Assert.assertEquals(0, wowCache.loadPages(fileId, 0, 4, true).length);
+
+    try {
+      wowCache.allocateNewPage(fileId);
+      Assert.fail();
+    } catch (StorageException e) {
+      // expected
+    }
+  }
+
   @Test
   public void testLoadStoreEncrypted() throws Exception {
     deleteCacheAndDeleteFile();
@@ -0,0 +1,279 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
+
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.common.directmemory.ByteBufferPool;
+import com.jetbrains.youtrack.db.internal.common.directmemory.DirectMemoryAllocator.Intention;
+import com.jetbrains.youtrack.db.internal.common.directmemory.Pointer;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.UTF8Serializer;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.CacheEntry;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.CacheEntryImpl;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.CachePointer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NormalizedKeyBTreeBucketTest {
+
+  private final List<CacheEntry> cacheEntries = new ArrayList<>();
+
+  @Before
+  public void before() {
+    cacheEntries.clear();
+  }
+
+  @After
+  public void after() {
+    for (final CacheEntry cacheEntry : cacheEntries) {
+      cacheEntry.releaseExclusiveLock();
+      cacheEntry.getCachePointer().decrementReferrer();
+    }
+  }
+
+  @Test
+  public void testAddRemoveAtBorders() {
+    final NormalizedKeyBTreeBucket<String> bucket = new NormalizedKeyBTreeBucket<>(newPage());
+    bucket.init(true);
+
+    final List<String> keys = new ArrayList<>();
+    for (int i = 100; i < 200; i++) {
+      keys.add("key00" + i);
+      Assert.assertTrue(addEntry(bucket, keys.size() - 1, keys.getLast()));
+    }
+    assertContent(bucket, keys);
+    Assert.assertEquals("key00".length() + 1, bucket.getPrefixLength());
+
+    // key at the start which shares only part of the prefix
+    keys.addFirst("key0001");
+    Assert.assertTrue(addEntry(bucket, 0, keys.getFirst()));
+    assertContent(bucket, keys);
+    Assert.assertEquals("key00".length(), bucket.getPrefixLength());
+
+    // key at the end which shares the whole prefix
+    keys.addLast("key00999");
+    Assert.assertTrue(addEntry(bucket, keys.size() - 1, keys.getLast()));
+    assertContent(bucket, keys);
+    Assert.assertEquals("key00".length(), bucket.getPrefixLength());
+
+    // key at the start which does not share prefix at all
+    keys.addFirst("a");
+    Assert.assertTrue(addEntry(bucket, 0, keys.getFirst()));
+    assertContent(bucket, keys);
+    Assert.assertEquals(0, bucket.getPrefixLength());
+
+    // key at the end which does not share prefix at all
+    keys.addLast("z");
+    Assert.assertTrue(addEntry(bucket, keys.size() - 1, keys.getLast()));
+    assertContent(bucket, keys);
+
+    while (keys.size() > 2) {
+      bucket.removeLeafEntry(0);
+      keys.removeFirst();
+      assertContent(bucket, keys);
+
+      bucket.removeLeafEntry(keys.size() - 1);
+      keys.removeLast();
+      assertContent(bucket, keys);
+    }
+
+    bucket.removeLeafEntry(0);
+    bucket.removeLeafEntry(0);
+    Assert.assertTrue(bucket.isEmpty());
+
+    // prefix is calculated again once empty bucket is filled
+    keys.clear();
+    keys.add("prefix1");
+    keys.add("prefix2");
+    Assert.assertTrue(addEntry(bucket, 0, "prefix1"));
+    Assert.assertTrue(addEntry(bucket, 1, "prefix2"));
+    assertContent(bucket, keys);
+    Assert.assertEquals("prefix".length(), bucket.getPrefixLength());
+  }
+
+  @Test
+  public void testPrefixIsRecalculatedOnSplitAndMerge() {
+    final NormalizedKeyBTreeBucket<String> bucket = new NormalizedKeyBTreeBucket<>(newPage());
+    bucket.init(true);
+
+    final List<String> keys = new ArrayList<>();
+    int counter = 0;
+    while (true) {
+      final String key = (counter < 100 ? "aaaa" : "abbb") + String.format("%06d", counter);
+      if (!addEntry(bucket, keys.size(), key)) {
+        break;
+      }
+      keys.add(key);
+      counter++;
+    }
+    Assert.assertTrue(keys.size() > 101);
+    assertContent(bucket, keys);
+    Assert.assertEquals(1, bucket.getPrefixLength());
+
+    // split of the bucket as it is performed by the tree
+    final int splitIndex = 100;
+    final List<byte[]> rightEntries = new ArrayList<>();
+    for (int i = splitIndex; i < bucket.size(); i++) {
+      rightEntries.add(bucket.getRawEntry(i));
+    }
+    bucket.shrink(splitIndex);
+
+    final NormalizedKeyBTreeBucket<String> rightBucket =
+        new NormalizedKeyBTreeBucket<>(newPage());
+    rightBucket.init(true);
+    rightBucket.addAll(rightEntries);
+
+    assertContent(bucket, keys.subList(0, splitIndex));
+    assertContent(rightBucket, keys.subList(splitIndex, keys.size()));
+    Assert.assertEquals("aaaa0000".length(), bucket.getPrefixLength());
+    Assert.assertEquals(
+        commonPrefixLength(keys.subList(splitIndex, keys.size())), rightBucket.getPrefixLength());
+    Assert.assertTrue(rightBucket.getPrefixLength() >= "abbb000".length());
+
+    // freed space is used by the keys which share longer prefix
+    final String key = "aaaa000" + "099x";
+    Assert.assertTrue(addEntry(bucket, splitIndex, key));
+    final List<String> leftKeys = new ArrayList<>(keys.subList(0, splitIndex));
+    leftKeys.add(key);
+    assertContent(bucket, leftKeys);
+    bucket.removeLeafEntry(splitIndex);
+
+    // merge of the buckets back
+    final List<byte[]> mergedEntries = new ArrayList<>();
+    for (int i = 0; i < rightBucket.size(); i++) {
+      mergedEntries.add(rightBucket.getRawEntry(i));
+    }
+    bucket.addAll(mergedEntries);
+
+    assertContent(bucket, keys);
+    Assert.assertEquals(1, bucket.getPrefixLength());
+  }
+
+  @Test
+  public void testKeysShareWholePrefix() {
+    final NormalizedKeyBTreeBucket<String> bucket = new NormalizedKeyBTreeBucket<>(newPage());
+    bucket.init(true);
+
+    // single key is the prefix itself
+    final List<String> keys = new ArrayList<>();
+    keys.add("common");
+    Assert.assertTrue(addEntry(bucket, 0, "common"));
+    assertContent(bucket, keys);
+    Assert.assertEquals("common".length(), bucket.getPrefixLength());
+
+    keys.add("commonA");
+    keys.add("commonB");
+    Assert.assertTrue(addEntry(bucket, 1, "commonA"));
+    Assert.assertTrue(addEntry(bucket, 2, "commonB"));
+
+    // prefix is not shortened by the keys which start from it
+    bucket.shrink(bucket.size());
+    assertContent(bucket, keys);
+    Assert.assertEquals("common".length(), bucket.getPrefixLength());
+
+    Assert.assertEquals(-1, bucket.find(bytes("comm"), false));
+    Assert.assertEquals(-4, bucket.find(bytes("comm"), true));
+    Assert.assertEquals(-4, bucket.find(bytes("common"), true));
+    Assert.assertEquals(-4, bucket.find(bytes("commonC"), false));
+    Assert.assertEquals(-1, bucket.find(bytes("a"), false));
+    Assert.assertEquals(-4, bucket.find(bytes("z"), false));
+    Assert.assertEquals(-2, bucket.find(bytes("common0"), false));
+
+    Assert.assertTrue(bucket.compareKey(0, bytes("common"), false) == 0);
+    Assert.assertTrue(bucket.compareKey(1, bytes("common"), false) > 0);
+    Assert.assertTrue(bucket.compareKey(1, bytes("commonA"), true) < 0);
+    Assert.assertTrue(bucket.compareKey(2, bytes("commonA"), false) > 0);
+    Assert.assertTrue(bucket.compareKey(2, bytes("d"), false) < 0);
+  }
+
+  @Test
+  public void testEntriesAreReadAfterReopen() {
+    final CacheEntry cacheEntry = newPage();
+    NormalizedKeyBTreeBucket<String> bucket = new NormalizedKeyBTreeBucket<>(cacheEntry);
+    bucket.init(true);
+
+    final List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      keys.add("reopened" + String.format("%03d", i));
+      Assert.assertTrue(addEntry(bucket, i, keys.getLast()));
+    }
+    bucket.setLeftSibling(12);
+    bucket.setRightSibling(14);
+    final int prefixLength = bucket.getPrefixLength();
+    Assert.assertTrue(prefixLength > 0);
+
+    // copy content of the page as it would be loaded from the disk
+    final CacheEntry reopenedEntry = newPage();
+    final Pointer source = cacheEntry.getCachePointer().getPointer();
+    final Pointer destination = reopenedEntry.getCachePointer().getPointer();
+    destination.getNativeByteBuffer().put(0, source.getNativeByteBuffer(), 0,
+        NormalizedKeyBTreeBucket.MAX_PAGE_SIZE_BYTES);
+
+    bucket = new NormalizedKeyBTreeBucket<>(reopenedEntry);
+    Assert.assertTrue(bucket.isLeaf());
+    Assert.assertEquals(12, bucket.getLeftSibling());
+    Assert.assertEquals(14, bucket.getRightSibling());
+    Assert.assertEquals(prefixLength, bucket.getPrefixLength());
+    assertContent(bucket, keys);
+
+    bucket.removeLeafEntry(50);
+    keys.remove(50);
+    assertContent(bucket, keys);
+  }
+
+  private CacheEntry newPage() {
+    final ByteBufferPool bufferPool = ByteBufferPool.instance(null);
+    final Pointer pointer = bufferPool.acquireDirect(true, Intention.TEST);
+
+    final CachePointer cachePointer = new CachePointer(pointer, bufferPool, 0, 0);
+    cachePointer.incrementReferrer();
+
+    final CacheEntry cacheEntry = new CacheEntryImpl(0, 0, cachePointer, false, null);
+    cacheEntry.acquireExclusiveLock();
+
+    cacheEntries.add(cacheEntry);
+    return cacheEntry;
+  }
+
+  private static boolean addEntry(
+      final NormalizedKeyBTreeBucket<String> bucket, final int index, final String key) {
+    return bucket.addLeafEntry(
+        index, bytes(key), UTF8Serializer.INSTANCE.serializeNativeAsWhole(key), value(key));
+  }
+
+  private static void assertContent(
+      final NormalizedKeyBTreeBucket<String> bucket, final List<String> keys) {
+    Assert.assertEquals(keys.size(), bucket.size());
+    for (int i = 0; i < keys.size(); i++) {
+      final String key = keys.get(i);
+      Assert.assertArrayEquals(bytes(key), bucket.getNormalizedKey(i));
+      Assert.assertEquals(key, bucket.getKey(i, UTF8Serializer.INSTANCE));
+      Assert.assertEquals(value(key), bucket.getValue(i));
+      Assert.assertEquals(i, bucket.find(bytes(key), false));
+    }
+  }
+
+  private static int commonPrefixLength(final List<String> keys) {
+    final String first = keys.getFirst();
+    int prefixLength = first.length();
+    for (final String key : keys) {
+      int i = 0;
+      while (i < prefixLength && i < key.length() && key.charAt(i) == first.charAt(i)) {
+        i++;
+      }
+      prefixLength = i;
+    }
+    return prefixLength;
+  }
+
+  private static byte[] bytes(final String key) {
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static RID value(final String key) {
+    return new RecordId(key.length(), key.hashCode() & Integer.MAX_VALUE);
+  }
+}
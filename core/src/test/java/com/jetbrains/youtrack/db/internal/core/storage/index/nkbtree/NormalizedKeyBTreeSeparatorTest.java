@@ -0,0 +1,49 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NormalizedKeyBTreeSeparatorTest {
+
+  @Test
+  public void separatorOfKeysWithCommonPrefix() {
+    final byte[] left = bytes("http://example.com/path/alpha");
+    final byte[] right = bytes("http://example.com/path/beta");
+
+    final byte[] separator = NormalizedKeyBTreeValue.shortestSeparator(left, right);
+    Assert.assertArrayEquals(bytes("http://example.com/path/b"), separator);
+    assertSeparates(left, right, separator);
+  }
+
+  @Test
+  public void separatorWhenLeftKeyIsPrefixOfRightKey() {
+    final byte[] left = bytes("abc");
+    final byte[] right = bytes("abcdef");
+
+    final byte[] separator = NormalizedKeyBTreeValue.shortestSeparator(left, right);
+    Assert.assertArrayEquals(bytes("abcd"), separator);
+    assertSeparates(left, right, separator);
+  }
+
+  @Test
+  public void separatorOfUnsignedBytes() {
+    final byte[] left = new byte[]{1, 0x7F, 5};
+    final byte[] right = new byte[]{1, (byte) 0x80, 0};
+
+    final byte[] separator = NormalizedKeyBTreeValue.shortestSeparator(left, right);
+    Assert.assertArrayEquals(new byte[]{1, (byte) 0x80}, separator);
+    assertSeparates(left, right, separator);
+  }
+
+  private static void assertSeparates(
+      final byte[] left, final byte[] right, final byte[] separator) {
+    Assert.assertTrue(Arrays.compareUnsigned(left, separator) < 0);
+    Assert.assertTrue(Arrays.compareUnsigned(separator, right) <= 0);
+  }
+
+  private static byte[] bytes(final String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,460 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree;
+
+import com.jetbrains.youtrack.db.api.DatabaseSession;
+import com.jetbrains.youtrack.db.api.YouTrackDB;
+import com.jetbrains.youtrack.db.api.config.YouTrackDBConfig;
+import com.jetbrains.youtrack.db.api.exception.BaseException;
+import com.jetbrains.youtrack.db.api.exception.HighLevelException;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.common.io.FileUtils;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.UTF8Serializer;
+import com.jetbrains.youtrack.db.internal.common.util.RawPair;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.db.YouTrackDBImpl;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.AbstractPaginatedStorage;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.atomicoperations.AtomicOperationsManager;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NormalizedKeyBTreeValueTestIT {
+
+  private static final PropertyType[] KEY_TYPES = {PropertyType.STRING};
+
+  private AtomicOperationsManager atomicOperationsManager;
+  private NormalizedKeyBTreeValue<String> tree;
+  private YouTrackDB youTrackDB;
+
+  private String buildDirectory;
+  private String dbName;
+
+  @Before
+  public void before() throws Exception {
+    buildDirectory =
+        System.getProperty("buildDirectory", ".")
+            + File.separator
+            + NormalizedKeyBTreeValueTestIT.class.getSimpleName();
+
+    dbName = "localNormalizedKeyBTreeTest";
+    final File dbDirectory = new File(buildDirectory, dbName);
+    FileUtils.deleteRecursively(dbDirectory);
+
+    youTrackDB = new YouTrackDBImpl("plocal:" + buildDirectory, YouTrackDBConfig.builder().build());
+    youTrackDB.execute(
+        "create database " + dbName + " plocal users ( admin identified by 'admin' role admin)");
+
+    final AbstractPaginatedStorage storage = storage();
+    tree = new NormalizedKeyBTreeValue<>("nkBTree", ".nkt", ".nkn", storage);
+    atomicOperationsManager = storage.getAtomicOperationsManager();
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null,
+        atomicOperation -> tree.create(atomicOperation, UTF8Serializer.INSTANCE, KEY_TYPES, 1));
+  }
+
+  @After
+  public void afterMethod() {
+    youTrackDB.drop(dbName);
+    youTrackDB.close();
+  }
+
+  @Test
+  public void testKeyPut() throws Exception {
+    final int keysCount = 100_000;
+    final int rollbackInterval = 100;
+
+    final NavigableMap<String, RID> keyValues = new TreeMap<>();
+    for (int i = 0; i < keysCount / rollbackInterval; i++) {
+      for (int n = 0; n < 2; n++) {
+        final int iterationCounter = i;
+        final int rollbackCounter = n;
+        try {
+          atomicOperationsManager.executeInsideAtomicOperation(
+              null,
+              atomicOperation -> {
+                for (int j = 0; j < rollbackInterval; j++) {
+                  final int val = iterationCounter * rollbackInterval + j;
+                  final String key = Integer.toString(val);
+                  tree.put(atomicOperation, key, new RecordId(val % 32000, val));
+                  if (rollbackCounter == 1) {
+                    keyValues.put(key, new RecordId(val % 32000, val));
+                  }
+                }
+                if (rollbackCounter == 0) {
+                  throw new RollbackException();
+                }
+              });
+        } catch (RollbackException ignore) {
+        }
+      }
+    }
+
+    Assert.assertEquals(keysCount, tree.size());
+    Assert.assertEquals(keyValues.firstKey(), tree.firstKey());
+    Assert.assertEquals(keyValues.lastKey(), tree.lastKey());
+
+    for (int i = 0; i < keysCount; i++) {
+      Assert.assertEquals(
+          i + " key is absent", new RecordId(i % 32000, i), tree.get(Integer.toString(i)));
+    }
+    for (int i = keysCount; i < 2 * keysCount; i++) {
+      Assert.assertNull(tree.get(Integer.toString(i)));
+    }
+  }
+
+  @Test
+  public void testKeyPutRandomUniform() throws Exception {
+    final NavigableMap<String, RID> keyValues = new TreeMap<>();
+    final long seed = System.nanoTime();
+    System.out.println("testKeyPutRandomUniform seed : " + seed);
+    final Random random = new Random(seed);
+
+    putRandomKeys(keyValues, random, 100_000);
+
+    Assert.assertEquals(keyValues.size(), tree.size());
+    Assert.assertEquals(keyValues.firstKey(), tree.firstKey());
+    Assert.assertEquals(keyValues.lastKey(), tree.lastKey());
+    for (Map.Entry<String, RID> entry : keyValues.entrySet()) {
+      Assert.assertEquals(entry.getValue(), tree.get(entry.getKey()));
+    }
+  }
+
+  @Test
+  public void testKeyUpdate() throws Exception {
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null, atomicOperation -> tree.put(atomicOperation, "key", new RecordId(1, 1)));
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null, atomicOperation -> tree.put(atomicOperation, "key", new RecordId(2, 2)));
+
+    Assert.assertEquals(1, tree.size());
+    Assert.assertEquals(new RecordId(2, 2), tree.get("key"));
+  }
+
+  @Test
+  public void testKeyDelete() throws Exception {
+    final int keysCount = 100_000;
+    final NavigableMap<String, RID> keyValues = new TreeMap<>();
+    for (int i = 0; i < keysCount; i++) {
+      final int val = i;
+      final String key = Integer.toString(val);
+      atomicOperationsManager.executeInsideAtomicOperation(
+          null,
+          atomicOperation -> tree.put(atomicOperation, key, new RecordId(val % 32000, val)));
+      keyValues.put(key, new RecordId(val % 32000, val));
+    }
+
+    // removals which are rolled back do not change the tree
+    try {
+      atomicOperationsManager.executeInsideAtomicOperation(
+          null,
+          atomicOperation -> {
+            for (int i = 0; i < keysCount; i += 2) {
+              tree.remove(atomicOperation, Integer.toString(i));
+            }
+            throw new RollbackException();
+          });
+    } catch (RollbackException ignore) {
+    }
+    Assert.assertEquals(keysCount, tree.size());
+
+    final Iterator<String> keysIterator = keyValues.keySet().iterator();
+    while (keysIterator.hasNext()) {
+      final String key = keysIterator.next();
+      if (Integer.parseInt(key) % 3 == 0) {
+        final RID[] removed = new RID[1];
+        atomicOperationsManager.executeInsideAtomicOperation(
+            null, atomicOperation -> removed[0] = tree.remove(atomicOperation, key));
+        Assert.assertEquals(keyValues.get(key), removed[0]);
+        keysIterator.remove();
+      }
+    }
+
+    Assert.assertEquals(keyValues.size(), tree.size());
+    Assert.assertEquals(keyValues.firstKey(), tree.firstKey());
+    Assert.assertEquals(keyValues.lastKey(), tree.lastKey());
+
+    for (int i = 0; i < keysCount; i++) {
+      final String key = Integer.toString(i);
+      if (i % 3 == 0) {
+        Assert.assertNull(tree.get(key));
+      } else {
+        Assert.assertEquals(new RecordId(i % 32000, i), tree.get(key));
+      }
+    }
+
+    // removal of absent key
+    final RID[] removed = new RID[1];
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null, atomicOperation -> removed[0] = tree.remove(atomicOperation, "absent"));
+    Assert.assertNull(removed[0]);
+  }
+
+  @Test
+  public void testKeyAddDeleteAll() throws Exception {
+    final int keysCount = 50_000;
+    for (int i = 0; i < keysCount; i++) {
+      final int val = i;
+      atomicOperationsManager.executeInsideAtomicOperation(
+          null,
+          atomicOperation ->
+              tree.put(atomicOperation, Integer.toString(val), new RecordId(val % 32000, val)));
+    }
+
+    for (int i = 0; i < keysCount; i++) {
+      final int val = i;
+      atomicOperationsManager.executeInsideAtomicOperation(
+          null, atomicOperation -> tree.remove(atomicOperation, Integer.toString(val)));
+    }
+
+    Assert.assertEquals(0, tree.size());
+    Assert.assertNull(tree.firstKey());
+    Assert.assertNull(tree.lastKey());
+    try (Stream<RawPair<String, RID>> stream = tree.allEntries()) {
+      Assert.assertEquals(0, stream.count());
+    }
+
+    // empty buckets are filled again
+    for (int i = 0; i < keysCount; i++) {
+      final int val = i;
+      atomicOperationsManager.executeInsideAtomicOperation(
+          null,
+          atomicOperation ->
+              tree.put(atomicOperation, Integer.toString(val), new RecordId(val % 32000, val)));
+    }
+    Assert.assertEquals(keysCount, tree.size());
+    for (int i = 0; i < keysCount; i++) {
+      Assert.assertEquals(new RecordId(i % 32000, i), tree.get(Integer.toString(i)));
+    }
+  }
+
+  @Test
+  public void testNullKey() throws Exception {
+    Assert.assertNull(tree.get(null));
+
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null, atomicOperation -> tree.put(atomicOperation, null, new RecordId(1, 1)));
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null, atomicOperation -> tree.put(atomicOperation, "key", new RecordId(2, 2)));
+
+    Assert.assertEquals(2, tree.size());
+    Assert.assertEquals(new RecordId(1, 1), tree.get(null));
+    Assert.assertEquals(new RecordId(2, 2), tree.get("key"));
+
+    // null key is not part of the ordered entries
+    Assert.assertEquals("key", tree.firstKey());
+    try (Stream<String> keys = tree.keyStream()) {
+      Assert.assertEquals(List.of("key"), keys.collect(Collectors.toList()));
+    }
+
+    final RID[] removed = new RID[1];
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null, atomicOperation -> removed[0] = tree.remove(atomicOperation, null));
+    Assert.assertEquals(new RecordId(1, 1), removed[0]);
+    Assert.assertNull(tree.get(null));
+    Assert.assertEquals(1, tree.size());
+  }
+
+  @Test
+  public void testIterateEntriesMajor() throws Exception {
+    final NavigableMap<String, RID> keyValues = new TreeMap<>();
+    final long seed = System.nanoTime();
+    System.out.println("testIterateEntriesMajor: " + seed);
+    final Random random = new Random(seed);
+
+    putRandomKeys(keyValues, random, 100_000);
+
+    final List<String> keys = new ArrayList<>(keyValues.keySet());
+    for (int i = 0; i < 100; i++) {
+      final String fromKey = searchKey(keys, random);
+      for (final boolean inclusive : new boolean[]{true, false}) {
+        try (Stream<RawPair<String, RID>> stream =
+            tree.iterateEntriesMajor(fromKey, inclusive, true)) {
+          assertEntries(keyValues.tailMap(fromKey, inclusive), stream);
+        }
+        try (Stream<RawPair<String, RID>> stream =
+            tree.iterateEntriesMajor(fromKey, inclusive, false)) {
+          assertEntries(keyValues.tailMap(fromKey, inclusive).descendingMap(), stream);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIterateEntriesMinor() throws Exception {
+    final NavigableMap<String, RID> keyValues = new TreeMap<>();
+    final long seed = System.nanoTime();
+    System.out.println("testIterateEntriesMinor: " + seed);
+    final Random random = new Random(seed);
+
+    putRandomKeys(keyValues, random, 100_000);
+
+    final List<String> keys = new ArrayList<>(keyValues.keySet());
+    for (int i = 0; i < 100; i++) {
+      final String toKey = searchKey(keys, random);
+      for (final boolean inclusive : new boolean[]{true, false}) {
+        try (Stream<RawPair<String, RID>> stream =
+            tree.iterateEntriesMinor(toKey, inclusive, true)) {
+          assertEntries(keyValues.headMap(toKey, inclusive), stream);
+        }
+        try (Stream<RawPair<String, RID>> stream =
+            tree.iterateEntriesMinor(toKey, inclusive, false)) {
+          assertEntries(keyValues.headMap(toKey, inclusive).descendingMap(), stream);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIterateEntriesBetween() throws Exception {
+    final NavigableMap<String, RID> keyValues = new TreeMap<>();
+    final long seed = System.nanoTime();
+    System.out.println("testIterateEntriesBetween: " + seed);
+    final Random random = new Random(seed);
+
+    putRandomKeys(keyValues, random, 100_000);
+
+    final List<String> keys = new ArrayList<>(keyValues.keySet());
+    for (int i = 0; i < 100; i++) {
+      String fromKey = searchKey(keys, random);
+      String toKey = searchKey(keys, random);
+      if (fromKey.compareTo(toKey) > 0) {
+        final String key = fromKey;
+        fromKey = toKey;
+        toKey = key;
+      }
+
+      for (final boolean fromInclusive : new boolean[]{true, false}) {
+        for (final boolean toInclusive : new boolean[]{true, false}) {
+          final NavigableMap<String, RID> expected =
+              keyValues.subMap(fromKey, fromInclusive, toKey, toInclusive);
+          try (Stream<RawPair<String, RID>> stream =
+              tree.iterateEntriesBetween(fromKey, fromInclusive, toKey, toInclusive, true)) {
+            assertEntries(expected, stream);
+          }
+          try (Stream<RawPair<String, RID>> stream =
+              tree.iterateEntriesBetween(fromKey, fromInclusive, toKey, toInclusive, false)) {
+            assertEntries(expected.descendingMap(), stream);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    final NavigableMap<String, RID> keyValues = new TreeMap<>();
+    final long seed = System.nanoTime();
+    System.out.println("testReopen: " + seed);
+    final Random random = new Random(seed);
+
+    putRandomKeys(keyValues, random, 50_000);
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null, atomicOperation -> tree.put(atomicOperation, null, new RecordId(1, 1)));
+
+    tree.close();
+    youTrackDB.close();
+
+    youTrackDB = new YouTrackDBImpl("plocal:" + buildDirectory, YouTrackDBConfig.builder().build());
+    tree = new NormalizedKeyBTreeValue<>("nkBTree", ".nkt", ".nkn", storage());
+    tree.load("nkBTree", 1, KEY_TYPES, UTF8Serializer.INSTANCE);
+
+    Assert.assertEquals(keyValues.size() + 1, tree.size());
+    Assert.assertEquals(new RecordId(1, 1), tree.get(null));
+    Assert.assertEquals(keyValues.firstKey(), tree.firstKey());
+    Assert.assertEquals(keyValues.lastKey(), tree.lastKey());
+    for (Map.Entry<String, RID> entry : keyValues.entrySet()) {
+      Assert.assertEquals(entry.getValue(), tree.get(entry.getKey()));
+    }
+    try (Stream<RawPair<String, RID>> stream = tree.allEntries()) {
+      assertEntries(keyValues, stream);
+    }
+  }
+
+  private AbstractPaginatedStorage storage() {
+    try (DatabaseSession session = youTrackDB.open(dbName, "admin", "admin")) {
+      return (AbstractPaginatedStorage) ((DatabaseSessionInternal) session).getStorage();
+    }
+  }
+
+  private void putRandomKeys(
+      final NavigableMap<String, RID> keyValues, final Random random, final int keysCount)
+      throws Exception {
+    final int rollbackInterval = 100;
+    while (keyValues.size() < keysCount) {
+      for (int n = 0; n < 2; n++) {
+        final int rollbackCounter = n;
+        try {
+          atomicOperationsManager.executeInsideAtomicOperation(
+              null,
+              atomicOperation -> {
+                for (int j = 0; j < rollbackInterval; j++) {
+                  final int val = random.nextInt(Integer.MAX_VALUE);
+                  final String key = Integer.toString(val);
+                  tree.put(atomicOperation, key, new RecordId(val % 32000, val));
+                  if (rollbackCounter == 1) {
+                    keyValues.put(key, new RecordId(val % 32000, val));
+                  }
+                }
+                if (rollbackCounter == 0) {
+                  throw new RollbackException();
+                }
+              });
+        } catch (RollbackException ignore) {
+        }
+      }
+    }
+  }
+
+  /**
+   * @return Either one of the stored keys or a key which lies between them.
+   */
+  private static String searchKey(final List<String> keys, final Random random) {
+    final String key = keys.get(random.nextInt(keys.size()));
+    if (random.nextBoolean()) {
+      return key.substring(0, key.length() - 1);
+    }
+    return key;
+  }
+
+  private static void assertEntries(
+      final NavigableMap<String, RID> expected, final Stream<RawPair<String, RID>> stream) {
+    final Iterator<RawPair<String, RID>> indexIterator = stream.iterator();
+    for (Map.Entry<String, RID> entry : expected.entrySet()) {
+      Assert.assertTrue(indexIterator.hasNext());
+      final RawPair<String, RID> indexEntry = indexIterator.next();
+      Assert.assertEquals(entry.getKey(), indexEntry.first);
+      Assert.assertEquals(entry.getValue(), indexEntry.second);
+    }
+    Assert.assertFalse(indexIterator.hasNext());
+  }
+
+  static final class RollbackException extends BaseException implements HighLevelException {
+
+    @SuppressWarnings("WeakerAccess")
+    public RollbackException() {
+      this("");
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public RollbackException(String message) {
+      super(message);
+    }
+
+    @SuppressWarnings("unused")
+    public RollbackException(RollbackException exception) {
+      super(exception);
+    }
+  }
+}
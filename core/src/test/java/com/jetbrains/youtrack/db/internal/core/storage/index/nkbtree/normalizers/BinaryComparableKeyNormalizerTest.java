@@ -0,0 +1,191 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.nkbtree.normalizers;
+
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.common.comparator.DefaultComparator;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.index.CompositeKey;
+import com.jetbrains.youtrack.db.internal.core.index.comparator.AlwaysGreaterKey;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryComparableKeyNormalizerTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unsupportedType() {
+    new BinaryComparableKeyNormalizer(new PropertyType[]{PropertyType.EMBEDDED});
+  }
+
+  @Test
+  public void integerOrder() {
+    assertOrder(
+        PropertyType.INTEGER,
+        Arrays.asList(null, Integer.MIN_VALUE, -42, -1, 0, 1, 42, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void integerKeyOfOtherTypeIsConverted() {
+    final BinaryComparableKeyNormalizer normalizer =
+        new BinaryComparableKeyNormalizer(new PropertyType[]{PropertyType.INTEGER});
+    Assert.assertArrayEquals(normalizer.normalize(42), normalizer.normalize(42L));
+    Assert.assertArrayEquals(normalizer.normalize(42), normalizer.normalize(42.0));
+    Assert.assertArrayEquals(normalizer.normalize(42), normalizer.normalize(new BigDecimal("42")));
+  }
+
+  @Test
+  public void integerKeyOutOfRangeIsRejected() {
+    final BinaryComparableKeyNormalizer normalizer =
+        new BinaryComparableKeyNormalizer(new PropertyType[]{PropertyType.INTEGER});
+    for (final Object key :
+        List.of(Integer.MAX_VALUE + 1L, (long) Integer.MIN_VALUE - 1, 4.5, Double.NaN, 1e20)) {
+      try {
+        normalizer.normalize(key);
+        Assert.fail("Key " + key + " is accepted");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void longOrder() {
+    assertOrder(
+        PropertyType.LONG, Arrays.asList(null, Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void doubleOrder() {
+    assertOrder(
+        PropertyType.DOUBLE,
+        Arrays.asList(
+            null,
+            Double.NEGATIVE_INFINITY,
+            -1e10,
+            -1.5,
+            -Double.MIN_VALUE,
+            -0.0,
+            0.0,
+            Double.MIN_VALUE,
+            1.5,
+            1e10,
+            Double.POSITIVE_INFINITY));
+  }
+
+  @Test
+  public void decimalOrder() {
+    assertOrder(
+        PropertyType.DECIMAL,
+        Arrays.asList(
+            null,
+            new BigDecimal("-1000"),
+            new BigDecimal("-99.5"),
+            new BigDecimal("-0.001"),
+            BigDecimal.ZERO,
+            new BigDecimal("0.001"),
+            new BigDecimal("0.0011"),
+            new BigDecimal("1"),
+            new BigDecimal("99.5"),
+            new BigDecimal("100"),
+            new BigDecimal("1000")));
+  }
+
+  @Test
+  public void equalDecimalsHaveEqualPresentation() {
+    final BinaryComparableKeyNormalizer normalizer =
+        new BinaryComparableKeyNormalizer(new PropertyType[]{PropertyType.DECIMAL});
+    Assert.assertArrayEquals(
+        normalizer.normalize(new BigDecimal("2.0")), normalizer.normalize(new BigDecimal("2.00")));
+  }
+
+  @Test
+  public void stringOrder() {
+    assertOrder(
+        PropertyType.STRING,
+        Arrays.asList(null, "", "\u0000", "\u0000a", "a", "a\u0000", "ab", "b", "ÿ", "￿"));
+  }
+
+  @Test
+  public void binaryOrder() {
+    final BinaryComparableKeyNormalizer normalizer =
+        new BinaryComparableKeyNormalizer(new PropertyType[]{PropertyType.BINARY});
+    final List<byte[]> values =
+        Arrays.asList(
+            new byte[0], new byte[]{0}, new byte[]{0, 0}, new byte[]{1}, new byte[]{(byte) 0xFF});
+
+    for (int i = 1; i < values.size(); i++) {
+      Assert.assertTrue(
+          Arrays.compareUnsigned(
+              normalizer.normalize(values.get(i - 1)), normalizer.normalize(values.get(i)))
+              < 0);
+    }
+  }
+
+  @Test
+  public void dateTimeOrder() {
+    assertOrder(
+        PropertyType.DATETIME,
+        Arrays.asList(null, new Date(-1000), new Date(0), new Date(1000)));
+  }
+
+  @Test
+  public void linkOrder() {
+    assertOrder(
+        PropertyType.LINK,
+        Arrays.asList(null, new RecordId(1, 10), new RecordId(1, 11), new RecordId(2, 0)));
+  }
+
+  @Test
+  public void compositeKeyOrder() {
+    final BinaryComparableKeyNormalizer normalizer =
+        new BinaryComparableKeyNormalizer(
+            new PropertyType[]{PropertyType.STRING, PropertyType.INTEGER});
+
+    final List<CompositeKey> keys =
+        Arrays.asList(
+            new CompositeKey(null, 1),
+            new CompositeKey("a", null),
+            new CompositeKey("a", -1),
+            new CompositeKey("a", 1),
+            new CompositeKey("ab", -1));
+
+    for (int i = 1; i < keys.size(); i++) {
+      Assert.assertTrue(
+          Arrays.compareUnsigned(
+              normalizer.normalize(keys.get(i - 1)), normalizer.normalize(keys.get(i)))
+              < 0);
+    }
+  }
+
+  @Test
+  public void partialKeyIsPrefixOfFullKey() {
+    final BinaryComparableKeyNormalizer normalizer =
+        new BinaryComparableKeyNormalizer(
+            new PropertyType[]{PropertyType.STRING, PropertyType.INTEGER});
+
+    final byte[] fullKey = normalizer.normalize(new CompositeKey("a", 1));
+    final byte[] partialKey = normalizer.normalize(new CompositeKey("a"));
+    final byte[] boundaryKey =
+        normalizer.normalize(new CompositeKey("a", new AlwaysGreaterKey()));
+
+    Assert.assertArrayEquals(partialKey, boundaryKey);
+    Assert.assertArrayEquals(partialKey, Arrays.copyOf(fullKey, partialKey.length));
+  }
+
+  private static void assertOrder(final PropertyType type, final List<?> values) {
+    final BinaryComparableKeyNormalizer normalizer =
+        new BinaryComparableKeyNormalizer(new PropertyType[]{type});
+
+    for (int i = 1; i < values.size(); i++) {
+      final Object first = values.get(i - 1);
+      final Object second = values.get(i);
+
+      Assert.assertTrue(DefaultComparator.INSTANCE.compare(first, second) < 0);
+      Assert.assertTrue(
+          first + " < " + second,
+          Arrays.compareUnsigned(normalizer.normalize(first), normalizer.normalize(second)) < 0);
+    }
+  }
+}
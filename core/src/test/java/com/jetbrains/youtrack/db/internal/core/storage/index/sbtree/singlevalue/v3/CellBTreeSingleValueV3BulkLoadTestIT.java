@@ -0,0 +1,357 @@
+package com.jetbrains.youtrack.db.internal.core.storage.index.sbtree.singlevalue.v3;
+
+import com.jetbrains.youtrack.db.api.DatabaseSession;
+import com.jetbrains.youtrack.db.api.YouTrackDB;
+import com.jetbrains.youtrack.db.api.config.YouTrackDBConfig;
+import com.jetbrains.youtrack.db.api.exception.BaseException;
+import com.jetbrains.youtrack.db.api.exception.HighLevelException;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.internal.common.io.FileUtils;
+import com.jetbrains.youtrack.db.internal.common.serialization.types.UTF8Serializer;
+import com.jetbrains.youtrack.db.internal.common.util.RawPair;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.db.YouTrackDBImpl;
+import com.jetbrains.youtrack.db.internal.core.id.RecordId;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexBulkLoader;
+import com.jetbrains.youtrack.db.internal.core.index.engine.IndexEngineValidator;
+import com.jetbrains.youtrack.db.internal.core.storage.cache.WriteCache;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.AbstractPaginatedStorage;
+import com.jetbrains.youtrack.db.internal.core.storage.impl.local.paginated.atomicoperations.AtomicOperationsManager;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CellBTreeSingleValueV3BulkLoadTestIT {
+
+  private static final IndexEngineValidator<String, RID> UNIQUE_VALIDATOR =
+      (key, oldValue, newValue) -> {
+        if (oldValue == null) {
+          return newValue;
+        }
+        if (oldValue.equals(newValue)) {
+          return IndexEngineValidator.IGNORE;
+        }
+
+        throw new DuplicateKeyException(key);
+      };
+
+  private AtomicOperationsManager atomicOperationsManager;
+  private AbstractPaginatedStorage storage;
+  private YouTrackDB youTrackDB;
+
+  private String buildDirectory;
+  private String dbName;
+
+  @Before
+  public void before() {
+    buildDirectory =
+        System.getProperty("buildDirectory", ".")
+            + File.separator
+            + CellBTreeSingleValueV3BulkLoadTestIT.class.getSimpleName();
+
+    dbName = "localSingleBTreeBulkLoadTest";
+    final File dbDirectory = new File(buildDirectory, dbName);
+    FileUtils.deleteRecursively(dbDirectory);
+
+    youTrackDB = new YouTrackDBImpl("plocal:" + buildDirectory, YouTrackDBConfig.builder().build());
+    youTrackDB.execute(
+        "create database " + dbName + " plocal users ( admin identified by 'admin' role admin)");
+
+    storage = storage();
+    atomicOperationsManager = storage.getAtomicOperationsManager();
+  }
+
+  @After
+  public void afterMethod() {
+    youTrackDB.drop(dbName);
+    youTrackDB.close();
+  }
+
+  @Test
+  public void testMultiLevelTree() throws Exception {
+    final CellBTreeSingleValueV3<String> tree = createTree("bulkTree");
+
+    final long seed = System.nanoTime();
+    System.out.println("testMultiLevelTree seed : " + seed);
+    final NavigableMap<String, RID> keyValues = randomKeys(new Random(seed), 500_000);
+
+    bulkLoad(tree, keyValues, 100, null);
+    assertContent(tree, keyValues);
+    Assert.assertFalse(tree.isBulkLoadInterrupted());
+
+    // tree built bottom-up is changed by the regular operations as usual
+    final Iterator<String> keysIterator = keyValues.keySet().iterator();
+    while (keysIterator.hasNext()) {
+      final String key = keysIterator.next();
+      if (key.hashCode() % 3 == 0) {
+        atomicOperationsManager.executeInsideAtomicOperation(
+            null, atomicOperation -> tree.remove(atomicOperation, key));
+        keysIterator.remove();
+      }
+    }
+    for (int i = 0; i < 10_000; i++) {
+      final String key = "added" + i;
+      final RID value = new RecordId(i % 32000, i);
+      atomicOperationsManager.executeInsideAtomicOperation(
+          null, atomicOperation -> tree.put(atomicOperation, key, value));
+      keyValues.put(key, value);
+    }
+    assertContent(tree, keyValues);
+  }
+
+  @Test
+  public void testFillFactor() throws Exception {
+    final CellBTreeSingleValueV3<String> fullTree = createTree("fullTree");
+    final CellBTreeSingleValueV3<String> halfTree = createTree("halfTree");
+
+    final long seed = System.nanoTime();
+    System.out.println("testFillFactor seed : " + seed);
+    final NavigableMap<String, RID> keyValues = randomKeys(new Random(seed), 100_000);
+
+    bulkLoad(fullTree, keyValues, 100, null);
+    bulkLoad(halfTree, keyValues, 50, null);
+
+    assertContent(fullTree, keyValues);
+    assertContent(halfTree, keyValues);
+
+    final long fullPages = filledUpTo("fullTree");
+    final long halfPages = filledUpTo("halfTree");
+    Assert.assertTrue(
+        "Pages of full tree " + fullPages + ", pages of half filled tree " + halfPages,
+        halfPages > fullPages * 3 / 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFillFactor() {
+    createTree("bulkTree").createBulkLoader(0, null);
+  }
+
+  @Test
+  public void testDuplicateKeysOfUniqueIndex() throws Exception {
+    final CellBTreeSingleValueV3<String> tree = createTree("bulkTree");
+
+    try (final IndexBulkLoader<String> loader = tree.createBulkLoader(100, UNIQUE_VALIDATOR)) {
+      for (int i = 0; i < 1_000; i++) {
+        loader.add("key" + i, new RecordId(1, i));
+      }
+      // the same entry which is added twice is not a duplicate
+      loader.add("key10", new RecordId(1, 10));
+      loader.add("key20", new RecordId(2, 20));
+
+      try {
+        loader.load();
+        Assert.fail();
+      } catch (DuplicateKeyException e) {
+        Assert.assertEquals("key20", e.getMessage());
+      }
+    }
+
+    // only the part of the tree is written, so the index has to be rebuilt
+    Assert.assertTrue(tree.isBulkLoadInterrupted());
+  }
+
+  @Test
+  public void testEqualKeysOfNotUniqueIndex() throws Exception {
+    final CellBTreeSingleValueV3<String> tree = createTree("bulkTree");
+
+    try (final IndexBulkLoader<String> loader = tree.createBulkLoader(100, null)) {
+      loader.add("key", new RecordId(1, 1));
+      loader.add("key", new RecordId(1, 2));
+      loader.load();
+    }
+
+    Assert.assertEquals(1, tree.size());
+    Assert.assertEquals(new RecordId(1, 2), tree.get("key"));
+  }
+
+  @Test
+  public void testNullKey() throws Exception {
+    final CellBTreeSingleValueV3<String> tree = createTree("bulkTree");
+
+    final NavigableMap<String, RID> keyValues = randomKeys(new Random(42), 1_000);
+    try (final IndexBulkLoader<String> loader = tree.createBulkLoader(100, UNIQUE_VALIDATOR)) {
+      loader.add(null, new RecordId(5, 5));
+      for (final Map.Entry<String, RID> entry : keyValues.entrySet()) {
+        loader.add(entry.getKey(), entry.getValue());
+      }
+      loader.load();
+    }
+
+    Assert.assertEquals(keyValues.size() + 1, tree.size());
+    Assert.assertEquals(new RecordId(5, 5), tree.get(null));
+    assertEntries(tree, keyValues);
+  }
+
+  @Test
+  public void testOnlyNullKey() throws Exception {
+    final CellBTreeSingleValueV3<String> tree = createTree("bulkTree");
+
+    try (final IndexBulkLoader<String> loader = tree.createBulkLoader(100, null)) {
+      loader.add(null, new RecordId(5, 5));
+      loader.load();
+    }
+
+    Assert.assertEquals(1, tree.size());
+    Assert.assertEquals(new RecordId(5, 5), tree.get(null));
+    Assert.assertNull(tree.firstKey());
+  }
+
+  @Test
+  public void testNotEmptyTreeIsRejected() throws Exception {
+    final CellBTreeSingleValueV3<String> tree = createTree("bulkTree");
+    atomicOperationsManager.executeInsideAtomicOperation(
+        null, atomicOperation -> tree.put(atomicOperation, "key", new RecordId(1, 1)));
+
+    try (final IndexBulkLoader<String> loader = tree.createBulkLoader(100, null)) {
+      loader.add("other", new RecordId(1, 2));
+      loader.load();
+      Assert.fail();
+    } catch (CellBTreeSingleValueV3Exception e) {
+      // expected
+    }
+
+    Assert.assertEquals(1, tree.size());
+    Assert.assertEquals(new RecordId(1, 1), tree.get("key"));
+    Assert.assertFalse(tree.isBulkLoadInterrupted());
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    CellBTreeSingleValueV3<String> tree = createTree("bulkTree");
+
+    final long seed = System.nanoTime();
+    System.out.println("testReopen seed : " + seed);
+    final NavigableMap<String, RID> keyValues = randomKeys(new Random(seed), 200_000);
+
+    bulkLoad(tree, keyValues, 90, null);
+
+    tree.close();
+    youTrackDB.close();
+
+    youTrackDB = new YouTrackDBImpl("plocal:" + buildDirectory, YouTrackDBConfig.builder().build());
+    storage = storage();
+    atomicOperationsManager = storage.getAtomicOperationsManager();
+
+    tree = new CellBTreeSingleValueV3<>("bulkTree", ".sbt", ".nbt", storage);
+    tree.load("bulkTree", 1, null, UTF8Serializer.INSTANCE);
+
+    assertContent(tree, keyValues);
+    Assert.assertFalse(tree.isBulkLoadInterrupted());
+  }
+
+  private CellBTreeSingleValueV3<String> createTree(final String name) {
+    final CellBTreeSingleValueV3<String> tree =
+        new CellBTreeSingleValueV3<>(name, ".sbt", ".nbt", storage);
+    try {
+      atomicOperationsManager.executeInsideAtomicOperation(
+          null, atomicOperation -> tree.create(atomicOperation, UTF8Serializer.INSTANCE, null, 1));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+    return tree;
+  }
+
+  private AbstractPaginatedStorage storage() {
+    try (DatabaseSession session = youTrackDB.open(dbName, "admin", "admin")) {
+      return (AbstractPaginatedStorage) ((DatabaseSessionInternal) session).getStorage();
+    }
+  }
+
+  private long filledUpTo(final String name) {
+    final WriteCache writeCache = storage.getWriteCache();
+    return writeCache.getFilledUpTo(writeCache.fileIdByName(name + ".sbt"));
+  }
+
+  /**
+   * Adds entries to the loader in random order, as they are met during the scan of clusters.
+   */
+  private static void bulkLoad(
+      final CellBTreeSingleValueV3<String> tree,
+      final NavigableMap<String, RID> keyValues,
+      final int fillFactor,
+      final IndexEngineValidator<String, RID> validator)
+      throws Exception {
+    final List<Map.Entry<String, RID>> entries = new ArrayList<>(keyValues.entrySet());
+    Collections.shuffle(entries, new Random(keyValues.size()));
+
+    try (final IndexBulkLoader<String> loader = tree.createBulkLoader(fillFactor, validator)) {
+      for (final Map.Entry<String, RID> entry : entries) {
+        loader.add(entry.getKey(), entry.getValue());
+      }
+      loader.load();
+    }
+  }
+
+  private static NavigableMap<String, RID> randomKeys(final Random random, final int keysCount) {
+    final NavigableMap<String, RID> keyValues = new TreeMap<>();
+    while (keyValues.size() < keysCount) {
+      final int val = random.nextInt(Integer.MAX_VALUE);
+      keyValues.put(Integer.toString(val), new RecordId(val % 32000, val));
+    }
+    return keyValues;
+  }
+
+  private static void assertContent(
+      final CellBTreeSingleValueV3<String> tree, final NavigableMap<String, RID> keyValues) {
+    Assert.assertEquals(keyValues.size(), tree.size());
+    Assert.assertEquals(keyValues.firstKey(), tree.firstKey());
+    Assert.assertEquals(keyValues.lastKey(), tree.lastKey());
+
+    for (final Map.Entry<String, RID> entry : keyValues.entrySet()) {
+      Assert.assertEquals(entry.getValue(), tree.get(entry.getKey()));
+    }
+
+    assertEntries(tree, keyValues);
+  }
+
+  private static void assertEntries(
+      final CellBTreeSingleValueV3<String> tree, final NavigableMap<String, RID> keyValues) {
+    try (final Stream<RawPair<String, RID>> stream =
+        tree.iterateEntriesMajor(keyValues.firstKey(), true, true)) {
+      final Iterator<RawPair<String, RID>> indexIterator = stream.iterator();
+      for (final Map.Entry<String, RID> entry : keyValues.entrySet()) {
+        Assert.assertTrue(indexIterator.hasNext());
+        final RawPair<String, RID> indexEntry = indexIterator.next();
+        Assert.assertEquals(entry.getKey(), indexEntry.first);
+        Assert.assertEquals(entry.getValue(), indexEntry.second);
+      }
+      Assert.assertFalse(indexIterator.hasNext());
+    }
+
+    try (final Stream<RawPair<String, RID>> stream =
+        tree.iterateEntriesMinor(keyValues.lastKey(), true, false)) {
+      final Iterator<RawPair<String, RID>> indexIterator = stream.iterator();
+      for (final Map.Entry<String, RID> entry : keyValues.descendingMap().entrySet()) {
+        Assert.assertTrue(indexIterator.hasNext());
+        final RawPair<String, RID> indexEntry = indexIterator.next();
+        Assert.assertEquals(entry.getKey(), indexEntry.first);
+        Assert.assertEquals(entry.getValue(), indexEntry.second);
+      }
+      Assert.assertFalse(indexIterator.hasNext());
+    }
+  }
+
+  static final class DuplicateKeyException extends BaseException implements HighLevelException {
+
+    @SuppressWarnings("WeakerAccess")
+    public DuplicateKeyException(String key) {
+      super(key);
+    }
+
+    @SuppressWarnings("unused")
+    public DuplicateKeyException(DuplicateKeyException exception) {
+      super(exception);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.jetbrains.youtrack.db.internal.enterprise.channel.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChannelBinaryCompressionTest {
+
+  @Test
+  public void testCompressedMessageIsRestored() throws IOException {
+    final ChannelBinaryCompression server = new ChannelBinaryCompression(64, 1024 * 1024);
+    final ChannelBinaryCompression client = new ChannelBinaryCompression(0, 1024 * 1024);
+
+    for (int i = 0; i < 3; i++) {
+      final byte[] content = content(4096 * (i + 1));
+
+      server.beginMessage().write(content);
+      Assert.assertTrue(server.endMessage());
+
+      final ByteArrayOutputStream wire = new ByteArrayOutputStream();
+      server.writeMessage(new DataOutputStream(wire));
+      Assert.assertTrue(wire.size() < content.length);
+
+      final DataInputStream in =
+          client.readMessage(new DataInputStream(new ByteArrayInputStream(wire.toByteArray())));
+      final byte[] restored = new byte[content.length];
+      in.readFully(restored);
+      Assert.assertArrayEquals(content, restored);
+      Assert.assertEquals(-1, in.read());
+    }
+  }
+
+  @Test
+  public void testSmallMessageIsNotCompressed() throws IOException {
+    final ChannelBinaryCompression server = new ChannelBinaryCompression(64, 1024 * 1024);
+    final byte[] content = content(63);
+
+    server.beginMessage().write(content);
+    Assert.assertFalse(server.endMessage());
+
+    final ByteArrayOutputStream wire = new ByteArrayOutputStream();
+    server.writeMessage(new DataOutputStream(wire));
+    Assert.assertArrayEquals(content, wire.toByteArray());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTooBigMessageIsRejected() throws IOException {
+    final ChannelBinaryCompression server = new ChannelBinaryCompression(0, 1024 * 1024);
+    final ChannelBinaryCompression client = new ChannelBinaryCompression(0, 1024);
+
+    server.beginMessage().write(content(4096));
+    Assert.assertTrue(server.endMessage());
+
+    final ByteArrayOutputStream wire = new ByteArrayOutputStream();
+    server.writeMessage(new DataOutputStream(wire));
+    client.readMessage(new DataInputStream(new ByteArrayInputStream(wire.toByteArray())));
+  }
+
+  @Test(expected = IOException.class)
+  public void testCompressedSizeBiggerThanContentIsRejected() throws IOException {
+    final ChannelBinaryCompression client = new ChannelBinaryCompression(0, Integer.MAX_VALUE);
+
+    final ByteArrayOutputStream wire = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(wire);
+    out.writeInt(16);
+    out.writeInt(Integer.MAX_VALUE);
+    client.readMessage(new DataInputStream(new ByteArrayInputStream(wire.toByteArray())));
+  }
+
+  private static byte[] content(final int size) {
+    final byte[] content = new byte[size];
+    final byte[] pattern = "{\"name\":\"value\",\"count\":42}".getBytes();
+    for (int i = 0; i < size; i += pattern.length) {
+      System.arraycopy(pattern, 0, content, i, Math.min(pattern.length, size - i));
+    }
+    return content;
+  }
+}
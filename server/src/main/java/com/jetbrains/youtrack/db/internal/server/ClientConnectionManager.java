@@ -437,7 +437,7 @@ public class ClientConnectionManager {
                     entry.getValue().getRemoteAddress());
           }
         }
-        if (protocol.isAlive()) {
+        if (protocol.isRunning()) {
           if (protocol instanceof NetworkProtocolBinary
               && ((NetworkProtocolBinary) protocol).getRequestType() == -1) {
             try {
@@ -456,13 +456,13 @@ public class ClientConnectionManager {
 
     for (NetworkProtocol protocol : toWait) {
       try {
-        protocol.join(
+        protocol.awaitTermination(
             server
                 .getContextConfiguration()
                 .getValueAsInteger(GlobalConfiguration.SERVER_CHANNEL_CLEAN_DELAY));
-        if (protocol.isAlive()) {
+        if (protocol.isRunning()) {
           protocol.interrupt();
-          protocol.join();
+          protocol.awaitTermination(0);
         }
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
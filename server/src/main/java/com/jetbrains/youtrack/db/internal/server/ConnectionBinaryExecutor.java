@@ -99,6 +99,8 @@ import com.jetbrains.youtrack.db.internal.client.remote.message.QueryRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.QueryResponse;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordResponse;
+import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordsRequest;
+import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordsResponse;
 import com.jetbrains.youtrack.db.internal.client.remote.message.RecordExistsRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.RecordExistsResponse;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReleaseDatabaseRequest;
@@ -490,6 +492,35 @@ public final class ConnectionBinaryExecutor implements BinaryRequestExecutor {
     return response;
   }
 
+  @Override
+  public BinaryResponse executeReadRecords(ReadRecordsRequest request) {
+    // records are loaded in the order of their positions in clusters, so the pages of the
+    // clusters are read sequentially and pages shared by several records are read once
+    final List<RecordId> rids = new ArrayList<>(request.getRids());
+    Collections.sort(rids);
+
+    final DatabaseSessionInternal database = connection.getDatabase();
+    final List<RecordAbstract> records = new ArrayList<>(rids.size());
+    RecordId prevRid = null;
+    for (final RecordId rid : rids) {
+      if (rid.equals(prevRid)) {
+        continue;
+      }
+      prevRid = rid;
+
+      try {
+        records.add(database.load(rid));
+      } catch (RecordNotFoundException e) {
+        // records which are not found are omitted, client loads them one by one
+      } catch (RuntimeException e) {
+        // the error is reported to the client once the record is loaded alone, so the rest of the
+        // records are still returned
+        LogManager.instance().debug(this, "Error during batch load of record %s", e, rid);
+      }
+    }
+    return new ReadRecordsResponse(records);
+  }
+
   @Override
   public BinaryResponse executeRecordExists(RecordExistsRequest request) {
     final RID rid = request.getRecordId();
@@ -33,6 +33,12 @@ public abstract class NetworkProtocol extends SoftThread {
 
   protected YouTrackDBServer server;
 
+  /**
+   * Virtual thread which serves the connection, or <code>null</code> if the connection is served by
+   * this thread.
+   */
+  private volatile Thread virtualThread;
+
   public NetworkProtocol(final ThreadGroup group, final String name) {
     super(group, name);
     setDumpExceptions(false);
@@ -64,4 +70,68 @@ public abstract class NetworkProtocol extends SoftThread {
   }
 
   public abstract BinaryRequestExecutor executor(ClientConnection connection);
+
+  /**
+   * Starts serving of the connection. If <code>virtual</code> is <code>true</code> connection is
+   * served by the virtual thread with the same name as this thread, otherwise this thread is
+   * started. Because the connection is served by a single thread during its whole life in both
+   * cases, state bound to the thread locals of the serving thread stays consistent.
+   */
+  protected void startProtocol(final boolean virtual) {
+    if (virtual) {
+      virtualThread =
+          Thread.ofVirtual()
+              .name(getName())
+              .uncaughtExceptionHandler(getUncaughtExceptionHandler())
+              .unstarted(this);
+      virtualThread.start();
+    } else {
+      start();
+    }
+  }
+
+  @Override
+  public void interrupt() {
+    final Thread virtualThread = this.virtualThread;
+    if (virtualThread != null) {
+      virtualThread.interrupt();
+    } else {
+      super.interrupt();
+    }
+  }
+
+  @Override
+  public boolean isInterrupted() {
+    final Thread virtualThread = this.virtualThread;
+    if (virtualThread != null) {
+      return virtualThread.isInterrupted();
+    }
+
+    return super.isInterrupted();
+  }
+
+  /**
+   * @return <code>true</code> if the thread which serves the connection is alive.
+   */
+  public boolean isRunning() {
+    final Thread virtualThread = this.virtualThread;
+    if (virtualThread != null) {
+      return virtualThread.isAlive();
+    }
+
+    return isAlive();
+  }
+
+  /**
+   * Waits at most <code>millis</code> milliseconds for the thread which serves the connection to
+   * die. A timeout of <code>0</code> means to wait forever.
+   */
+  public void awaitTermination(final long millis) throws InterruptedException {
+    final Thread virtualThread = this.virtualThread;
+    if (virtualThread != null) {
+      virtualThread.join(millis);
+    } else {
+      join(millis);
+    }
+  }
 }
@@ -63,6 +63,7 @@ import com.jetbrains.youtrack.db.internal.client.remote.message.OpenRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.QueryNextPageRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.QueryRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordRequest;
+import com.jetbrains.youtrack.db.internal.client.remote.message.ReadRecordsRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.RebeginTransaction38Request;
 import com.jetbrains.youtrack.db.internal.client.remote.message.RebeginTransactionRequest;
 import com.jetbrains.youtrack.db.internal.client.remote.message.RecordExistsRequest;
@@ -104,6 +105,7 @@ public class NetworkBinaryProtocolFactory {
     return switch (protocolVersion) {
       case 37 -> NetworkBinaryProtocolFactory::createRequest37;
       case 38 -> NetworkBinaryProtocolFactory::createRequest38;
+      case 39 -> NetworkBinaryProtocolFactory::createRequest39;
       default -> NetworkBinaryProtocolFactory::createRequest;
     };
   }
@@ -244,4 +246,14 @@ public class NetworkBinaryProtocolFactory {
       default -> createRequest37(requestType);
     };
   }
+
+  /**
+   * Protocol 39
+   */
+  public static BinaryRequest<? extends BinaryResponse> createRequest39(int requestType) {
+    return switch (requestType) {
+      case ChannelBinaryProtocol.REQUEST_RECORDS_LOAD -> new ReadRecordsRequest();
+      default -> createRequest38(requestType);
+    };
+  }
 }
@@ -56,6 +56,7 @@ import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.S
 import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.binary.RecordSerializerNetworkFactory;
 import com.jetbrains.youtrack.db.internal.core.serialization.serializer.record.string.RecordSerializerSchemaAware2CSV;
 import com.jetbrains.youtrack.db.internal.core.storage.ridbag.sbtree.SBTreeCollectionManager;
+import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelBinaryCompression;
 import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.ChannelBinaryProtocol;
 import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.NetworkProtocolException;
 import com.jetbrains.youtrack.db.internal.enterprise.channel.binary.SocketChannelBinary;
@@ -74,6 +75,7 @@ import com.jetbrains.youtrack.db.internal.server.network.ServerNetworkListener;
 import com.jetbrains.youtrack.db.internal.server.network.protocol.NetworkProtocol;
 import com.jetbrains.youtrack.db.internal.server.plugin.ServerPluginHelper;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.PrintStream;
@@ -99,6 +101,9 @@ public class NetworkProtocolBinary extends NetworkProtocol {
   private boolean tokenConnection = true;
   private long requests = 0;
   private HandshakeInfo handshakeInfo;
+  private int compressionThreshold = -1;
+  private int maxContentLength;
+  private ChannelBinaryCompression compression;
   private volatile BinaryPushResponse expectedPushResponse;
   private final BlockingQueue<BinaryPushResponse> pushResponse =
       new SynchronousQueue<BinaryPushResponse>();
@@ -142,6 +147,10 @@ public class NetworkProtocolBinary extends NetworkProtocol {
 
     SocketChannelBinaryServer channel = new SocketChannelBinaryServer(iSocket, iConfig);
     initVariables(iServer, channel);
+    compressionThreshold =
+        iConfig.getValueAsInteger(GlobalConfiguration.NETWORK_BINARY_COMPRESSION_THRESHOLD);
+    maxContentLength =
+        iConfig.getValueAsInteger(GlobalConfiguration.NETWORK_BINARY_MAX_CONTENT_LENGTH) * 1024;
 
     // SEND PROTOCOL VERSION
     channel.writeShort((short) getVersion());
@@ -150,13 +159,13 @@ public class NetworkProtocolBinary extends NetworkProtocol {
 
     ServerPluginHelper.invokeHandlerCallbackOnSocketAccepted(server, this);
 
-    start();
     setName(
         "YouTrackDB ("
             + iSocket.getLocalSocketAddress()
             + ") <- BinaryClient ("
             + iSocket.getRemoteSocketAddress()
             + ")");
+    startProtocol(iConfig.getValueAsBoolean(GlobalConfiguration.NETWORK_BINARY_VIRTUAL_THREADS));
   }
 
   @Override
@@ -273,6 +282,9 @@ public class NetworkProtocolBinary extends NetworkProtocol {
     this.handshakeInfo =
         new HandshakeInfo(protocolVersion, driverName, driverVersion, encoding, errorEncoding);
     this.factory = NetworkBinaryProtocolFactory.matchProtocol(protocolVersion);
+    if (encoding == ChannelBinaryProtocol.ENCODING_LZ4 && compressionThreshold >= 0) {
+      compression = new ChannelBinaryCompression(compressionThreshold, maxContentLength);
+    }
   }
 
   public void setHandshakeInfo(HandshakeInfo handshakeInfo) {
@@ -399,10 +411,14 @@ public class NetworkProtocolBinary extends NetworkProtocol {
             if (response != null) {
               beginResponse();
               try {
-                sendOk(connection, clientTxId);
-                response.write(connection.getDatabase(),
-                    channel,
-                    connection.getData().protocolVersion, connection.getData().getSerializer());
+                if (compression != null) {
+                  sendCompressedResponse(connection, clientTxId, response);
+                } else {
+                  sendOk(connection, clientTxId);
+                  response.write(connection.getDatabase(),
+                      channel,
+                      connection.getData().protocolVersion, connection.getData().getSerializer());
+                }
               } finally {
                 endResponse();
               }
@@ -886,8 +902,38 @@ public class NetworkProtocolBinary extends NetworkProtocol {
     }
   }
 
+  /**
+   * Writes content of the response to the buffer of the connection first, so the status of the
+   * response tells the client if the content is compressed.
+   */
+  private void sendCompressedResponse(
+      ClientConnection connection, final int iClientTxId, BinaryResponse response)
+      throws IOException {
+    final DataOutputStream out = channel.out;
+    channel.out = compression.beginMessage();
+    try {
+      response.write(connection.getDatabase(),
+          channel,
+          connection.getData().protocolVersion, connection.getData().getSerializer());
+    } finally {
+      channel.out = out;
+    }
+
+    if (compression.endMessage()) {
+      sendOk(connection, iClientTxId, ChannelBinaryProtocol.RESPONSE_STATUS_OK_COMPRESSED);
+    } else {
+      sendOk(connection, iClientTxId, ChannelBinaryProtocol.RESPONSE_STATUS_OK);
+    }
+    compression.writeMessage(channel.out);
+  }
+
   protected void sendOk(ClientConnection connection, final int iClientTxId) throws IOException {
-    channel.writeByte(ChannelBinaryProtocol.RESPONSE_STATUS_OK);
+    sendOk(connection, iClientTxId, ChannelBinaryProtocol.RESPONSE_STATUS_OK);
+  }
+
+  private void sendOk(ClientConnection connection, final int iClientTxId, final byte status)
+      throws IOException {
+    channel.writeByte(status);
     channel.writeInt(iClientTxId);
     okSent = true;
     if (handshakeInfo != null) {
@@ -0,0 +1,226 @@
+package com.jetbrains.youtrack.db.internal.server;
+
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.query.Result;
+import com.jetbrains.youtrack.db.api.query.ResultSet;
+import com.jetbrains.youtrack.db.api.record.DBRecord;
+import com.jetbrains.youtrack.db.api.record.Direction;
+import com.jetbrains.youtrack.db.api.record.Entity;
+import com.jetbrains.youtrack.db.api.record.Identifiable;
+import com.jetbrains.youtrack.db.api.record.RID;
+import com.jetbrains.youtrack.db.api.record.Vertex;
+import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.api.schema.SchemaClass;
+import com.jetbrains.youtrack.db.internal.core.db.DatabaseSessionInternal;
+import com.jetbrains.youtrack.db.internal.core.record.RecordAbstract;
+import com.jetbrains.youtrack.db.internal.core.record.impl.DocumentHelper;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RemotePreloadRecordsTest extends BaseServerMemoryDatabase {
+
+  private static final int LINKS = 20;
+  private static final int BATCH_SIZE = 7;
+
+  private Object batchSize;
+
+  @Override
+  public void beforeTest() {
+    // several requests are pipelined to load all the links
+    batchSize = GlobalConfiguration.NETWORK_BINARY_READ_RECORDS_BATCH_SIZE.getValue();
+    GlobalConfiguration.NETWORK_BINARY_READ_RECORDS_BATCH_SIZE.setValue(BATCH_SIZE);
+
+    super.beforeTest();
+
+    db.createVertexClass("Person");
+    db.createEdgeClass("Knows");
+    final SchemaClass team = db.createClass("Team");
+    team.createProperty(db, "members", PropertyType.LINKLIST);
+    db.createClass("Fan");
+  }
+
+  @After
+  public void afterPreloadTest() {
+    GlobalConfiguration.NETWORK_BINARY_READ_RECORDS_BATCH_SIZE.setValue(batchSize);
+  }
+
+  @Test
+  public void testVerticesAreLoadedTogether() {
+    final List<RID> rids = new ArrayList<>();
+    db.begin();
+    final Vertex hub = db.newVertex("Person");
+    hub.setProperty("name", "hub");
+    final List<Vertex> friends = new ArrayList<>();
+    for (int i = 0; i < LINKS; i++) {
+      final Vertex friend = db.newVertex("Person");
+      friend.setProperty("name", "friend" + i);
+      hub.addEdge(friend, "Knows");
+      friends.add(friend);
+    }
+    db.save(hub);
+    db.commit();
+
+    for (final Vertex friend : friends) {
+      rids.add(friend.getIdentity());
+    }
+    final RID hubRid = hub.getIdentity();
+
+    reopen();
+
+    db.begin();
+    final Entity loadedHub = db.load(hubRid);
+    final Iterator<Vertex> vertices =
+        loadedHub.toVertex().getVertices(Direction.OUT, "Knows").iterator();
+    Assert.assertTrue(vertices.hasNext());
+    final Set<String> names = new HashSet<>();
+    names.add(vertices.next().getProperty("name"));
+
+    // only the first batch of vertices is loaded by the first access
+    Assert.assertEquals(BATCH_SIZE, countCached(rids));
+
+    names.add(vertices.next().getProperty("name"));
+    Assert.assertEquals(BATCH_SIZE, countCached(rids));
+
+    while (vertices.hasNext()) {
+      names.add(vertices.next().getProperty("name"));
+    }
+    Assert.assertEquals(LINKS, names.size());
+    db.commit();
+  }
+
+  @Test
+  public void testLinkListIsLoadedTogether() {
+    db.begin();
+    final Entity team = db.newEntity("Team");
+    final List<Identifiable> members = new ArrayList<>();
+    for (int i = 0; i < LINKS; i++) {
+      final Entity member = db.newEntity();
+      member.setProperty("name", "member" + i);
+      db.save(member);
+      members.add(member);
+    }
+    team.setProperty("members", members);
+    db.save(team);
+    db.commit();
+
+    final RID teamRid = team.getIdentity();
+    reopen();
+
+    db.begin();
+    final Entity loadedTeam = db.load(teamRid);
+    final Object names = DocumentHelper.getFieldValue(db, loadedTeam, "members.name");
+    Assert.assertTrue(names instanceof Set<?>);
+    Assert.assertEquals(LINKS, ((Set<?>) names).size());
+    for (int i = 0; i < LINKS; i++) {
+      Assert.assertTrue(((Set<?>) names).contains("member" + i));
+    }
+    db.commit();
+  }
+
+  @Test
+  public void testLinksOfQueryResultsAreLoadedTogether() {
+    final List<RID> rids = new ArrayList<>();
+    db.begin();
+    final List<Entity> friends = new ArrayList<>();
+    for (int i = 0; i < LINKS; i++) {
+      final Entity friend = db.newEntity();
+      friend.setProperty("name", "friend" + i);
+      db.save(friend);
+
+      final Entity fan = db.newEntity("Fan");
+      fan.setProperty("id", i);
+      fan.setProperty("bestFriend", friend);
+      db.save(fan);
+      friends.add(friend);
+    }
+    db.commit();
+
+    for (final Entity friend : friends) {
+      rids.add(friend.getIdentity());
+    }
+    reopen();
+
+    db.begin();
+    try (final ResultSet resultSet =
+        db.query("select id, bestFriend from Fan order by id")) {
+      // links of the page are loaded together with it
+      Assert.assertTrue(resultSet.hasNext());
+      assertCached(rids);
+
+      int count = 0;
+      while (resultSet.hasNext()) {
+        final Result result = resultSet.next();
+        Assert.assertEquals(
+            "friend" + result.getProperty("id"),
+            result.getEntityProperty("bestFriend").getProperty("name"));
+        count++;
+      }
+      Assert.assertEquals(LINKS, count);
+    }
+    db.commit();
+  }
+
+  @Test
+  public void testRecordsWhichAreNotFoundAreSkipped() {
+    db.begin();
+    final List<Entity> entities = new ArrayList<>();
+    for (int i = 0; i < LINKS; i++) {
+      final Entity entity = db.newEntity();
+      entity.setProperty("name", "entity" + i);
+      db.save(entity);
+      entities.add(entity);
+    }
+    db.commit();
+
+    final List<RID> rids = new ArrayList<>();
+    for (final Entity entity : entities) {
+      rids.add(entity.getIdentity());
+    }
+
+    db.begin();
+    final RID deleted = rids.get(LINKS / 2);
+    db.delete(deleted);
+    db.commit();
+
+    reopen();
+
+    db.begin();
+    final List<? extends DBRecord> records = db.preloadRecords(rids);
+    Assert.assertEquals(LINKS - 1, records.size());
+    for (final DBRecord record : records) {
+      Assert.assertNotEquals(deleted, record.getIdentity());
+      Assert.assertTrue(rids.contains(record.getIdentity()));
+    }
+    db.commit();
+  }
+
+  private void reopen() {
+    db.close();
+    db = (DatabaseSessionInternal) context.open(name.getMethodName(), "admin", "adminpwd");
+  }
+
+  private int countCached(final List<RID> rids) {
+    int count = 0;
+    for (final RID rid : rids) {
+      final RecordAbstract record = db.getLocalCache().findRecord(rid);
+      if (record != null && !record.isUnloaded()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void assertCached(final List<RID> rids) {
+    for (final RID rid : rids) {
+      final RecordAbstract record = db.getLocalCache().findRecord(rid);
+      Assert.assertNotNull(record);
+      Assert.assertFalse(record.isUnloaded());
+    }
+  }
+}
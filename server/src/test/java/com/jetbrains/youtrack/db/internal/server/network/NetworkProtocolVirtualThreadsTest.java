@@ -0,0 +1,90 @@
+package com.jetbrains.youtrack.db.internal.server.network;
+
+import com.jetbrains.youtrack.db.api.DatabaseSession;
+import com.jetbrains.youtrack.db.api.config.GlobalConfiguration;
+import com.jetbrains.youtrack.db.api.config.YouTrackDBConfig;
+import com.jetbrains.youtrack.db.api.query.ResultSet;
+import com.jetbrains.youtrack.db.internal.common.io.FileUtils;
+import com.jetbrains.youtrack.db.internal.core.db.YouTrackDBImpl;
+import com.jetbrains.youtrack.db.internal.server.ClientConnection;
+import com.jetbrains.youtrack.db.internal.server.YouTrackDBServer;
+import com.jetbrains.youtrack.db.internal.server.network.protocol.NetworkProtocol;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkProtocolVirtualThreadsTest {
+
+  private Object virtualThreads;
+  private YouTrackDBServer server;
+  private YouTrackDBImpl youTrackDB;
+
+  @Before
+  public void before() throws Exception {
+    virtualThreads = GlobalConfiguration.NETWORK_BINARY_VIRTUAL_THREADS.getValue();
+    GlobalConfiguration.NETWORK_BINARY_VIRTUAL_THREADS.setValue(true);
+
+    server = new YouTrackDBServer(false);
+    server.startup(getClass().getResourceAsStream("youtrackdb-server-config.xml"));
+    server.activate();
+
+    youTrackDB =
+        new YouTrackDBImpl("remote:localhost", "root", "root", YouTrackDBConfig.defaultConfig());
+    youTrackDB
+        .execute(
+            "create database virtualThreads memory users(admin identified by 'adminpwd' role"
+                + " admin)")
+        .close();
+  }
+
+  @After
+  public void after() {
+    youTrackDB.close();
+    final String directory = server.getDatabaseDirectory();
+    server.shutdown();
+    FileUtils.deleteRecursively(new File(directory));
+
+    GlobalConfiguration.NETWORK_BINARY_VIRTUAL_THREADS.setValue(virtualThreads);
+  }
+
+  @Test
+  public void testConnectionIsServedByVirtualThreadAndStoppedOnShutdown() {
+    try (final DatabaseSession session =
+        youTrackDB.open("virtualThreads", "admin", "adminpwd")) {
+      session.begin();
+      session.save(session.newVertex("V"));
+      session.commit();
+
+      try (final ResultSet result = session.query("select from V")) {
+        Assert.assertEquals(1, result.stream().count());
+      }
+
+      final List<NetworkProtocol> protocols = new ArrayList<>();
+      for (final ClientConnection connection :
+          server.getClientConnectionManager().getConnections()) {
+        final NetworkProtocol protocol = connection.getProtocol();
+        if (protocol != null && !protocols.contains(protocol)) {
+          protocols.add(protocol);
+        }
+      }
+      Assert.assertFalse(protocols.isEmpty());
+
+      for (final NetworkProtocol protocol : protocols) {
+        // connection is served by the virtual thread, the protocol thread itself is never started
+        Assert.assertTrue(protocol.isRunning());
+        Assert.assertFalse(protocol.isAlive());
+      }
+
+      // shutdown interrupts idle connections and waits till serving threads are finished
+      server.getClientConnectionManager().shutdown();
+
+      for (final NetworkProtocol protocol : protocols) {
+        Assert.assertFalse(protocol.isRunning());
+      }
+    }
+  }
+}
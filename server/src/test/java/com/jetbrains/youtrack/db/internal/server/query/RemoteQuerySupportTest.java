@@ -1,6 +1,7 @@
 package com.jetbrains.youtrack.db.internal.server.query;
 
 import static com.jetbrains.youtrack.db.api.config.GlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE;
+import static com.jetbrains.youtrack.db.api.config.GlobalConfiguration.QUERY_REMOTE_RESULTSET_PREFETCH;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -10,6 +11,8 @@ import com.jetbrains.youtrack.db.api.query.Result;
 import com.jetbrains.youtrack.db.api.query.ResultSet;
 import com.jetbrains.youtrack.db.api.record.DBRecord;
 import com.jetbrains.youtrack.db.api.schema.PropertyType;
+import com.jetbrains.youtrack.db.internal.client.remote.RemoteConnectionManager;
+import com.jetbrains.youtrack.db.internal.client.remote.StorageRemote;
 import com.jetbrains.youtrack.db.internal.core.exception.SerializationException;
 import com.jetbrains.youtrack.db.internal.core.id.RecordId;
 import com.jetbrains.youtrack.db.internal.core.record.impl.EntityImpl;
@@ -296,6 +299,53 @@ public class RemoteQuerySupportTest extends BaseServerMemoryDatabase {
     assertEquals(rs.stream().count(), 2);
   }
 
+  @Test
+  public void testAbandonedPrefetchedResultSetsDoNotHoldConnections() {
+    for (int i = 0; i < 150; i++) {
+      db.begin();
+      EntityImpl doc = new EntityImpl("Some");
+      doc.setProperty("prop", "value");
+      db.save(doc);
+      db.commit();
+    }
+
+    final boolean oldPrefetch = QUERY_REMOTE_RESULTSET_PREFETCH.getValueAsBoolean();
+    QUERY_REMOTE_RESULTSET_PREFETCH.setValue(true);
+    try {
+      final RemoteConnectionManager connectionManager =
+          ((StorageRemote) db.getStorage()).connectionManager;
+      final int usedBefore = usedConnections(connectionManager);
+
+      // none of the result sets is consumed or closed, but only one prefetched page is left
+      // unread on a connection
+      final List<ResultSet> resultSets = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        final ResultSet res = db.query("select from Some");
+        assertTrue(res.hasNext());
+        res.next();
+        resultSets.add(res);
+      }
+      assertTrue(usedConnections(connectionManager) - usedBefore <= 1);
+
+      // pages read ahead of time are still returned by the result sets
+      for (ResultSet res : resultSets) {
+        assertEquals(149, res.stream().count());
+      }
+      assertEquals(usedBefore, usedConnections(connectionManager));
+    } finally {
+      QUERY_REMOTE_RESULTSET_PREFETCH.setValue(oldPrefetch);
+    }
+  }
+
+  private static int usedConnections(RemoteConnectionManager connectionManager) {
+    int used = 0;
+    for (String url : connectionManager.getURLs()) {
+      used += connectionManager.getCreatedInstancesInPool(url)
+          - connectionManager.getReusableConnections(url);
+    }
+    return used;
+  }
+
   public void afterTest() {
     super.afterTest();
     QUERY_REMOTE_RESULTSET_PAGE_SIZE.setValue(oldPageSize);